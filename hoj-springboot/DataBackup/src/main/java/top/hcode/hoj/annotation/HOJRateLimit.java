@@ -0,0 +1,40 @@
+package top.hcode.hoj.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @Author Himit_ZH
+ * @Date 2026/10/19
+ * @Description 接口限流，默认按登录用户(未登录则按ip)计数
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface HOJRateLimit {
+
+    /**
+     * 限流的名称，默认为类名.方法名
+     */
+    String key() default "";
+
+    HOJRateLimitEnum type() default HOJRateLimitEnum.TOKEN_BUCKET;
+
+    /**
+     * 令牌桶的容量或滑动窗口内允许的次数
+     */
+    int limit() default 10;
+
+    /**
+     * 单位：秒
+     */
+    int period() default 10;
+
+    /**
+     * 是否所有用户共享同一个计数
+     */
+    boolean global() default false;
+
+    String message() default "对不起，您的访问过于频繁，请稍后再尝试！";
+}
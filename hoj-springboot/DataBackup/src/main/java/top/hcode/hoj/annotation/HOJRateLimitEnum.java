@@ -0,0 +1,17 @@
+package top.hcode.hoj.annotation;
+
+/**
+ * @Author Himit_ZH
+ * @Date 2026/10/19
+ */
+public enum HOJRateLimitEnum {
+    /**
+     * 令牌桶：允许limit次的突发访问，之后每period/limit时间恢复一次
+     */
+    TOKEN_BUCKET,
+
+    /**
+     * 滑动窗口：任意period时间内最多访问limit次
+     */
+    SLIDING_WINDOW
+}
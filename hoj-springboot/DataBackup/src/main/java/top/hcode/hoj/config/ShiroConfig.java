@@ -17,6 +17,7 @@ import top.hcode.hoj.shiro.AccountRealm;
 import top.hcode.hoj.shiro.JwtFilter;
 import top.hcode.hoj.shiro.ShiroCacheManager;
 import top.hcode.hoj.shiro.ShiroConstant;
+import top.hcode.hoj.shiro.ShiroLocalCache;
 import top.hcode.hoj.utils.RedisUtils;
 
 import javax.servlet.Filter;
@@ -42,13 +43,14 @@ public class ShiroConfig {
     private long expire;
 
     @Bean
-    public DefaultWebSecurityManager securityManager(AccountRealm accountRealm) {
+    public DefaultWebSecurityManager securityManager(AccountRealm accountRealm, ShiroLocalCache shiroLocalCache) {
         DefaultWebSecurityManager securityManager = new DefaultWebSecurityManager(accountRealm);
 
         ShiroCacheManager shiroCacheManager = new ShiroCacheManager();
         shiroCacheManager.setCacheLive(expire);
         shiroCacheManager.setCacheKeyPrefix(ShiroConstant.SHIRO_AUTHORIZATION_CACHE);
         shiroCacheManager.setRedisUtils(redisUtils);
+        shiroCacheManager.setShiroLocalCache(shiroLocalCache);
         securityManager.setCacheManager(shiroCacheManager);
         /*
          * 关闭shiro自带的session，详情见文档
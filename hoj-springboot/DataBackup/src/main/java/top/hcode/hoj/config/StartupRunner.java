@@ -17,6 +17,9 @@ import top.hcode.hoj.dao.problem.LanguageEntityService;
 import top.hcode.hoj.dao.problem.ProblemEntityService;
 import top.hcode.hoj.dao.problem.ProblemLanguageEntityService;
 import top.hcode.hoj.manager.admin.system.ConfigManager;
+import top.hcode.hoj.manager.oj.DiscussionSearchIndexManager;
+import top.hcode.hoj.manager.oj.ProblemListIndexManager;
+import top.hcode.hoj.manager.oj.UserSearchIndexManager;
 import top.hcode.hoj.pojo.entity.judge.RemoteJudgeAccount;
 import top.hcode.hoj.pojo.entity.problem.Language;
 import top.hcode.hoj.pojo.entity.problem.Problem;
@@ -161,6 +164,15 @@ public class StartupRunner implements CommandLineRunner {
     @Resource
     private CheckLanguageConfig checkLanguageConfig;
 
+    @Resource
+    private ProblemListIndexManager problemListIndexManager;
+
+    @Resource
+    private UserSearchIndexManager userSearchIndexManager;
+
+    @Resource
+    private DiscussionSearchIndexManager discussionSearchIndexManager;
+
     @Override
     public void run(String... args) throws Exception {
 
@@ -182,6 +194,20 @@ public class StartupRunner implements CommandLineRunner {
 
         upsertHOJLanguageV3();
 
+        initSearchIndex();
+    }
+
+    /**
+     * 预先建立题目、用户、讨论的搜索索引，避免第一次搜索时才全量加载
+     */
+    private void initSearchIndex() {
+        try {
+            problemListIndexManager.init();
+            userSearchIndexManager.init();
+            discussionSearchIndexManager.init();
+        } catch (Exception e) {
+            log.error("[Init Search Index] 初始化搜索索引失败，将在第一次搜索时重新建立------------>", e);
+        }
     }
 
 
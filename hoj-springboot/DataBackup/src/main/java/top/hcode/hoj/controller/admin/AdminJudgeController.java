@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import top.hcode.hoj.common.result.CommonResult;
 import top.hcode.hoj.pojo.entity.judge.Judge;
+import top.hcode.hoj.pojo.vo.RejudgeProgressVO;
 import top.hcode.hoj.service.admin.rejudge.RejudgeService;
 
 
@@ -39,10 +40,34 @@ public class AdminJudgeController {
     @RequiresAuthentication
     @RequiresRoles("root")  // 只有超级管理员能操作
     @RequiresPermissions("rejudge")
-    public CommonResult<Void> rejudgeContestProblem(@RequestParam("cid") Long cid, @RequestParam("pid") Long pid) {
+    public CommonResult<RejudgeProgressVO> rejudgeContestProblem(@RequestParam("cid") Long cid, @RequestParam("pid") Long pid) {
         return rejudgeService.rejudgeContestProblem(cid, pid);
     }
 
+    @GetMapping("/rejudge-contest")
+    @RequiresAuthentication
+    @RequiresRoles("root")  // 只有超级管理员能操作
+    @RequiresPermissions("rejudge")
+    public CommonResult<RejudgeProgressVO> rejudgeContest(@RequestParam("cid") Long cid) {
+        return rejudgeService.rejudgeContest(cid);
+    }
+
+    @GetMapping("/rejudge-progress")
+    @RequiresAuthentication
+    @RequiresRoles("root")  // 只有超级管理员能操作
+    @RequiresPermissions("rejudge")
+    public CommonResult<RejudgeProgressVO> getRejudgeProgress(@RequestParam("jobId") String jobId) {
+        return rejudgeService.getRejudgeProgress(jobId);
+    }
+
+    @GetMapping("/cancel-rejudge")
+    @RequiresAuthentication
+    @RequiresRoles("root")  // 只有超级管理员能操作
+    @RequiresPermissions("rejudge")
+    public CommonResult<RejudgeProgressVO> cancelRejudge(@RequestParam("jobId") String jobId) {
+        return rejudgeService.cancelRejudge(jobId);
+    }
+
 
     @GetMapping("/manual-judge")
     @RequiresAuthentication
@@ -7,6 +7,8 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import top.hcode.hoj.annotation.HOJRateLimit;
+import top.hcode.hoj.annotation.HOJRateLimitEnum;
 import top.hcode.hoj.common.exception.StatusFailException;
 import top.hcode.hoj.common.exception.StatusForbiddenException;
 import top.hcode.hoj.service.file.ContestFileService;
@@ -27,6 +29,8 @@ public class ContestFileController {
     private ContestFileService contestFileService;
 
 
+    @HOJRateLimit(type = HOJRateLimitEnum.SLIDING_WINDOW, limit = 5, period = 60,
+            message = "对不起，您导出过于频繁，请稍后再尝试！")
     @GetMapping("/download-contest-rank")
     @RequiresAuthentication
     public void downloadContestRank(@RequestParam("cid") Long cid,
@@ -37,6 +41,8 @@ public class ContestFileController {
         contestFileService.downloadContestRank(cid, forceRefresh, removeStar, isContainsAfterContestJudge, response);
     }
 
+    @HOJRateLimit(type = HOJRateLimitEnum.SLIDING_WINDOW, limit = 5, period = 60,
+            message = "对不起，您导出过于频繁，请稍后再尝试！")
     @GetMapping("/download-contest-ac-submission")
     @RequiresAuthentication
     public void downloadContestACSubmission(@RequestParam("cid") Long cid,
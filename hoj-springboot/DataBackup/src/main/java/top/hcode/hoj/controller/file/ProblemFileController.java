@@ -7,6 +7,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import top.hcode.hoj.annotation.HOJRateLimit;
+import top.hcode.hoj.annotation.HOJRateLimitEnum;
 import top.hcode.hoj.common.result.CommonResult;
 import top.hcode.hoj.service.file.ProblemFileService;
 import javax.servlet.http.HttpServletResponse;
@@ -49,6 +51,8 @@ public class ProblemFileController {
      * @Return
      * @Since 2021/5/28
      */
+    @HOJRateLimit(type = HOJRateLimitEnum.SLIDING_WINDOW, limit = 5, period = 60,
+            message = "对不起，您导出过于频繁，请稍后再尝试！")
     @GetMapping("/export-problem")
     @RequiresAuthentication
     @RequiresRoles("root")
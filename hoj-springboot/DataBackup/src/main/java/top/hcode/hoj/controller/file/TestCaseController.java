@@ -1,6 +1,8 @@
 package top.hcode.hoj.controller.file;
 
+import top.hcode.hoj.annotation.AnonApi;
 import top.hcode.hoj.common.exception.StatusForbiddenException;
+import top.hcode.hoj.common.exception.StatusNotFoundException;
 import org.apache.shiro.authz.annotation.RequiresAuthentication;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -10,7 +12,9 @@ import top.hcode.hoj.common.exception.StatusFailException;
 import top.hcode.hoj.common.result.CommonResult;
 import top.hcode.hoj.service.file.TestCaseService;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -41,4 +45,31 @@ public class TestCaseController {
     public void downloadTestcase(@RequestParam("pid") Long pid, HttpServletResponse response) throws StatusFailException, StatusForbiddenException {
         testCaseService.downloadTestcase(pid, response);
     }
-}
\ No newline at end of file
+
+
+    /**
+     * 判题机获取题目测试数据的清单，使用判题服务调用凭证校验
+     */
+    @GetMapping("/testcase-manifest")
+    @ResponseBody
+    @AnonApi
+    public CommonResult<Map<String, Object>> getTestcaseManifest(@RequestParam("pid") Long pid,
+                                                                 @RequestHeader(value = "Judge-Token", required = false) String token) {
+        return testCaseService.getTestcaseManifest(pid, token);
+    }
+
+    /**
+     * 判题机按清单下载测试数据文件，支持Range分段续传
+     */
+    @GetMapping("/testcase-blob")
+    @AnonApi
+    public void downloadTestcaseBlob(@RequestParam("pid") Long pid,
+                                     @RequestParam("name") String name,
+                                     @RequestParam("sha256") String sha256,
+                                     @RequestHeader(value = "Judge-Token", required = false) String token,
+                                     HttpServletRequest request,
+                                     HttpServletResponse response) throws StatusFailException, StatusForbiddenException,
+            StatusNotFoundException, IOException {
+        testCaseService.downloadTestcaseBlob(pid, name, sha256, token, request, response);
+    }
+}
@@ -5,6 +5,7 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import org.apache.shiro.authz.annotation.RequiresAuthentication;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import top.hcode.hoj.annotation.HOJRateLimit;
 import top.hcode.hoj.annotation.AnonApi;
 import top.hcode.hoj.common.result.CommonResult;
 import top.hcode.hoj.pojo.dto.ContestPrintDTO;
@@ -121,7 +122,8 @@ public class ContestController {
                                                                  @RequestParam(value = "contestID", required = true) Long searchCid,
                                                                  @RequestParam(value = "beforeContestSubmit", required = true) Boolean beforeContestSubmit,
                                                                  @RequestParam(value = "completeProblemID", defaultValue = "false") Boolean completeProblemID,
-                                                                 @RequestParam(value = "containsEnd", defaultValue = "false") Boolean containsEnd) {
+                                                                 @RequestParam(value = "containsEnd", defaultValue = "false") Boolean containsEnd,
+                                                                 @RequestParam(value = "before", required = false) Long before) {
 
         return contestService.getContestSubmissionList(limit,
                 currentPage,
@@ -132,7 +134,8 @@ public class ContestController {
                 searchCid,
                 beforeContestSubmit,
                 completeProblemID,
-                containsEnd);
+                containsEnd,
+                before);
     }
 
 
@@ -142,6 +145,7 @@ public class ContestController {
      * @Return
      * @Since 2020/10/28
      */
+    @HOJRateLimit(limit = 20, period = 10)
     @PostMapping("/get-contest-rank")
     @RequiresAuthentication
     public CommonResult<IPage> getContestRank(@RequestBody ContestRankDTO contestRankDto) {
@@ -5,7 +5,9 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import org.apache.shiro.authz.annotation.RequiresAuthentication;
 import org.apache.shiro.authz.annotation.RequiresPermissions;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import top.hcode.hoj.annotation.AnonApi;
 import top.hcode.hoj.common.result.CommonResult;
 import top.hcode.hoj.pojo.dto.SubmitIdListDTO;
@@ -19,6 +21,7 @@ import top.hcode.hoj.pojo.vo.TestJudgeVO;
 import top.hcode.hoj.service.oj.JudgeService;
 
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * @Author: Himit_ZH
@@ -41,6 +44,7 @@ public class JudgeController {
      * @param searchStatus
      * @param searchUsername
      * @param completeProblemID
+     * @param before 游标分页，传入上一页最后一条提交的submitId时从其之后继续查询，忽略currentPage
      * @MethodName getJudgeList
      * @Description 通用查询判题记录列表
      * @Return CommonResult
@@ -55,9 +59,10 @@ public class JudgeController {
                                                      @RequestParam(value = "status", required = false) Integer searchStatus,
                                                      @RequestParam(value = "username", required = false) String searchUsername,
                                                      @RequestParam(value = "completeProblemID", defaultValue = "false") Boolean completeProblemID,
-                                                     @RequestParam(value = "gid", required = false) Long gid) {
+                                                     @RequestParam(value = "gid", required = false) Long gid,
+                                                     @RequestParam(value = "before", required = false) Long before) {
 
-        return judgeService.getJudgeList(limit, currentPage, onlyMine, searchPid, searchStatus, searchUsername, completeProblemID, gid);
+        return judgeService.getJudgeList(limit, currentPage, onlyMine, searchPid, searchStatus, searchUsername, completeProblemID, gid, before);
     }
 
     /**
@@ -149,6 +154,34 @@ public class JudgeController {
     }
 
 
+    /**
+     * @param submitIds
+     * @MethodName subscribeJudgeStatus
+     * @Description 以SSE方式订阅提交列表的评测状态，状态变化时由服务端推送，替代check-submissions-status轮询
+     * @Return
+     * @Since 2026/10/17
+     */
+    @GetMapping(value = "/submissions-status-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @AnonApi
+    public SseEmitter subscribeJudgeStatus(@RequestParam(value = "submitIds") List<Long> submitIds) {
+        return judgeService.subscribeJudgeStatus(submitIds, null);
+    }
+
+    /**
+     * @param submitIds
+     * @param cid
+     * @MethodName subscribeContestJudgeStatus
+     * @Description 以SSE方式订阅比赛提交的评测状态，封榜及比赛管理员可见性与check-contest-submissions-status一致
+     * @Return
+     * @Since 2026/10/17
+     */
+    @GetMapping(value = "/contest-submissions-status-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @RequiresAuthentication
+    public SseEmitter subscribeContestJudgeStatus(@RequestParam(value = "submitIds") List<Long> submitIds,
+                                                  @RequestParam(value = "cid") Long cid) {
+        return judgeService.subscribeJudgeStatus(submitIds, cid);
+    }
+
     /**
      * @param submitId
      * @MethodName getJudgeCase
@@ -5,6 +5,7 @@ import org.apache.shiro.authz.annotation.RequiresAuthentication;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import top.hcode.hoj.annotation.HOJRateLimit;
 import top.hcode.hoj.annotation.AnonApi;
 import top.hcode.hoj.common.result.CommonResult;
 import top.hcode.hoj.pojo.dto.LastAcceptedCodeVO;
@@ -38,6 +39,7 @@ public class ProblemController {
      * @Return CommonResult
      * @Since 2020/10/27
      */
+    @HOJRateLimit(limit = 30, period = 10)
     @RequestMapping(value = "/get-problem-list", method = RequestMethod.GET)
     @AnonApi
     public CommonResult<Page<ProblemVO>> getProblemList(@RequestParam(value = "limit", required = false) Integer limit,
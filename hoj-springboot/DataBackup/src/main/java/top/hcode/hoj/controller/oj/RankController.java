@@ -6,6 +6,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import top.hcode.hoj.annotation.HOJRateLimit;
 import top.hcode.hoj.annotation.AnonApi;
 import top.hcode.hoj.common.result.CommonResult;
 import top.hcode.hoj.service.oj.RankService;
@@ -30,6 +31,7 @@ public class RankController {
      * @Return CommonResult
      * @Since 2020/10/27
      */
+    @HOJRateLimit(limit = 20, period = 10)
     @GetMapping("/get-rank-list")
     public CommonResult<IPage> getRankList(@RequestParam(value = "limit", required = false) Integer limit,
                                            @RequestParam(value = "currentPage", required = false) Integer currentPage,
@@ -4,6 +4,7 @@ package top.hcode.hoj.controller.oj;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import org.apache.shiro.authz.annotation.RequiresAuthentication;
 import org.springframework.web.bind.annotation.*;
+import top.hcode.hoj.annotation.HOJRateLimit;
 import top.hcode.hoj.annotation.AnonApi;
 import top.hcode.hoj.common.result.CommonResult;
 import top.hcode.hoj.pojo.dto.RegisterTrainingDTO;
@@ -112,6 +113,7 @@ public class TrainingController {
      * @Return
      * @Since 2021/11/22
      */
+    @HOJRateLimit(limit = 20, period = 10)
     @GetMapping("/get-training-rank")
     @RequiresAuthentication
     public CommonResult<IPage<TrainingRankVO>> getTrainingRank(@RequestParam(value = "tid", required = true) Long tid,
@@ -17,9 +17,24 @@ import java.util.List;
  */
 public interface ContestEntityService extends IService<Contest> {
 
+    /**
+     * 比赛缓存失效的通知频道，消息内容为cid
+     */
+    String CONTEST_CACHE_INVALIDATE_CHANNEL = "hoj_contest_cache_invalidate_channel";
+
     List<ContestVO> getWithinNext14DaysContests();
 
     IPage<ContestVO> getContestList(Integer limit, Integer currentPage, Integer type, Integer status, String keyword);
 
     ContestVO getContestInfoById(long cid);
+
+    /**
+     * 从本地缓存中获取比赛(副本)，比赛状态按开始与结束时间实时计算，只用于读取
+     */
+    Contest getCachedContest(Long cid);
+
+    /**
+     * 比赛被修改、删除或报名被清空后调用，通知所有实例失效该比赛的缓存
+     */
+    void evictCachedContest(Long cid);
 }
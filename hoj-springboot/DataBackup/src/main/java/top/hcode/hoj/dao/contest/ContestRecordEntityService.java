@@ -32,4 +32,6 @@ public interface ContestRecordEntityService extends IService<ContestRecord> {
 
     List<ContestRecordVO> getACMContestRecord(String contestCreatorUid, Long cid, List<Integer> externalCidList, Date startTime);
 
+    List<ContestRecordVO> getContestRecordDelta(String contestCreatorUid, Long cid, Date since);
+
 }
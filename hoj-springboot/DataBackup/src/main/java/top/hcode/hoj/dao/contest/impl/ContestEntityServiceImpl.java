@@ -1,8 +1,18 @@
 package top.hcode.hoj.dao.contest.impl;
 
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.core.bean.BeanUtil;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.util.CollectionUtils;
 import top.hcode.hoj.pojo.vo.ContestRegisterCountVO;
 import top.hcode.hoj.pojo.vo.ContestVO;
@@ -11,8 +21,12 @@ import top.hcode.hoj.mapper.ContestMapper;
 import top.hcode.hoj.dao.contest.ContestEntityService;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import org.springframework.stereotype.Service;
+import top.hcode.hoj.utils.Constants;
+import top.hcode.hoj.utils.RedisUtils;
 
+import javax.annotation.PostConstruct;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -25,11 +39,35 @@ import java.util.stream.Collectors;
  * @since 2020-10-23
  */
 @Service
-public class ContestEntityServiceImpl extends ServiceImpl<ContestMapper, Contest> implements ContestEntityService {
+@Slf4j(topic = "hoj")
+public class ContestEntityServiceImpl extends ServiceImpl<ContestMapper, Contest> implements ContestEntityService, MessageListener {
 
     @Autowired
     private ContestMapper contestMapper;
 
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Value("${hoj.contest.cache.capacity:500}")
+    private Integer capacity;
+
+    @Value("${hoj.contest.cache.expire-millis:300000}")
+    private Long expireMillis;
+
+    private LRUCache<Long, Contest> contestCache;
+
+    @PostConstruct
+    public void init() {
+        contestCache = CacheUtil.newLRUCache(capacity, expireMillis);
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CONTEST_CACHE_INVALIDATE_CHANNEL));
+    }
+
     @Override
     public List<ContestVO> getWithinNext14DaysContests() {
         List<ContestVO> contestList = contestMapper.getWithinNext14DaysContests();
@@ -63,6 +101,58 @@ public class ContestEntityServiceImpl extends ServiceImpl<ContestMapper, Contest
         return contestVo;
     }
 
+    @Override
+    public Contest getCachedContest(Long cid) {
+        if (cid == null) {
+            return null;
+        }
+        Contest contest = contestCache.get(cid, false);
+        if (contest == null) {
+            contest = getById(cid);
+            if (contest == null) {
+                return null;
+            }
+            contestCache.put(cid, contest);
+        }
+        // 返回副本，避免调用方修改缓存中的对象
+        Contest copyContest = BeanUtil.copyProperties(contest, Contest.class);
+        // 缓存中的status可能已过时，按时间重新计算
+        Date now = new Date();
+        if (copyContest.getStartTime() != null && now.before(copyContest.getStartTime())) {
+            copyContest.setStatus(Constants.Contest.STATUS_SCHEDULED.getCode());
+        } else if (copyContest.getEndTime() != null && now.before(copyContest.getEndTime())) {
+            copyContest.setStatus(Constants.Contest.STATUS_RUNNING.getCode());
+        } else if (copyContest.getEndTime() != null) {
+            copyContest.setStatus(Constants.Contest.STATUS_ENDED.getCode());
+        }
+        return copyContest;
+    }
+
+    @Override
+    public void evictCachedContest(Long cid) {
+        if (cid == null) {
+            return;
+        }
+        contestCache.remove(cid);
+        try {
+            redisUtils.sendMessage(CONTEST_CACHE_INVALIDATE_CHANNEL, cid);
+        } catch (Exception e) {
+            // 通知失败时其他实例的缓存最多在过期时间后失效
+            log.error("[Contest Cache] Publish invalidation cid:[{}] error------------>", cid, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object cid = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (cid != null) {
+                contestCache.remove(Long.valueOf(cid.toString()));
+            }
+        } catch (Exception e) {
+            log.error("[Contest Cache] Handle the message error------------>", e);
+        }
+    }
 
     private void setRegisterCount(List<ContestVO> contestList){
         List<Long> cidList = contestList.stream().map(ContestVO::getId).collect(Collectors.toList());
@@ -188,4 +188,9 @@ public class ContestRecordEntityServiceImpl extends ServiceImpl<ContestRecordMap
         }
     }
 
+    @Override
+    public List<ContestRecordVO> getContestRecordDelta(String contestCreatorUid, Long cid, Date since) {
+        return contestRecordMapper.getContestRecordDelta(contestCreatorUid, cid, since);
+    }
+
 }
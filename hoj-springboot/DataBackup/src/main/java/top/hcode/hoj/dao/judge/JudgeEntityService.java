@@ -28,9 +28,11 @@ public interface JudgeEntityService extends IService<Judge> {
                                       String searchPid,
                                       Integer status,
                                       String username,
+                                      List<String> searchUidList,
                                       String uid,
                                       Boolean completeProblemID,
-                                      Long gid);
+                                      Long gid,
+                                      Long before);
 
     IPage<JudgeVO> getContestJudgeList(Integer limit,
                                        Integer currentPage,
@@ -38,13 +40,15 @@ public interface JudgeEntityService extends IService<Judge> {
                                        Long cid,
                                        Integer status,
                                        String username,
+                                       List<String> searchUidList,
                                        String uid,
                                        Boolean beforeContestSubmit,
                                        String rule,
                                        Date startTime,
                                        Date sealRankTime,
                                        String sealTimeUid,
-                                       Boolean completeProblemID);
+                                       Boolean completeProblemID,
+                                       Long before);
 
 
     void failToUseRedisPublishJudge(Long submitId, Long pid, Boolean isContest);
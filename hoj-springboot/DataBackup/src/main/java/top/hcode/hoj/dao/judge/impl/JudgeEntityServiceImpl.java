@@ -1,5 +1,7 @@
 package top.hcode.hoj.dao.judge.impl;
 
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.SecureUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
@@ -20,10 +22,13 @@ import top.hcode.hoj.pojo.vo.ContestScrollBoardSubmissionVO;
 import top.hcode.hoj.pojo.vo.JudgeVO;
 import top.hcode.hoj.pojo.vo.ProblemCountVO;
 import top.hcode.hoj.utils.Constants;
+import top.hcode.hoj.utils.RedisUtils;
 
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 
@@ -48,6 +53,11 @@ public class JudgeEntityServiceImpl extends ServiceImpl<JudgeMapper, Judge> impl
     @Autowired
     private ProblemMapper problemMapper;
 
+    @Autowired
+    private RedisUtils redisUtils;
+
+    private static final long APPROXIMATE_COUNT_CACHE_SECOND = 60;
+
 
     @Override
     public IPage<JudgeVO> getCommonJudgeList(Integer limit,
@@ -55,13 +65,32 @@ public class JudgeEntityServiceImpl extends ServiceImpl<JudgeMapper, Judge> impl
                                              String searchPid,
                                              Integer status,
                                              String username,
+                                             List<String> searchUidList,
                                              String uid,
                                              Boolean completeProblemID,
-                                             Long gid) {
-        //新建分页
-        Page<JudgeVO> page = new Page<>(currentPage, limit);
-
-        IPage<JudgeVO> commonJudgeList = judgeMapper.getCommonJudgeList(page, searchPid, status, username, uid, completeProblemID, gid);
+                                             Long gid,
+                                             Long before) {
+        IPage<JudgeVO> commonJudgeList;
+        if (before == null) {
+            //新建分页
+            Page<JudgeVO> page = new Page<>(currentPage, limit);
+            commonJudgeList = judgeMapper.getCommonJudgeList(page, searchPid, status, username, searchUidList, uid,
+                    completeProblemID, gid, null, null);
+        } else {
+            // 游标分页：从before之后按索引顺序取下一页，不使用offset，也不实时统计总数
+            Page<JudgeVO> page = new Page<>(1, limit, false);
+            Date beforeSubmitTime = getSubmitTime(before, 0L, gid);
+            if (beforeSubmitTime == null) {
+                return page;
+            }
+            commonJudgeList = judgeMapper.getCommonJudgeList(page, searchPid, status, username, searchUidList, uid,
+                    completeProblemID, gid, before, beforeSubmitTime);
+            String countKey = StrUtil.join(",", "common", searchPid, status, username, searchUidList, uid,
+                    completeProblemID, gid);
+            commonJudgeList.setTotal(getApproximateCount(countKey,
+                    () -> judgeMapper.getCommonJudgeList(new Page<>(1, 1), searchPid, status, username,
+                            searchUidList, uid, completeProblemID, gid, null, null).getTotal()));
+        }
         List<JudgeVO> records = commonJudgeList.getRecords();
         if (!CollectionUtils.isEmpty(records)) {
             List<Long> pidList = records.stream().map(JudgeVO::getPid).collect(Collectors.toList());
@@ -98,18 +127,69 @@ public class JudgeEntityServiceImpl extends ServiceImpl<JudgeMapper, Judge> impl
                                               Long cid,
                                               Integer status,
                                               String username,
+                                              List<String> searchUidList,
                                               String uid,
                                               Boolean beforeContestSubmit,
                                               String rule,
                                               Date startTime,
                                               Date sealRankTime,
                                               String sealTimeUid,
-                                              Boolean completeProblemID) {
-        //新建分页
-        Page<JudgeVO> page = new Page<>(currentPage, limit);
+                                              Boolean completeProblemID,
+                                              Long before) {
+        if (before == null) {
+            //新建分页
+            Page<JudgeVO> page = new Page<>(currentPage, limit);
+            return judgeMapper.getContestJudgeList(page, displayId, cid, status, username, searchUidList, uid,
+                    beforeContestSubmit, rule, startTime, sealRankTime, sealTimeUid, completeProblemID, null, null);
+        }
+        // 游标分页：从before之后按索引顺序取下一页，不使用offset，也不实时统计总数
+        Page<JudgeVO> page = new Page<>(1, limit, false);
+        Date beforeSubmitTime = getSubmitTime(before, cid, null);
+        if (beforeSubmitTime == null) {
+            return page;
+        }
+        IPage<JudgeVO> contestJudgeList = judgeMapper.getContestJudgeList(page, displayId, cid, status, username,
+                searchUidList, uid, beforeContestSubmit, rule, startTime, sealRankTime, sealTimeUid, completeProblemID,
+                before, beforeSubmitTime);
+        String countKey = StrUtil.join(",", "contest", displayId, cid, status, username, searchUidList, uid,
+                beforeContestSubmit, rule, sealRankTime == null ? null : sealRankTime.getTime(), sealTimeUid,
+                completeProblemID);
+        contestJudgeList.setTotal(getApproximateCount(countKey,
+                () -> judgeMapper.getContestJudgeList(new Page<>(1, 1), displayId, cid, status, username,
+                        searchUidList, uid, beforeContestSubmit, rule, startTime, sealRankTime, sealTimeUid,
+                        completeProblemID, null, null).getTotal()));
+        return contestJudgeList;
+    }
 
-        return judgeMapper.getContestJudgeList(page, displayId, cid, status, username, uid, beforeContestSubmit,
-                rule, startTime, sealRankTime, sealTimeUid, completeProblemID);
+    /**
+     * 获取游标提交的提交时间，游标不属于当前列表（比赛、团队）时返回null
+     */
+    private Date getSubmitTime(Long submitId, Long cid, Long gid) {
+        QueryWrapper<Judge> judgeQueryWrapper = new QueryWrapper<>();
+        judgeQueryWrapper.select("submit_id", "submit_time", "cid", "gid").eq("submit_id", submitId);
+        Judge judge = judgeMapper.selectOne(judgeQueryWrapper);
+        if (judge == null || !Objects.equals(judge.getCid(), cid)) {
+            return null;
+        }
+        // 比赛的提交列表不区分团队
+        if (cid == 0 && !Objects.equals(judge.getGid(), gid)) {
+            return null;
+        }
+        return judge.getSubmitTime();
+    }
+
+    /**
+     * 游标分页的总数只用于展示，按查询条件缓存一段时间，过期后才重新count
+     */
+    private long getApproximateCount(String countKey, Supplier<Long> countSupplier) {
+        String key = Constants.Account.JUDGE_LIST_COUNT_CACHE.getCode() + SecureUtil.md5(countKey);
+        Object count = redisUtils.get(key);
+        if (count != null) {
+            return Long.parseLong(count.toString());
+        }
+        long total = countSupplier.get();
+        redisUtils.set(key, total, APPROXIMATE_COUNT_CACHE_SECOND);
+        return total;
     }
 
 
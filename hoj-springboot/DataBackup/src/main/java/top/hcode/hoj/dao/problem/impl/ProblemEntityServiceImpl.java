@@ -6,7 +6,6 @@ import cn.hutool.core.io.file.FileReader;
 import cn.hutool.core.io.file.FileWriter;
 import cn.hutool.core.lang.UUID;
 import cn.hutool.core.util.CharsetUtil;
-import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONArray;
 import cn.hutool.json.JSONObject;
@@ -15,6 +14,7 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.scheduling.annotation.Async;
@@ -34,8 +34,11 @@ import top.hcode.hoj.pojo.vo.ImportProblemVO;
 import top.hcode.hoj.pojo.vo.ProblemCountVO;
 import top.hcode.hoj.pojo.vo.ProblemVO;
 import top.hcode.hoj.utils.Constants;
+import top.hcode.hoj.utils.TestCaseBlobUtils;
+import top.hcode.hoj.utils.TestCaseDirUtils;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.regex.Pattern;
@@ -50,6 +53,7 @@ import java.util.stream.Collectors;
  * @since 2020-10-23
  */
 @Service
+@Slf4j(topic = "hoj")
 public class ProblemEntityServiceImpl extends ServiceImpl<ProblemMapper, Problem> implements ProblemEntityService {
 
     @Autowired
@@ -76,6 +80,9 @@ public class ProblemEntityServiceImpl extends ServiceImpl<ProblemMapper, Problem
     @Autowired
     private CodeTemplateEntityService codeTemplateEntityService;
 
+    @Autowired
+    private TestCaseBlobUtils testCaseBlobUtils;
+
     private final static Pattern EOL_PATTERN = Pattern.compile("[^\\S\\n]+(?=\\n)");
 
     @Override
@@ -94,13 +101,33 @@ public class ProblemEntityServiceImpl extends ServiceImpl<ProblemMapper, Problem
 
         if (problemList.size() > 0) {
             List<Long> pidList = problemList.stream().map(ProblemVO::getPid).collect(Collectors.toList());
-            List<ProblemCountVO> problemListCount = judgeEntityService.getProblemListCount(pidList);
+            // 一页题目的标签一次查出
+            QueryWrapper<ProblemTag> problemTagQueryWrapper = new QueryWrapper<>();
+            problemTagQueryWrapper.select("pid", "tid").in("pid", pidList);
+            List<ProblemTag> problemTagList = problemTagEntityService.list(problemTagQueryWrapper);
+            Map<Long, Tag> tagMap = new HashMap<>();
+            if (!problemTagList.isEmpty()) {
+                List<Long> tidList = problemTagList.stream().map(ProblemTag::getTid).distinct().collect(Collectors.toList());
+                for (Tag tag : tagEntityService.listByIds(tidList)) {
+                    tagMap.put(tag.getId(), tag);
+                }
+            }
+            Map<Long, List<Tag>> problemTagMap = new HashMap<>();
+            for (ProblemTag problemTag : problemTagList) {
+                Tag tag = tagMap.get(problemTag.getTid());
+                if (tag != null) {
+                    problemTagMap.computeIfAbsent(problemTag.getPid(), k -> new ArrayList<>()).add(tag);
+                }
+            }
+
+            Map<Long, ProblemCountVO> problemCountMap = judgeEntityService.getProblemListCount(pidList)
+                    .stream()
+                    .collect(Collectors.toMap(ProblemCountVO::getPid, problemCountVo -> problemCountVo, (a, b) -> a));
             for (ProblemVO problemVo : problemList) {
-                for (ProblemCountVO problemCountVo : problemListCount) {
-                    if (problemVo.getPid().equals(problemCountVo.getPid())) {
-                        problemVo.setProblemCountVo(problemCountVo);
-                        break;
-                    }
+                problemVo.setTags(problemTagMap.getOrDefault(problemVo.getPid(), new ArrayList<>()));
+                ProblemCountVO problemCountVo = problemCountMap.get(problemVo.getPid());
+                if (problemCountVo != null) {
+                    problemVo.setProblemCountVo(problemCountVo);
                 }
             }
         }
@@ -551,16 +578,35 @@ public class ProblemEntityServiceImpl extends ServiceImpl<ProblemMapper, Problem
                                    String tmpTestcaseDir,
                                    List<ProblemCase> problemCaseList) {
 
-        String baseDir = resolveTestcaseBaseDir();
+        String baseDir = TestCaseDirUtils.ensureBaseDir();
         String testCasesDir = baseDir + File.separator + "problem_" + problemId;
 
+        // 流式上传的测试数据已统一换行符并记录了摘要
+        Map<String, TestCaseBlobUtils.TestCaseBlob> testCaseBlobMap = null;
         // 将之前的临时文件夹里面的评测文件全部复制到指定文件夹(覆盖)
         if (!StringUtils.isEmpty(tmpTestcaseDir)
                 && FileUtil.exist(tmpTestcaseDir)
                 && !FileUtil.isDirEmpty(new File(tmpTestcaseDir))) {
             FileUtil.clean(testCasesDir);
             File testCasesDirFile = new File(testCasesDir);
-            FileUtil.copyFilesFromDir(new File(tmpTestcaseDir), testCasesDirFile, true);
+            testCaseBlobMap = testCaseBlobUtils.readDigests(tmpTestcaseDir);
+            if (testCaseBlobMap != null) {
+                // 直接链接到内容仓库中的文件
+                FileUtil.mkdir(testCasesDirFile);
+                for (Map.Entry<String, TestCaseBlobUtils.TestCaseBlob> entry : testCaseBlobMap.entrySet()) {
+                    try {
+                        testCaseBlobUtils.link(entry.getValue().getSha256(), new File(testCasesDirFile, entry.getKey()));
+                    } catch (IOException e) {
+                        log.error("[Test Case Blob] Link the test case file [{}] of problem [{}] error------------>",
+                                entry.getKey(), problemId, e);
+                        testCaseBlobMap = null;
+                        break;
+                    }
+                }
+            }
+            if (testCaseBlobMap == null) {
+                FileUtil.copyFilesFromDir(new File(tmpTestcaseDir), testCasesDirFile, true);
+            }
         }
 
         List<String> listFileNames = FileUtil.listFileNames(testCasesDir);
@@ -591,40 +637,22 @@ public class ProblemEntityServiceImpl extends ServiceImpl<ProblemMapper, Problem
             listFileNames.remove(problemCase.getInput());
             listFileNames.remove(problemCase.getOutput());
 
-            // 读取输入文件
-            FileReader inputFile = new FileReader(testCasesDir + File.separator + problemCase.getInput(), CharsetUtil.UTF_8);
-            String input = inputFile.readString()
-                    .replaceAll("\r\n", "\n") // 避免window系统的换行问题
-                    .replaceAll("\r", "\n"); // 避免mac系统的换行问题
-
-            FileWriter inputFileWriter = new FileWriter(testCasesDir + File.separator + problemCase.getInput(), CharsetUtil.UTF_8);
-            inputFileWriter.write(input);
-
-            // 读取输出文件
-            String output = "";
-            String outputFilePath = testCasesDir + File.separator + problemCase.getOutput();
-            if (FileUtil.exist(outputFilePath)) {
-                FileReader outputFile = new FileReader(outputFilePath, CharsetUtil.UTF_8);
-                output = outputFile.readString()
-                        .replaceAll("\r\n", "\n") // 避免window系统的换行问题
-                        .replaceAll("\r", "\n"); // 避免mac系统的换行问题
-                FileWriter outFileWriter = new FileWriter(testCasesDir + File.separator + problemCase.getOutput(), CharsetUtil.UTF_8);
-                outFileWriter.write(output);
-            } else {
-                FileWriter fileWriter = new FileWriter(outputFilePath);
-                fileWriter.write("");
+            TestCaseBlobUtils.TestCaseBlob inputBlob = testCaseBlobMap == null ? null : testCaseBlobMap.get(problemCase.getInput());
+            TestCaseBlobUtils.TestCaseBlob outputBlob = testCaseBlobMap == null ? null : testCaseBlobMap.get(problemCase.getOutput());
+            if (inputBlob == null || outputBlob == null) {
+                outputBlob = normalizeUploadTestCase(testCasesDir, problemCase);
             }
 
             // spj和interactive是根据特判程序输出判断结果，所以无需初始化测试数据
             if (Constants.JudgeMode.DEFAULT.getMode().equals(judgeMode)) {
                 // 原数据MD5
-                jsonObject.set("outputMd5", DigestUtils.md5DigestAsHex(output.getBytes(StandardCharsets.UTF_8)));
+                jsonObject.set("outputMd5", outputBlob.getMd5());
                 // 原数据大小
-                jsonObject.set("outputSize", output.getBytes(StandardCharsets.UTF_8).length);
+                jsonObject.set("outputSize", outputBlob.getSize());
                 // 去掉全部空格的MD5，用来判断pe
-                jsonObject.set("allStrippedOutputMd5", DigestUtils.md5DigestAsHex(output.replaceAll("\\s+", "").getBytes(StandardCharsets.UTF_8)));
+                jsonObject.set("allStrippedOutputMd5", outputBlob.getAllStrippedMd5());
                 // 默认去掉文末空格的MD5
-                jsonObject.set("EOFStrippedOutputMd5", DigestUtils.md5DigestAsHex(rtrim(output).getBytes(StandardCharsets.UTF_8)));
+                jsonObject.set("EOFStrippedOutputMd5", outputBlob.getEofStrippedMd5());
             }
 
             testCaseList.add(jsonObject);
@@ -647,6 +675,50 @@ public class ProblemEntityServiceImpl extends ServiceImpl<ProblemMapper, Problem
     }
 
 
+    // 非流式上传的测试数据，统一换行符后计算输出文件的摘要
+    private TestCaseBlobUtils.TestCaseBlob normalizeUploadTestCase(String testCasesDir, ProblemCase problemCase) {
+        // 读取输入文件
+        String inputFilePath = testCasesDir + File.separator + problemCase.getInput();
+        FileReader inputFile = new FileReader(inputFilePath, CharsetUtil.UTF_8);
+        String input = inputFile.readString();
+        if (input.indexOf('\r') >= 0) {
+            input = input.replaceAll("\r\n", "\n") // 避免window系统的换行问题
+                    .replaceAll("\r", "\n"); // 避免mac系统的换行问题
+            rewriteTestCaseFile(inputFilePath, input);
+        }
+
+        // 读取输出文件
+        String output = "";
+        String outputFilePath = testCasesDir + File.separator + problemCase.getOutput();
+        if (FileUtil.exist(outputFilePath)) {
+            FileReader outputFile = new FileReader(outputFilePath, CharsetUtil.UTF_8);
+            output = outputFile.readString();
+            if (output.indexOf('\r') >= 0) {
+                output = output.replaceAll("\r\n", "\n") // 避免window系统的换行问题
+                        .replaceAll("\r", "\n"); // 避免mac系统的换行问题
+                rewriteTestCaseFile(outputFilePath, output);
+            }
+        } else {
+            FileWriter fileWriter = new FileWriter(outputFilePath);
+            fileWriter.write("");
+        }
+
+        byte[] outputBytes = output.getBytes(StandardCharsets.UTF_8);
+        return new TestCaseBlobUtils.TestCaseBlob()
+                .setMd5(DigestUtils.md5DigestAsHex(outputBytes))
+                .setSize((long) outputBytes.length)
+                .setAllStrippedMd5(DigestUtils.md5DigestAsHex(output.replaceAll("\\s+", "").getBytes(StandardCharsets.UTF_8)))
+                .setEofStrippedMd5(DigestUtils.md5DigestAsHex(rtrim(output).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // 写入新文件后替换，避免改动与内容仓库共享的硬链接文件
+    private void rewriteTestCaseFile(String filePath, String content) {
+        File tmpFile = new File(filePath + ".tmp");
+        FileWriter fileWriter = new FileWriter(tmpFile, CharsetUtil.UTF_8);
+        fileWriter.write(content);
+        FileUtil.rename(tmpFile, new File(filePath).getName(), true);
+    }
+
     // 初始化手动输入上传的测试数据，写成json文件
     @Async
     public void initHandTestCase(String judgeMode,
@@ -666,7 +738,7 @@ public class ProblemEntityServiceImpl extends ServiceImpl<ProblemMapper, Problem
 
         JSONArray testCaseList = new JSONArray(problemCaseList.size());
 
-        String baseDir = resolveTestcaseBaseDir();
+        String baseDir = TestCaseDirUtils.ensureBaseDir();
         String testCasesDir = baseDir + File.separator + "problem_" + problemId;
         FileUtil.del(testCasesDir);
         for (int index = 0; index < problemCaseList.size(); index++) {
@@ -820,33 +892,4 @@ public class ProblemEntityServiceImpl extends ServiceImpl<ProblemMapper, Problem
         }
         return sumScore;
     }
-
-    /**
-     * 解析正式测试点根目录，优先使用 Constants 配置，失败则回退到用户目录 ~/hoj/file/testcase。
-     */
-    private String resolveTestcaseBaseDir() {
-        String preferred = Constants.File.TESTCASE_BASE_FOLDER.getPath();
-        String fallback = System.getProperty("user.home") + File.separator + "hoj" + File.separator + "file" + File.separator + "testcase";
-        String dir = tryEnsureWritable(preferred);
-        if (dir != null) return dir;
-        String fb = tryEnsureWritable(fallback);
-        if (fb != null) return fb;
-        // 都不可写，仍返回优先路径，后续操作可能抛错，便于暴露问题
-        return preferred;
-    }
-
-    private String tryEnsureWritable(String path) {
-        try {
-            FileUtil.mkdir(path);
-            java.io.File probe = new java.io.File(path, ".probe_" + IdUtil.fastSimpleUUID());
-            if (probe.createNewFile()) {
-                FileWriter fw = new FileWriter(probe);
-                fw.write("ok");
-                probe.delete();
-            }
-            return path;
-        } catch (Exception e) {
-            return null;
-        }
-    }
 }
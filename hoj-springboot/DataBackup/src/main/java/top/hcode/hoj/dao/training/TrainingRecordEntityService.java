@@ -14,6 +14,9 @@ import java.util.List;
  */
 public interface TrainingRecordEntityService extends IService<TrainingRecord> {
 
-    public List<TrainingRecordVO> getTrainingRecord(Long tid);
+    /**
+     * 获取训练中id大于afterId的记录(包含尚未评测完成的提交)，按记录id升序
+     */
+    public List<TrainingRecordVO> getTrainingRecord(Long tid, Long afterId);
 
 }
\ No newline at end of file
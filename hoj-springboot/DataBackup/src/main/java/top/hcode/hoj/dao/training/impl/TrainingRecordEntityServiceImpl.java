@@ -22,8 +22,8 @@ public class TrainingRecordEntityServiceImpl extends ServiceImpl<TrainingRecordM
     private TrainingRecordMapper trainingRecordMapper;
 
     @Override
-    public List<TrainingRecordVO> getTrainingRecord(Long tid){
-        return trainingRecordMapper.getTrainingRecord(tid);
+    public List<TrainingRecordVO> getTrainingRecord(Long tid, Long afterId) {
+        return trainingRecordMapper.getTrainingRecord(tid, afterId);
     }
 
 }
\ No newline at end of file
@@ -2,13 +2,14 @@ package top.hcode.hoj.dao.user;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
-import top.hcode.hoj.pojo.entity.judge.Judge;
 import top.hcode.hoj.pojo.vo.ACMRankVO;
 import top.hcode.hoj.pojo.entity.user.UserRecord;
 import com.baomidou.mybatisplus.extension.service.IService;
 import top.hcode.hoj.pojo.vo.OIRankVO;
 import top.hcode.hoj.pojo.vo.UserHomeVO;
 
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 
 /**
@@ -25,12 +26,18 @@ public interface UserRecordEntityService extends IService<UserRecord> {
 
     UserHomeVO getUserHomeInfo(String uid, String username);
 
-    List<Judge> getLastYearUserJudgeList(String uid, String username);
+    List<HashMap<String, Object>> getLastYearUserSubmitCount(String uid);
 
     IPage<OIRankVO> getOIRankList(Page<OIRankVO> page, List<String> uidList);
 
     IPage<ACMRankVO> getACMRankList(Page<ACMRankVO> page, List<String> uidList);
 
+    List<OIRankVO> getUserRankCounterList(List<String> uidList);
+
+    List<String> getJudgingUidList(List<String> uidList, Date sinceTime);
+
+    List<String> getModifiedUidList(List<String> uidList, Date sinceTime);
+
     IPage<OIRankVO> getGroupRankList(Page<OIRankVO> page, Long gid, List<String> uidList, String rankType, Boolean useCache);
 
 }
@@ -4,7 +4,6 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.springframework.beans.factory.annotation.Autowired;
 import top.hcode.hoj.mapper.JudgeMapper;
-import top.hcode.hoj.pojo.entity.judge.Judge;
 import top.hcode.hoj.pojo.vo.ACMRankVO;
 import top.hcode.hoj.pojo.entity.user.UserRecord;
 import top.hcode.hoj.mapper.UserRecordMapper;
@@ -16,6 +15,9 @@ import org.springframework.stereotype.Service;
 import top.hcode.hoj.utils.Constants;
 import top.hcode.hoj.utils.RedisUtils;
 
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 
 /**
@@ -52,8 +54,8 @@ public class UserRecordEntityServiceImpl extends ServiceImpl<UserRecordMapper, U
     }
 
     @Override
-    public List<Judge> getLastYearUserJudgeList(String uid, String username) {
-        return judgeMapper.getLastYearUserJudgeList(uid, username);
+    public List<HashMap<String, Object>> getLastYearUserSubmitCount(String uid) {
+        return judgeMapper.getLastYearUserSubmitCount(uid);
     }
 
     @Override
@@ -66,6 +68,25 @@ public class UserRecordEntityServiceImpl extends ServiceImpl<UserRecordMapper, U
         return userRecordMapper.getACMRankList(page, uidList);
     }
 
+    @Override
+    public List<OIRankVO> getUserRankCounterList(List<String> uidList) {
+        return userRecordMapper.getUserRankCounterList(uidList);
+    }
+
+    @Override
+    public List<String> getJudgingUidList(List<String> uidList, Date sinceTime) {
+        List<Integer> judgingStatusList = Arrays.asList(Constants.Judge.STATUS_PENDING.getStatus(),
+                Constants.Judge.STATUS_COMPILING.getStatus(),
+                Constants.Judge.STATUS_JUDGING.getStatus(),
+                Constants.Judge.STATUS_SUBMITTING.getStatus());
+        return userRecordMapper.getJudgingUidList(uidList, sinceTime, judgingStatusList);
+    }
+
+    @Override
+    public List<String> getModifiedUidList(List<String> uidList, Date sinceTime) {
+        return userRecordMapper.getModifiedUidList(uidList, sinceTime);
+    }
+
     @Override
     public IPage<OIRankVO> getGroupRankList(Page<OIRankVO> page, Long gid, List<String> uidList, String rankType, Boolean useCache) {
         if (useCache) {
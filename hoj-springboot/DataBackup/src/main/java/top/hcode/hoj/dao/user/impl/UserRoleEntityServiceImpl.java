@@ -14,6 +14,7 @@ import top.hcode.hoj.pojo.entity.user.Role;
 import top.hcode.hoj.pojo.entity.user.UserRole;
 import top.hcode.hoj.pojo.vo.UserRolesVO;
 import top.hcode.hoj.shiro.ShiroConstant;
+import top.hcode.hoj.shiro.ShiroLocalCache;
 import top.hcode.hoj.utils.RedisUtils;
 
 import java.util.Arrays;
@@ -39,6 +40,9 @@ public class UserRoleEntityServiceImpl extends ServiceImpl<UserRoleMapper, UserR
     @Autowired
     private RedisUtils redisUtils;
 
+    @Autowired
+    private ShiroLocalCache shiroLocalCache;
+
     @Override
     public UserRolesVO getUserRoles(String uid, String username) {
         return userRoleMapper.getUserRoles(uid, username);
@@ -95,7 +99,8 @@ public class UserRoleEntityServiceImpl extends ServiceImpl<UserRoleMapper, UserR
         }else{
             redisUtils.del(ShiroConstant.SHIRO_AUTHORIZATION_CACHE + uid);
         }
-
+        // 同时失效所有实例的本地缓存
+        shiroLocalCache.invalidate(uid);
     }
 
 
@@ -107,6 +112,7 @@ public class UserRoleEntityServiceImpl extends ServiceImpl<UserRoleMapper, UserR
 
         //删除Cache，在访问受限接口时会重新授权
         redisUtils.del(ShiroConstant.SHIRO_AUTHORIZATION_CACHE + uid);
+        shiroLocalCache.invalidate(uid);
 //        DefaultWebSecurityManager securityManager = (DefaultWebSecurityManager) SecurityUtils.getSecurityManager();
 //        Authenticator authc = securityManager.getAuthenticator();
 //        ((LogoutAware) authc).onLogout((SimplePrincipalCollection) attribute);
@@ -0,0 +1,54 @@
+package top.hcode.hoj.interceptor;
+
+import org.apache.shiro.SecurityUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import top.hcode.hoj.annotation.HOJRateLimit;
+import top.hcode.hoj.shiro.AccountProfile;
+import top.hcode.hoj.utils.IpUtils;
+import top.hcode.hoj.utils.ServiceContextUtils;
+import top.hcode.hoj.validator.RateLimitValidator;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * @Author Himit_ZH
+ * @Date 2026/10/19
+ * @Description 处理接口上的@HOJRateLimit注解
+ */
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    @Autowired
+    private RateLimitValidator rateLimitValidator;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        HandlerMethod handlerMethod = HandlerMethod.class.cast(handler);
+        HOJRateLimit hojRateLimit = ServiceContextUtils.getAnnotation(handlerMethod.getMethod(),
+                handlerMethod.getBeanType(), HOJRateLimit.class);
+        if (hojRateLimit == null) {
+            return true;
+        }
+        String name = StringUtils.isEmpty(hojRateLimit.key())
+                ? handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName()
+                : hojRateLimit.key();
+        String key;
+        if (hojRateLimit.global()) {
+            key = name;
+        } else {
+            AccountProfile userRolesVo = (AccountProfile) SecurityUtils.getSubject().getPrincipal();
+            key = name + ":" + (userRolesVo != null ? userRolesVo.getUid() : IpUtils.getUserIpAddr(request));
+        }
+        rateLimitValidator.validateRateLimit(key, hojRateLimit.type(), hojRateLimit.limit(),
+                hojRateLimit.period() * 1000L, hojRateLimit.message());
+        return true;
+    }
+}
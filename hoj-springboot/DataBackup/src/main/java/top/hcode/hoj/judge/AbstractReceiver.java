@@ -1,24 +1,189 @@
 package top.hcode.hoj.judge;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import top.hcode.hoj.utils.IpUtils;
+import top.hcode.hoj.utils.RedisUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * @Author: Himit_ZH
  * @Date: 2021/12/22 12:40
- * @Description:
+ * @Description: 判题任务消费者，由专用线程循环从redis等待队列中批量取出任务，
+ * 取出的任务会先原子地转移到本实例的处理中队列，评测调用返回后才从处理中队列移除，服务重启时将未处理完的任务放回等待队列。
+ * 只在有空闲判题机资源时才按优先级取任务，其余任务继续留在redis中，保证比赛提交等高优先级任务不会排在已取出的低优先级任务之后
  */
-
+@Slf4j(topic = "hoj")
 public abstract class AbstractReceiver {
 
-    public void handleWaitingTask(String... queues) {
-        for (String queue : queues) {
-            String taskStr = getTaskByRedis(queue);
-            if (taskStr != null) {
-                handleJudgeMsg(taskStr, queue);
+    // 等待队列全部为空时阻塞等待新任务的时间(秒)
+    private static final int BLOCK_POP_SECONDS = 2;
+
+    // 信号队列保留的最大长度，信号只用于唤醒消费者，多余的信号没有意义
+    public static final int MAX_WAITING_SIGNALS = 16;
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Autowired
+    private JudgeScheduler judgeScheduler;
+
+    @Autowired
+    private JudgeServerRegistry judgeServerRegistry;
+
+    @Value("${hoj.judge.receiver.batch-size:20}")
+    private Integer batchSize;
+
+    // 已取出但仍在等待资源（远程账号或判题机）的任务上限
+    @Value("${hoj.judge.receiver.max-waiting:100}")
+    private Integer maxWaiting;
+
+    @Value("${server.port:6688}")
+    private Integer serverPort;
+
+    private volatile boolean running = false;
+
+    private Thread consumer;
+
+    // 已从等待队列取出、评测调用尚未返回的任务数
+    private final AtomicInteger inFlightCount = new AtomicInteger(0);
+
+    @PostConstruct
+    public void startConsumer() {
+        List<String> queues = getQueues();
+        List<String> processingQueues = getProcessingQueues(queues);
+        // 最后一个等待队列为批量重判，调度器中排在它之前的任务才算作积压
+        judgeScheduler.setBackgroundPriority(getLane(), queues.size() - 1);
+        for (int i = 0; i < queues.size(); i++) {
+            long count = redisUtils.lRestoreProcessing(queues.get(i), processingQueues.get(i));
+            if (count > 0) {
+                log.info("[Judge Receiver] Restore {} unfinished tasks to the queue [{}]", count, queues.get(i));
             }
         }
+        running = true;
+        consumer = new Thread(() -> consume(queues, processingQueues), getClass().getSimpleName() + "-Consumer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @PreDestroy
+    public void stopConsumer() {
+        running = false;
+        if (consumer != null) {
+            consumer.interrupt();
+        }
     }
 
-    public abstract String getTaskByRedis(String queue);
+    private void consume(List<String> queues, List<String> processingQueues) {
+        while (running) {
+            try {
+                // 没有空闲判题机资源时暂缓取任务，任务继续留在redis中按优先级排队
+                int count = getAcceptableCount();
+                if (count <= 0) {
+                    Thread.sleep(200);
+                    continue;
+                }
+                // 按优先级一次性将同一队列的多个任务原子地转移到处理中队列
+                List<Object> batch = redisUtils.lrBatchPopToProcessing(queues, processingQueues, count);
+                if (!batch.isEmpty()) {
+                    int index = ((Number) batch.get(0)).intValue() - 1;
+                    for (int i = 1; i < batch.size(); i++) {
+                        handleTask(queues.get(index), processingQueues.get(index), index, (String) batch.get(i));
+                    }
+                    continue;
+                }
+                // 所有队列都为空，阻塞等待入队信号，信号队列不存放任务数据，取出后重新按优先级原子地取任务
+                redisUtils.brPop(BLOCK_POP_SECONDS, getSignalQueue());
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.error("[Judge Receiver] Consume the judge task error------------>", e);
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 本次最多可取出的任务数：不超过空闲的判题机资源数（扣除本实例调度器中已在排队的任务），
+     * 同时已取出但仍在等待资源的任务数不超过上限
+     */
+    private int getAcceptableCount() {
+        JudgeScheduler.Lane lane = getLane();
+        int queuedCount = judgeScheduler.getQueuedCount(lane);
+        int freeSlots = judgeServerRegistry.countFreeSlots(lane == JudgeScheduler.Lane.REMOTE) - queuedCount;
+        int waitingCount = inFlightCount.get() - judgeScheduler.getRunningCount(lane);
+        return Math.min(batchSize, Math.min(freeSlots, maxWaiting - waitingCount));
+    }
+
+    private void handleTask(String queue, String processingQueue, int priority, String taskStr) {
+        inFlightCount.incrementAndGet();
+        AtomicBoolean finished = new AtomicBoolean(false);
+        Runnable onFinished = () -> {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            inFlightCount.decrementAndGet();
+            try {
+                // 评测调用已返回（或已判为提交失败），从处理中队列移除
+                redisUtils.lRemove(processingQueue, 1, taskStr);
+            } catch (Exception e) {
+                log.error("[Judge Receiver] Remove the finished task from [{}] error------------>", processingQueue, e);
+            }
+        };
+        try {
+            handleJudgeMsg(taskStr, queue, priority, onFinished);
+        } catch (Exception e) {
+            log.error("[Judge Receiver] Handle the judge task error, task:{}------------>", taskStr, e);
+            onFinished.run();
+        }
+    }
+
+    private List<String> getProcessingQueues(List<String> queues) {
+        String instanceId = IpUtils.getServiceIp() + ":" + serverPort;
+        List<String> processingQueues = new ArrayList<>(queues.size());
+        for (String queue : queues) {
+            processingQueues.add(queue + ":Processing:" + instanceId);
+        }
+        return processingQueues;
+    }
+
+    /**
+     * @return 按处理优先级排列的等待队列
+     */
+    public abstract List<String> getQueues();
+
+    /**
+     * @return 任务入队时通知消费者的信号队列
+     */
+    public abstract String getSignalQueue();
+
+    /**
+     * @return 任务所属的判题调度通道
+     */
+    public abstract JudgeScheduler.Lane getLane();
 
-    public abstract void handleJudgeMsg(String taskStr, String queueName);
+    /**
+     * 处理取出的任务
+     *
+     * @param taskStr    任务
+     * @param queueName  任务所在的等待队列
+     * @param priority   调度优先级，即等待队列在getQueues()中的下标
+     * @param onFinished 评测调用返回或任务被放弃时必须调用，用于从处理中队列确认移除该任务，可重复调用
+     */
+    public abstract void handleJudgeMsg(String taskStr, String queueName, int priority, Runnable onFinished);
 
-}
\ No newline at end of file
+}
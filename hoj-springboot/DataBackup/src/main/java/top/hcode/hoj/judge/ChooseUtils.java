@@ -42,56 +42,20 @@ public class ChooseUtils {
     @Autowired
     private RemoteJudgeAccountMapper remoteJudgeAccountMapper;
 
+    @Autowired
+    private JudgeServerRegistry judgeServerRegistry;
+
     public static final boolean openCodeforcesFixServer = false;
 
     /**
      * @param
      * @MethodName chooseServer
-     * @Description 选择可以用调用判题的判题服务器
+     * @Description 选择可以用调用判题的判题服务器，直接从内存中的判题机容量登记表原子占用，无需查询数据库
      * @Return
      * @Since 2021/4/15
      */
-    @Transactional(rollbackFor = Exception.class)
     public JudgeServer chooseServer(Boolean isRemote) {
-        // 获取该微服务的所有健康实例
-        List<Instance> instances = getInstances(JudgeServiceName);
-        if (instances.size() <= 0) {
-            return null;
-        }
-        List<String> keyList = new ArrayList<>();
-        // 获取当前健康实例取出ip和port拼接
-        for (Instance instance : instances) {
-            keyList.add(instance.getIp() + ":" + instance.getPort());
-        }
-
-        // 过滤出小于或等于规定最大并发判题任务数的服务实例且健康的判题机
-        QueryWrapper<JudgeServer> judgeServerQueryWrapper = new QueryWrapper<>();
-        judgeServerQueryWrapper
-                .in("url", keyList)
-                .eq("is_remote", isRemote)
-                .orderByAsc("task_number")
-                .last("for update"); // 开启悲观锁
-
-        /**
-         * 如果一个条件无法通过索引快速过滤，存储引擎层面就会将所有记录加锁后返回，
-         * 再由MySQL Server层进行过滤，但在实际使用过程当中，MySQL做了一些改进，
-         * 在MySQL Server过滤条件，发现不满足后，会调用unlock_row方法，
-         * 把不满足条件的记录释放锁 (违背了二段锁协议的约束)。
-         */
-        List<JudgeServer> judgeServerList = judgeServerEntityService.list(judgeServerQueryWrapper);
-
-        // 获取可用判题机
-        for (JudgeServer judgeServer : judgeServerList) {
-            if (judgeServer.getTaskNumber() < judgeServer.getMaxTaskNumber()) {
-                judgeServer.setTaskNumber(judgeServer.getTaskNumber() + 1);
-                boolean isOk = judgeServerEntityService.updateById(judgeServer);
-                if (isOk) {
-                    return judgeServer;
-                }
-            }
-        }
-
-        return null;
+        return judgeServerRegistry.reserve(isRemote);
     }
 
 
@@ -1,7 +1,6 @@
 package top.hcode.hoj.judge;
 
 
-import cn.hutool.core.lang.UUID;
 import cn.hutool.json.JSONObject;
 import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import lombok.extern.slf4j.Slf4j;
@@ -14,6 +13,8 @@ import top.hcode.hoj.common.result.ResultStatus;
 import top.hcode.hoj.dao.judge.JudgeEntityService;
 import top.hcode.hoj.dao.judge.JudgeServerEntityService;
 import top.hcode.hoj.dao.judge.impl.RemoteJudgeAccountEntityServiceImpl;
+import top.hcode.hoj.manager.oj.GlobalRankManager;
+import top.hcode.hoj.manager.oj.JudgeStatusPushManager;
 import top.hcode.hoj.pojo.dto.CompileDTO;
 import top.hcode.hoj.pojo.dto.TestJudgeReq;
 import top.hcode.hoj.pojo.dto.TestJudgeRes;
@@ -24,9 +25,6 @@ import top.hcode.hoj.pojo.entity.judge.RemoteJudgeAccount;
 import top.hcode.hoj.utils.Constants;
 import top.hcode.hoj.utils.RedisUtils;
 
-import java.util.Map;
-import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @Author: Himit_ZH
@@ -52,26 +50,50 @@ public class Dispatcher {
     @Autowired
     private RedisUtils redisUtils;
 
-    private final static ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(20);
+    @Autowired
+    private JudgeScheduler judgeScheduler;
 
-    private final static Map<String, Future> futureTaskMap = new ConcurrentHashMap<>(20);
+    @Autowired
+    private JudgeServerRegistry judgeServerRegistry;
 
-    // 每个提交任务尝试300次失败则判为提交失败
-    protected final static Integer maxTryNum = 300;
+    @Autowired
+    private JudgeStatusPushManager judgeStatusPushManager;
+
+    @Autowired
+    private GlobalRankManager globalRankManager;
+
+    // 评测任务等待判题机超过10分钟则判为提交失败
+    protected final static long JUDGE_MAX_WAIT_MILLIS = 10 * 60 * 1000L;
+
+    // 在线调试等待判题机超过5分钟则放弃
+    protected final static long TEST_JUDGE_MAX_WAIT_MILLIS = 5 * 60 * 1000L;
 
     @Autowired
     private RemoteJudgeAccountEntityServiceImpl remoteJudgeAccountService;
 
     public CommonResult dispatch(Constants.TaskType taskType, Object data) {
+        return dispatch(taskType, data, 0, () -> {
+        });
+    }
+
+    /**
+     * 分发任务
+     *
+     * @param taskType   任务类型
+     * @param data       任务数据
+     * @param priority   调度优先级，数值越小越优先
+     * @param onFinished 评测调用返回（或等待判题机超时）后的回调，用于确认队列中的任务已处理完成
+     */
+    public CommonResult dispatch(Constants.TaskType taskType, Object data, int priority, Runnable onFinished) {
         switch (taskType) {
             case JUDGE:
-                defaultJudge((ToJudgeDTO) data, taskType.getPath());
+                defaultJudge((ToJudgeDTO) data, taskType.getPath(), priority, onFinished);
                 break;
             case REMOTE_JUDGE:
-                remoteJudge((ToJudgeDTO) data, taskType.getPath());
+                remoteJudge((ToJudgeDTO) data, taskType.getPath(), priority, onFinished);
                 break;
             case TEST_JUDGE:
-                testJudge((TestJudgeReq) data, taskType.getPath());
+                testJudge((TestJudgeReq) data, taskType.getPath(), priority, onFinished);
                 break;
             case COMPILE_SPJ:
             case COMPILE_INTERACTIVE:
@@ -86,44 +108,48 @@ public class Dispatcher {
      * 普通评测
      * @param data
      * @param path
+     * @param priority
+     * @param onFinished
      */
-    public void defaultJudge(ToJudgeDTO data, String path) {
+    public void defaultJudge(ToJudgeDTO data, String path, int priority, Runnable onFinished) {
 
         Long submitId = data.getJudge().getSubmitId();
-        AtomicInteger count = new AtomicInteger(0);
-        String taskKey = UUID.randomUUID().toString() + submitId;
 
-        Runnable getResultTask = () -> {
-            if (count.get() > maxTryNum) {
-                checkResult(null, submitId);
-                releaseTaskThread(taskKey);
-                return;
-            }
-            count.getAndIncrement();
-            JudgeServer judgeServer = chooseUtils.chooseServer(false);
-            if (judgeServer != null) { // 获取到判题机资源
-                CommonResult result = null;
-                try {
-                    result = restTemplate.postForObject("http://" + judgeServer.getUrl() + path, data, CommonResult.class);
-                } catch (Exception e) {
-                    log.error("[Self Judge] Request the judge server [" + judgeServer.getUrl() + "] error -------------->", e);
-                } finally {
-                    checkResult(result, submitId);
-                    releaseJudgeServer(judgeServer.getId());
-                    releaseTaskThread(taskKey);
-                }
-            }
-        };
-        ScheduledFuture<?> scheduledFuture = scheduler.scheduleWithFixedDelay(getResultTask, 0, 2, TimeUnit.SECONDS);
-        futureTaskMap.put(taskKey, scheduledFuture);
+        judgeScheduler.submit(JudgeScheduler.Lane.LOCAL,
+                priority,
+                JudgeScheduler.Lane.LOCAL.getName(),
+                JUDGE_MAX_WAIT_MILLIS,
+                () -> chooseUtils.chooseServer(false),
+                judgeServer -> { // 获取到判题机资源
+                    CommonResult result = null;
+                    try {
+                        result = restTemplate.postForObject("http://" + judgeServer.getUrl() + path, data, CommonResult.class);
+                    } catch (Exception e) {
+                        log.error("[Self Judge] Request the judge server [" + judgeServer.getUrl() + "] error -------------->", e);
+                    } finally {
+                        checkResult(result, submitId);
+                        releaseJudgeServer(judgeServer.getId());
+                        // 本地评测同步返回，此时评测结果已落库，通知推送给订阅者
+                        judgeStatusPushManager.publish(submitId);
+                        // 按评测结果增量更新全站排行榜
+                        globalRankManager.onJudgeFinished(submitId);
+                        onFinished.run();
+                    }
+                },
+                () -> {
+                    checkResult(null, submitId);
+                    onFinished.run();
+                });
     }
 
     /**
      * 远程评测
      * @param data
      * @param path
+     * @param priority
+     * @param onFinished
      */
-    public void remoteJudge(ToJudgeDTO data, String path) {
+    public void remoteJudge(ToJudgeDTO data, String path, int priority, Runnable onFinished) {
 
         String oj = data.getRemoteJudgeProblem().split("-")[0];
         if (oj.equals("GYM")) {
@@ -136,101 +162,100 @@ public class Dispatcher {
                 && Constants.RemoteOJ.CODEFORCES.getName().equals(oj);
 
         Long submitId = data.getJudge().getSubmitId();
-        AtomicInteger count = new AtomicInteger(0);
-        String taskKey = UUID.randomUUID().toString() + submitId;
         final String finalOj = oj;
 
-        Runnable getResultTask = () -> {
-            if (count.get() > maxTryNum) { // 300次失败则判为提交失败
-                // 远程判题需要将账号归为可用
-                changeRemoteJudgeStatus(finalOj, data.getUsername(), null);
-                checkResult(null, submitId);
-                releaseTaskThread(taskKey);
-                return;
-            }
-            count.getAndIncrement();
-            JudgeServer judgeServer = null;
-            if (!isCFFixServerJudge) {
-                judgeServer = chooseUtils.chooseServer(true);
-            } else {
-                judgeServer = chooseUtils.chooseFixedServer(true, "cf_submittable", data.getIndex(), data.getSize());
-            }
-            if (judgeServer != null) { // 获取到判题机资源
-                data.setJudgeServerIp(judgeServer.getIp());
-                data.setJudgeServerPort(judgeServer.getPort());
-                CommonResult result = null;
-                try {
-                    result = restTemplate.postForObject("http://" + judgeServer.getUrl() + path, data, CommonResult.class);
-                } catch (Exception e) {
-                    log.error("[Remote Judge] Request the judge server [" + judgeServer.getUrl() + "] error-------------->", e);
-                    changeRemoteJudgeStatus(finalOj, data.getUsername(), judgeServer);
-                } finally {
-                    checkResult(result, submitId);
+        // CF固定判题机的任务只能等待指定的判题机，单独排队，不阻塞其它远程评测任务
+        String acquireKey = isCFFixServerJudge ? "cf_fixed:" + data.getIndex() : JudgeScheduler.Lane.REMOTE.getName();
+
+        judgeScheduler.submit(JudgeScheduler.Lane.REMOTE,
+                priority,
+                acquireKey,
+                JUDGE_MAX_WAIT_MILLIS,
+                () -> {
                     if (!isCFFixServerJudge) {
-                        // 无论成功与否，都要将对应的当前判题机当前判题数减1
-                        releaseJudgeServer(judgeServer.getId());
+                        return chooseUtils.chooseServer(true);
+                    } else {
+                        return chooseUtils.chooseFixedServer(true, "cf_submittable", data.getIndex(), data.getSize());
                     }
-                    releaseTaskThread(taskKey);
-                }
-            }
-        };
-        ScheduledFuture<?> scheduledFuture = scheduler.scheduleWithFixedDelay(getResultTask, 0, 2, TimeUnit.SECONDS);
-        futureTaskMap.put(taskKey, scheduledFuture);
+                },
+                judgeServer -> { // 获取到判题机资源
+                    data.setJudgeServerIp(judgeServer.getIp());
+                    data.setJudgeServerPort(judgeServer.getPort());
+                    CommonResult result = null;
+                    try {
+                        result = restTemplate.postForObject("http://" + judgeServer.getUrl() + path, data, CommonResult.class);
+                    } catch (Exception e) {
+                        log.error("[Remote Judge] Request the judge server [" + judgeServer.getUrl() + "] error-------------->", e);
+                        changeRemoteJudgeStatus(finalOj, data.getUsername(), judgeServer);
+                    } finally {
+                        checkResult(result, submitId);
+                        if (!isCFFixServerJudge) {
+                            // 无论成功与否，都要将对应的当前判题机当前判题数减1
+                            releaseJudgeServer(judgeServer.getId());
+                        }
+                        onFinished.run();
+                    }
+                },
+                () -> {
+                    // 等待超时则判为提交失败，远程判题需要将账号归为可用
+                    changeRemoteJudgeStatus(finalOj, data.getUsername(), null);
+                    checkResult(null, submitId);
+                    onFinished.run();
+                });
     }
 
     /**
      * 在线调试
      * @param testJudgeReq
      * @param path
+     * @param priority
+     * @param onFinished
      */
-    public void testJudge(TestJudgeReq testJudgeReq, String path) {
-        AtomicInteger count = new AtomicInteger(0);
-        String taskKey = testJudgeReq.getUniqueKey();
-        Runnable getResultTask = () -> {
-            if (count.get() > maxTryNum) { // 300次失败则判为提交失败
-                releaseTaskThread(taskKey);
-                return;
-            }
-            count.getAndIncrement();
-            JudgeServer judgeServer = chooseUtils.chooseServer(false);
-            if (judgeServer != null) { // 获取到判题机资源
-                try {
-                    String url = "http://" + judgeServer.getUrl() + path;
-                    JSONObject resultJson = restTemplate.postForObject(url, testJudgeReq, JSONObject.class);
-                    if (resultJson != null) {
-                        if (resultJson.getInt("status") == ResultStatus.SUCCESS.getStatus()) {
-                            TestJudgeRes testJudgeRes = resultJson.getBean("data", TestJudgeRes.class);
-                            testJudgeRes.setInput(testJudgeReq.getTestCaseInput());
-                            testJudgeRes.setExpectedOutput(testJudgeReq.getExpectedOutput());
-                            testJudgeRes.setProblemJudgeMode(testJudgeReq.getProblemJudgeMode());
-                            redisUtils.set(testJudgeReq.getUniqueKey(), testJudgeRes, 60);
-                        } else {
-                            TestJudgeRes testJudgeRes = TestJudgeRes.builder()
-                                    .status(Constants.Judge.STATUS_SYSTEM_ERROR.getStatus())
-                                    .time(0L)
-                                    .memory(0L)
-                                    .stderr(resultJson.getStr("msg"))
-                                    .build();
-                            redisUtils.set(testJudgeReq.getUniqueKey(), testJudgeRes, 60);
+    public void testJudge(TestJudgeReq testJudgeReq, String path, int priority, Runnable onFinished) {
+        judgeScheduler.submit(JudgeScheduler.Lane.LOCAL,
+                priority,
+                JudgeScheduler.Lane.LOCAL.getName(),
+                TEST_JUDGE_MAX_WAIT_MILLIS,
+                () -> chooseUtils.chooseServer(false),
+                judgeServer -> { // 获取到判题机资源
+                    try {
+                        String url = "http://" + judgeServer.getUrl() + path;
+                        JSONObject resultJson = restTemplate.postForObject(url, testJudgeReq, JSONObject.class);
+                        if (resultJson != null) {
+                            if (resultJson.getInt("status") == ResultStatus.SUCCESS.getStatus()) {
+                                TestJudgeRes testJudgeRes = resultJson.getBean("data", TestJudgeRes.class);
+                                testJudgeRes.setInput(testJudgeReq.getTestCaseInput());
+                                testJudgeRes.setExpectedOutput(testJudgeReq.getExpectedOutput());
+                                testJudgeRes.setProblemJudgeMode(testJudgeReq.getProblemJudgeMode());
+                                redisUtils.set(testJudgeReq.getUniqueKey(), testJudgeRes, 60);
+                            } else {
+                                TestJudgeRes testJudgeRes = TestJudgeRes.builder()
+                                        .status(Constants.Judge.STATUS_SYSTEM_ERROR.getStatus())
+                                        .time(0L)
+                                        .memory(0L)
+                                        .stderr(resultJson.getStr("msg"))
+                                        .build();
+                                redisUtils.set(testJudgeReq.getUniqueKey(), testJudgeRes, 60);
+                            }
                         }
+                    } catch (Exception e) {
+                        log.error("[Test Judge] Request the judge server [" + judgeServer.getUrl() + "] error-------------->", e);
+                        TestJudgeRes testJudgeRes = TestJudgeRes.builder()
+                                .status(Constants.Judge.STATUS_SYSTEM_ERROR.getStatus())
+                                .time(0L)
+                                .memory(0L)
+                                .stderr("Failed to connect the judgeServer. Please resubmit this submission again!")
+                                .build();
+                        redisUtils.set(testJudgeReq.getUniqueKey(), testJudgeRes, 60);
+                    } finally {
+                        releaseJudgeServer(judgeServer.getId());
+                        onFinished.run();
                     }
-                } catch (Exception e) {
-                    log.error("[Test Judge] Request the judge server [" + judgeServer.getUrl() + "] error-------------->", e);
-                    TestJudgeRes testJudgeRes = TestJudgeRes.builder()
-                            .status(Constants.Judge.STATUS_SYSTEM_ERROR.getStatus())
-                            .time(0L)
-                            .memory(0L)
-                            .stderr("Failed to connect the judgeServer. Please resubmit this submission again!")
-                            .build();
-                    redisUtils.set(testJudgeReq.getUniqueKey(), testJudgeRes, 60);
-                } finally {
-                    releaseJudgeServer(judgeServer.getId());
-                    releaseTaskThread(taskKey);
-                }
-            }
-        };
-        ScheduledFuture<?> scheduledFuture = scheduler.scheduleWithFixedDelay(getResultTask, 0, 1, TimeUnit.SECONDS);
-        futureTaskMap.put(taskKey, scheduledFuture);
+                },
+                () -> {
+                    log.error("[Test Judge] Waiting for the judge server timeout, uniqueKey:{}", testJudgeReq.getUniqueKey());
+                    onFinished.run();
+                });
     }
 
 
@@ -259,72 +284,34 @@ public class Dispatcher {
     private void checkResult(CommonResult<Void> result, Long submitId) {
 
         Judge judge = new Judge();
+        judge.setSubmitId(submitId);
         if (result == null) { // 调用失败
-            judge.setSubmitId(submitId);
             judge.setStatus(Constants.Judge.STATUS_SUBMITTED_FAILED.getStatus());
             judge.setErrorMessage("Failed to connect the judgeServer. Please resubmit this submission again!");
             judgeEntityService.updateById(judge);
+            judgeStatusPushManager.publish(submitId);
         } else {
             if (result.getStatus() != ResultStatus.SUCCESS.getStatus()) { // 如果是结果码不是200 说明调用有错误
                 // 判为系统错误
                 judge.setStatus(Constants.Judge.STATUS_SYSTEM_ERROR.getStatus())
                         .setErrorMessage(result.getMsg());
                 judgeEntityService.updateById(judge);
+                judgeStatusPushManager.publish(submitId);
             }
         }
 
     }
 
-    /**
-     * 成功与否，皆需移除任务，释放线程
-     *
-     * @param taskKey
-     */
-    private void releaseTaskThread(String taskKey) {
-        Future future = futureTaskMap.get(taskKey);
-        if (future != null) {
-            boolean isCanceled = future.cancel(true);
-            if (isCanceled) {
-                futureTaskMap.remove(taskKey);
-            }
-        }
-    }
-
     /**
      * 释放评测机资源
      *
      * @param judgeServerId
      */
     public void releaseJudgeServer(Integer judgeServerId) {
-        UpdateWrapper<JudgeServer> judgeServerUpdateWrapper = new UpdateWrapper<>();
-        judgeServerUpdateWrapper.setSql("task_number = task_number-1")
-                .eq("id", judgeServerId);
-        boolean isOk = judgeServerEntityService.update(judgeServerUpdateWrapper);
-        if (!isOk) { // 重试八次
-            tryAgainUpdateJudge(judgeServerUpdateWrapper);
-        }
-    }
-
-    public void tryAgainUpdateJudge(UpdateWrapper<JudgeServer> updateWrapper) {
-        boolean retryable;
-        int attemptNumber = 0;
-        do {
-            boolean success = judgeServerEntityService.update(updateWrapper);
-            if (success) {
-                return;
-            } else {
-                attemptNumber++;
-                retryable = attemptNumber < 8;
-                if (attemptNumber == 8) {
-                    break;
-                }
-                try {
-                    Thread.sleep(300);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-            }
-        } while (retryable);
+        // 内存中原子释放，当前判题数由登记表定时回写到数据库
+        judgeServerRegistry.release(judgeServerId);
+        // 唤醒等待判题机资源的评测任务
+        judgeScheduler.signalRelease();
     }
 
 
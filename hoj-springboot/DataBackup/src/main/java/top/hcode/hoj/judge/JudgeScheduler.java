@@ -0,0 +1,569 @@
+package top.hcode.hoj.judge;
+
+import cn.hutool.json.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import top.hcode.hoj.pojo.entity.judge.JudgeServer;
+import top.hcode.hoj.utils.Constants;
+import top.hcode.hoj.utils.IpUtils;
+import top.hcode.hoj.utils.RedisUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/17 10:12
+ * @Description: 判题任务调度器
+ * 所有待评测任务进入有界的就绪队列，按优先级与申请的判题机资源(acquireKey)分成多个先进先出的子队列，
+ * 由每条通道唯一的调度线程按优先级从高到低为各子队列的队首任务申请判题机：某个子队列暂时申请不到资源时只跳过该子队列，
+ * 不会阻塞其它子队列的任务，同一资源在一轮中只由优先级最高的子队列申请。
+ * 全部申请不到时等待判题机被释放（releaseJudgeServer）的信号，
+ * 释放信号通过redis发布，所有实例的调度线程都会被唤醒。
+ * 各实例就绪队列中是否有优先于批量重判的任务，由专用线程每秒发布到redis，供重判流水线判断是否需要让出判题机。
+ */
+@Component
+@Slf4j(topic = "hoj")
+public class JudgeScheduler implements MessageListener {
+
+    private static final String JUDGE_SERVER_RELEASE_CHANNEL = "hoj_judge_server_release_channel";
+
+    /**
+     * 本地评测（包括在线调试）与远程评测使用的判题机互不相同，分开两条通道调度，避免相互阻塞
+     */
+    public enum Lane {
+        LOCAL("local"),
+        REMOTE("remote");
+
+        private final String name;
+
+        Lane(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    @Value("${hoj.judge.scheduler.queue-capacity:10000}")
+    private Integer queueCapacity;
+
+    /**
+     * 没有判题机被释放时的兜底重试间隔，用于感知新上线的判题机
+     */
+    @Value("${hoj.judge.scheduler.idle-retry-millis:2000}")
+    private Long idleRetryMillis;
+
+    @Value("${server.port:6688}")
+    private Integer serverPort;
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private final ConcurrentHashMap<Lane, LaneWorker> laneWorkerMap = new ConcurrentHashMap<>();
+
+    /**
+     * 积压的发布间隔，与Spring默认的单线程定时任务隔离，不受其它耗时任务影响
+     */
+    private static final long BACKLOG_PUBLISH_INTERVAL_MILLIS = 1000;
+
+    /**
+     * 积压记录所在hash的有效时间(秒)，所有实例都停止发布后自动过期
+     */
+    private static final long BACKLOG_KEY_EXPIRE_SECONDS = 60;
+
+    // 与处理中队列的实例标识一致，重启后覆盖同一字段，字段数不会随重启增长
+    private String instanceId;
+
+    // 本实例是否已在redis中发布了积压的任务
+    private boolean isBacklogPublished = false;
+
+    private Thread backlogPublisher;
+
+    /**
+     * 真正请求判题机的线程，同时运行的任务数不会超过判题机的总并发数
+     */
+    private final ExecutorService judgeExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicLong index = new AtomicLong(0);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "JudgeSchedulerWorker-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    @PostConstruct
+    public void init() {
+        for (Lane lane : Lane.values()) {
+            LaneWorker worker = new LaneWorker(lane);
+            laneWorkerMap.put(lane, worker);
+            worker.start();
+        }
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(JUDGE_SERVER_RELEASE_CHANNEL));
+        instanceId = IpUtils.getServiceIp() + ":" + serverPort;
+        backlogPublisher = new Thread(this::publishBacklogLoop, "JudgeScheduler-backlog");
+        backlogPublisher.setDaemon(true);
+        backlogPublisher.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (LaneWorker worker : laneWorkerMap.values()) {
+            worker.interrupt();
+        }
+        judgeExecutor.shutdown();
+        if (backlogPublisher != null) {
+            backlogPublisher.interrupt();
+        }
+        redisUtils.hdel(Constants.Account.JUDGE_SCHEDULER_BACKLOG.getCode(), instanceId);
+    }
+
+    /**
+     * 将任务纳入调度
+     *
+     * @param lane          调度通道
+     * @param priority      优先级，数值越小越优先
+     * @param acquireKey    任务申请的判题机资源，相同资源的任务按先后顺序获取判题机
+     * @param maxWaitMillis 最长等待判题机的时间，超时则执行onTimeout
+     * @param acquirer      申请判题机资源，无可用判题机时返回null
+     * @param runner        获取到判题机后执行的评测调用，由调用方负责释放判题机
+     * @param onTimeout     等待超时或队列已满的处理
+     * @return 是否成功进入就绪队列
+     */
+    public boolean submit(Lane lane,
+                          int priority,
+                          String acquireKey,
+                          long maxWaitMillis,
+                          Supplier<JudgeServer> acquirer,
+                          Consumer<JudgeServer> runner,
+                          Runnable onTimeout) {
+        PendingTask task = new PendingTask(priority, acquireKey, maxWaitMillis, acquirer, runner, onTimeout);
+        boolean isOk = laneWorkerMap.get(lane).offer(task);
+        if (!isOk) {
+            log.error("[Judge Scheduler] The {} ready queue is full, capacity={}", lane.getName(), queueCapacity);
+            onTimeout.run();
+        }
+        return isOk;
+    }
+
+    /**
+     * 有判题机资源被释放，唤醒本实例等待中的调度线程，并通知其它实例
+     */
+    public void signalRelease() {
+        signalLocal();
+        try {
+            redisUtils.sendMessage(JUDGE_SERVER_RELEASE_CHANNEL, System.currentTimeMillis());
+        } catch (Exception e) {
+            // 通知失败时其它实例最多在兜底重试间隔后感知
+            log.error("[Judge Scheduler] Publish the release signal error------------>", e);
+        }
+    }
+
+    /**
+     * 唤醒本实例等待中的调度线程
+     */
+    public void signalLocal() {
+        for (LaneWorker worker : laneWorkerMap.values()) {
+            worker.signal();
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        signalLocal();
+    }
+
+    /**
+     * 本实例就绪队列中等待判题机的任务数
+     */
+    public int getQueuedCount(Lane lane) {
+        return laneWorkerMap.get(lane).size.get();
+    }
+
+    /**
+     * 设置通道中批量重判等后台任务的优先级，优先级数值不小于它的任务不计入积压
+     */
+    public void setBackgroundPriority(Lane lane, int priority) {
+        laneWorkerMap.get(lane).backgroundPriority = priority;
+    }
+
+    /**
+     * 本实例就绪队列中优先于后台任务、仍在等待判题机的任务数
+     */
+    public int getForegroundQueuedCount(Lane lane) {
+        return laneWorkerMap.get(lane).getForegroundSize();
+    }
+
+    private void publishBacklogLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            publishBacklog();
+            try {
+                Thread.sleep(BACKLOG_PUBLISH_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 将本实例是否积压前台任务发布到redis，字段值为最近一次发布的时间，没有积压时移除该字段。
+     * 实例异常退出时遗留的字段由读取方按发布时间视为过期，不再发布后整个hash自动过期
+     */
+    private void publishBacklog() {
+        int foregroundCount = 0;
+        for (Lane lane : Lane.values()) {
+            foregroundCount += getForegroundQueuedCount(lane);
+        }
+        try {
+            if (foregroundCount > 0) {
+                redisUtils.hset(Constants.Account.JUDGE_SCHEDULER_BACKLOG.getCode(), instanceId,
+                        System.currentTimeMillis(), BACKLOG_KEY_EXPIRE_SECONDS);
+                isBacklogPublished = true;
+            } else if (isBacklogPublished) {
+                redisUtils.hdel(Constants.Account.JUDGE_SCHEDULER_BACKLOG.getCode(), instanceId);
+                isBacklogPublished = false;
+            }
+        } catch (Exception e) {
+            log.error("[Judge Scheduler] Publish the backlog error------------>", e);
+        }
+    }
+
+    /**
+     * 本实例已获取判题机、正在评测的任务数
+     */
+    public int getRunningCount(Lane lane) {
+        return (int) laneWorkerMap.get(lane).runningCount.get();
+    }
+
+    /**
+     * 各通道的队列深度与等待时间统计
+     */
+    public JSONObject getMetrics() {
+        JSONObject metrics = new JSONObject();
+        for (Lane lane : Lane.values()) {
+            LaneWorker worker = laneWorkerMap.get(lane);
+            JSONObject laneMetrics = new JSONObject();
+            long dispatchedCount = worker.dispatchedCount.get();
+            laneMetrics.set("queueDepth", worker.size.get());
+            laneMetrics.set("queueCapacity", queueCapacity);
+            laneMetrics.set("running", worker.runningCount.get());
+            laneMetrics.set("dispatched", dispatchedCount);
+            laneMetrics.set("timeout", worker.timeoutCount.get());
+            laneMetrics.set("lastWaitMillis", worker.lastWaitMillis);
+            laneMetrics.set("maxWaitMillis", worker.maxWaitMillis.get());
+            laneMetrics.set("avgWaitMillis", dispatchedCount == 0 ? 0 : worker.totalWaitMillis.get() / dispatchedCount);
+            metrics.set(lane.getName(), laneMetrics);
+        }
+        return metrics;
+    }
+
+    private static class PendingTask {
+
+        private final long enqueueTime = System.currentTimeMillis();
+
+        private final int priority;
+
+        private final String acquireKey;
+
+        private final long maxWaitMillis;
+
+        private final Supplier<JudgeServer> acquirer;
+
+        private final Consumer<JudgeServer> runner;
+
+        private final Runnable onTimeout;
+
+        PendingTask(int priority, String acquireKey, long maxWaitMillis, Supplier<JudgeServer> acquirer,
+                    Consumer<JudgeServer> runner, Runnable onTimeout) {
+            this.priority = priority;
+            this.acquireKey = acquireKey;
+            this.maxWaitMillis = maxWaitMillis;
+            this.acquirer = acquirer;
+            this.runner = runner;
+            this.onTimeout = onTimeout;
+        }
+
+        boolean isExpired(long now) {
+            return now - enqueueTime > maxWaitMillis;
+        }
+    }
+
+    private class LaneWorker extends Thread {
+
+        private final Lane lane;
+
+        /**
+         * 按优先级与申请的判题机资源划分的子队列，只能在持有lock时访问
+         */
+        private final TreeMap<Integer, LinkedHashMap<String, ArrayDeque<PendingTask>>> subQueueMap = new TreeMap<>();
+
+        private final AtomicInteger size = new AtomicInteger(0);
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Condition changed = lock.newCondition();
+
+        // 每次有新任务或释放判题机时自增，用于避免申请失败与开始等待之间的信号丢失
+        private long changeVersion = 0;
+
+        private final AtomicLong dispatchedCount = new AtomicLong(0);
+
+        private final AtomicLong timeoutCount = new AtomicLong(0);
+
+        private final AtomicLong runningCount = new AtomicLong(0);
+
+        private final AtomicLong totalWaitMillis = new AtomicLong(0);
+
+        private final AtomicLong maxWaitMillis = new AtomicLong(0);
+
+        private volatile long lastWaitMillis = 0;
+
+        private volatile int backgroundPriority = Integer.MAX_VALUE;
+
+        LaneWorker(Lane lane) {
+            super("JudgeScheduler-" + lane.getName());
+            this.lane = lane;
+            setDaemon(true);
+        }
+
+        boolean offer(PendingTask task) {
+            lock.lock();
+            try {
+                if (size.get() >= queueCapacity) {
+                    return false;
+                }
+                subQueueMap.computeIfAbsent(task.priority, priority -> new LinkedHashMap<>())
+                        .computeIfAbsent(task.acquireKey, key -> new ArrayDeque<>())
+                        .offerLast(task);
+                size.incrementAndGet();
+                changeVersion++;
+                changed.signalAll();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int getForegroundSize() {
+            lock.lock();
+            try {
+                int count = 0;
+                for (LinkedHashMap<String, ArrayDeque<PendingTask>> priorityMap : subQueueMap.headMap(backgroundPriority).values()) {
+                    for (ArrayDeque<PendingTask> subQueue : priorityMap.values()) {
+                        count += subQueue.size();
+                    }
+                }
+                return count;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void signal() {
+            lock.lock();
+            try {
+                changeVersion++;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (!isInterrupted()) {
+                try {
+                    long version;
+                    lock.lock();
+                    try {
+                        version = changeVersion;
+                    } finally {
+                        lock.unlock();
+                    }
+                    if (dispatchRound()) {
+                        continue;
+                    }
+                    lock.lock();
+                    try {
+                        if (version == changeVersion) {
+                            changed.await(idleRetryMillis, TimeUnit.MILLISECONDS);
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Exception e) {
+                    log.error("[Judge Scheduler] The {} lane dispatch error------------>", lane.getName(), e);
+                }
+            }
+        }
+
+        /**
+         * 按优先级依次为每个子队列的队首任务申请判题机，申请不到的子队列本轮跳过。
+         * 同一资源在一轮中只由优先级最高的子队列申请，避免低优先级的任务抢走刚释放的判题机
+         *
+         * @return 本轮是否有任务被分配或超时移除
+         */
+        private boolean dispatchRound() {
+            boolean progressed = false;
+            for (PendingTask expiredTask : pollExpired()) {
+                timeoutCount.incrementAndGet();
+                runQuietly(expiredTask.onTimeout);
+                progressed = true;
+            }
+            List<Map.Entry<Integer, String>> subQueueKeyList = new ArrayList<>();
+            lock.lock();
+            try {
+                for (Map.Entry<Integer, LinkedHashMap<String, ArrayDeque<PendingTask>>> entry : subQueueMap.entrySet()) {
+                    for (String acquireKey : entry.getValue().keySet()) {
+                        subQueueKeyList.add(new AbstractMap.SimpleEntry<>(entry.getKey(), acquireKey));
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            Set<String> visitedAcquireKeySet = new HashSet<>();
+            for (Map.Entry<Integer, String> subQueueKey : subQueueKeyList) {
+                int priority = subQueueKey.getKey();
+                String acquireKey = subQueueKey.getValue();
+                if (!visitedAcquireKeySet.add(acquireKey)) {
+                    continue;
+                }
+                PendingTask task = peek(priority, acquireKey);
+                if (task == null) {
+                    continue;
+                }
+                JudgeServer judgeServer = null;
+                try {
+                    judgeServer = task.acquirer.get();
+                } catch (Exception e) {
+                    log.error("[Judge Scheduler] The {} lane choose judge server error------------>", lane.getName(), e);
+                }
+                if (judgeServer != null) {
+                    // 只有调度线程会移除任务，此时的队首仍是该任务
+                    poll(priority, acquireKey);
+                    dispatch(task, judgeServer);
+                    progressed = true;
+                }
+            }
+            return progressed;
+        }
+
+        /**
+         * 移除所有已等待超时的任务，同一子队列中不同任务的最长等待时间可能不同，需要全部检查
+         */
+        private List<PendingTask> pollExpired() {
+            List<PendingTask> expiredList = new ArrayList<>();
+            long now = System.currentTimeMillis();
+            lock.lock();
+            try {
+                Iterator<LinkedHashMap<String, ArrayDeque<PendingTask>>> priorityIterator = subQueueMap.values().iterator();
+                while (priorityIterator.hasNext()) {
+                    LinkedHashMap<String, ArrayDeque<PendingTask>> priorityMap = priorityIterator.next();
+                    Iterator<ArrayDeque<PendingTask>> subQueueIterator = priorityMap.values().iterator();
+                    while (subQueueIterator.hasNext()) {
+                        ArrayDeque<PendingTask> subQueue = subQueueIterator.next();
+                        Iterator<PendingTask> taskIterator = subQueue.iterator();
+                        while (taskIterator.hasNext()) {
+                            PendingTask task = taskIterator.next();
+                            if (task.isExpired(now)) {
+                                taskIterator.remove();
+                                size.decrementAndGet();
+                                expiredList.add(task);
+                            }
+                        }
+                        if (subQueue.isEmpty()) {
+                            subQueueIterator.remove();
+                        }
+                    }
+                    if (priorityMap.isEmpty()) {
+                        priorityIterator.remove();
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            return expiredList;
+        }
+
+        private PendingTask peek(int priority, String acquireKey) {
+            lock.lock();
+            try {
+                LinkedHashMap<String, ArrayDeque<PendingTask>> priorityMap = subQueueMap.get(priority);
+                ArrayDeque<PendingTask> subQueue = priorityMap == null ? null : priorityMap.get(acquireKey);
+                return subQueue == null ? null : subQueue.peekFirst();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void poll(int priority, String acquireKey) {
+            lock.lock();
+            try {
+                LinkedHashMap<String, ArrayDeque<PendingTask>> priorityMap = subQueueMap.get(priority);
+                ArrayDeque<PendingTask> subQueue = priorityMap == null ? null : priorityMap.get(acquireKey);
+                if (subQueue != null && subQueue.pollFirst() != null) {
+                    size.decrementAndGet();
+                    if (subQueue.isEmpty()) {
+                        priorityMap.remove(acquireKey);
+                        if (priorityMap.isEmpty()) {
+                            subQueueMap.remove(priority);
+                        }
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void dispatch(PendingTask task, JudgeServer judgeServer) {
+            long waitMillis = System.currentTimeMillis() - task.enqueueTime;
+            lastWaitMillis = waitMillis;
+            totalWaitMillis.addAndGet(waitMillis);
+            maxWaitMillis.accumulateAndGet(waitMillis, Math::max);
+            dispatchedCount.incrementAndGet();
+            runningCount.incrementAndGet();
+            try {
+                judgeExecutor.execute(() -> {
+                    try {
+                        task.runner.accept(judgeServer);
+                    } finally {
+                        runningCount.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                runningCount.decrementAndGet();
+                throw e;
+            }
+        }
+
+        private void runQuietly(Runnable runnable) {
+            try {
+                runnable.run();
+            } catch (Exception e) {
+                log.error("[Judge Scheduler] The {} lane timeout handle error------------>", lane.getName(), e);
+            }
+        }
+    }
+}
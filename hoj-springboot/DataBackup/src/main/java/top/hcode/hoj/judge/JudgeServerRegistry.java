@@ -0,0 +1,303 @@
+package top.hcode.hoj.judge;
+
+import cn.hutool.core.util.IdUtil;
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import top.hcode.hoj.dao.judge.JudgeServerEntityService;
+import top.hcode.hoj.pojo.entity.judge.JudgeServer;
+import top.hcode.hoj.utils.Constants;
+import top.hcode.hoj.utils.RedisUtils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/17 14:30
+ * @Description: 判题机容量登记表
+ * 每台判题机的占用情况保存在redis的zset中，所有实例通过Lua脚本原子地占用与释放判题资源，
+ * 多个实例同时运行时总并发数也不会超过判题机的最大判题数。每次占用生成一个带过期时间的凭证，
+ * 持有的实例定时续期，实例异常退出时凭证到期后自动释放。判题机列表定时与nacos的健康实例同步，
+ * 并由其中一个实例将redis中的当前判题数回写到judge_server表作为后台展示的持久视图。
+ */
+@Component
+@Slf4j(topic = "hoj")
+public class JudgeServerRegistry {
+
+    @Autowired
+    private NacosDiscoveryProperties discoveryProperties;
+
+    @Autowired
+    private JudgeServerEntityService judgeServerEntityService;
+
+    @Autowired
+    private JudgeScheduler judgeScheduler;
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Value("${service-url.name}")
+    private String judgeServiceName;
+
+    /**
+     * 占用凭证的有效时长，需远大于同步间隔
+     */
+    @Value("${hoj.judge.registry.slot-lease-millis:60000}")
+    private Long slotLeaseMillis;
+
+    @Value("${hoj.judge.registry.sync-interval-millis:5000}")
+    private Long syncIntervalMillis;
+
+    private final String instanceId = IdUtil.fastSimpleUUID();
+
+    private final AtomicLong tokenIndex = new AtomicLong(0);
+
+    private final ConcurrentHashMap<Integer, ServerSlot> slotMap = new ConcurrentHashMap<>();
+
+    /**
+     * 本实例持有的占用凭证，同一判题机的凭证可互相替代
+     */
+    private final ConcurrentHashMap<Integer, ConcurrentLinkedDeque<String>> heldTokenMap = new ConcurrentHashMap<>();
+
+    private volatile List<ServerSlot> localSlotList = Collections.emptyList();
+
+    private volatile List<ServerSlot> remoteSlotList = Collections.emptyList();
+
+    private volatile boolean initialized = false;
+
+    /**
+     * 占用一个当前判题数最少且未满的判题机资源
+     *
+     * @param isRemote 是否为远程判题vj
+     * @return 占用成功的判题机，无可用判题机时返回null
+     */
+    public JudgeServer reserve(Boolean isRemote) {
+        if (!initialized) {
+            sync();
+        }
+        List<ServerSlot> candidateList = new ArrayList<>();
+        for (ServerSlot slot : isRemote ? remoteSlotList : localSlotList) {
+            if (slot.healthy && slot.maxTaskNumber > 0) {
+                candidateList.add(slot);
+            }
+        }
+        if (candidateList.isEmpty()) {
+            return null;
+        }
+        List<String> keyList = new ArrayList<>(candidateList.size());
+        List<Integer> capacityList = new ArrayList<>(candidateList.size());
+        for (ServerSlot slot : candidateList) {
+            keyList.add(getSlotKey(slot.judgeServer.getId()));
+            capacityList.add(slot.maxTaskNumber);
+        }
+        String token = instanceId + ":" + tokenIndex.incrementAndGet();
+        int index = redisUtils.reserveSlot(keyList, capacityList, token, slotLeaseMillis);
+        if (index < 0) {
+            return null;
+        }
+        JudgeServer judgeServer = candidateList.get(index).judgeServer;
+        heldTokenMap.computeIfAbsent(judgeServer.getId(), id -> new ConcurrentLinkedDeque<>()).offerLast(token);
+        return judgeServer;
+    }
+
+    /**
+     * 释放判题机资源，本实例未持有该判题机的凭证时直接忽略
+     *
+     * @param judgeServerId
+     */
+    public void release(Integer judgeServerId) {
+        ConcurrentLinkedDeque<String> tokenDeque = heldTokenMap.get(judgeServerId);
+        String token = tokenDeque == null ? null : tokenDeque.pollFirst();
+        if (token == null) {
+            return;
+        }
+        try {
+            redisUtils.releaseSlot(getSlotKey(judgeServerId), token);
+        } catch (Exception e) {
+            // 释放失败的凭证不再续期，到期后自动释放
+            log.error("[Judge Server Registry] Release the slot of judge server [{}] error------------>", judgeServerId, e);
+        }
+    }
+
+    /**
+     * 统计当前可用的判题资源数
+     *
+     * @param isRemote 是否为远程判题vj
+     */
+    public int countFreeSlots(Boolean isRemote) {
+        if (!initialized) {
+            sync();
+        }
+        List<ServerSlot> candidateList = new ArrayList<>();
+        for (ServerSlot slot : isRemote ? remoteSlotList : localSlotList) {
+            if (slot.healthy && slot.maxTaskNumber > 0) {
+                candidateList.add(slot);
+            }
+        }
+        if (candidateList.isEmpty()) {
+            return 0;
+        }
+        List<String> keyList = new ArrayList<>(candidateList.size());
+        for (ServerSlot slot : candidateList) {
+            keyList.add(getSlotKey(slot.judgeServer.getId()));
+        }
+        List<Long> countList = redisUtils.countSlot(keyList);
+        int freeSlots = 0;
+        for (int i = 0; i < candidateList.size(); i++) {
+            freeSlots += Math.max(0, candidateList.get(i).maxTaskNumber - countList.get(i).intValue());
+        }
+        return freeSlots;
+    }
+
+    /**
+     * 定时与nacos健康实例及judge_server表同步，同时为本实例持有的凭证续期
+     */
+    @Scheduled(fixedDelayString = "${hoj.judge.registry.sync-interval-millis:5000}")
+    public synchronized void sync() {
+        renewHeldTokens();
+
+        Set<String> healthyUrlSet = getHealthyUrlSet();
+        List<JudgeServer> judgeServerList;
+        try {
+            judgeServerList = judgeServerEntityService.list();
+        } catch (Exception e) {
+            log.error("[Judge Server Registry] Load judge server list error------------>", e);
+            return;
+        }
+
+        Set<Integer> aliveIdSet = new HashSet<>();
+        List<ServerSlot> localList = new ArrayList<>();
+        List<ServerSlot> remoteList = new ArrayList<>();
+        boolean hasNewCapacity = false;
+        for (JudgeServer judgeServer : judgeServerList) {
+            aliveIdSet.add(judgeServer.getId());
+            boolean healthy = healthyUrlSet.contains(judgeServer.getUrl());
+            ServerSlot slot = slotMap.get(judgeServer.getId());
+            if (slot == null) {
+                slot = new ServerSlot(judgeServer);
+                slotMap.put(judgeServer.getId(), slot);
+                hasNewCapacity |= healthy;
+            } else if (healthy && (!slot.healthy || slot.maxTaskNumber < judgeServer.getMaxTaskNumber())) {
+                hasNewCapacity = true;
+            }
+            slot.healthy = healthy;
+            slot.maxTaskNumber = judgeServer.getMaxTaskNumber();
+            slot.judgeServer.setTaskNumber(judgeServer.getTaskNumber());
+            if (Boolean.TRUE.equals(judgeServer.getIsRemote())) {
+                remoteList.add(slot);
+            } else {
+                localList.add(slot);
+            }
+        }
+        slotMap.keySet().retainAll(aliveIdSet);
+        localSlotList = localList;
+        remoteSlotList = remoteList;
+        initialized = true;
+
+        reconcile();
+
+        if (hasNewCapacity) {
+            // 各实例都会同步判题机列表，只需唤醒本实例
+            judgeScheduler.signalLocal();
+        }
+    }
+
+    private void renewHeldTokens() {
+        for (Map.Entry<Integer, ConcurrentLinkedDeque<String>> entry : heldTokenMap.entrySet()) {
+            List<String> tokenList = new ArrayList<>(entry.getValue());
+            if (tokenList.isEmpty()) {
+                continue;
+            }
+            try {
+                long renewed = redisUtils.renewSlot(getSlotKey(entry.getKey()), tokenList, slotLeaseMillis);
+                if (renewed < tokenList.size()) {
+                    log.warn("[Judge Server Registry] {} of {} slots of judge server [{}] were expired before renewal",
+                            tokenList.size() - renewed, tokenList.size(), entry.getKey());
+                }
+            } catch (Exception e) {
+                log.error("[Judge Server Registry] Renew the slots of judge server [{}] error------------>", entry.getKey(), e);
+            }
+        }
+    }
+
+    /**
+     * 将redis中各判题机的当前判题数回写到judge_server表，同一时刻只由一个实例回写，仅更新有变化的记录
+     */
+    private void reconcile() {
+        if (slotMap.isEmpty() || !redisUtils.getLock(Constants.Account.JUDGE_SERVER_SYNC_LOCK.getCode(),
+                (int) Math.max(1, syncIntervalMillis / 1000), instanceId)) {
+            return;
+        }
+        List<ServerSlot> slotList = new ArrayList<>(slotMap.values());
+        List<String> keyList = new ArrayList<>(slotList.size());
+        for (ServerSlot slot : slotList) {
+            keyList.add(getSlotKey(slot.judgeServer.getId()));
+        }
+        List<Long> countList;
+        try {
+            countList = redisUtils.countSlot(keyList);
+        } catch (Exception e) {
+            log.error("[Judge Server Registry] Count the slots of judge servers error------------>", e);
+            return;
+        }
+        for (int i = 0; i < slotList.size(); i++) {
+            ServerSlot slot = slotList.get(i);
+            int taskNumber = countList.get(i).intValue();
+            if (Objects.equals(taskNumber, slot.judgeServer.getTaskNumber())) {
+                continue;
+            }
+            UpdateWrapper<JudgeServer> judgeServerUpdateWrapper = new UpdateWrapper<>();
+            judgeServerUpdateWrapper.set("task_number", taskNumber)
+                    .eq("id", slot.judgeServer.getId());
+            try {
+                judgeServerEntityService.update(judgeServerUpdateWrapper);
+                slot.judgeServer.setTaskNumber(taskNumber);
+            } catch (Exception e) {
+                log.error("[Judge Server Registry] Sync task number of [{}] error------------>",
+                        slot.judgeServer.getUrl(), e);
+            }
+        }
+    }
+
+    private Set<String> getHealthyUrlSet() {
+        Set<String> urlSet = new HashSet<>();
+        try {
+            // 获取该微服务的所有健康实例
+            List<Instance> instances = discoveryProperties.namingServiceInstance()
+                    .selectInstances(judgeServiceName, true);
+            for (Instance instance : instances) {
+                urlSet.add(instance.getIp() + ":" + instance.getPort());
+            }
+        } catch (NacosException e) {
+            log.error("获取微服务健康实例发生异常--------->{}", e);
+        }
+        return urlSet;
+    }
+
+    private String getSlotKey(Integer judgeServerId) {
+        return Constants.Account.JUDGE_SERVER_SLOT.getCode() + judgeServerId;
+    }
+
+    private static class ServerSlot {
+
+        private final JudgeServer judgeServer;
+
+        private volatile int maxTaskNumber;
+
+        private volatile boolean healthy;
+
+        ServerSlot(JudgeServer judgeServer) {
+            this.judgeServer = judgeServer;
+            this.maxTaskNumber = judgeServer.getMaxTaskNumber();
+        }
+    }
+}
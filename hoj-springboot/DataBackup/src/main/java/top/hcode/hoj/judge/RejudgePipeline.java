@@ -0,0 +1,514 @@
+package top.hcode.hoj.judge;
+
+import cn.hutool.core.util.IdUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.CollectionUtils;
+import top.hcode.hoj.common.exception.StatusFailException;
+import top.hcode.hoj.dao.contest.ContestRecordEntityService;
+import top.hcode.hoj.dao.judge.JudgeCaseEntityService;
+import top.hcode.hoj.dao.judge.JudgeEntityService;
+import top.hcode.hoj.dao.problem.ProblemEntityService;
+import top.hcode.hoj.judge.remote.RemoteJudgeDispatcher;
+import top.hcode.hoj.judge.self.JudgeDispatcher;
+import top.hcode.hoj.manager.oj.ContestACMRankBoardManager;
+import top.hcode.hoj.manager.oj.ContestOIRankBoardManager;
+import top.hcode.hoj.pojo.entity.contest.ContestRecord;
+import top.hcode.hoj.pojo.entity.judge.Judge;
+import top.hcode.hoj.pojo.entity.judge.JudgeCase;
+import top.hcode.hoj.pojo.entity.problem.Problem;
+import top.hcode.hoj.pojo.vo.RejudgeProgressVO;
+import top.hcode.hoj.utils.Constants;
+import top.hcode.hoj.utils.RedisUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/20 21:10
+ * @Description: 批量重判的流水线
+ * 创建任务时只查询提交id并保存到redis，由后台线程按并发上限分批取出：每批在一个事务中用in条件重置提交、
+ * 测试点与比赛记录，然后送入优先级最低的重判队列；
+ * 有正常提交在redis等待队列或任一实例的调度器中排队时暂停投放，让出判题机。
+ * 已投放的提交在得到最终结果后计入进度，任务可随时取消，尚未投放的提交保持原有结果不变。
+ * 任务状态都保存在redis中，多个实例通过锁保证同一时刻只有一个实例在投放，投放过程中每一步都会续期该锁，续期失败则停止本轮投放。
+ */
+@Slf4j(topic = "hoj")
+@Component
+public class RejudgePipeline {
+
+    public static final String STATUS_RUNNING = "Running";
+
+    public static final String STATUS_CANCELLED = "Cancelled";
+
+    public static final String STATUS_FINISHED = "Finished";
+
+    /**
+     * 任务结束后进度的保留时间(秒)
+     */
+    private static final long FINISHED_JOB_EXPIRE_SECONDS = 24 * 60 * 60;
+
+    /**
+     * 同一比赛重判锁的有效时间(秒)，任务结束时主动释放
+     */
+    private static final int CONTEST_LOCK_EXPIRE_SECONDS = 24 * 60 * 60;
+
+    private static final int FEED_LOCK_EXPIRE_SECONDS = 30;
+
+    /**
+     * 调度器发布积压的有效时间，超过该时间未更新视为实例已退出
+     */
+    private static final long SCHEDULER_BACKLOG_EXPIRE_MILLIS = 10 * 1000;
+
+    private static final int PUSH_ID_CHUNK_SIZE = 1000;
+
+    private static final List<Integer> JUDGING_STATUS = Arrays.asList(
+            Constants.Judge.STATUS_PENDING.getStatus(),
+            Constants.Judge.STATUS_COMPILING.getStatus(),
+            Constants.Judge.STATUS_JUDGING.getStatus(),
+            Constants.Judge.STATUS_SUBMITTING.getStatus());
+
+    private static final List<String> LIVE_QUEUES = Arrays.asList(
+            Constants.Queue.CONTEST_JUDGE_WAITING.getName(),
+            Constants.Queue.GENERAL_JUDGE_WAITING.getName(),
+            Constants.Queue.CONTEST_REMOTE_JUDGE_WAITING_HANDLE.getName(),
+            Constants.Queue.GENERAL_REMOTE_JUDGE_WAITING_HANDLE.getName());
+
+    /**
+     * 所有重判任务同时在评测中的提交数上限
+     */
+    @Value("${hoj.rejudge.max-in-flight:20}")
+    private Integer maxInFlight;
+
+    /**
+     * 单个重判任务同时在评测中的提交数上限
+     */
+    @Value("${hoj.rejudge.max-in-flight-per-job:10}")
+    private Integer maxInFlightPerJob;
+
+    /**
+     * 每批重置的提交数上限
+     */
+    @Value("${hoj.rejudge.reset-chunk-size:200}")
+    private Integer resetChunkSize;
+
+    /**
+     * 投放后超过该时间仍未得到结果的提交不再跟踪，避免任务一直卡住
+     */
+    @Value("${hoj.rejudge.in-flight-timeout-seconds:600}")
+    private Integer inFlightTimeoutSeconds;
+
+    @Value("${hoj.rejudge.feed-interval-millis:1000}")
+    private Long feedIntervalMillis;
+
+    @Resource
+    private RedisUtils redisUtils;
+
+    @Resource
+    private JudgeEntityService judgeEntityService;
+
+    @Resource
+    private JudgeCaseEntityService judgeCaseEntityService;
+
+    @Resource
+    private ContestRecordEntityService contestRecordEntityService;
+
+    @Resource
+    private ProblemEntityService problemEntityService;
+
+    @Resource
+    private JudgeDispatcher judgeDispatcher;
+
+    @Resource
+    private RemoteJudgeDispatcher remoteJudgeDispatcher;
+
+    @Resource
+    private ContestACMRankBoardManager contestACMRankBoardManager;
+
+    @Resource
+    private ContestOIRankBoardManager contestOIRankBoardManager;
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final String instanceId = IdUtil.fastSimpleUUID();
+
+    private Thread feeder;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+        feeder = new Thread(this::feedLoop, "rejudge-pipeline");
+        feeder.setDaemon(true);
+        feeder.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        if (feeder != null) {
+            feeder.interrupt();
+        }
+    }
+
+    /**
+     * 创建重判任务，同一比赛同时只能有一个进行中的重判任务
+     *
+     * @param cid          比赛id
+     * @param pid          题目id，为null代表重判整场比赛
+     * @param submitIdList 需要重判的提交id
+     * @param creator      创建者用户名
+     * @return 任务的初始进度
+     */
+    public RejudgeProgressVO submit(Long cid, Long pid, List<Long> submitIdList, String creator) throws StatusFailException {
+        String jobId = IdUtil.fastSimpleUUID();
+        String contestLockKey = Constants.Account.REJUDGE_CONTEST_LOCK.getCode() + cid;
+        if (!redisUtils.getLock(contestLockKey, CONTEST_LOCK_EXPIRE_SECONDS, jobId)) {
+            throw new StatusFailException("该比赛已有正在进行的批量重判，请等待完成或取消后再尝试！");
+        }
+        String jobKey = getJobKey(jobId);
+        for (int i = 0; i < submitIdList.size(); i += PUSH_ID_CHUNK_SIZE) {
+            List<Object> chunk = new ArrayList<>(submitIdList.subList(i, Math.min(i + PUSH_ID_CHUNK_SIZE, submitIdList.size())));
+            if (!redisUtils.lrPush(jobKey + ":pending", chunk)) {
+                redisUtils.del(jobKey + ":pending");
+                redisUtils.releaseLock(contestLockKey, jobId);
+                throw new StatusFailException("重判失败！请重新尝试！");
+            }
+        }
+        Map<String, Object> job = new HashMap<>();
+        job.put("cid", cid);
+        job.put("pid", pid == null ? 0L : pid);
+        job.put("status", STATUS_RUNNING);
+        job.put("total", (long) submitIdList.size());
+        job.put("done", 0L);
+        job.put("timeout", 0L);
+        job.put("startTime", System.currentTimeMillis());
+        job.put("creator", creator);
+        redisUtils.hmset(jobKey, job);
+        redisUtils.sSet(Constants.Account.REJUDGE_JOB_LIST.getCode(), jobId);
+        log.info("[Rejudge Pipeline] Create rejudge job [{}] of cid:[{}] pid:[{}] with {} submissions by [{}]",
+                jobId, cid, pid, submitIdList.size(), creator);
+        return getProgress(jobId);
+    }
+
+    /**
+     * 取消重判任务，已投放的提交会继续评测完成，尚未投放的提交不再重判
+     */
+    public RejudgeProgressVO cancel(String jobId) throws StatusFailException {
+        String jobKey = getJobKey(jobId);
+        Object status = redisUtils.hget(jobKey, "status");
+        if (status == null) {
+            throw new StatusFailException("该重判任务不存在或已过期！");
+        }
+        if (STATUS_RUNNING.equals(status)) {
+            redisUtils.hset(jobKey, "status", STATUS_CANCELLED);
+            redisUtils.del(jobKey + ":pending");
+            log.info("[Rejudge Pipeline] Cancel rejudge job [{}]", jobId);
+        }
+        return getProgress(jobId);
+    }
+
+    public RejudgeProgressVO getProgress(String jobId) throws StatusFailException {
+        String jobKey = getJobKey(jobId);
+        Map<Object, Object> job = redisUtils.hmget(jobKey);
+        if (CollectionUtils.isEmpty(job)) {
+            throw new StatusFailException("该重判任务不存在或已过期！");
+        }
+        RejudgeProgressVO progress = new RejudgeProgressVO();
+        long pid = toLong(job.get("pid"));
+        long total = toLong(job.get("total"));
+        long done = toLong(job.get("done"));
+        long startTime = toLong(job.get("startTime"));
+        progress.setJobId(jobId);
+        progress.setCid(toLong(job.get("cid")));
+        progress.setPid(pid == 0 ? null : pid);
+        progress.setStatus((String) job.get("status"));
+        progress.setTotal(total);
+        progress.setDone(done);
+        progress.setTimeout(toLong(job.get("timeout")));
+        progress.setStartTime(startTime);
+        progress.setEndTime(job.get("endTime") == null ? null : toLong(job.get("endTime")));
+        if (STATUS_RUNNING.equals(progress.getStatus()) || STATUS_CANCELLED.equals(progress.getStatus())) {
+            progress.setRunning((long) redisUtils.hmget(jobKey + ":running").size());
+            progress.setPending(redisUtils.lGetListSize(jobKey + ":pending"));
+        } else {
+            progress.setRunning(0L);
+            progress.setPending(0L);
+        }
+        if (STATUS_RUNNING.equals(progress.getStatus()) && done > 0) {
+            long elapsedMillis = System.currentTimeMillis() - startTime;
+            progress.setEtaSeconds(elapsedMillis * (total - done) / done / 1000);
+        }
+        return progress;
+    }
+
+    private void feedLoop() {
+        while (running) {
+            try {
+                Thread.sleep(feedIntervalMillis);
+                if (!redisUtils.getLock(Constants.Account.REJUDGE_FEED_LOCK.getCode(), FEED_LOCK_EXPIRE_SECONDS, instanceId)) {
+                    continue;
+                }
+                try {
+                    feed();
+                } finally {
+                    redisUtils.releaseLock(Constants.Account.REJUDGE_FEED_LOCK.getCode(), instanceId);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                log.error("[Rejudge Pipeline] Feed the rejudge tasks error------------>", e);
+            }
+        }
+    }
+
+    private void feed() {
+        Set<Object> jobIdSet = redisUtils.sGet(Constants.Account.REJUDGE_JOB_LIST.getCode());
+        if (CollectionUtils.isEmpty(jobIdSet)) {
+            return;
+        }
+        List<String> jobIdList = new ArrayList<>();
+        Map<String, Integer> runningCountMap = new HashMap<>();
+        int totalRunning = 0;
+        for (Object jobIdObj : jobIdSet) {
+            if (!renewFeedLock()) {
+                return;
+            }
+            String jobId = (String) jobIdObj;
+            int runningCount = refresh(jobId);
+            if (runningCount >= 0) {
+                jobIdList.add(jobId);
+                runningCountMap.put(jobId, runningCount);
+                totalRunning += runningCount;
+            }
+        }
+        // 有正常提交在排队时暂停投放
+        if (hasLiveBacklog()) {
+            return;
+        }
+        // 先创建的任务优先投放
+        jobIdList.sort(Comparator.comparingLong(jobId -> toLong(redisUtils.hget(getJobKey(jobId), "startTime"))));
+        for (String jobId : jobIdList) {
+            int slots = Math.min(maxInFlight - totalRunning, maxInFlightPerJob - runningCountMap.get(jobId));
+            slots = Math.min(slots, resetChunkSize);
+            if (slots <= 0) {
+                continue;
+            }
+            if (!renewFeedLock()) {
+                return;
+            }
+            totalRunning += dispatchChunk(jobId, slots);
+        }
+    }
+
+    private boolean renewFeedLock() {
+        if (redisUtils.renewLock(Constants.Account.REJUDGE_FEED_LOCK.getCode(), FEED_LOCK_EXPIRE_SECONDS, instanceId)) {
+            return true;
+        }
+        log.warn("[Rejudge Pipeline] Lost the feed lock, stop feeding in this round");
+        return false;
+    }
+
+    /**
+     * 正常提交是否仍在排队：尚在redis等待队列中，或已被取出但仍在某个实例的调度器中等待判题机
+     */
+    private boolean hasLiveBacklog() {
+        for (String queue : LIVE_QUEUES) {
+            if (redisUtils.lGetListSize(queue) > 0) {
+                return true;
+            }
+        }
+        // 超过有效时间未更新的字段属于已退出的实例，只忽略不删除，由发布方覆盖或随hash过期
+        long now = System.currentTimeMillis();
+        for (Object publishTime : redisUtils.hmget(Constants.Account.JUDGE_SCHEDULER_BACKLOG.getCode()).values()) {
+            if (now - toLong(publishTime) <= SCHEDULER_BACKLOG_EXPIRE_MILLIS) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 检查任务已投放的提交是否已得到结果，更新进度并结束已完成的任务
+     *
+     * @return 仍在评测中的提交数，任务已结束时返回-1
+     */
+    private int refresh(String jobId) {
+        String jobKey = getJobKey(jobId);
+        Object status = redisUtils.hget(jobKey, "status");
+        if (status == null) {
+            // 任务数据已丢失
+            redisUtils.setRemove(Constants.Account.REJUDGE_JOB_LIST.getCode(), jobId);
+            return -1;
+        }
+        Map<Object, Object> runningMap = redisUtils.hmget(jobKey + ":running");
+        if (!runningMap.isEmpty()) {
+            List<Long> submitIdList = runningMap.keySet().stream()
+                    .map(submitId -> Long.valueOf(submitId.toString()))
+                    .collect(Collectors.toList());
+            QueryWrapper<Judge> judgeQueryWrapper = new QueryWrapper<>();
+            judgeQueryWrapper.select("submit_id", "status").in("submit_id", submitIdList);
+            Map<Long, Integer> statusMap = new HashMap<>();
+            for (Judge judge : judgeEntityService.list(judgeQueryWrapper)) {
+                statusMap.put(judge.getSubmitId(), judge.getStatus());
+            }
+            long now = System.currentTimeMillis();
+            List<Object> finishedList = new ArrayList<>();
+            long timeoutCount = 0;
+            for (Long submitId : submitIdList) {
+                Integer judgeStatus = statusMap.get(submitId);
+                if (judgeStatus == null || !JUDGING_STATUS.contains(judgeStatus)) {
+                    finishedList.add(submitId.toString());
+                } else if (now - toLong(runningMap.get(submitId.toString())) > TimeUnit.SECONDS.toMillis(inFlightTimeoutSeconds)) {
+                    finishedList.add(submitId.toString());
+                    timeoutCount++;
+                }
+            }
+            if (!finishedList.isEmpty()) {
+                redisUtils.hdel(jobKey + ":running", finishedList.toArray());
+                redisUtils.hincr(jobKey, "done", finishedList.size());
+                if (timeoutCount > 0) {
+                    redisUtils.hincr(jobKey, "timeout", timeoutCount);
+                }
+            }
+            runningMap.keySet().removeAll(finishedList);
+        }
+        if (runningMap.isEmpty() && (STATUS_CANCELLED.equals(status) || redisUtils.lGetListSize(jobKey + ":pending") == 0)) {
+            finish(jobId, (String) status);
+            return -1;
+        }
+        return STATUS_RUNNING.equals(status) ? runningMap.size() : -1;
+    }
+
+    /**
+     * 从任务中取出一批提交，重置后送入重判队列
+     *
+     * @return 实际投放的提交数
+     */
+    private int dispatchChunk(String jobId, int count) {
+        String jobKey = getJobKey(jobId);
+        List<Object> idList = redisUtils.lGet(jobKey + ":pending", 0, count - 1);
+        if (CollectionUtils.isEmpty(idList)) {
+            return 0;
+        }
+        List<Long> submitIdList = idList.stream()
+                .map(submitId -> ((Number) submitId).longValue())
+                .collect(Collectors.toList());
+
+        QueryWrapper<Judge> judgeQueryWrapper = new QueryWrapper<>();
+        judgeQueryWrapper.select("submit_id", "pid", "cid", "status", "vjudge_submit_id")
+                .in("submit_id", submitIdList);
+        List<Judge> judgeList = judgeEntityService.list(judgeQueryWrapper);
+
+        if (!judgeList.isEmpty()) {
+            List<Long> existedIdList = judgeList.stream().map(Judge::getSubmitId).collect(Collectors.toList());
+            resetJudgeBatch(existedIdList);
+            // 该批提交的比赛记录已重置，比赛榜单需从contest_record重建
+            Long cid = toLong(redisUtils.hget(jobKey, "cid"));
+            contestACMRankBoardManager.invalidate(cid);
+            contestOIRankBoardManager.invalidate(cid);
+
+            QueryWrapper<Problem> problemQueryWrapper = new QueryWrapper<>();
+            problemQueryWrapper.select("id", "is_remote", "problem_id")
+                    .in("id", judgeList.stream().map(Judge::getPid).distinct().collect(Collectors.toList()));
+            Map<Long, Problem> problemMap = problemEntityService.list(problemQueryWrapper)
+                    .stream()
+                    .collect(Collectors.toMap(Problem::getId, problem -> problem));
+
+            Map<String, Object> runningMap = new HashMap<>();
+            long now = System.currentTimeMillis();
+            for (Judge judge : judgeList) {
+                runningMap.put(judge.getSubmitId().toString(), now);
+            }
+            redisUtils.hmset(jobKey + ":running", runningMap);
+            for (Judge judge : judgeList) {
+                Problem problem = problemMap.get(judge.getPid());
+                if (problem != null && problem.getIsRemote()) { // 如果是远程oj判题
+                    remoteJudgeDispatcher.sendRejudgeTask(judge.getSubmitId(),
+                            judge.getPid(),
+                            problem.getProblemId(),
+                            judge.getCid() != 0,
+                            RemoteJudgeDispatcher.isHasSubmitIdRemoteRejudge(judge.getVjudgeSubmitId(), judge.getStatus()));
+                } else {
+                    judgeDispatcher.sendRejudgeTask(judge.getSubmitId(), judge.getPid(), judge.getCid() != 0);
+                }
+            }
+        }
+        // 已删除的提交直接计入完成
+        int missingCount = submitIdList.size() - judgeList.size();
+        if (missingCount > 0) {
+            redisUtils.hincr(jobKey, "done", missingCount);
+        }
+        // 投放完成后再移出等待列表，中途异常时该批提交会被再次投放
+        redisUtils.lTrim(jobKey + ":pending", idList.size(), -1);
+        return judgeList.size();
+    }
+
+    /**
+     * 在同一个事务中重置一批提交的结果、测试点与比赛记录
+     */
+    private void resetJudgeBatch(List<Long> submitIdList) {
+        transactionTemplate.execute(status -> {
+            UpdateWrapper<Judge> judgeUpdateWrapper = new UpdateWrapper<>();
+            judgeUpdateWrapper.in("submit_id", submitIdList)
+                    .set("status", Constants.Judge.STATUS_PENDING.getStatus()) // 开始进入判题队列
+                    .set("judger", "")
+                    .set("is_manual", false)
+                    .setSql("version=version+1,time=null,memory=null,error_message=null,oi_rank_score=null,score=null");
+            judgeEntityService.update(judgeUpdateWrapper);
+            // 清除每个提交对应的测试点结果
+            QueryWrapper<JudgeCase> judgeCaseQueryWrapper = new QueryWrapper<>();
+            judgeCaseQueryWrapper.in("submit_id", submitIdList);
+            judgeCaseEntityService.remove(judgeCaseQueryWrapper);
+            // 将对应比赛记录设置成默认值
+            UpdateWrapper<ContestRecord> contestRecordUpdateWrapper = new UpdateWrapper<>();
+            contestRecordUpdateWrapper.in("submit_id", submitIdList).setSql("status=null,score=null");
+            contestRecordEntityService.update(contestRecordUpdateWrapper);
+            return null;
+        });
+    }
+
+    private void finish(String jobId, String status) {
+        String jobKey = getJobKey(jobId);
+        if (STATUS_RUNNING.equals(status)) {
+            redisUtils.hset(jobKey, "status", STATUS_FINISHED);
+        }
+        redisUtils.hset(jobKey, "endTime", System.currentTimeMillis());
+        redisUtils.expire(jobKey, FINISHED_JOB_EXPIRE_SECONDS);
+        redisUtils.del(jobKey + ":running", jobKey + ":pending");
+        redisUtils.setRemove(Constants.Account.REJUDGE_JOB_LIST.getCode(), jobId);
+        Long cid = toLong(redisUtils.hget(jobKey, "cid"));
+        redisUtils.releaseLock(Constants.Account.REJUDGE_CONTEST_LOCK.getCode() + cid, jobId);
+        log.info("[Rejudge Pipeline] Rejudge job [{}] of cid:[{}] is {}", jobId, cid,
+                STATUS_RUNNING.equals(status) ? STATUS_FINISHED : status);
+    }
+
+    private String getJobKey(String jobId) {
+        return Constants.Account.REJUDGE_JOB.getCode() + jobId;
+    }
+
+    private static long toLong(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return Long.parseLong(value.toString());
+    }
+}
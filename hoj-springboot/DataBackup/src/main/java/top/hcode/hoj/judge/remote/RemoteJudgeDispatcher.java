@@ -9,6 +9,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.context.config.annotation.RefreshScope;
 import org.springframework.stereotype.Component;
 import top.hcode.hoj.dao.judge.JudgeEntityService;
+import top.hcode.hoj.judge.AbstractReceiver;
 import top.hcode.hoj.pojo.entity.judge.Judge;
 import top.hcode.hoj.utils.Constants;
 import top.hcode.hoj.utils.RedisUtils;
@@ -25,13 +26,41 @@ public class RemoteJudgeDispatcher {
     @Autowired
     private JudgeEntityService judgeEntityService;
 
-    @Autowired
-    private RemoteJudgeReceiver remoteJudgeReceiver;
-
     @Value("${hoj.judge.token:no_judge_token}")
     private String judgeToken;
 
     public void sendTask(Long judgeId, Long pid, String remoteJudgeProblem, Boolean isContest, Boolean isHasSubmitIdRemoteReJudge) {
+        String queueName = isContest ? Constants.Queue.CONTEST_REMOTE_JUDGE_WAITING_HANDLE.getName()
+                : Constants.Queue.GENERAL_REMOTE_JUDGE_WAITING_HANDLE.getName();
+        pushTask(queueName, judgeId, pid, remoteJudgeProblem, isContest, isHasSubmitIdRemoteReJudge);
+    }
+
+    /**
+     * 批量重判的任务进入优先级最低的重判队列，不与正常提交争抢远程账号
+     */
+    public void sendRejudgeTask(Long judgeId, Long pid, String remoteJudgeProblem, Boolean isContest, Boolean isHasSubmitIdRemoteReJudge) {
+        pushTask(Constants.Queue.REMOTE_REJUDGE_WAITING_HANDLE.getName(), judgeId, pid, remoteJudgeProblem,
+                isContest, isHasSubmitIdRemoteReJudge);
+    }
+
+    /**
+     * 原提交已在远程OJ获得提交id且未得到最终结果时，重判只需重新获取该提交的结果
+     */
+    public static boolean isHasSubmitIdRemoteRejudge(Long vjudgeSubmitId, int status) {
+        boolean isHasSubmitIdRemoteRejudge = false;
+        if (vjudgeSubmitId != null &&
+                (status == Constants.Judge.STATUS_SUBMITTED_FAILED.getStatus()
+                        || status == Constants.Judge.STATUS_COMPILING.getStatus()
+                        || status == Constants.Judge.STATUS_PENDING.getStatus()
+                        || status == Constants.Judge.STATUS_JUDGING.getStatus()
+                        || status == Constants.Judge.STATUS_SYSTEM_ERROR.getStatus())) {
+            isHasSubmitIdRemoteRejudge = true;
+        }
+        return isHasSubmitIdRemoteRejudge;
+    }
+
+    private void pushTask(String queueName, Long judgeId, Long pid, String remoteJudgeProblem,
+                          Boolean isContest, Boolean isHasSubmitIdRemoteReJudge) {
         JSONObject task = new JSONObject();
         task.set("judgeId", judgeId);
         task.set("remoteJudgeProblem", remoteJudgeProblem);
@@ -39,12 +68,8 @@ public class RemoteJudgeDispatcher {
         task.set("isContest", isContest);
         task.set("isHasSubmitIdRemoteReJudge", isHasSubmitIdRemoteReJudge);
         try {
-            boolean isOk;
-            if (isContest) {
-                isOk = redisUtils.llPush(Constants.Queue.CONTEST_REMOTE_JUDGE_WAITING_HANDLE.getName(), JSONUtil.toJsonStr(task));
-            } else {
-                isOk = redisUtils.llPush(Constants.Queue.GENERAL_REMOTE_JUDGE_WAITING_HANDLE.getName(), JSONUtil.toJsonStr(task));
-            }
+            boolean isOk = redisUtils.llPushAndSignal(queueName, JSONUtil.toJsonStr(task),
+                    Constants.Queue.REMOTE_JUDGE_WAITING_SIGNAL.getName(), AbstractReceiver.MAX_WAITING_SIGNALS);
             if (!isOk) {
                 judgeEntityService.updateById(new Judge()
                         .setSubmitId(judgeId)
@@ -52,7 +77,6 @@ public class RemoteJudgeDispatcher {
                         .setErrorMessage("Call Redis to push task error. Please try to submit again!")
                 );
             }
-            remoteJudgeReceiver.processWaitingTask();
         } catch (Exception e) {
             log.error("调用redis将判题纳入判题等待队列异常,此次判题任务判为系统错误--------------->", e);
             judgeEntityService.failToUseRedisPublishJudge(judgeId, pid, isContest);
@@ -6,7 +6,6 @@ import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
@@ -18,15 +17,17 @@ import top.hcode.hoj.dao.judge.RemoteJudgeAccountEntityService;
 import top.hcode.hoj.judge.AbstractReceiver;
 import top.hcode.hoj.judge.ChooseUtils;
 import top.hcode.hoj.judge.Dispatcher;
+import top.hcode.hoj.judge.JudgeScheduler;
 import top.hcode.hoj.pojo.dto.ToJudgeDTO;
 import top.hcode.hoj.pojo.entity.contest.ContestRecord;
 import top.hcode.hoj.pojo.entity.judge.Judge;
 import top.hcode.hoj.pojo.entity.judge.RemoteJudgeAccount;
 import top.hcode.hoj.utils.Constants;
-import top.hcode.hoj.utils.RedisUtils;
 
 import javax.annotation.Resource;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.*;
@@ -41,9 +42,6 @@ public class RemoteJudgeReceiver extends AbstractReceiver {
     @Autowired
     private Dispatcher dispatcher;
 
-    @Autowired
-    private RedisUtils redisUtils;
-
     @Resource
     private ChooseUtils chooseUtils;
 
@@ -60,25 +58,28 @@ public class RemoteJudgeReceiver extends AbstractReceiver {
 
     private final static Map<String, Future> futureTaskMap = new ConcurrentHashMap<>(10);
 
-    @Async("judgeTaskAsyncPool")
-    public void processWaitingTask() {
+    @Override
+    public List<String> getQueues() {
         // 优先处理比赛的提交
         // 其次处理普通提交的提交
-        handleWaitingTask(Constants.Queue.CONTEST_REMOTE_JUDGE_WAITING_HANDLE.getName(),
-                Constants.Queue.GENERAL_REMOTE_JUDGE_WAITING_HANDLE.getName());
+        // 最后处理批量重判的提交
+        return Arrays.asList(Constants.Queue.CONTEST_REMOTE_JUDGE_WAITING_HANDLE.getName(),
+                Constants.Queue.GENERAL_REMOTE_JUDGE_WAITING_HANDLE.getName(),
+                Constants.Queue.REMOTE_REJUDGE_WAITING_HANDLE.getName());
     }
 
     @Override
-    public String getTaskByRedis(String queue) {
-        if (redisUtils.lGetListSize(queue) > 0) {
-            return (String) redisUtils.lrPop(queue);
-        } else {
-            return null;
-        }
+    public String getSignalQueue() {
+        return Constants.Queue.REMOTE_JUDGE_WAITING_SIGNAL.getName();
     }
 
     @Override
-    public void handleJudgeMsg(String taskStr, String queueName) {
+    public JudgeScheduler.Lane getLane() {
+        return JudgeScheduler.Lane.REMOTE;
+    }
+
+    @Override
+    public void handleJudgeMsg(String taskStr, String queueName, int priority, Runnable onFinished) {
         JSONObject task = JSONUtil.parseObj(taskStr);
         String token = task.getStr("token");
         String remoteJudgeProblem = task.getStr("remoteJudgeProblem");
@@ -95,18 +96,24 @@ public class RemoteJudgeReceiver extends AbstractReceiver {
                     updateWrapper.eq("submit_id", judge.getSubmitId()); // submit_id一定只有一个
                     contestRecordEntityService.update(updateWrapper);
                 }
+                onFinished.run();
             } else {
                 dispatchRemoteJudge(judge,
                         token,
                         remoteJudgeProblem,
                         isHasSubmitIdRemoteReJudge,
-                        remoteOJName);
+                        remoteOJName,
+                        priority,
+                        onFinished);
             }
+        } else {
+            onFinished.run();
         }
     }
 
     private void dispatchRemoteJudge(Judge judge, String token, String remoteJudgeProblem,
-                                     Boolean isHasSubmitIdRemoteReJudge, String remoteOJName) {
+                                     Boolean isHasSubmitIdRemoteReJudge, String remoteOJName,
+                                     int priority, Runnable onFinished) {
 
         ToJudgeDTO toJudgeDTO = new ToJudgeDTO();
         toJudgeDTO.setJudge(judge)
@@ -118,33 +125,34 @@ public class RemoteJudgeReceiver extends AbstractReceiver {
             judge.setErrorMessage("System Error! Cause: The System does not have [" + remoteOJ + "] account configured. " +
                     "Please report the matter to the administrator!");
             judgeEntityService.updateById(judge);
+            onFinished.run();
         } else {
             if (remoteOJName.equals(Constants.RemoteOJ.CODEFORCES.getName())
                     || remoteOJName.equals(Constants.RemoteOJ.GYM.getName())) {
                 if (ChooseUtils.openCodeforcesFixServer) {
-                    fixServerCFJudge(isHasSubmitIdRemoteReJudge, toJudgeDTO, judge);
+                    fixServerCFJudge(isHasSubmitIdRemoteReJudge, toJudgeDTO, judge, priority, onFinished);
                 } else {
-                    commonJudge(Constants.RemoteOJ.CODEFORCES.getName(), isHasSubmitIdRemoteReJudge, toJudgeDTO, judge);
+                    commonJudge(Constants.RemoteOJ.CODEFORCES.getName(), isHasSubmitIdRemoteReJudge, toJudgeDTO, judge,
+                            priority, onFinished);
                 }
             } else if (remoteOJName.equals(Constants.RemoteOJ.POJ.getName())) {
-                pojJudge(isHasSubmitIdRemoteReJudge, toJudgeDTO, judge);
+                pojJudge(isHasSubmitIdRemoteReJudge, toJudgeDTO, judge, priority, onFinished);
             } else {
-                commonJudge(remoteOJName, isHasSubmitIdRemoteReJudge, toJudgeDTO, judge);
+                commonJudge(remoteOJName, isHasSubmitIdRemoteReJudge, toJudgeDTO, judge, priority, onFinished);
             }
         }
-        // 如果队列中还有任务，则继续处理
-        processWaitingTask();
     }
 
 
-    private void commonJudge(String OJName, Boolean isHasSubmitIdRemoteReJudge, ToJudgeDTO toJudgeDTO, Judge judge) {
+    private void commonJudge(String OJName, Boolean isHasSubmitIdRemoteReJudge, ToJudgeDTO toJudgeDTO, Judge judge,
+                             int priority, Runnable onFinished) {
 
         if (isHasSubmitIdRemoteReJudge) {
             toJudgeDTO.setIsHasSubmitIdRemoteReJudge(true);
             toJudgeDTO.setUsername(judge.getVjudgeUsername());
             toJudgeDTO.setPassword(judge.getVjudgePassword());
             // 调用判题服务
-            dispatcher.dispatch(Constants.TaskType.REMOTE_JUDGE, toJudgeDTO);
+            dispatcher.dispatch(Constants.TaskType.REMOTE_JUDGE, toJudgeDTO, priority, onFinished);
             return;
         }
 
@@ -160,6 +168,7 @@ public class RemoteJudgeReceiver extends AbstractReceiver {
                     judge.setErrorMessage("Submission failed! Please resubmit this submission again!" +
                             "Cause: Waiting for account scheduling timeout.");
                     judgeEntityService.updateById(judge);
+                    onFinished.run();
                     Future future = futureTaskMap.get(key);
                     if (future != null) {
                         boolean isCanceled = future.cancel(true);
@@ -176,7 +185,7 @@ public class RemoteJudgeReceiver extends AbstractReceiver {
                             .setPassword(account.getPassword());
                     toJudgeDTO.setIsHasSubmitIdRemoteReJudge(false);
                     // 调用判题服务
-                    dispatcher.dispatch(Constants.TaskType.REMOTE_JUDGE, toJudgeDTO);
+                    dispatcher.dispatch(Constants.TaskType.REMOTE_JUDGE, toJudgeDTO, priority, onFinished);
                     Future future = futureTaskMap.get(key);
                     if (future != null) {
                         future.cancel(true);
@@ -190,7 +199,8 @@ public class RemoteJudgeReceiver extends AbstractReceiver {
     }
 
 
-    private void pojJudge(Boolean isHasSubmitIdRemoteReJudge, ToJudgeDTO toJudgeDTO, Judge judge) {
+    private void pojJudge(Boolean isHasSubmitIdRemoteReJudge, ToJudgeDTO toJudgeDTO, Judge judge,
+                          int priority, Runnable onFinished) {
 
 
         if (StringUtils.isEmpty(judge.getVjudgeUsername())) {
@@ -221,6 +231,7 @@ public class RemoteJudgeReceiver extends AbstractReceiver {
                     judge.setErrorMessage("Submission failed! Please resubmit this submission again!" +
                             "Cause: Waiting for account scheduling timeout");
                     judgeEntityService.updateById(judge);
+                    onFinished.run();
                     Future future = futureTaskMap.get(key);
                     if (future != null) {
                         boolean isCanceled = future.cancel(true);
@@ -238,7 +249,7 @@ public class RemoteJudgeReceiver extends AbstractReceiver {
                             .setPassword(account.getPassword());
                     toJudgeDTO.setIsHasSubmitIdRemoteReJudge(finalIsHasSubmitIdRemoteReJudge);
                     // 调用判题服务
-                    dispatcher.dispatch(Constants.TaskType.REMOTE_JUDGE, toJudgeDTO);
+                    dispatcher.dispatch(Constants.TaskType.REMOTE_JUDGE, toJudgeDTO, priority, onFinished);
                     Future future = futureTaskMap.get(key);
                     if (future != null) {
                         future.cancel(true);
@@ -251,14 +262,15 @@ public class RemoteJudgeReceiver extends AbstractReceiver {
         futureTaskMap.put(key, scheduledFuture);
     }
 
-    private void fixServerCFJudge(Boolean isHasSubmitIdRemoteReJudge, ToJudgeDTO toJudgeDTO, Judge judge) {
+    private void fixServerCFJudge(Boolean isHasSubmitIdRemoteReJudge, ToJudgeDTO toJudgeDTO, Judge judge,
+                                  int priority, Runnable onFinished) {
 
         if (isHasSubmitIdRemoteReJudge) {
             toJudgeDTO.setIsHasSubmitIdRemoteReJudge(true);
             toJudgeDTO.setUsername(judge.getVjudgeUsername());
             toJudgeDTO.setPassword(judge.getVjudgePassword());
             // 调用判题服务
-            dispatcher.dispatch(Constants.TaskType.REMOTE_JUDGE, toJudgeDTO);
+            dispatcher.dispatch(Constants.TaskType.REMOTE_JUDGE, toJudgeDTO, priority, onFinished);
             return;
         }
 
@@ -274,6 +286,7 @@ public class RemoteJudgeReceiver extends AbstractReceiver {
                     judge.setErrorMessage("Submission failed! Please resubmit this submission again!" +
                             "Cause: Waiting for account scheduling timeout");
                     judgeEntityService.updateById(judge);
+                    onFinished.run();
                     Future future = futureTaskMap.get(key);
                     if (future != null) {
                         boolean isCanceled = future.cancel(true);
@@ -295,7 +308,7 @@ public class RemoteJudgeReceiver extends AbstractReceiver {
                     toJudgeDTO.setIndex(index);
                     toJudgeDTO.setSize(size);
                     // 调用判题服务
-                    dispatcher.dispatch(Constants.TaskType.REMOTE_JUDGE, toJudgeDTO);
+                    dispatcher.dispatch(Constants.TaskType.REMOTE_JUDGE, toJudgeDTO, priority, onFinished);
                     Future future = futureTaskMap.get(key);
                     if (future != null) {
                         future.cancel(true);
@@ -10,6 +10,7 @@ import org.springframework.cloud.context.config.annotation.RefreshScope;
 import org.springframework.stereotype.Component;
 import top.hcode.hoj.common.exception.StatusSystemErrorException;
 import top.hcode.hoj.dao.judge.JudgeEntityService;
+import top.hcode.hoj.judge.AbstractReceiver;
 import top.hcode.hoj.pojo.dto.TestJudgeReq;
 import top.hcode.hoj.pojo.entity.judge.Judge;
 import top.hcode.hoj.utils.Constants;
@@ -31,24 +32,30 @@ public class JudgeDispatcher {
     @Autowired
     private JudgeEntityService judgeEntityService;
 
-    @Autowired
-    private JudgeReceiver judgeReceiver;
-
     @Value("${hoj.judge.token:no_judge_token}")
     private String judgeToken;
 
     public void sendTask(Long judgeId, Long pid, Boolean isContest) {
+        String queueName = isContest ? Constants.Queue.CONTEST_JUDGE_WAITING.getName()
+                : Constants.Queue.GENERAL_JUDGE_WAITING.getName();
+        pushTask(queueName, judgeId, pid, isContest);
+    }
+
+    /**
+     * 批量重判的任务进入优先级最低的重判队列，不与正常提交争抢判题机
+     */
+    public void sendRejudgeTask(Long judgeId, Long pid, Boolean isContest) {
+        pushTask(Constants.Queue.REJUDGE_WAITING.getName(), judgeId, pid, isContest);
+    }
+
+    private void pushTask(String queueName, Long judgeId, Long pid, Boolean isContest) {
         JSONObject task = new JSONObject();
         task.set("judgeId", judgeId);
         task.set("token", judgeToken);
         task.set("isContest", isContest);
         try {
-            boolean isOk;
-            if (isContest) {
-                isOk = redisUtils.llPush(Constants.Queue.CONTEST_JUDGE_WAITING.getName(), JSONUtil.toJsonStr(task));
-            } else {
-                isOk = redisUtils.llPush(Constants.Queue.GENERAL_JUDGE_WAITING.getName(), JSONUtil.toJsonStr(task));
-            }
+            boolean isOk = redisUtils.llPushAndSignal(queueName, JSONUtil.toJsonStr(task),
+                    Constants.Queue.JUDGE_WAITING_SIGNAL.getName(), AbstractReceiver.MAX_WAITING_SIGNALS);
             if (!isOk) {
                 judgeEntityService.updateById(new Judge()
                         .setSubmitId(judgeId)
@@ -56,8 +63,6 @@ public class JudgeDispatcher {
                         .setErrorMessage("Call Redis to push task error. Please try to submit again!")
                 );
             }
-            // 调用判题任务处理
-            judgeReceiver.processWaitingTask();
         } catch (Exception e) {
             log.error("调用redis将判题纳入判题等待队列异常--------------->{}", e.getMessage());
             judgeEntityService.failToUseRedisPublishJudge(judgeId, pid, isContest);
@@ -67,12 +72,11 @@ public class JudgeDispatcher {
     public void sendTestJudgeTask(TestJudgeReq testJudgeReq) throws StatusSystemErrorException {
         testJudgeReq.setToken(judgeToken);
         try {
-            boolean isOk = redisUtils.llPush(Constants.Queue.TEST_JUDGE_WAITING.getName(), JSONUtil.toJsonStr(testJudgeReq));
+            boolean isOk = redisUtils.llPushAndSignal(Constants.Queue.TEST_JUDGE_WAITING.getName(), JSONUtil.toJsonStr(testJudgeReq),
+                    Constants.Queue.JUDGE_WAITING_SIGNAL.getName(), AbstractReceiver.MAX_WAITING_SIGNALS);
             if (!isOk) {
                 throw new StatusSystemErrorException("系统错误：当前评测任务进入等待队列失败！");
             }
-            // 调用判题任务处理
-            judgeReceiver.processWaitingTask();
         } catch (Exception e) {
             log.error("调用redis将判题纳入判题等待队列异常--------------->{}", e.getMessage());
             throw new StatusSystemErrorException("系统错误：当前评测任务进入等待队列失败！");
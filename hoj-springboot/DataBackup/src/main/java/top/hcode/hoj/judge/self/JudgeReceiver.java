@@ -5,19 +5,20 @@ import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 import top.hcode.hoj.dao.contest.ContestRecordEntityService;
 import top.hcode.hoj.dao.judge.JudgeEntityService;
 import top.hcode.hoj.judge.AbstractReceiver;
 import top.hcode.hoj.judge.Dispatcher;
+import top.hcode.hoj.judge.JudgeScheduler;
 import top.hcode.hoj.pojo.dto.TestJudgeReq;
 import top.hcode.hoj.pojo.dto.ToJudgeDTO;
 import top.hcode.hoj.pojo.entity.contest.ContestRecord;
 import top.hcode.hoj.pojo.entity.judge.Judge;
 import top.hcode.hoj.utils.Constants;
-import top.hcode.hoj.utils.RedisUtils;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -32,41 +33,39 @@ public class JudgeReceiver extends AbstractReceiver {
     @Autowired
     private Dispatcher dispatcher;
 
-    @Autowired
-    private RedisUtils redisUtils;
-
     @Autowired
     private JudgeEntityService judgeEntityService;
 
     @Autowired
     private ContestRecordEntityService contestRecordEntityService;
 
-    @Async("judgeTaskAsyncPool")
-    public void processWaitingTask() {
+    @Override
+    public List<String> getQueues() {
         // 优先处理比赛的提交任务
         // 其次处理普通提交的提交任务
-        // 最后处理在线调试的任务
-        handleWaitingTask(Constants.Queue.CONTEST_JUDGE_WAITING.getName(),
+        // 然后处理在线调试的任务
+        // 最后处理批量重判的任务
+        return Arrays.asList(Constants.Queue.CONTEST_JUDGE_WAITING.getName(),
                 Constants.Queue.GENERAL_JUDGE_WAITING.getName(),
-                Constants.Queue.TEST_JUDGE_WAITING.getName());
+                Constants.Queue.TEST_JUDGE_WAITING.getName(),
+                Constants.Queue.REJUDGE_WAITING.getName());
     }
 
+    @Override
+    public String getSignalQueue() {
+        return Constants.Queue.JUDGE_WAITING_SIGNAL.getName();
+    }
 
     @Override
-    public String getTaskByRedis(String queue) {
-        long size = redisUtils.lGetListSize(queue);
-        if (size > 0) {
-            return (String) redisUtils.lrPop(queue);
-        } else {
-            return null;
-        }
+    public JudgeScheduler.Lane getLane() {
+        return JudgeScheduler.Lane.LOCAL;
     }
 
     @Override
-    public void handleJudgeMsg(String taskStr, String queueName) {
+    public void handleJudgeMsg(String taskStr, String queueName, int priority, Runnable onFinished) {
         if (Constants.Queue.TEST_JUDGE_WAITING.getName().equals(queueName)) {
             TestJudgeReq testJudgeReq = JSONUtil.toBean(taskStr, TestJudgeReq.class);
-            dispatcher.dispatch(Constants.TaskType.TEST_JUDGE, testJudgeReq);
+            dispatcher.dispatch(Constants.TaskType.TEST_JUDGE, testJudgeReq, priority, onFinished);
         } else {
             JSONObject task = JSONUtil.parseObj(taskStr);
             Long judgeId = task.getLong("judgeId");
@@ -81,19 +80,20 @@ public class JudgeReceiver extends AbstractReceiver {
                         updateWrapper.eq("submit_id", judge.getSubmitId()); // submit_id一定只有一个
                         contestRecordEntityService.update(updateWrapper);
                     }
+                    onFinished.run();
                 } else {
                     String token = task.getStr("token");
                     // 调用判题服务
                     dispatcher.dispatch(Constants.TaskType.JUDGE, new ToJudgeDTO()
                             .setJudge(judge)
                             .setToken(token)
-                            .setRemoteJudgeProblem(null));
+                            .setRemoteJudgeProblem(null), priority, onFinished);
                 }
+            } else {
+                onFinished.run();
             }
 
         }
-        // 接着处理任务
-        processWaitingTask();
     }
 
 }
\ No newline at end of file
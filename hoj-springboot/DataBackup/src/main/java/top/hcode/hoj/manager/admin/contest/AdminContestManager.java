@@ -111,6 +111,7 @@ public class AdminContestManager {
 
     public void deleteContest(Long cid) throws StatusFailException {
         boolean isOk = contestEntityService.removeById(cid);
+        contestEntityService.evictCachedContest(cid);
         /*
         contest的id为其他表的外键的表中的对应数据都会被一起删除！
          */
@@ -202,6 +203,7 @@ public class AdminContestManager {
                     contestRegisterEntityService.remove(updateWrapper);
                 }
             }
+            contestEntityService.evictCachedContest(contest.getId());
         } else {
             throw new StatusFailException("修改失败");
         }
@@ -218,6 +220,7 @@ public class AdminContestManager {
         }
 
         boolean isOK = contestEntityService.saveOrUpdate(new Contest().setId(cid).setVisible(visible));
+        contestEntityService.evictCachedContest(cid);
 
         if (!isOK) {
             throw new StatusFailException("修改失败");
@@ -12,6 +12,7 @@ import top.hcode.hoj.pojo.entity.discussion.Discussion;
 import top.hcode.hoj.pojo.entity.discussion.DiscussionReport;
 import top.hcode.hoj.pojo.vo.DiscussionReportVO;
 import top.hcode.hoj.shiro.AccountProfile;
+import top.hcode.hoj.manager.oj.DiscussionSearchIndexManager;
 
 import java.util.List;
 
@@ -30,11 +31,15 @@ public class AdminDiscussionManager {
     @Autowired
     private DiscussionReportEntityService discussionReportEntityService;
 
+    @Autowired
+    private DiscussionSearchIndexManager discussionSearchIndexManager;
+
     public void updateDiscussion(Discussion discussion) throws StatusFailException {
         boolean isOk = discussionEntityService.updateById(discussion);
         if (!isOk) {
             throw new StatusFailException("修改失败");
         }
+        discussionSearchIndexManager.markChanged(discussion.getId());
     }
 
     public void removeDiscussion(List<Integer> didList) throws StatusFailException {
@@ -42,6 +47,7 @@ public class AdminDiscussionManager {
         if (!isOk) {
             throw new StatusFailException("删除失败");
         }
+        didList.forEach(discussionSearchIndexManager::markChanged);
         AccountProfile userRolesVo = (AccountProfile) SecurityUtils.getSubject().getPrincipal();
         log.info("[{}],[{}],didList:[{}],operatorUid:[{}],operatorUsername:[{}]",
                 "Admin_Discussion", "Delete", didList, userRolesVo.getUid(), userRolesVo.getUsername());
@@ -21,6 +21,7 @@ import top.hcode.hoj.dao.judge.JudgeEntityService;
 import top.hcode.hoj.dao.problem.ProblemCaseEntityService;
 import top.hcode.hoj.dao.problem.ProblemEntityService;
 import top.hcode.hoj.judge.Dispatcher;
+import top.hcode.hoj.manager.oj.ProblemListIndexManager;
 import top.hcode.hoj.pojo.dto.CompileDTO;
 import top.hcode.hoj.pojo.dto.ProblemDTO;
 import top.hcode.hoj.pojo.entity.judge.Judge;
@@ -65,6 +66,9 @@ public class AdminProblemManager {
     @Autowired
     private RemoteProblemManager remoteProblemManager;
 
+    @Resource
+    private ProblemListIndexManager problemListIndexManager;
+
     public IPage<Problem> getProblemList(Integer limit, Integer currentPage, String keyword, Integer auth, String oj) {
         if (currentPage == null || currentPage < 1) currentPage = 1;
         if (limit == null || limit < 1) limit = 10;
@@ -126,6 +130,7 @@ public class AdminProblemManager {
         problem的id为其他表的外键的表中的对应数据都会被一起删除！
          */
         if (isOk) { // 删除成功
+            problemListIndexManager.markChanged(pid);
             FileUtil.del(Constants.File.TESTCASE_BASE_FOLDER.getPath() + File.separator + "problem_" + pid);
             AccountProfile userRolesVo = (AccountProfile) SecurityUtils.getSubject().getPrincipal();
             log.info("[{}],[{}],pid:[{}],operatorUid:[{}],operatorUsername:[{}]",
@@ -150,6 +155,7 @@ public class AdminProblemManager {
         if (!isOk) {
             throw new StatusFailException("添加失败");
         }
+        problemListIndexManager.markChanged(problemDto.getProblem().getId());
     }
 
     @Transactional(rollbackFor = Exception.class)
@@ -182,6 +188,7 @@ public class AdminProblemManager {
 
         boolean result = problemEntityService.adminUpdateProblem(problemDto);
         if (result) { // 更新成功
+            problemListIndexManager.markChanged(problemDto.getProblem().getId());
             if (problem == null) { // 说明改了problemId，同步一下judge表
                 UpdateWrapper<Judge> judgeUpdateWrapper = new UpdateWrapper<>();
                 judgeUpdateWrapper.eq("pid", problemDto.getProblem().getId())
@@ -269,6 +276,7 @@ public class AdminProblemManager {
         if (!isOk) {
             throw new StatusFailException("修改失败");
         }
+        problemListIndexManager.markChanged(problem.getId());
         log.info("[{}],[{}],value:[{}],pid:[{}],operatorUid:[{}],operatorUsername:[{}]",
                 "Admin_Problem", "Change_Auth", problem.getAuth(), problem.getId(), userRolesVo.getUid(), userRolesVo.getUsername());
     }
@@ -12,13 +12,17 @@ import top.hcode.hoj.dao.judge.JudgeCaseEntityService;
 import top.hcode.hoj.dao.judge.JudgeEntityService;
 import top.hcode.hoj.dao.problem.ProblemEntityService;
 import top.hcode.hoj.dao.user.UserAcproblemEntityService;
+import top.hcode.hoj.judge.RejudgePipeline;
 import top.hcode.hoj.judge.remote.RemoteJudgeDispatcher;
 import top.hcode.hoj.judge.self.JudgeDispatcher;
+import top.hcode.hoj.manager.oj.GlobalRankManager;
+import top.hcode.hoj.manager.oj.JudgeStatusPushManager;
 import top.hcode.hoj.pojo.entity.contest.ContestRecord;
 import top.hcode.hoj.pojo.entity.judge.Judge;
 import top.hcode.hoj.pojo.entity.judge.JudgeCase;
 import top.hcode.hoj.pojo.entity.problem.Problem;
 import top.hcode.hoj.pojo.entity.user.UserAcproblem;
+import top.hcode.hoj.pojo.vo.RejudgeProgressVO;
 import top.hcode.hoj.shiro.AccountProfile;
 import top.hcode.hoj.utils.Constants;
 
@@ -54,6 +58,15 @@ public class RejudgeManager {
     @Resource
     private RemoteJudgeDispatcher remoteJudgeDispatcher;
 
+    @Resource
+    private RejudgePipeline rejudgePipeline;
+
+    @Resource
+    private GlobalRankManager globalRankManager;
+
+    @Resource
+    private JudgeStatusPushManager judgeStatusPushManager;
+
     private static List<Integer> penaltyStatus = Arrays.asList(
             Constants.Judge.STATUS_PRESENTATION_ERROR.getStatus(),
             Constants.Judge.STATUS_WRONG_ANSWER.getStatus(),
@@ -82,39 +95,42 @@ public class RejudgeManager {
         return judge;
     }
 
-    @Transactional(rollbackFor = Exception.class)
-    public void rejudgeContestProblem(Long cid, Long pid) throws StatusFailException {
+    /**
+     * 重判比赛中某一题目的全部提交，由重判流水线分批重置并以低优先级进入判题队列
+     */
+    public RejudgeProgressVO rejudgeContestProblem(Long cid, Long pid) throws StatusFailException {
         QueryWrapper<Judge> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("cid", cid).eq("pid", pid);
-        List<Judge> rejudgeList = judgeEntityService.list(queryWrapper);
+        queryWrapper.select("submit_id").eq("cid", cid).eq("pid", pid).orderByAsc("submit_id");
+        List<Long> submitIdList = judgeEntityService.listObjs(queryWrapper, submitId -> ((Number) submitId).longValue());
 
-        if (rejudgeList.size() == 0) {
+        if (submitIdList.size() == 0) {
             throw new StatusFailException("当前该题目无提交，不可重判！");
         }
-        HashMap<Long, Integer> idMapStatus = new HashMap<>();
-        // 全部设置默认值
-        checkAndUpdateJudgeBatch(rejudgeList, idMapStatus);
-        QueryWrapper<Problem> problemQueryWrapper = new QueryWrapper<>();
-        problemQueryWrapper.select("id", "is_remote", "problem_id")
-                .eq("id", pid);
-        Problem problem = problemEntityService.getOne(problemQueryWrapper);
-        // 调用重判服务
-        if (problem.getIsRemote()) { // 如果是远程oj判题
-            for (Judge judge : rejudgeList) {
-                // 进入重判队列，等待调用判题服务
-                remoteJudgeDispatcher.sendTask(judge.getSubmitId(),
-                        pid,
-                        problem.getProblemId(),
-                        judge.getCid() != 0,
-                        isHasSubmitIdRemoteRejudge(judge.getVjudgeSubmitId(), idMapStatus.get(judge.getSubmitId())));
-            }
-        } else {
-            for (Judge judge : rejudgeList) {
-                // 进入重判队列，等待调用判题服务
-                judgeDispatcher.sendTask(judge.getSubmitId(), judge.getPid(), judge.getCid() != 0);
-            }
+        AccountProfile userRolesVo = (AccountProfile) SecurityUtils.getSubject().getPrincipal();
+        return rejudgePipeline.submit(cid, pid, submitIdList, userRolesVo.getUsername());
+    }
+
+    /**
+     * 重判整场比赛的全部提交
+     */
+    public RejudgeProgressVO rejudgeContest(Long cid) throws StatusFailException {
+        QueryWrapper<Judge> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("submit_id").eq("cid", cid).orderByAsc("submit_id");
+        List<Long> submitIdList = judgeEntityService.listObjs(queryWrapper, submitId -> ((Number) submitId).longValue());
+
+        if (submitIdList.size() == 0) {
+            throw new StatusFailException("当前该比赛无提交，不可重判！");
         }
+        AccountProfile userRolesVo = (AccountProfile) SecurityUtils.getSubject().getPrincipal();
+        return rejudgePipeline.submit(cid, null, submitIdList, userRolesVo.getUsername());
+    }
 
+    public RejudgeProgressVO getRejudgeProgress(String jobId) throws StatusFailException {
+        return rejudgePipeline.getProgress(jobId);
+    }
+
+    public RejudgeProgressVO cancelRejudge(String jobId) throws StatusFailException {
+        return rejudgePipeline.cancel(jobId);
     }
 
     @Transactional(rollbackFor = Exception.class)
@@ -129,6 +145,7 @@ public class RejudgeManager {
                 userAcproblemQueryWrapper.eq("submit_id", judge.getSubmitId());
                 userAcproblemEntityService.remove(userAcproblemQueryWrapper);
             }
+            globalRankManager.markUserChanged(judge.getUid());
         } else {
             // 将对应比赛记录设置成默认值
             UpdateWrapper<ContestRecord> updateWrapper = new UpdateWrapper<>();
@@ -141,7 +158,7 @@ public class RejudgeManager {
         judgeCaseQueryWrapper.eq("submit_id", submitId);
         judgeCaseEntityService.remove(judgeCaseQueryWrapper);
 
-        boolean hasSubmitIdRemoteRejudge = isHasSubmitIdRemoteRejudge(judge.getVjudgeSubmitId(), judge.getStatus());
+        boolean hasSubmitIdRemoteRejudge = RemoteJudgeDispatcher.isHasSubmitIdRemoteRejudge(judge.getVjudgeSubmitId(), judge.getStatus());
 
         // 设置默认值
         judge.setStatus(Constants.Judge.STATUS_PENDING.getStatus()); // 开始进入判题队列
@@ -161,56 +178,11 @@ public class RejudgeManager {
         return hasSubmitIdRemoteRejudge;
     }
 
-    @Transactional(rollbackFor = Exception.class)
-    public void checkAndUpdateJudgeBatch(List<Judge> rejudgeList, HashMap<Long, Integer> idMapStatus) throws StatusFailException {
-        List<Long> submitIdList = new LinkedList<>();
-        // 全部设置默认值
-        for (Judge judge : rejudgeList) {
-            idMapStatus.put(judge.getSubmitId(), judge.getStatus());
-            judge.setStatus(Constants.Judge.STATUS_PENDING.getStatus()); // 开始进入判题队列
-            judge.setVersion(judge.getVersion() + 1);
-            judge.setJudger("")
-                    .setTime(null)
-                    .setMemory(null)
-                    .setErrorMessage(null)
-                    .setOiRankScore(null)
-                    .setIsManual(false)
-                    .setScore(null);
-            submitIdList.add(judge.getSubmitId());
-        }
-        boolean resetJudgeResult = judgeEntityService.updateBatchById(rejudgeList);
-        // 清除每个提交对应的测试点结果
-        QueryWrapper<JudgeCase> judgeCaseQueryWrapper = new QueryWrapper<>();
-        judgeCaseQueryWrapper.in("submit_id", submitIdList);
-        judgeCaseEntityService.remove(judgeCaseQueryWrapper);
-        // 将对应比赛记录设置成默认值
-        UpdateWrapper<ContestRecord> updateWrapper = new UpdateWrapper<>();
-        updateWrapper.in("submit_id", submitIdList).setSql("status=null,score=null");
-        boolean resetContestRecordResult = contestRecordEntityService.update(updateWrapper);
-
-        if (!resetContestRecordResult || !resetJudgeResult) {
-            throw new StatusFailException("重判失败！请重新尝试！");
-        }
-    }
-
-    private boolean isHasSubmitIdRemoteRejudge(Long vjudgeSubmitId, int status) {
-        boolean isHasSubmitIdRemoteRejudge = false;
-        if (vjudgeSubmitId != null &&
-                (status == Constants.Judge.STATUS_SUBMITTED_FAILED.getStatus()
-                        || status == Constants.Judge.STATUS_COMPILING.getStatus()
-                        || status == Constants.Judge.STATUS_PENDING.getStatus()
-                        || status == Constants.Judge.STATUS_JUDGING.getStatus()
-                        || status == Constants.Judge.STATUS_SYSTEM_ERROR.getStatus())) {
-            isHasSubmitIdRemoteRejudge = true;
-        }
-        return isHasSubmitIdRemoteRejudge;
-    }
-
     @Transactional(rollbackFor = Exception.class)
     public Judge manualJudge(Long submitId, Integer status, Integer score) throws StatusFailException {
         QueryWrapper<Judge> judgeQueryWrapper = new QueryWrapper<>();
         judgeQueryWrapper
-                .select("submit_id", "status", "judger", "cid", "pid", "uid")
+                .select("submit_id", "status", "judger", "cid", "pid", "uid", "gid")
                 .eq("submit_id", submitId);
         Judge judge = judgeEntityService.getOne(judgeQueryWrapper);
         if (judge == null) {
@@ -286,7 +258,10 @@ public class RejudgeManager {
             }
             contestRecordUpdateWrapper.set(score != null, "score", score);
             contestRecordEntityService.update(contestRecordUpdateWrapper);
+        } else {
+            globalRankManager.markUserChanged(judge.getUid());
         }
+        judgeStatusPushManager.publish(submitId);
         Judge res = new Judge();
         res.setSubmitId(submitId)
                 .setJudger(userRolesVo.getUsername())
@@ -300,7 +275,7 @@ public class RejudgeManager {
     public Judge cancelJudge(Long submitId) throws StatusFailException {
         QueryWrapper<Judge> judgeQueryWrapper = new QueryWrapper<>();
         judgeQueryWrapper
-                .select("submit_id", "status", "judger", "cid")
+                .select("submit_id", "status", "judger", "cid", "uid")
                 .eq("submit_id", submitId)
                 .last("for update");
         Judge judge = judgeEntityService.getOne(judgeQueryWrapper);
@@ -338,7 +313,10 @@ public class RejudgeManager {
                     .setSql("score=null")
                     .set("status", Constants.Contest.RECORD_NOT_AC_NOT_PENALTY.getCode());
             contestRecordEntityService.update(contestRecordUpdateWrapper);
+        } else {
+            globalRankManager.markUserChanged(judge.getUid());
         }
+        judgeStatusPushManager.publish(submitId);
         Judge res = new Judge();
         res.setSubmitId(submitId)
                 .setJudger(userRolesVo.getUsername())
@@ -25,6 +25,7 @@ import top.hcode.hoj.config.SwitchConfig;
 import top.hcode.hoj.config.WebConfig;
 import top.hcode.hoj.dao.common.FileEntityService;
 import top.hcode.hoj.dao.judge.RemoteJudgeAccountEntityService;
+import top.hcode.hoj.judge.JudgeScheduler;
 import top.hcode.hoj.manager.email.EmailManager;
 import top.hcode.hoj.pojo.dto.*;
 import top.hcode.hoj.pojo.entity.common.File;
@@ -68,6 +69,9 @@ public class ConfigManager {
     @Autowired(required = false)
     private NacosSwitchConfig nacosSwitchConfig;
 
+    @Autowired
+    private JudgeScheduler judgeScheduler;
+
     @Value("${service-url.name}")
     private String judgeServiceName;
 
@@ -131,6 +135,8 @@ public class ConfigManager {
         result.put("backupService", serviceInstances);
         result.put("backupPercentCpuLoad", percentCpuLoad);
         result.put("backupPercentMemoryLoad", percentMemoryLoad);
+        // 判题调度器的队列深度与等待时间
+        result.put("judgeScheduler", judgeScheduler.getMetrics());
         return result;
     }
 
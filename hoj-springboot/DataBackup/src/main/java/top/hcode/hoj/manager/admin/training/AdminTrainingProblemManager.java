@@ -16,6 +16,7 @@ import top.hcode.hoj.dao.problem.ProblemEntityService;
 import top.hcode.hoj.dao.training.TrainingEntityService;
 import top.hcode.hoj.dao.training.TrainingProblemEntityService;
 import top.hcode.hoj.manager.admin.problem.RemoteProblemManager;
+import top.hcode.hoj.manager.oj.TrainingRankManager;
 import top.hcode.hoj.pojo.dto.TrainingProblemDTO;
 import top.hcode.hoj.pojo.entity.problem.Problem;
 import top.hcode.hoj.pojo.entity.training.Training;
@@ -52,6 +53,9 @@ public class AdminTrainingProblemManager {
     @Resource
     private RemoteProblemManager remoteProblemManager;
 
+    @Resource
+    private TrainingRankManager trainingRankManager;
+
     public HashMap<String, Object> getProblemList(Integer limit, Integer currentPage, String keyword, Boolean queryExisted, Long tid) {
         if (currentPage == null || currentPage < 1) currentPage = 1;
         if (limit == null || limit < 1) limit = 10;
@@ -134,6 +138,11 @@ public class AdminTrainingProblemManager {
         }
 
         if (isOk) { // 删除成功
+            if (tid == null) {
+                trainingRankManager.invalidateAll();
+            } else {
+                trainingRankManager.invalidate(tid);
+            }
             // 获取当前登录的用户
             AccountProfile userRolesVo = (AccountProfile) SecurityUtils.getSubject().getPrincipal();
             if (tid == null) {
@@ -19,12 +19,15 @@ import top.hcode.hoj.dao.user.UserInfoEntityService;
 import top.hcode.hoj.dao.user.UserRecordEntityService;
 import top.hcode.hoj.dao.user.UserRoleEntityService;
 import top.hcode.hoj.manager.msg.AdminNoticeManager;
+import top.hcode.hoj.manager.oj.GlobalRankManager;
+import top.hcode.hoj.manager.oj.UserSearchIndexManager;
 import top.hcode.hoj.pojo.dto.AdminEditUserDTO;
 import top.hcode.hoj.pojo.entity.user.UserInfo;
 import top.hcode.hoj.pojo.entity.user.UserRecord;
 import top.hcode.hoj.pojo.entity.user.UserRole;
 import top.hcode.hoj.pojo.vo.UserRolesVO;
 import top.hcode.hoj.shiro.AccountProfile;
+import top.hcode.hoj.shiro.ShiroLocalCache;
 import top.hcode.hoj.utils.Constants;
 import top.hcode.hoj.utils.RedisUtils;
 
@@ -55,6 +58,15 @@ public class AdminUserManager {
     @Autowired
     private RedisUtils redisUtils;
 
+    @Autowired
+    private GlobalRankManager globalRankManager;
+
+    @Autowired
+    private UserSearchIndexManager userSearchIndexManager;
+
+    @Autowired
+    private ShiroLocalCache shiroLocalCache;
+
     public IPage<UserRolesVO> getUserList(Integer limit, Integer currentPage, Boolean onlyAdmin, String keyword) {
         if (currentPage == null || currentPage < 1) currentPage = 1;
         if (limit == null || limit < 1) limit = 10;
@@ -116,6 +128,13 @@ public class AdminUserManager {
                 .set("title_color", titleColor)
                 .set("status", status);
         boolean updateUserInfo = userInfoEntityService.update(userInfoUpdateWrapper);
+        if (updateUserInfo) {
+            // 封禁或解封后需要更新全站排行榜
+            globalRankManager.markUserChanged(uid);
+            userSearchIndexManager.markChanged(uid);
+            // 封禁状态与头衔等登录信息有变，失效本地缓存
+            shiroLocalCache.invalidate(uid);
+        }
 
         QueryWrapper<UserRole> userRoleQueryWrapper = new QueryWrapper<>();
         userRoleQueryWrapper.eq("uid", uid);
@@ -154,6 +173,9 @@ public class AdminUserManager {
         if (!isOk) {
             throw new StatusFailException("删除失败！");
         }
+        globalRankManager.markUserChanged(deleteUserIdList);
+        deleteUserIdList.forEach(userSearchIndexManager::markChanged);
+        deleteUserIdList.forEach(shiroLocalCache::invalidate);
         AccountProfile userRolesVo = (AccountProfile) SecurityUtils.getSubject().getPrincipal();
         log.info("[{}],[{}],uidList:[{}],operatorUid:[{}],operatorUsername:[{}]",
                 "Admin_User", "Delete", deleteUserIdList, userRolesVo.getUid(), userRolesVo.getUsername());
@@ -178,6 +200,8 @@ public class AdminUserManager {
             // 异步同步系统通知
             if (successUidList.size() > 0) {
                 adminNoticeManager.syncNoticeToNewRegisterBatchUser(successUidList);
+                globalRankManager.markUserChanged(successUidList);
+                successUidList.forEach(userSearchIndexManager::markChanged);
             }
             if (failedUserNameSet.size() > 0) {
                 int failedCount = failedUserNameSet.size();
@@ -281,6 +305,8 @@ public class AdminUserManager {
             // 异步同步系统通知
             List<String> uidList = userInfoList.stream().map(UserInfo::getUuid).collect(Collectors.toList());
             adminNoticeManager.syncNoticeToNewRegisterBatchUser(uidList);
+            globalRankManager.markUserChanged(uidList);
+            uidList.forEach(userSearchIndexManager::markChanged);
             return MapUtil.builder().put("key", key).map();
         } else {
             throw new StatusFailException("生成指定用户失败！注意查看组合生成的用户名是否已有存在的！");
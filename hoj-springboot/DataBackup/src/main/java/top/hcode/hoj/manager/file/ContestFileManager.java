@@ -3,15 +3,15 @@ package top.hcode.hoj.manager.file;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.io.file.FileReader;
 import cn.hutool.core.io.file.FileWriter;
-import cn.hutool.core.util.IdUtil;
-import cn.hutool.core.util.ZipUtil;
 import cn.hutool.json.JSONUtil;
 import com.alibaba.excel.EasyExcel;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.shiro.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import top.hcode.hoj.common.exception.StatusFailException;
 import top.hcode.hoj.common.exception.StatusForbiddenException;
 import top.hcode.hoj.common.result.ResultStatus;
@@ -19,9 +19,9 @@ import top.hcode.hoj.dao.common.FileEntityService;
 import top.hcode.hoj.dao.contest.ContestEntityService;
 import top.hcode.hoj.dao.contest.ContestPrintEntityService;
 import top.hcode.hoj.dao.contest.ContestProblemEntityService;
-import top.hcode.hoj.dao.judge.JudgeEntityService;
 import top.hcode.hoj.dao.user.UserInfoEntityService;
 import top.hcode.hoj.manager.oj.ContestCalculateRankManager;
+import top.hcode.hoj.mapper.JudgeMapper;
 import top.hcode.hoj.pojo.entity.contest.Contest;
 import top.hcode.hoj.pojo.entity.contest.ContestPrint;
 import top.hcode.hoj.pojo.entity.contest.ContestProblem;
@@ -30,6 +30,7 @@ import top.hcode.hoj.pojo.vo.ACMContestRankVO;
 import top.hcode.hoj.pojo.vo.OIContestRankVO;
 import top.hcode.hoj.shiro.AccountProfile;
 import top.hcode.hoj.utils.Constants;
+import top.hcode.hoj.utils.ZipStreamUtils;
 import top.hcode.hoj.validator.ContestValidator;
 import top.hcode.hoj.validator.GroupValidator;
 
@@ -38,9 +39,6 @@ import java.io.*;
 import java.net.URLEncoder;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Function;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -65,7 +63,7 @@ public class ContestFileManager {
     private FileEntityService fileEntityService;
 
     @Autowired
-    private JudgeEntityService judgeEntityService;
+    private JudgeMapper judgeMapper;
 
     @Autowired
     private UserInfoEntityService userInfoEntityService;
@@ -147,6 +145,7 @@ public class ContestFileManager {
         }
     }
 
+    @Transactional(readOnly = true)
     public void downloadContestACSubmission(Long cid, Boolean excludeAdmin, String splitType, HttpServletResponse response) throws StatusForbiddenException, StatusFailException {
 
         Contest contest = contestEntityService.getById(cid);
@@ -176,7 +175,8 @@ public class ContestFileManager {
         List<String> superAdminUidList = userInfoEntityService.getSuperAdminUidList();
 
         QueryWrapper<Judge> judgeQueryWrapper = new QueryWrapper<>();
-        judgeQueryWrapper.eq("cid", cid)
+        judgeQueryWrapper.select("username", "pid", "cpid", "score", "submit_time", "language", "code")
+                .eq("cid", cid)
                 .eq(isACM, "status", Constants.Judge.STATUS_ACCEPTED.getStatus())
                 .isNotNull(!isACM, "score") // OI模式取得分不为null的
                 .between("submit_time", contest.getStartTime(), contest.getEndTime())
@@ -184,151 +184,75 @@ public class ContestFileManager {
                 .notIn(excludeAdmin && superAdminUidList.size() > 0, "uid", superAdminUidList)
                 .orderByDesc("submit_time");
 
-        List<Judge> judgeList = judgeEntityService.list(judgeQueryWrapper);
-
-        // 打包文件的临时路径 -> username为文件夹名字
-        String tmpFilesDir = Constants.File.CONTEST_AC_SUBMISSION_TMP_FOLDER.getPath() + File.separator + IdUtil.fastSimpleUUID();
-        FileUtil.mkdir(tmpFilesDir);
-
-        HashMap<String, Boolean> recordMap = new HashMap<>();
-        if ("user".equals(splitType)) {
-            /**
-             * 以用户来分割提交的代码
-             */
-            List<String> usernameList = judgeList.stream()
-                    .filter(distinctByKey(Judge::getUsername)) // 根据用户名过滤唯一
-                    .map(Judge::getUsername).collect(Collectors.toList()); // 映射出用户名列表
-
-
-            HashMap<Long, String> cpIdMap = new HashMap<>();
-            for (ContestProblem contestProblem : contestProblemList) {
-                cpIdMap.put(contestProblem.getId(), contestProblem.getDisplayId());
-            }
-
-            for (String username : usernameList) {
-                // 对于每个用户生成对应的文件夹
-                String userDir = tmpFilesDir + File.separator + username;
-                FileUtil.mkdir(userDir);
-                // 如果是ACM模式，则所有提交代码都要生成，如果同一题多次提交AC，加上提交时间秒后缀 ---> A_(666666).c
-                // 如果是OI模式就生成最近一次提交即可，且带上分数 ---> A_(666666)_100.c
-                List<Judge> userSubmissionList = judgeList.stream()
-                        .filter(judge -> judge.getUsername().equals(username)) // 过滤出对应用户的提交
-                        .sorted(Comparator.comparing(Judge::getSubmitTime).reversed()) // 根据提交时间进行降序
-                        .collect(Collectors.toList());
-
-                for (Judge judge : userSubmissionList) {
-                    String filePath = userDir + File.separator + cpIdMap.getOrDefault(judge.getCpid(), "null");
-
-                    // OI模式只取最后一次提交
-                    if (!isACM) {
-                        String key = judge.getUsername() + "_" + judge.getPid();
-                        if (!recordMap.containsKey(key)) {
-                            filePath += "_" + judge.getScore() + "_(" + threadLocalTime.get().format(judge.getSubmitTime()) + ")."
-                                    + languageToFileSuffix(judge.getLanguage().toLowerCase());
-                            FileWriter fileWriter = new FileWriter(filePath);
-                            fileWriter.write(judge.getCode());
-                            recordMap.put(key, true);
-                        }
-
-                    } else {
-                        filePath += "_(" + threadLocalTime.get().format(judge.getSubmitTime()) + ")."
-                                + languageToFileSuffix(judge.getLanguage().toLowerCase());
-                        FileWriter fileWriter = new FileWriter(filePath);
-                        fileWriter.write(judge.getCode());
-                    }
+        HashMap<Long, String> cpIdMap = new HashMap<>();
+        HashMap<Long, String> pidMap = new HashMap<>();
+        for (ContestProblem contestProblem : contestProblemList) {
+            cpIdMap.put(contestProblem.getId(), contestProblem.getDisplayId());
+            pidMap.put(contestProblem.getPid(), contestProblem.getDisplayId());
+        }
+        boolean isSplitByUser = "user".equals(splitType);
+        boolean isSplitByProblem = "problem".equals(splitType);
 
+        String zipFileName = "contest_" + contest.getId() + "_" + System.currentTimeMillis() + ".zip";
+        // OI模式已导出的 用户_题目
+        HashSet<String> recordSet = new HashSet<>();
+        HashSet<String> entryNameSet = new HashSet<>();
+        // 提交记录按提交时间降序流式读取，边读取边写入压缩包
+        try (ZipStreamUtils.ZipResponseOutputStream zipOutputStream = ZipStreamUtils.openZipResponse(response, zipFileName)) {
+            if (isSplitByProblem) {
+                // 每个题目都生成对应的文件夹
+                for (ContestProblem contestProblem : contestProblemList) {
+                    ZipStreamUtils.putDirectory(zipOutputStream, contestProblem.getDisplayId());
                 }
             }
-        } else if ("problem".equals(splitType)) {
-            /**
-             * 以比赛题目编号来分割提交的代码
-             */
-
-            for (ContestProblem contestProblem : contestProblemList) {
-                // 对于每题目生成对应的文件夹
-                String problemDir = tmpFilesDir + File.separator + contestProblem.getDisplayId();
-                FileUtil.mkdir(problemDir);
-                // 如果是ACM模式，则所有提交代码都要生成，如果同一题多次提交AC，加上提交时间秒后缀 ---> username_(666666).c
-                // 如果是OI模式就生成最近一次提交即可，且带上分数 ---> username_(666666)_100.c
-                List<Judge> problemSubmissionList = judgeList.stream()
-                        .filter(judge -> judge.getPid().equals(contestProblem.getPid())) // 过滤出对应题目的提交
-                        .sorted(Comparator.comparing(Judge::getSubmitTime).reversed()) // 根据提交时间进行降序
-                        .collect(Collectors.toList());
-
-                for (Judge judge : problemSubmissionList) {
-                    String filePath = problemDir + File.separator + judge.getUsername();
-                    if (!isACM) {
-                        String key = judge.getUsername() + "_" + contestProblem.getDisplayId();
-                        // OI模式只取最后一次提交
-                        if (!recordMap.containsKey(key)) {
-                            filePath += "_" + judge.getScore() + "_(" + threadLocalTime.get().format(judge.getSubmitTime()) + ")."
-                                    + languageToFileSuffix(judge.getLanguage().toLowerCase());
-                            FileWriter fileWriter = new FileWriter(filePath);
-                            fileWriter.write(judge.getCode());
-                            recordMap.put(key, true);
+            if (isSplitByUser || isSplitByProblem) {
+                try (Cursor<Judge> judgeCursor = judgeMapper.selectCursor(judgeQueryWrapper)) {
+                    for (Judge judge : judgeCursor) {
+                        String dirName;
+                        String fileName;
+                        String key;
+                        if (isSplitByUser) {
+                            /**
+                             * 以用户来分割提交的代码 ---> username/A_(666666).c
+                             */
+                            dirName = judge.getUsername();
+                            fileName = cpIdMap.getOrDefault(judge.getCpid(), "null");
+                            key = judge.getUsername() + "_" + judge.getPid();
+                        } else {
+                            /**
+                             * 以比赛题目编号来分割提交的代码 ---> A/username_(666666).c
+                             */
+                            String displayId = pidMap.get(judge.getPid());
+                            if (displayId == null) {
+                                continue;
+                            }
+                            dirName = displayId;
+                            fileName = judge.getUsername();
+                            key = judge.getUsername() + "_" + displayId;
                         }
-                    } else {
-                        filePath += "_(" + threadLocalTime.get().format(judge.getSubmitTime()) + ")."
+                        // 如果是ACM模式，则所有提交代码都要生成，如果同一题多次提交AC，加上提交时间秒后缀
+                        // 如果是OI模式就生成最近一次提交即可，且带上分数 ---> A_100_(666666).c
+                        if (!isACM) {
+                            if (!recordSet.add(key)) {
+                                continue;
+                            }
+                            fileName += "_" + judge.getScore();
+                        }
+                        String entryName = dirName + "/" + fileName + "_(" + threadLocalTime.get().format(judge.getSubmitTime()) + ")."
                                 + languageToFileSuffix(judge.getLanguage().toLowerCase());
-                        FileWriter fileWriter = new FileWriter(filePath);
-                        fileWriter.write(judge.getCode());
+                        // 同一秒内的多次提交只保留最近的一次
+                        if (entryNameSet.add(entryName)) {
+                            ZipStreamUtils.putString(zipOutputStream, entryName, judge.getCode());
+                        }
                     }
                 }
             }
-        }
-
-        String zipFileName = "contest_" + contest.getId() + "_" + System.currentTimeMillis() + ".zip";
-        String zipPath = Constants.File.CONTEST_AC_SUBMISSION_TMP_FOLDER.getPath() + File.separator + zipFileName;
-        ZipUtil.zip(tmpFilesDir, zipPath);
-        // 将zip变成io流返回给前端
-        FileReader zipFileReader = new FileReader(zipPath);
-        BufferedInputStream bins = new BufferedInputStream(zipFileReader.getInputStream());//放到缓冲流里面
-        OutputStream outs = null;//获取文件输出IO流
-        BufferedOutputStream bouts = null;
-        try {
-            outs = response.getOutputStream();
-            bouts = new BufferedOutputStream(outs);
-            response.setContentType("application/x-download");
-            response.setHeader("Content-disposition", "attachment;filename=" + URLEncoder.encode(zipFileName, "UTF-8"));
-            int bytesRead = 0;
-            byte[] buffer = new byte[1024 * 10];
-            //开始向网络传输文件流
-            while ((bytesRead = bins.read(buffer, 0, 1024 * 10)) != -1) {
-                bouts.write(buffer, 0, bytesRead);
-            }
-            // 刷新缓存
-            bouts.flush();
+            zipOutputStream.complete();
         } catch (IOException e) {
             log.error("下载比赛AC提交代码的压缩文件异常------------>", e);
-            response.reset();
-            response.setContentType("application/json");
-            response.setCharacterEncoding("utf-8");
-            Map<String, Object> map = new HashMap<>();
-            map.put("status", ResultStatus.SYSTEM_ERROR);
-            map.put("msg", "下载文件失败，请重新尝试！");
-            map.put("data", null);
-            try {
-                response.getWriter().println(JSONUtil.toJsonStr(map));
-            } catch (IOException ioException) {
-                ioException.printStackTrace();
-            }
-        } finally {
-            try {
-                bins.close();
-                if (outs != null) {
-                    outs.close();
-                }
-                if (bouts != null) {
-                    bouts.close();
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            ZipStreamUtils.writeErrorResponse(response, "下载文件失败，请重新尝试！");
         }
 
-        FileUtil.del(tmpFilesDir);
-        FileUtil.del(zipPath);
-
     }
 
     public void downloadContestPrintText(Long id, HttpServletResponse response) throws StatusForbiddenException {
@@ -409,11 +333,6 @@ public class ContestFileManager {
         }
     };
 
-    private static <T> Predicate<T> distinctByKey(Function<? super T, ?> keyExtractor) {
-        Map<Object, Boolean> seen = new ConcurrentHashMap<>();
-        return t -> seen.putIfAbsent(keyExtractor.apply(t), Boolean.TRUE) == null;
-    }
-
     private static String languageToFileSuffix(String language) {
 
         List<String> CLang = Arrays.asList("c", "gcc", "clang");
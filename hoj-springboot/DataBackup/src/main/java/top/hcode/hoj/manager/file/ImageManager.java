@@ -22,6 +22,7 @@ import top.hcode.hoj.pojo.entity.user.Role;
 import top.hcode.hoj.pojo.entity.user.UserInfo;
 import top.hcode.hoj.pojo.vo.UserRolesVO;
 import top.hcode.hoj.shiro.AccountProfile;
+import top.hcode.hoj.shiro.ShiroLocalCache;
 import top.hcode.hoj.utils.Constants;
 import top.hcode.hoj.validator.GroupValidator;
 
@@ -52,6 +53,9 @@ public class ImageManager {
     @Autowired
     private UserRoleEntityService userRoleEntityService;
 
+    @Autowired
+    private ShiroLocalCache shiroLocalCache;
+
     @Transactional(rollbackFor = Exception.class)
     public Map<Object, Object> uploadAvatar(MultipartFile image) throws StatusFailException, StatusSystemErrorException {
         if (image == null) {
@@ -88,6 +92,7 @@ public class ImageManager {
         userInfoUpdateWrapper.set("avatar", Constants.File.IMG_API.getPath() + filename)
                 .eq("uuid", accountProfile.getUid());
         userInfoEntityService.update(userInfoUpdateWrapper);
+        shiroLocalCache.invalidate(accountProfile.getUid());
 
         // 插入file表记录
         top.hcode.hoj.pojo.entity.common.File imgFile = new top.hcode.hoj.pojo.entity.common.File();
@@ -3,7 +3,6 @@ package top.hcode.hoj.manager.file;
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.io.file.FileReader;
-import cn.hutool.core.io.file.FileWriter;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.ZipUtil;
 import cn.hutool.json.JSONArray;
@@ -17,7 +16,6 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 import top.hcode.hoj.common.exception.StatusFailException;
 import top.hcode.hoj.common.exception.StatusSystemErrorException;
-import top.hcode.hoj.common.result.ResultStatus;
 import top.hcode.hoj.dao.problem.LanguageEntityService;
 import top.hcode.hoj.dao.problem.ProblemCaseEntityService;
 import top.hcode.hoj.dao.problem.ProblemEntityService;
@@ -28,12 +26,12 @@ import top.hcode.hoj.pojo.entity.problem.*;
 import top.hcode.hoj.pojo.vo.ImportProblemVO;
 import top.hcode.hoj.shiro.AccountProfile;
 import top.hcode.hoj.utils.Constants;
+import top.hcode.hoj.utils.ZipStreamUtils;
+import top.hcode.hoj.utils.TestCaseDirUtils;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.*;
-import java.net.URLEncoder;
 import java.util.*;
-import java.util.concurrent.*;
 
 /**
  * @Author: Himit_ZH
@@ -290,171 +288,71 @@ public class ProblemFileManager {
             tagMap.put(tag.getId(), tag.getName());
         }
 
-        String workDir = Constants.File.FILE_DOWNLOAD_TMP_FOLDER.getPath() + File.separator + IdUtil.simpleUUID();
-
         // 解析正式测试点根目录（存在则用，不存在则回退）
-        final String testcaseBaseDir = resolveTestcaseBaseDir();
-
-        // 使用线程池
-        ExecutorService threadPool = new ThreadPoolExecutor(
-                2, // 核心线程数
-                4, // 最大线程数。最多几个线程并发。
-                3,//当非核心线程无任务时，几秒后结束该线程
-                TimeUnit.SECONDS,// 结束线程时间单位
-                new LinkedBlockingDeque<>(200), //阻塞队列，限制等候线程数
-                Executors.defaultThreadFactory(),
-                new ThreadPoolExecutor.DiscardOldestPolicy());//队列满了，尝试去和最早的竞争，也不会抛出异常！
-
-        List<FutureTask<Void>> futureTasks = new ArrayList<>();
-
-        for (Long pid : pidList) {
-
-            futureTasks.add(new FutureTask<>(new Callable<Void>() {
-                @Override
-                public Void call() throws Exception {
-                    String testcaseWorkDir = testcaseBaseDir + File.separator + "problem_" + pid;
-                    File file = new File(testcaseWorkDir);
-
-                    List<HashMap<String, Object>> problemCases = new LinkedList<>();
-                    if (!file.exists() || file.listFiles() == null) { // 本地为空 尝试去数据库查找
-                        QueryWrapper<ProblemCase> problemCaseQueryWrapper = new QueryWrapper<>();
-                        problemCaseQueryWrapper.eq("pid", pid);
-                        List<ProblemCase> problemCaseList = problemCaseEntityService.list(problemCaseQueryWrapper);
-                        FileUtil.mkdir(testcaseWorkDir);
-                        // 写入本地
-                        for (int i = 0; i < problemCaseList.size(); i++) {
-                            String filePreName = testcaseWorkDir + File.separator + (i + 1);
-                            String inputName = filePreName + ".in";
-                            String outputName = filePreName + ".out";
-                            FileWriter infileWriter = new FileWriter(inputName);
-                            infileWriter.write(problemCaseList.get(i).getInput());
-                            FileWriter outfileWriter = new FileWriter(outputName);
-                            outfileWriter.write(problemCaseList.get(i).getOutput());
-
-                            ProblemCase problemCase = problemCaseList.get(i).setPid(null)
-                                    .setInput(inputName)
-                                    .setOutput(outputName)
-                                    .setGmtCreate(null)
-                                    .setStatus(null)
-                                    .setId(null)
-                                    .setGmtModified(null);
+        final String testcaseBaseDir = TestCaseDirUtils.getBaseDir();
+
+        String fileName = "problem_export_" + System.currentTimeMillis() + ".zip";
+        // 逐个题目直接压缩写入响应流：problem_{pid}/ 测试数据文件夹 + problem_{pid}.json
+        try (ZipStreamUtils.ZipResponseOutputStream zipOutputStream = ZipStreamUtils.openZipResponse(response, fileName)) {
+            for (Long pid : pidList) {
+                String problemDirName = "problem_" + pid;
+                File testcaseDir = new File(testcaseBaseDir + File.separator + problemDirName);
+
+                List<HashMap<String, Object>> problemCases = new LinkedList<>();
+                ZipStreamUtils.putDirectory(zipOutputStream, problemDirName);
+                if (!testcaseDir.exists() || testcaseDir.listFiles() == null) { // 本地为空 尝试去数据库查找
+                    QueryWrapper<ProblemCase> problemCaseQueryWrapper = new QueryWrapper<>();
+                    problemCaseQueryWrapper.eq("pid", pid);
+                    List<ProblemCase> problemCaseList = problemCaseEntityService.list(problemCaseQueryWrapper);
+                    for (int i = 0; i < problemCaseList.size(); i++) {
+                        String inputName = (i + 1) + ".in";
+                        String outputName = (i + 1) + ".out";
+                        ZipStreamUtils.putString(zipOutputStream, problemDirName + "/" + inputName, problemCaseList.get(i).getInput());
+                        ZipStreamUtils.putString(zipOutputStream, problemDirName + "/" + outputName, problemCaseList.get(i).getOutput());
+
+                        ProblemCase problemCase = problemCaseList.get(i).setPid(null)
+                                .setInput(inputName)
+                                .setOutput(outputName)
+                                .setGmtCreate(null)
+                                .setStatus(null)
+                                .setId(null)
+                                .setGmtModified(null);
+                        HashMap<String, Object> problemCaseMap = new HashMap<>();
+                        BeanUtil.beanToMap(problemCase, problemCaseMap, false, true);
+                        problemCases.add(problemCaseMap);
+                    }
+                } else {
+                    String infoPath = testcaseDir.getPath() + File.separator + "info";
+                    if (FileUtil.exist(infoPath)) {
+                        FileReader reader = new FileReader(infoPath);
+                        JSONObject jsonObject = JSONUtil.parseObj(reader.readString());
+                        JSONArray testCases = jsonObject.getJSONArray("testCases");
+                        for (int i = 0; i < testCases.size(); i++) {
+                            JSONObject jsonObject1 = testCases.get(i, JSONObject.class);
                             HashMap<String, Object> problemCaseMap = new HashMap<>();
-                            BeanUtil.beanToMap(problemCase, problemCaseMap, false, true);
-                            problemCases.add(problemCaseMap);
-                        }
-                        FileUtil.copy(testcaseWorkDir, workDir, true);
-
-                    } else {
-                        String infoPath = testcaseWorkDir + File.separator + "info";
-                        if (FileUtil.exist(infoPath)) {
-                            FileReader reader = new FileReader(infoPath);
-                            JSONObject jsonObject = JSONUtil.parseObj(reader.readString());
-                            JSONArray testCases = jsonObject.getJSONArray("testCases");
-                            for (int i = 0; i < testCases.size(); i++) {
-                                JSONObject jsonObject1 = testCases.get(i, JSONObject.class);
-                                HashMap<String, Object> problemCaseMap = new HashMap<>();
-                                problemCaseMap.put("input", jsonObject1.getStr("inputName"));
-                                problemCaseMap.put("output", jsonObject1.getStr("outputName"));
-                                Integer score = jsonObject1.getInt("score");
-                                Integer groupNum = jsonObject1.getInt("groupNum");
-                                if (score != null && score > 0) {
-                                    problemCaseMap.put("score", score);
-                                }
-                                if (groupNum != null) {
-                                    problemCaseMap.put("groupNum", groupNum);
-                                }
-                                problemCases.add(problemCaseMap);
+                            problemCaseMap.put("input", jsonObject1.getStr("inputName"));
+                            problemCaseMap.put("output", jsonObject1.getStr("outputName"));
+                            Integer score = jsonObject1.getInt("score");
+                            Integer groupNum = jsonObject1.getInt("groupNum");
+                            if (score != null && score > 0) {
+                                problemCaseMap.put("score", score);
                             }
+                            if (groupNum != null) {
+                                problemCaseMap.put("groupNum", groupNum);
+                            }
+                            problemCases.add(problemCaseMap);
                         }
-                        FileUtil.copy(testcaseWorkDir, workDir, true);
                     }
-                    ImportProblemVO importProblemVo = problemEntityService.buildExportProblem(pid, problemCases, languageMap, tagMap);
-                    String content = JSONUtil.toJsonStr(importProblemVo);
-                    FileWriter fileWriter = new FileWriter(workDir + File.separator + "problem_" + pid + ".json");
-                    fileWriter.write(content);
-                    return null;
+                    ZipStreamUtils.putDirectoryFiles(zipOutputStream, problemDirName + "/", testcaseDir);
                 }
-            }));
-
-        }
-        // 提交到线程池进行执行
-        for (FutureTask<Void> futureTask : futureTasks) {
-            threadPool.submit(futureTask);
-        }
-        // 所有任务执行完成且等待队列中也无任务关闭线程池
-        if (!threadPool.isShutdown()) {
-            threadPool.shutdown();
-        }
-        // 阻塞主线程, 直至线程池关闭
-        try {
-            threadPool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-        } catch (InterruptedException e) {
-            log.error("线程池异常--------------->", e);
-        }
-
-        String fileName = "problem_export_" + System.currentTimeMillis() + ".zip";
-        // 将对应文件夹的文件压缩成zip
-        ZipUtil.zip(workDir, Constants.File.FILE_DOWNLOAD_TMP_FOLDER.getPath() + File.separator + fileName);
-        // 将zip变成io流返回给前端
-        FileReader fileReader = new FileReader(Constants.File.FILE_DOWNLOAD_TMP_FOLDER.getPath() + File.separator + fileName);
-        BufferedInputStream bins = new BufferedInputStream(fileReader.getInputStream());//放到缓冲流里面
-        OutputStream outs = null;//获取文件输出IO流
-        BufferedOutputStream bouts = null;
-        try {
-            outs = response.getOutputStream();
-            bouts = new BufferedOutputStream(outs);
-            response.setContentType("application/x-download");
-            response.setHeader("Content-disposition", "attachment;filename=" + URLEncoder.encode(fileName, "UTF-8"));
-            int bytesRead = 0;
-            byte[] buffer = new byte[1024 * 10];
-            //开始向网络传输文件流
-            while ((bytesRead = bins.read(buffer, 0, 1024 * 10)) != -1) {
-                bouts.write(buffer, 0, bytesRead);
+                ImportProblemVO importProblemVo = problemEntityService.buildExportProblem(pid, problemCases, languageMap, tagMap);
+                ZipStreamUtils.putString(zipOutputStream, problemDirName + ".json", JSONUtil.toJsonStr(importProblemVo));
             }
-            bouts.flush();
+            zipOutputStream.complete();
         } catch (IOException e) {
             log.error("导出题目数据的压缩文件异常------------>", e);
-            response.reset();
-            response.setContentType("application/json");
-            response.setCharacterEncoding("utf-8");
-            Map<String, Object> map = new HashMap<>();
-            map.put("status", ResultStatus.SYSTEM_ERROR);
-            map.put("msg", "导出题目数据失败，请重新尝试！");
-            map.put("data", null);
-            try {
-                response.getWriter().println(JSONUtil.toJsonStr(map));
-            } catch (IOException ioException) {
-                ioException.printStackTrace();
-            }
-        } finally {
-            try {
-                bins.close();
-                if (outs != null) {
-                    outs.close();
-                }
-                if (bouts != null) {
-                    bouts.close();
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            // 清空临时文件
-            FileUtil.del(workDir);
-            FileUtil.del(Constants.File.FILE_DOWNLOAD_TMP_FOLDER.getPath() + File.separator + fileName);
+            ZipStreamUtils.writeErrorResponse(response, "导出题目数据失败，请重新尝试！");
         }
     }
 
-    /**
-     * 解析正式测试点根目录，优先 Constants 配置，如不存在则回退到用户目录。
-     * 导出读取场景以“存在性”为主，避免强行创建不可写目录。
-     */
-    private String resolveTestcaseBaseDir() {
-        String preferred = Constants.File.TESTCASE_BASE_FOLDER.getPath();
-        String fallback = System.getProperty("user.home") + File.separator + "hoj" + File.separator + "file" + File.separator + "testcase";
-        if (FileUtil.exist(preferred)) return preferred;
-        if (FileUtil.exist(fallback)) return fallback;
-        // 都不存在则返回优先路径，后续流程会按需创建
-        return preferred;
-    }
-
 }
\ No newline at end of file
@@ -0,0 +1,295 @@
+package top.hcode.hoj.manager.file;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.io.file.FileReader;
+import cn.hutool.core.util.CharsetUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestTemplate;
+import top.hcode.hoj.common.exception.StatusFailException;
+import top.hcode.hoj.common.exception.StatusForbiddenException;
+import top.hcode.hoj.common.exception.StatusNotFoundException;
+import top.hcode.hoj.common.result.CommonResult;
+import top.hcode.hoj.dao.contest.ContestEntityService;
+import top.hcode.hoj.dao.contest.ContestProblemEntityService;
+import top.hcode.hoj.dao.judge.JudgeServerEntityService;
+import top.hcode.hoj.pojo.dto.TestCasePrefetchDTO;
+import top.hcode.hoj.pojo.entity.contest.Contest;
+import top.hcode.hoj.pojo.entity.contest.ContestProblem;
+import top.hcode.hoj.pojo.entity.judge.JudgeServer;
+import top.hcode.hoj.utils.Constants;
+import top.hcode.hoj.utils.RedisUtils;
+import top.hcode.hoj.utils.TestCaseDirUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/19 20:10
+ * @Description: 测试数据的内容寻址分发
+ * 按题目当前的测试数据版本生成清单(文件名、大小、SHA-256)，判题机只拉取本地内容仓库中缺失的文件，
+ * 文件下载支持Range分段续传；比赛开始前通知所有判题机预先拉取比赛题目的测试数据。
+ */
+@Component
+@Slf4j(topic = "hoj")
+public class TestCaseDistributeManager {
+
+    private static final String PREFETCH_PATH = "/prefetch-testcase";
+
+    @Value("${hoj.judge.token:no_judge_token}")
+    private String judgeToken;
+
+    @Value("${hoj.testcase.distribute.digest-cache-capacity:20000}")
+    private Integer digestCacheCapacity;
+
+    @Value("${hoj.testcase.distribute.prefetch-lead-minutes:10}")
+    private Integer prefetchLeadMinutes;
+
+    @Resource
+    private ContestEntityService contestEntityService;
+
+    @Resource
+    private ContestProblemEntityService contestProblemEntityService;
+
+    @Resource
+    private JudgeServerEntityService judgeServerEntityService;
+
+    @Resource
+    private RedisUtils redisUtils;
+
+    @Resource
+    private RestTemplate restTemplate;
+
+    /**
+     * 文件绝对路径 -> 摘要，文件大小或修改时间变化后重新计算
+     */
+    private LRUCache<String, FileDigest> digestCache;
+
+    @PostConstruct
+    public void init() {
+        digestCache = CacheUtil.newLRUCache(digestCacheCapacity);
+    }
+
+    /**
+     * 获取题目测试数据的清单
+     *
+     * @param pid   题目id
+     * @param token 调用凭证
+     * @return pid、version(与info文件中的版本一致)以及文件列表[{name,size,sha256}]
+     */
+    public Map<String, Object> getManifest(Long pid, String token) throws StatusForbiddenException,
+            StatusNotFoundException, StatusFailException {
+        validateToken(token);
+        File testCasesDir = new File(TestCaseDirUtils.getBaseDir() + File.separator + "problem_" + pid);
+        File infoFile = new File(testCasesDir, "info");
+        if (!infoFile.isFile()) {
+            throw new StatusNotFoundException("该题目的测试数据不存在！");
+        }
+        JSONObject info = JSONUtil.parseObj(new FileReader(infoFile, CharsetUtil.UTF_8).readString());
+
+        File[] files = testCasesDir.listFiles(file -> file.isFile() && !file.getName().startsWith("."));
+        List<Map<String, Object>> fileList = new ArrayList<>();
+        if (files != null) {
+            Arrays.sort(files, Comparator.comparing(File::getName));
+            for (File file : files) {
+                Map<String, Object> item = new HashMap<>(4);
+                item.put("name", file.getName());
+                item.put("size", file.length());
+                item.put("sha256", digest(file));
+                fileList.add(item);
+            }
+        }
+        Map<String, Object> manifest = new HashMap<>(4);
+        manifest.put("pid", pid);
+        manifest.put("version", info.getStr("version"));
+        manifest.put("files", fileList);
+        return manifest;
+    }
+
+    /**
+     * 下载清单中的单个文件，请求头带有Range时只返回对应的区间
+     *
+     * @param pid    题目id
+     * @param name   文件名
+     * @param sha256 清单中的摘要，与当前文件不一致说明测试数据已变更
+     * @param token  调用凭证
+     */
+    public void downloadBlob(Long pid, String name, String sha256, String token,
+                             HttpServletRequest request, HttpServletResponse response) throws StatusForbiddenException,
+            StatusNotFoundException, StatusFailException, IOException {
+        validateToken(token);
+        if (StringUtils.isEmpty(name) || name.startsWith(".") || name.contains("/") || name.contains("\\")) {
+            throw new StatusFailException("文件名不合法！");
+        }
+        File file = new File(TestCaseDirUtils.getBaseDir() + File.separator + "problem_" + pid, name);
+        if (!file.isFile()) {
+            throw new StatusNotFoundException("该测试数据文件不存在！");
+        }
+        if (!digest(file).equalsIgnoreCase(sha256)) {
+            throw new StatusNotFoundException("该测试数据文件已变更，请重新获取清单！");
+        }
+
+        long total = file.length();
+        long start = 0;
+        long end = total - 1;
+        String range = request.getHeader("Range");
+        if (range != null && range.startsWith("bytes=") && total > 0) {
+            // 只支持单个区间：bytes=start-end 或 bytes=start-
+            String[] bounds = range.substring("bytes=".length()).split("-", 2);
+            try {
+                start = Long.parseLong(bounds[0].trim());
+                if (bounds.length > 1 && !StringUtils.isEmpty(bounds[1].trim())) {
+                    end = Math.min(Long.parseLong(bounds[1].trim()), total - 1);
+                }
+            } catch (NumberFormatException e) {
+                throw new StatusFailException("Range请求头不合法！");
+            }
+            if (start > end) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader("Content-Range", "bytes */" + total);
+                return;
+            }
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + total);
+        }
+        long length = end - start + 1;
+        response.setContentType("application/octet-stream");
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setHeader("ETag", "\"" + sha256 + "\"");
+        response.setHeader("Content-Length", String.valueOf(length));
+
+        try (FileChannel fileChannel = new FileInputStream(file).getChannel()) {
+            WritableByteChannel outChannel = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                long transferred = fileChannel.transferTo(position, end - position + 1, outChannel);
+                if (transferred <= 0) {
+                    // 文件在校验摘要后被截断等情况，已声明的长度无法写满，中断连接而不是空转
+                    throw new IOException("Failed to transfer the test case file " + file.getName()
+                            + " at position " + position + ", file size: " + fileChannel.size());
+                }
+                position += transferred;
+            }
+        }
+        response.flushBuffer();
+    }
+
+    /**
+     * 通知所有判题机预先拉取即将开始的比赛的题目测试数据，每场比赛只通知一次
+     */
+    public void prefetchUpcomingContestTestCase() {
+        Date now = new Date();
+        QueryWrapper<Contest> contestQueryWrapper = new QueryWrapper<>();
+        contestQueryWrapper.select("id", "start_time")
+                .gt("start_time", now)
+                .le("start_time", DateUtil.offsetMinute(now, prefetchLeadMinutes));
+        List<Contest> contestList = contestEntityService.list(contestQueryWrapper);
+        if (CollectionUtils.isEmpty(contestList)) {
+            return;
+        }
+
+        List<Long> cidList = new ArrayList<>();
+        for (Contest contest : contestList) {
+            // 比赛开始时间被修改后允许再次预取
+            String lockKey = Constants.Account.TESTCASE_PREFETCH_LOCK.getCode()
+                    + contest.getId() + ":" + contest.getStartTime().getTime();
+            if (redisUtils.getLock(lockKey, prefetchLeadMinutes * 60 * 2, "1")) {
+                cidList.add(contest.getId());
+            }
+        }
+        if (cidList.isEmpty()) {
+            return;
+        }
+
+        QueryWrapper<ContestProblem> contestProblemQueryWrapper = new QueryWrapper<>();
+        contestProblemQueryWrapper.select("pid").in("cid", cidList);
+        List<Long> pidList = contestProblemEntityService.list(contestProblemQueryWrapper)
+                .stream()
+                .map(ContestProblem::getPid)
+                .distinct()
+                .collect(Collectors.toList());
+        if (pidList.isEmpty()) {
+            return;
+        }
+
+        QueryWrapper<JudgeServer> judgeServerQueryWrapper = new QueryWrapper<>();
+        judgeServerQueryWrapper.select("url").eq("is_remote", false);
+        List<String> urlList = judgeServerEntityService.list(judgeServerQueryWrapper)
+                .stream()
+                .map(JudgeServer::getUrl)
+                .distinct()
+                .collect(Collectors.toList());
+
+        TestCasePrefetchDTO testCasePrefetchDTO = new TestCasePrefetchDTO()
+                .setPidList(pidList)
+                .setToken(judgeToken);
+        for (String url : urlList) {
+            try {
+                restTemplate.postForObject("http://" + url + PREFETCH_PATH, testCasePrefetchDTO, CommonResult.class);
+            } catch (Exception e) {
+                log.error("[Test Case Prefetch] Notify judge server [{}] to prefetch contests:{} error------------>",
+                        url, cidList, e);
+            }
+        }
+        log.info("[Test Case Prefetch] Notify {} judge servers to prefetch the test cases of contests:{}",
+                urlList.size(), cidList);
+    }
+
+    private void validateToken(String token) throws StatusForbiddenException {
+        if (!Objects.equals(token, judgeToken)) {
+            throw new StatusForbiddenException("对不起！您使用的判题服务调用凭证不正确！访问受限！");
+        }
+    }
+
+    private String digest(File file) throws StatusFailException {
+        String key = file.getAbsolutePath();
+        long size = file.length();
+        long lastModified = file.lastModified();
+        FileDigest fileDigest = digestCache.get(key, false);
+        if (fileDigest != null && fileDigest.size == size && fileDigest.lastModified == lastModified) {
+            return fileDigest.sha256;
+        }
+        String sha256;
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
+            sha256 = DigestUtil.sha256Hex(inputStream);
+        } catch (IOException e) {
+            throw new StatusFailException("读取测试数据文件失败：" + file.getName());
+        }
+        digestCache.put(key, new FileDigest(size, lastModified, sha256));
+        return sha256;
+    }
+
+    private static class FileDigest {
+
+        private final long size;
+
+        private final long lastModified;
+
+        private final String sha256;
+
+        private FileDigest(long size, long lastModified, String sha256) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.sha256 = sha256;
+        }
+    }
+}
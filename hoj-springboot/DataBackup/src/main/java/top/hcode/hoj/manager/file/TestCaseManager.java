@@ -1,12 +1,9 @@
 package top.hcode.hoj.manager.file;
 
 import cn.hutool.core.io.FileUtil;
-import cn.hutool.core.io.file.FileReader;
-import cn.hutool.core.io.file.FileWriter;
 import cn.hutool.core.map.MapUtil;
+import cn.hutool.core.util.CharsetUtil;
 import cn.hutool.core.util.IdUtil;
-import cn.hutool.core.util.ZipUtil;
-import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.shiro.SecurityUtils;
@@ -17,20 +14,23 @@ import org.springframework.web.multipart.MultipartFile;
 import top.hcode.hoj.common.exception.StatusFailException;
 import top.hcode.hoj.common.exception.StatusForbiddenException;
 import top.hcode.hoj.common.exception.StatusSystemErrorException;
-import top.hcode.hoj.common.result.ResultStatus;
 import top.hcode.hoj.dao.problem.ProblemCaseEntityService;
 import top.hcode.hoj.dao.problem.ProblemEntityService;
 import top.hcode.hoj.pojo.entity.problem.Problem;
 import top.hcode.hoj.pojo.entity.problem.ProblemCase;
 import top.hcode.hoj.shiro.AccountProfile;
 import top.hcode.hoj.utils.Constants;
+import top.hcode.hoj.utils.TestCaseBlobUtils;
+import top.hcode.hoj.utils.ZipStreamUtils;
 import top.hcode.hoj.validator.GroupValidator;
+import top.hcode.hoj.utils.TestCaseDirUtils;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.*;
-import java.net.URLEncoder;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 /**
  * @Author: Himit_ZH
@@ -50,6 +50,9 @@ public class TestCaseManager {
     @Autowired
     private GroupValidator groupValidator;
 
+    @Autowired
+    private TestCaseBlobUtils testCaseBlobUtils;
+
     public Map<Object, Object> uploadTestcaseZip(MultipartFile file, Long gid, String mode) throws StatusFailException, StatusSystemErrorException, StatusForbiddenException {
         AccountProfile userRolesVo = (AccountProfile) SecurityUtils.getSubject().getPrincipal();
 
@@ -69,24 +72,33 @@ public class TestCaseManager {
         }
         String fileDirId = IdUtil.simpleUUID();
         String fileDir = Constants.File.TESTCASE_TMP_FOLDER.getPath() + File.separator + fileDirId;
-        String filePath = fileDir + File.separator + file.getOriginalFilename();
         // 文件夹不存在就新建
         FileUtil.mkdir(fileDir);
-        try {
-            file.transferTo(new File(filePath));
-        } catch (IOException e) {
+
+        // 直接从上传流中逐个读取压缩包里的文件，统一换行符并计算摘要后写入内容仓库，临时文件夹中只保留硬链接
+        Map<String, TestCaseBlobUtils.TestCaseBlob> testCaseBlobMap = new HashMap<>();
+        try (ZipInputStream zipInputStream = new ZipInputStream(new BufferedInputStream(file.getInputStream()),
+                CharsetUtil.CHARSET_UTF_8)) {
+            ZipEntry zipEntry;
+            while ((zipEntry = zipInputStream.getNextEntry()) != null) {
+                String name = zipEntry.getName();
+                // 只读取压缩包根目录下的测试数据文件
+                if (zipEntry.isDirectory() || name.contains("/") || name.contains("\\")
+                        || name.startsWith(".") || !isTestCaseFileName(name)) {
+                    continue;
+                }
+                TestCaseBlobUtils.TestCaseBlob testCaseBlob = testCaseBlobUtils.ingest(zipInputStream);
+                testCaseBlobUtils.link(testCaseBlob.getSha256(), new File(fileDir, name));
+                testCaseBlobMap.put(name, testCaseBlob);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            FileUtil.del(fileDir);
             log.error("评测数据文件上传异常-------------->{}", e.getMessage());
             throw new StatusSystemErrorException("服务器异常：评测数据上传失败！");
         }
 
-        // 将压缩包压缩到指定文件夹
-        ZipUtil.unzip(filePath, fileDir);
-        // 删除zip文件
-        FileUtil.del(filePath);
         // 检查文件是否存在
-        File testCaseFileList = new File(fileDir);
-        File[] files = testCaseFileList.listFiles();
-        if (files == null || files.length == 0) {
+        if (testCaseBlobMap.isEmpty()) {
             FileUtil.del(fileDir);
             throw new StatusFailException("评测数据压缩包里文件不能为空！");
         }
@@ -95,23 +107,23 @@ public class TestCaseManager {
         HashMap<String, String> outputData = new HashMap<>();
 
         // 遍历读取与检查是否in和out文件一一对应，否则报错
-        for (File tmp : files) {
+        for (String fileName : testCaseBlobMap.keySet()) {
             String tmpPreName = null;
-            if (tmp.getName().endsWith(".in")) {
-                tmpPreName = tmp.getName().substring(0, tmp.getName().lastIndexOf(".in"));
-                inputData.put(tmpPreName, tmp.getName());
-            } else if (tmp.getName().endsWith(".out")) {
-                tmpPreName = tmp.getName().substring(0, tmp.getName().lastIndexOf(".out"));
-                outputData.put(tmpPreName, tmp.getName());
-            } else if (tmp.getName().endsWith(".ans")) {
-                tmpPreName = tmp.getName().substring(0, tmp.getName().lastIndexOf(".ans"));
-                outputData.put(tmpPreName, tmp.getName());
-            } else if (tmp.getName().endsWith(".txt")) {
-                tmpPreName = tmp.getName().substring(0, tmp.getName().lastIndexOf(".txt"));
+            if (fileName.endsWith(".in")) {
+                tmpPreName = fileName.substring(0, fileName.lastIndexOf(".in"));
+                inputData.put(tmpPreName, fileName);
+            } else if (fileName.endsWith(".out")) {
+                tmpPreName = fileName.substring(0, fileName.lastIndexOf(".out"));
+                outputData.put(tmpPreName, fileName);
+            } else if (fileName.endsWith(".ans")) {
+                tmpPreName = fileName.substring(0, fileName.lastIndexOf(".ans"));
+                outputData.put(tmpPreName, fileName);
+            } else if (fileName.endsWith(".txt")) {
+                tmpPreName = fileName.substring(0, fileName.lastIndexOf(".txt"));
                 if (tmpPreName.contains("input")) {
-                    inputData.put(tmpPreName.replaceAll("input", "$*$"), tmp.getName());
+                    inputData.put(tmpPreName.replaceAll("input", "$*$"), fileName);
                 } else if (tmpPreName.contains("output")) {
-                    outputData.put(tmpPreName.replaceAll("output", "$*$"), tmp.getName());
+                    outputData.put(tmpPreName.replaceAll("output", "$*$"), fileName);
                 }
             }
         }
@@ -130,8 +142,15 @@ public class TestCaseManager {
                 if (inputFileName.endsWith(".txt")) {
                     oriOutputFileName = inputFileName.replaceAll("input", "output");
                 }
-                FileWriter fileWriter = new FileWriter(fileDir + File.separator + oriOutputFileName);
-                fileWriter.write("");
+                try {
+                    TestCaseBlobUtils.TestCaseBlob testCaseBlob = testCaseBlobUtils.ingest(new ByteArrayInputStream(new byte[0]));
+                    testCaseBlobUtils.link(testCaseBlob.getSha256(), new File(fileDir, oriOutputFileName));
+                    testCaseBlobMap.put(oriOutputFileName, testCaseBlob);
+                } catch (IOException e) {
+                    FileUtil.del(fileDir);
+                    log.error("评测数据文件上传异常-------------->{}", e.getMessage());
+                    throw new StatusSystemErrorException("服务器异常：评测数据上传失败！");
+                }
             }
 
             testcaseMap.put("output", oriOutputFileName);
@@ -157,26 +176,20 @@ public class TestCaseManager {
                 })
                 .collect(Collectors.toList());
 
+        // 记录各个文件的摘要，保存题目时无需再次读取
+        testCaseBlobUtils.writeDigests(fileDir, testCaseBlobMap);
+
         return MapUtil.builder()
                 .put("fileList", fileList)
                 .put("fileListDir", fileDir)
                 .map();
     }
 
-    /**
-     * 解析正式测试点根目录，优先 Constants 配置，如不存在则回退到用户目录。
-     * 下载读取场景以“存在性”为主，避免强行创建不可写目录。
-     */
-    private String resolveTestcaseBaseDir() {
-        String preferred = Constants.File.TESTCASE_BASE_FOLDER.getPath();
-        String fallback = System.getProperty("user.home") + File.separator + "hoj" + File.separator + "file" + File.separator + "testcase";
-        if (FileUtil.exist(preferred)) return preferred;
-        if (FileUtil.exist(fallback)) return fallback;
-        // 都不存在则返回优先路径，后续流程会按需创建
-        return preferred;
+    private boolean isTestCaseFileName(String fileName) {
+        return fileName.endsWith(".in") || fileName.endsWith(".out")
+                || fileName.endsWith(".ans") || fileName.endsWith(".txt");
     }
 
-
     public void downloadTestcase(Long pid, HttpServletResponse response) throws StatusFailException, StatusForbiddenException {
         AccountProfile userRolesVo = (AccountProfile) SecurityUtils.getSubject().getPrincipal();
 
@@ -198,12 +211,13 @@ public class TestCaseManager {
             }
         }
 
-        String workDir = resolveTestcaseBaseDir() + File.separator + "problem_" + pid;
+        String workDir = TestCaseDirUtils.getBaseDir() + File.separator + "problem_" + pid;
         File file = new File(workDir);
+        List<ProblemCase> problemCaseList = null;
         if (!file.exists()) { // 本地为空 尝试去数据库查找
             QueryWrapper<ProblemCase> problemCaseQueryWrapper = new QueryWrapper<>();
             problemCaseQueryWrapper.eq("pid", pid);
-            List<ProblemCase> problemCaseList = problemCaseEntityService.list(problemCaseQueryWrapper);
+            problemCaseList = problemCaseEntityService.list(problemCaseQueryWrapper);
 
             if (CollectionUtils.isEmpty(problemCaseList)) {
                 throw new StatusFailException("对不起，该题目的评测数据为空！");
@@ -217,68 +231,24 @@ public class TestCaseManager {
             if (!hasTestCase) {
                 throw new StatusFailException("对不起，该题目的评测数据为空！");
             }
-
-            FileUtil.mkdir(workDir);
-            // 写入本地
-            for (int i = 0; i < problemCaseList.size(); i++) {
-                String filePreName = workDir + File.separator + (i + 1);
-                String inputName = filePreName + ".in";
-                String outputName = filePreName + ".out";
-                FileWriter infileWriter = new FileWriter(inputName);
-                infileWriter.write(problemCaseList.get(i).getInput());
-                FileWriter outfileWriter = new FileWriter(outputName);
-                outfileWriter.write(problemCaseList.get(i).getOutput());
-            }
         }
 
         String fileName = "problem_" + pid + "_testcase_" + System.currentTimeMillis() + ".zip";
-        // 将对应文件夹的文件压缩成zip
-        ZipUtil.zip(workDir, Constants.File.FILE_DOWNLOAD_TMP_FOLDER.getPath() + File.separator + fileName);
-        // 将zip变成io流返回给前端
-        FileReader fileReader = new FileReader(Constants.File.FILE_DOWNLOAD_TMP_FOLDER.getPath() + File.separator + fileName);
-        BufferedInputStream bins = new BufferedInputStream(fileReader.getInputStream());//放到缓冲流里面
-        OutputStream outs = null;//获取文件输出IO流
-        BufferedOutputStream bouts = null;
-        try {
-            outs = response.getOutputStream();
-            bouts = new BufferedOutputStream(outs);
-            response.setContentType("application/x-download");
-            response.setHeader("Content-disposition", "attachment;filename=" + URLEncoder.encode(fileName, "UTF-8"));
-            int bytesRead = 0;
-            byte[] buffer = new byte[1024 * 10];
-            //开始向网络传输文件流
-            while ((bytesRead = bins.read(buffer, 0, 1024 * 10)) != -1) {
-                bouts.write(buffer, 0, bytesRead);
+        // 测试数据直接压缩写入响应流
+        try (ZipStreamUtils.ZipResponseOutputStream zipOutputStream = ZipStreamUtils.openZipResponse(response, fileName)) {
+            if (problemCaseList == null) {
+                ZipStreamUtils.putDirectoryFiles(zipOutputStream, "", file);
+            } else {
+                for (int i = 0; i < problemCaseList.size(); i++) {
+                    ZipStreamUtils.putString(zipOutputStream, (i + 1) + ".in", problemCaseList.get(i).getInput());
+                    ZipStreamUtils.putString(zipOutputStream, (i + 1) + ".out", problemCaseList.get(i).getOutput());
+                }
             }
-            bouts.flush();
+            zipOutputStream.complete();
         } catch (IOException e) {
             log.error("下载题目测试数据的压缩文件异常------------>{}", e.getMessage());
-            response.reset();
-            response.setContentType("application/json");
-            response.setCharacterEncoding("utf-8");
-            Map<String, Object> map = new HashMap<>();
-            map.put("status", ResultStatus.SYSTEM_ERROR);
-            map.put("msg", "下载文件失败，请重新尝试！");
-            map.put("data", null);
-            try {
-                response.getWriter().println(JSONUtil.toJsonStr(map));
-            } catch (IOException ioException) {
-                ioException.printStackTrace();
-            }
+            ZipStreamUtils.writeErrorResponse(response, "下载文件失败，请重新尝试！");
         } finally {
-            try {
-                bins.close();
-                if (outs != null) {
-                    outs.close();
-                }
-                if (bouts != null) {
-                    bouts.close();
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            // 清空临时文件
-            FileUtil.del(Constants.File.FILE_DOWNLOAD_TMP_FOLDER.getPath() + File.separator + fileName);
             log.info("[{}],[{}],pid:[{}],operatorUid:[{}],operatorUsername:[{}]",
                     "Test_Case", "Download", pid, userRolesVo.getUid(), userRolesVo.getUsername());
         }
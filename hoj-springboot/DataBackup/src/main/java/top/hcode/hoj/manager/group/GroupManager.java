@@ -221,6 +221,7 @@ public class GroupManager {
                     .setUid(userRolesVo.getUid())
                     .setGid(group.getId())
                     .setAuth(5));
+            groupValidator.invalidate(group.getId());
         }
     }
 
@@ -273,6 +274,7 @@ public class GroupManager {
             throw new StatusFailException("团队简称已存在，请修改后重试！");
         }
         boolean isOk = groupEntityService.updateById(group);
+        groupValidator.invalidate(group.getId());
         if (!isOk) {
             throw new StatusFailException("更新失败，请重新尝试！");
         }
@@ -301,6 +303,7 @@ public class GroupManager {
                 .collect(Collectors.toList());
 
         boolean isOk = groupEntityService.removeById(gid);
+        groupValidator.invalidate(gid);
         if (!isOk) {
             throw new StatusFailException("删除失败，请重新尝试！");
         } else {
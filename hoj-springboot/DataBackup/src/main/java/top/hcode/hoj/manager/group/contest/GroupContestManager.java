@@ -261,6 +261,7 @@ public class GroupContestManager {
                     contestRegisterEntityService.remove(updateWrapper);
                 }
             }
+            contestEntityService.evictCachedContest(contest.getId());
         } else {
             throw new StatusFailException("修改失败");
         }
@@ -295,6 +296,7 @@ public class GroupContestManager {
         }
 
         boolean isOk = contestEntityService.removeById(cid);
+        contestEntityService.evictCachedContest(cid);
         if (!isOk) {
             throw new StatusFailException("删除失败");
         }
@@ -332,6 +334,7 @@ public class GroupContestManager {
         contestUpdateWrapper.eq("id", cid).set("visible", visible);
 
         boolean isOK = contestEntityService.update(contestUpdateWrapper);
+        contestEntityService.evictCachedContest(cid);
         if (!isOK) {
             throw new StatusFailException("修改失败");
         }
@@ -24,6 +24,7 @@ import top.hcode.hoj.utils.Constants;
 import top.hcode.hoj.utils.RedisUtils;
 import top.hcode.hoj.validator.CommonValidator;
 import top.hcode.hoj.validator.GroupValidator;
+import top.hcode.hoj.manager.oj.DiscussionSearchIndexManager;
 
 /**
  * @Author: LengYun
@@ -42,6 +43,9 @@ public class GroupDiscussionManager {
     @Autowired
     private GroupValidator groupValidator;
 
+    @Autowired
+    private DiscussionSearchIndexManager discussionSearchIndexManager;
+
     @Autowired
     private ProblemEntityService problemEntityService;
 
@@ -208,6 +212,7 @@ public class GroupDiscussionManager {
         if (!isOk) {
             throw new StatusFailException("添加失败");
         }
+        discussionSearchIndexManager.markChanged(discussion.getId());
     }
 
     public void updateDiscussion(Discussion discussion) throws StatusForbiddenException, StatusNotFoundException, StatusFailException {
@@ -263,6 +268,7 @@ public class GroupDiscussionManager {
         if (!isOk) {
             throw new StatusFailException("修改失败");
         }
+        discussionSearchIndexManager.markChanged(discussion.getId());
     }
 
     public void deleteDiscussion(Long did) throws StatusForbiddenException, StatusNotFoundException, StatusFailException {
@@ -290,5 +296,6 @@ public class GroupDiscussionManager {
         if (!isOk) {
             throw new StatusFailException("删除失败");
         }
+        discussionSearchIndexManager.markChanged(discussion.getId());
     }
 }
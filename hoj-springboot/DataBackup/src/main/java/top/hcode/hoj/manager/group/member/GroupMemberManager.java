@@ -132,6 +132,7 @@ public class GroupMemberManager {
         }
 
         boolean isOk = groupMemberEntityService.save(newGroupMember);
+        groupValidator.invalidate(gid);
 
         if (!isOk) {
             throw new StatusFailException("申请失败，请重新尝试！");
@@ -194,6 +195,7 @@ public class GroupMemberManager {
         }
 
         boolean isOk = groupMemberEntityService.updateById(groupMemberDto);
+        groupValidator.invalidate(gid);
         if (!isOk) {
             throw new StatusFailException("更新失败，请重新尝试！");
         } else {
@@ -249,6 +251,7 @@ public class GroupMemberManager {
         }
 
         boolean isOk = groupMemberEntityService.remove(changeGroupMemberQueryWrapper);
+        groupValidator.invalidate(gid);
         if (!isOk) {
             throw new StatusFailException("删除失败，请重新尝试！");
         } else {
@@ -283,6 +286,7 @@ public class GroupMemberManager {
         }
 
         boolean isOk = groupMemberEntityService.remove(groupMemberQueryWrapper);
+        groupValidator.invalidate(gid);
         if (!isOk) {
             throw new StatusFailException("退出团队失败，请重新尝试！");
         }
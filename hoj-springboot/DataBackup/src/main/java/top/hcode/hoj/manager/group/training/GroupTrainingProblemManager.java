@@ -15,6 +15,7 @@ import top.hcode.hoj.dao.training.TrainingEntityService;
 import top.hcode.hoj.dao.training.TrainingProblemEntityService;
 import top.hcode.hoj.manager.admin.training.AdminTrainingProblemManager;
 import top.hcode.hoj.manager.admin.training.AdminTrainingRecordManager;
+import top.hcode.hoj.manager.oj.TrainingRankManager;
 import top.hcode.hoj.pojo.dto.TrainingProblemDTO;
 import top.hcode.hoj.pojo.entity.group.Group;
 import top.hcode.hoj.pojo.entity.problem.Problem;
@@ -52,6 +53,9 @@ public class GroupTrainingProblemManager {
     @Autowired
     private AdminTrainingRecordManager adminTrainingRecordManager;
 
+    @Autowired
+    private TrainingRankManager trainingRankManager;
+
     @Autowired
     private GroupValidator groupValidator;
 
@@ -152,6 +156,7 @@ public class GroupTrainingProblemManager {
         if (!isOk) {
             throw new StatusFailException("删除失败！");
         }
+        trainingRankManager.invalidate(tid);
     }
 
     @Transactional(rollbackFor = Exception.class)
@@ -0,0 +1,701 @@
+package top.hcode.hoj.manager.oj;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import top.hcode.hoj.dao.contest.ContestEntityService;
+import top.hcode.hoj.dao.contest.ContestRecordEntityService;
+import top.hcode.hoj.dao.group.GroupMemberEntityService;
+import top.hcode.hoj.dao.user.UserInfoEntityService;
+import top.hcode.hoj.pojo.entity.contest.Contest;
+import top.hcode.hoj.pojo.entity.contest.ContestRecord;
+import top.hcode.hoj.pojo.entity.group.GroupMember;
+import top.hcode.hoj.pojo.vo.ContestRecordVO;
+import top.hcode.hoj.utils.RedisUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/17 22:40
+ * @Description: 比赛增量排行榜的公共部分
+ * 每场比赛在内存中维护一份榜单(Board)，只拉取有改动的contest_record作为增量，按(用户, 题目)格子存放记录，
+ * 每次刷新时比对记录数，发现被删除的记录后同样按格子移除。
+ * 普通榜单、包含赛后提交的榜单、封榜榜单作为三个并行的视图(View)同时维护，格子的计分规则与排序由各赛制实现。
+ * 每个视图的每个版本只生成一次排名结果，发布时只为名次、奖项或题目详情有变化的用户生成新的数据。
+ * 失效通知通过比赛缓存的失效频道广播，所有实例都会丢弃该比赛的榜单。
+ */
+@Slf4j(topic = "hoj")
+public abstract class AbstractContestRankBoardManager<V> implements MessageListener {
+
+    /**
+     * 增量查询时向前回溯的时间，避免事务提交延迟导致遗漏改动
+     */
+    private static final long DELTA_OVERLAP_MILLIS = 5000;
+
+    @Value("${hoj.contest.rank-board.refresh-interval-millis:1000}")
+    private Long refreshIntervalMillis;
+
+    @Value("${hoj.contest.rank-board.rebuild-interval-millis:300000}")
+    private Long rebuildIntervalMillis;
+
+    @Value("${hoj.contest.rank-board.expire-millis:1800000}")
+    private Long expireMillis;
+
+    @Resource
+    private ContestRecordEntityService contestRecordEntityService;
+
+    @Resource
+    private UserInfoEntityService userInfoEntityService;
+
+    @Resource
+    private GroupMemberEntityService groupMemberEntityService;
+
+    @Resource
+    private RedisUtils redisUtils;
+
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private final ConcurrentHashMap<Long, Board> boardMap = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this,
+                new ChannelTopic(ContestEntityService.CONTEST_CACHE_INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 获取当前版本已排好名次的榜单
+     *
+     * @param contest                     比赛信息
+     * @param isOpenSealRank              是否是查询封榜后的数据
+     * @param isContainsAfterContestJudge 是否包含比赛结束后的提交
+     * @param removeStar                  是否移除打星队伍
+     * @param ranker                      对排好序的榜单设置名次与奖项，每个版本只会调用一次
+     */
+    public RankSnapshot<V> getRankSnapshot(Contest contest,
+                                           boolean isOpenSealRank,
+                                           boolean isContainsAfterContestJudge,
+                                           boolean removeStar,
+                                           UnaryOperator<List<V>> ranker) {
+        String signature = getSignature(contest);
+        long now = System.currentTimeMillis();
+        Board board = boardMap.compute(contest.getId(), (cid, oldBoard) -> {
+            if (oldBoard == null
+                    || !oldBoard.signature.equals(signature)
+                    || now - oldBoard.buildTime > rebuildIntervalMillis) {
+                return buildBoard(contest, signature);
+            }
+            return oldBoard;
+        });
+
+        ViewType viewType;
+        if (isOpenSealRank) {
+            viewType = ViewType.SEAL;
+        } else if (isContainsAfterContestJudge) {
+            viewType = ViewType.AFTER;
+        } else {
+            viewType = ViewType.NORMAL;
+        }
+
+        synchronized (board) {
+            board.lastAccessTime = now;
+            if (now - board.lastRefreshTime >= refreshIntervalMillis) {
+                board.refresh();
+            }
+            return board.getView(viewType).publish(removeStar, ranker);
+        }
+    }
+
+    /**
+     * 使该比赛的榜单失效，下次请求时从contest_record全量重建，并通知其他实例
+     */
+    public void invalidate(Long cid) {
+        if (cid == null) {
+            return;
+        }
+        boardMap.remove(cid);
+        try {
+            redisUtils.sendMessage(ContestEntityService.CONTEST_CACHE_INVALIDATE_CHANNEL, cid);
+        } catch (Exception e) {
+            // 通知失败时其他实例的榜单最多在定时重建后修正
+            log.error("[Contest Rank Board] Publish invalidation cid:[{}] error------------>", cid, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object cid = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (cid != null) {
+                boardMap.remove(Long.valueOf(cid.toString()));
+            }
+        } catch (Exception e) {
+            log.error("[Contest Rank Board] Handle the message error------------>", e);
+        }
+    }
+
+    /**
+     * 清理长时间无人访问的比赛榜单
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void cleanExpiredBoard() {
+        long now = System.currentTimeMillis();
+        boardMap.entrySet().removeIf(entry -> now - entry.getValue().lastAccessTime > expireMillis);
+    }
+
+    /**
+     * 比赛中影响榜单的配置，有变化时重建榜单
+     */
+    protected String getSignature(Contest contest) {
+        return contest.getStartTime() + "|" + contest.getEndTime() + "|" + contest.getSealRankTime()
+                + "|" + contest.getDuration() + "|" + contest.getGid() + "|" + contest.getUid()
+                + "|" + contest.getStarAccount() + "|" + contest.getAwardType() + "|" + contest.getAwardConfig()
+                + "|" + contest.getGmtModified();
+    }
+
+    /**
+     * 将contest_record转换为入榜的记录，不入榜(如比赛开始前的提交、未评测完的记录)返回null
+     */
+    protected abstract Record toRecord(Board board, ContestRecordVO contestRecord, int userIndex);
+
+    protected abstract View<?> createView(Board board, ViewType viewType);
+
+    /**
+     * 复制基础数据，题目详情共享，不包括名次与奖项
+     */
+    protected abstract V copyRankVo(V rankVo);
+
+    /**
+     * 将source的名次与奖项设置到target，source为null时清空target的名次与奖项
+     */
+    protected abstract void copyRankAndAward(V source, V target);
+
+    protected abstract boolean isSameRankAndAward(V a, V b);
+
+    protected abstract String getUid(V rankVo);
+
+    private Board buildBoard(Contest contest, String signature) {
+        Board board = new Board(contest, signature);
+        board.superAdminUidSet = getSuperAdminUidSet(contest.getGid());
+        // 读取全部记录（包括未评测完的），以便与记录数比对
+        board.apply(contestRecordEntityService.getContestRecordDelta(contest.getUid(), contest.getId(), null));
+        board.lastRefreshTime = System.currentTimeMillis();
+        return board;
+    }
+
+    /**
+     * 超级管理员与团队比赛的团队超级管理员，其提交不入排行榜。
+     * 与ContestCalculateRankManager中的逻辑一致，但不能依赖该类，否则两者会循环注入
+     */
+    private Set<String> getSuperAdminUidSet(Long gid) {
+        Set<String> superAdminUidSet = new HashSet<>(userInfoEntityService.getSuperAdminUidList());
+        if (gid != null) {
+            QueryWrapper<GroupMember> groupMemberQueryWrapper = new QueryWrapper<>();
+            groupMemberQueryWrapper.eq("gid", gid).eq("auth", 5);
+            for (GroupMember groupMember : groupMemberEntityService.list(groupMemberQueryWrapper)) {
+                superAdminUidSet.add(groupMember.getUid());
+            }
+        }
+        return superAdminUidSet;
+    }
+
+    protected enum ViewType {
+        /**
+         * 不包含赛后提交
+         */
+        NORMAL,
+        /**
+         * 包含赛后提交
+         */
+        AFTER,
+        /**
+         * 封榜，不包含赛后提交
+         */
+        SEAL
+    }
+
+    /**
+     * 某个版本排好名次的榜单，列表与其中的数据均为只读
+     */
+    public static class RankSnapshot<V> {
+
+        private final long version;
+
+        private final List<V> rankList;
+
+        private final List<String> uidList;
+
+        private final Map<String, Integer> uidIndexMap;
+
+        private RankSnapshot(long version, List<V> rankList, RankSnapshot<V> lastSnapshot, Function<V, String> uidGetter) {
+            this.version = version;
+            this.rankList = Collections.unmodifiableList(rankList);
+            this.uidList = new ArrayList<>(rankList.size());
+            for (V rankVo : rankList) {
+                uidList.add(uidGetter.apply(rankVo));
+            }
+            if (lastSnapshot != null && lastSnapshot.uidList.equals(uidList)) {
+                // 用户顺序未变，沿用上一版本的下标索引
+                this.uidIndexMap = lastSnapshot.uidIndexMap;
+                return;
+            }
+            this.uidIndexMap = new HashMap<>(uidList.size() * 2);
+            for (int i = 0; i < uidList.size(); i++) {
+                uidIndexMap.put(uidList.get(i), i);
+            }
+        }
+
+        public List<V> getRankList() {
+            return rankList;
+        }
+
+        /**
+         * @return 该用户在榜单中的下标，不在榜单中返回-1
+         */
+        public int indexOf(String uid) {
+            Integer index = uidIndexMap.get(uid);
+            return index == null ? -1 : index;
+        }
+    }
+
+    protected static class Record {
+
+        protected final long id;
+
+        protected final int userIndex;
+
+        protected final int problemIndex;
+
+        protected final long time;
+
+        protected final long submitTime;
+
+        protected final int status;
+
+        protected Record(long id, int userIndex, int problemIndex, long time, long submitTime, int status) {
+            this.id = id;
+            this.userIndex = userIndex;
+            this.problemIndex = problemIndex;
+            this.time = time;
+            this.submitTime = submitTime;
+            this.status = status;
+        }
+
+        protected boolean isSame(Record other) {
+            return other != null && userIndex == other.userIndex && problemIndex == other.problemIndex
+                    && time == other.time && submitTime == other.submitTime && status == other.status;
+        }
+    }
+
+    protected static class UserRow {
+
+        protected final String uid;
+
+        protected String username;
+
+        protected String realname;
+
+        protected String nickname;
+
+        protected String school;
+
+        protected String gender;
+
+        protected String avatar;
+
+        UserRow(String uid) {
+            this.uid = uid;
+        }
+
+        /**
+         * @return 用户信息是否有变化
+         */
+        boolean update(ContestRecordVO contestRecord) {
+            boolean changed = !Objects.equals(username, contestRecord.getUsername())
+                    || !Objects.equals(realname, contestRecord.getRealname())
+                    || !Objects.equals(nickname, contestRecord.getNickname())
+                    || !Objects.equals(school, contestRecord.getSchool())
+                    || !Objects.equals(gender, contestRecord.getGender())
+                    || !Objects.equals(avatar, contestRecord.getAvatar());
+            if (changed) {
+                username = contestRecord.getUsername();
+                realname = contestRecord.getRealname();
+                nickname = contestRecord.getNickname();
+                school = contestRecord.getSchool();
+                gender = contestRecord.getGender();
+                avatar = contestRecord.getAvatar();
+            }
+            return changed;
+        }
+    }
+
+    protected class Board {
+
+        protected final Contest contest;
+
+        protected final Long cid;
+
+        private final String signature;
+
+        private final String contestCreatorUid;
+
+        protected final long startTime;
+
+        protected final long endTime;
+
+        private final long buildTime = System.currentTimeMillis();
+
+        private volatile long lastAccessTime = buildTime;
+
+        private long lastRefreshTime;
+
+        /**
+         * 已读取到的记录的最大修改时间
+         */
+        private Date watermark;
+
+        private Set<String> superAdminUidSet;
+
+        /**
+         * 已读取到的全部记录id，包括未入榜的记录，用于与数据库中的记录数比对发现被删除的记录
+         */
+        private final Set<Long> rowIdSet = new HashSet<>();
+
+        private final Map<Long, Record> recordMap = new HashMap<>();
+
+        private final Map<String, Integer> uidIndexMap = new HashMap<>();
+
+        protected final List<UserRow> userList = new ArrayList<>();
+
+        private final Map<String, Integer> problemIndexMap = new HashMap<>();
+
+        protected final List<String> displayIdList = new ArrayList<>();
+
+        /**
+         * (用户下标, 题目下标) -> 按time升序的记录
+         */
+        private final Map<Long, List<Record>> cellMap = new HashMap<>();
+
+        private final EnumMap<ViewType, View<?>> viewMap = new EnumMap<>(ViewType.class);
+
+        Board(Contest contest, String signature) {
+            this.contest = contest;
+            this.cid = contest.getId();
+            this.signature = signature;
+            this.contestCreatorUid = contest.getUid();
+            this.startTime = contest.getStartTime().getTime();
+            this.endTime = contest.getEndTime().getTime();
+        }
+
+        void refresh() {
+            Date since = watermark == null ? null : new Date(watermark.getTime() - DELTA_OVERLAP_MILLIS);
+            try {
+                apply(contestRecordEntityService.getContestRecordDelta(contestCreatorUid, cid, since));
+                removeDeletedRecord();
+            } catch (Exception e) {
+                log.error("[Contest Rank Board] Refresh the rank board of contest [{}] error------------>", cid, e);
+            }
+            lastRefreshTime = System.currentTimeMillis();
+        }
+
+        /**
+         * 增量查询无法感知被删除的记录（如移除比赛题目、删除用户时级联删除），
+         * 记录数少于已读取的记录数时，查询现存的记录id，移除已不存在的记录
+         */
+        private void removeDeletedRecord() {
+            QueryWrapper<ContestRecord> contestRecordQueryWrapper = new QueryWrapper<>();
+            contestRecordQueryWrapper.eq("cid", cid).ne("uid", contestCreatorUid);
+            if (contestRecordEntityService.count(contestRecordQueryWrapper) >= rowIdSet.size()) {
+                return;
+            }
+            contestRecordQueryWrapper.select("id");
+            Set<Long> existIdSet = new HashSet<>();
+            for (Object id : contestRecordEntityService.listObjs(contestRecordQueryWrapper)) {
+                existIdSet.add(((Number) id).longValue());
+            }
+            Set<Long> touchedCellSet = new HashSet<>();
+            Iterator<Long> iterator = rowIdSet.iterator();
+            while (iterator.hasNext()) {
+                Long id = iterator.next();
+                if (existIdSet.contains(id)) {
+                    continue;
+                }
+                iterator.remove();
+                Record oldRecord = recordMap.remove(id);
+                if (oldRecord != null) {
+                    long cellKey = getCellKey(oldRecord.userIndex, oldRecord.problemIndex);
+                    cellMap.get(cellKey).remove(oldRecord);
+                    touchedCellSet.add(cellKey);
+                }
+            }
+            updateViews(touchedCellSet, Collections.emptySet());
+        }
+
+        View<?> getView(ViewType viewType) {
+            View<?> view = viewMap.get(viewType);
+            if (view == null) {
+                view = createView(this, viewType);
+                for (Map.Entry<Long, List<Record>> entry : cellMap.entrySet()) {
+                    long key = entry.getKey();
+                    view.recomputeCell((int) (key >>> 32), (int) key, entry.getValue());
+                }
+                viewMap.put(viewType, view);
+            }
+            return view;
+        }
+
+        void apply(List<ContestRecordVO> contestRecordList) {
+            Set<Long> touchedCellSet = new HashSet<>();
+            Set<Integer> touchedUserSet = new HashSet<>();
+            for (ContestRecordVO contestRecord : contestRecordList) {
+                if (contestRecord.getGmtModified() != null
+                        && (watermark == null || contestRecord.getGmtModified().after(watermark))) {
+                    watermark = contestRecord.getGmtModified();
+                }
+                rowIdSet.add(contestRecord.getId());
+                if (superAdminUidSet.contains(contestRecord.getUid())) { // 超级管理员的提交不入排行榜
+                    continue;
+                }
+
+                int userIndex = getUserIndex(contestRecord, touchedUserSet);
+                Record oldRecord = recordMap.get(contestRecord.getId());
+                Record record = toRecord(this, contestRecord, userIndex);
+                if (record == null ? oldRecord == null : record.isSame(oldRecord)) {
+                    continue;
+                }
+                if (oldRecord != null) {
+                    long cellKey = getCellKey(oldRecord.userIndex, oldRecord.problemIndex);
+                    cellMap.get(cellKey).remove(oldRecord);
+                    recordMap.remove(oldRecord.id);
+                    touchedCellSet.add(cellKey);
+                }
+                if (record != null) {
+                    long cellKey = getCellKey(record.userIndex, record.problemIndex);
+                    insertRecord(cellMap.computeIfAbsent(cellKey, k -> new ArrayList<>()), record);
+                    recordMap.put(record.id, record);
+                    touchedCellSet.add(cellKey);
+                }
+            }
+            updateViews(touchedCellSet, touchedUserSet);
+        }
+
+        private void updateViews(Set<Long> touchedCellSet, Set<Integer> touchedUserSet) {
+            for (View<?> view : viewMap.values()) {
+                for (Long cellKey : touchedCellSet) {
+                    view.recomputeCell((int) (cellKey >>> 32), (int) (long) cellKey, cellMap.get(cellKey));
+                }
+                for (Integer userIndex : touchedUserSet) {
+                    view.markUserChanged(userIndex);
+                }
+            }
+            for (Long cellKey : touchedCellSet) {
+                List<Record> recordList = cellMap.get(cellKey);
+                if (recordList != null && recordList.isEmpty()) {
+                    cellMap.remove(cellKey);
+                }
+            }
+        }
+
+        private int getUserIndex(ContestRecordVO contestRecord, Set<Integer> touchedUserSet) {
+            Integer userIndex = uidIndexMap.get(contestRecord.getUid());
+            if (userIndex == null) {
+                userIndex = userList.size();
+                userList.add(new UserRow(contestRecord.getUid()));
+                uidIndexMap.put(contestRecord.getUid(), userIndex);
+            }
+            if (userList.get(userIndex).update(contestRecord)) {
+                touchedUserSet.add(userIndex);
+            }
+            return userIndex;
+        }
+
+        protected int getProblemIndex(String displayId) {
+            Integer problemIndex = problemIndexMap.get(displayId);
+            if (problemIndex == null) {
+                problemIndex = displayIdList.size();
+                displayIdList.add(displayId);
+                problemIndexMap.put(displayId, problemIndex);
+            }
+            return problemIndex;
+        }
+
+        private void insertRecord(List<Record> recordList, Record record) {
+            int index = recordList.size();
+            while (index > 0) {
+                Record prev = recordList.get(index - 1);
+                if (prev.time < record.time || (prev.time == record.time && prev.id < record.id)) {
+                    break;
+                }
+                index--;
+            }
+            recordList.add(index, record);
+        }
+
+        private long getCellKey(int userIndex, int problemIndex) {
+            return ((long) userIndex << 32) | (problemIndex & 0xFFFFFFFFL);
+        }
+    }
+
+    /**
+     * 某个榜单(是否移除打星队伍)下用户的发布数据
+     */
+    private static class PublishSlot<V> {
+
+        /**
+         * 交给ranker设置名次与奖项的草稿，跨版本复用
+         */
+        private V draft;
+
+        private V draftSource;
+
+        /**
+         * 已发布的只读数据，没有变化时新版本继续沿用
+         */
+        private V published;
+
+        private V publishedSource;
+    }
+
+    /**
+     * 视图中的用户数据，各赛制在子类中存储每个格子的计算结果
+     */
+    protected static class ViewUser<V> {
+
+        protected final UserRow row;
+
+        private V rankVo;
+
+        private boolean changed = true;
+
+        private final PublishSlot<V> slot = new PublishSlot<>();
+
+        private final PublishSlot<V> removeStarSlot = new PublishSlot<>();
+
+        protected ViewUser(UserRow row) {
+            this.row = row;
+        }
+
+        protected void markChanged() {
+            changed = true;
+        }
+
+        private PublishSlot<V> getSlot(boolean removeStar) {
+            return removeStar ? removeStarSlot : slot;
+        }
+    }
+
+    protected abstract class View<U extends ViewUser<V>> {
+
+        protected final Board board;
+
+        protected final ViewType type;
+
+        protected final List<U> userList = new ArrayList<>();
+
+        protected final TreeSet<U> order;
+
+        protected long version = 0;
+
+        /**
+         * 为true时下次发布重新生成所有用户的数据，如ACM的first AC变化
+         */
+        protected boolean allChanged = false;
+
+        private final Map<Boolean, RankSnapshot<V>> publishedMap = new HashMap<>();
+
+        protected View(Board board, ViewType type, Comparator<U> comparator) {
+            this.board = board;
+            this.type = type;
+            this.order = new TreeSet<>(comparator);
+        }
+
+        protected abstract U newViewUser(UserRow row);
+
+        /**
+         * 重新计算某个格子，格子的结果有变化时更新用户的汇总数据与有序索引，并增加版本号
+         */
+        protected abstract void recomputeCell(int userIndex, int problemIndex, List<Record> recordList);
+
+        protected abstract V buildRankVo(U viewUser);
+
+        protected U getViewUser(int userIndex) {
+            while (userList.size() <= userIndex) {
+                userList.add(null);
+            }
+            U viewUser = userList.get(userIndex);
+            if (viewUser == null) {
+                viewUser = newViewUser(board.userList.get(userIndex));
+                userList.set(userIndex, viewUser);
+            }
+            return viewUser;
+        }
+
+        void markUserChanged(int userIndex) {
+            if (userIndex < userList.size() && userList.get(userIndex) != null) {
+                userList.get(userIndex).markChanged();
+                version++;
+            }
+        }
+
+        RankSnapshot<V> publish(boolean removeStar, UnaryOperator<List<V>> ranker) {
+            RankSnapshot<V> snapshot = publishedMap.get(removeStar);
+            if (snapshot != null && snapshot.version == version) {
+                return snapshot;
+            }
+            List<V> orderResultList = new ArrayList<>(order.size());
+            for (U viewUser : order) {
+                ViewUser<V> user = viewUser;
+                if (allChanged || user.changed || user.rankVo == null) {
+                    user.rankVo = buildRankVo(viewUser);
+                    user.changed = false;
+                }
+                PublishSlot<V> slot = user.getSlot(removeStar);
+                if (slot.draftSource != user.rankVo) {
+                    slot.draft = copyRankVo(user.rankVo);
+                    slot.draftSource = user.rankVo;
+                } else {
+                    copyRankAndAward(null, slot.draft);
+                }
+                orderResultList.add(slot.draft);
+            }
+            allChanged = false;
+
+            List<V> rankedList = ranker.apply(orderResultList);
+            List<V> publishedList = new ArrayList<>(rankedList.size());
+            for (V draft : rankedList) {
+                ViewUser<V> user = userList.get(board.uidIndexMap.get(getUid(draft)));
+                PublishSlot<V> slot = user.getSlot(removeStar);
+                if (slot.published == null
+                        || slot.publishedSource != slot.draftSource
+                        || !isSameRankAndAward(slot.published, draft)) {
+                    // 只为有变化的用户生成新的只读数据，已发布的对象不会再被修改
+                    V published = copyRankVo(draft);
+                    copyRankAndAward(draft, published);
+                    slot.published = published;
+                    slot.publishedSource = slot.draftSource;
+                }
+                publishedList.add(slot.published);
+            }
+            snapshot = new RankSnapshot<>(version, publishedList, snapshot,
+                    AbstractContestRankBoardManager.this::getUid);
+            publishedMap.put(removeStar, snapshot);
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package top.hcode.hoj.manager.oj;
+
+import lombok.extern.slf4j.Slf4j;
+import top.hcode.hoj.utils.NGramIndex;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/18 15:30
+ * @Description: 基于n-gram倒排索引的站内搜索的公共部分
+ * 首次查询(或启动时)全量建立索引，之后按gmt_modified增量拉取改动的数据，
+ * 后台增删改时通过markChanged指定下次刷新必须重新加载的id，总数不一致(数据被删除)时全量重建。
+ * 查询只读内存，不访问数据库。
+ */
+@Slf4j(topic = "hoj")
+public abstract class AbstractSearchIndexManager<K, E> {
+
+    /**
+     * 增量查询时向前回溯的时间，避免事务提交延迟导致遗漏改动
+     */
+    private static final long DELTA_OVERLAP_MILLIS = 5000;
+
+    private static final long REFRESH_INTERVAL_MILLIS = 5000;
+
+    private static final long REBUILD_INTERVAL_MILLIS = 30 * 60 * 1000;
+
+    private volatile NGramIndex<K> index = new NGramIndex<>();
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private final Set<K> changedIdSet = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean isBuilt;
+
+    private volatile long lastRefreshTime;
+
+    private long lastRebuildTime;
+
+    private Date watermark;
+
+    /**
+     * 全部需要建立索引的数据(只需查询建立索引用到的列)
+     */
+    protected abstract List<E> listAll();
+
+    /**
+     * gmt_modified不早于since或id在changedIdList中的数据
+     */
+    protected abstract List<E> listChanged(Date since, List<K> changedIdList);
+
+    protected abstract long countAll();
+
+    protected abstract K getId(E entity);
+
+    protected abstract String[] getFields(E entity);
+
+    /**
+     * 数据加入索引时的回调，子类可记录额外的筛选信息
+     */
+    protected void onPut(E entity) {
+    }
+
+    protected void onRemove(K id) {
+    }
+
+    /**
+     * 启动时预先建立索引
+     */
+    public void init() {
+        ensureFresh();
+    }
+
+    public void markChanged(K id) {
+        if (id != null) {
+            changedIdSet.add(id);
+            lastRefreshTime = 0;
+        }
+    }
+
+    /**
+     * @return 任一索引字段包含该关键词(大小写不敏感)的数据id
+     */
+    public Set<K> search(String keyword) {
+        ensureFresh();
+        return index.search(keyword);
+    }
+
+    private void ensureFresh() {
+        if (!isBuilt) {
+            refreshLock.lock();
+            try {
+                if (!isBuilt) {
+                    rebuild();
+                }
+            } finally {
+                refreshLock.unlock();
+            }
+        } else if (System.currentTimeMillis() - lastRefreshTime > REFRESH_INTERVAL_MILLIS && refreshLock.tryLock()) {
+            // 其他请求正在刷新时直接使用当前的索引
+            try {
+                if (System.currentTimeMillis() - lastRefreshTime > REFRESH_INTERVAL_MILLIS) {
+                    refresh();
+                }
+            } catch (Exception e) {
+                log.error("[{}] Refresh error------------>", getClass().getSimpleName(), e);
+            } finally {
+                refreshLock.unlock();
+            }
+        }
+    }
+
+    private void refresh() {
+        if (System.currentTimeMillis() - lastRebuildTime > REBUILD_INTERVAL_MILLIS) {
+            rebuild();
+            return;
+        }
+        Date now = new Date();
+        List<K> changedIdList = new ArrayList<>(changedIdSet);
+        changedIdSet.removeAll(changedIdList);
+        List<E> entityList = listChanged(new Date(watermark.getTime() - DELTA_OVERLAP_MILLIS), changedIdList);
+        Set<K> existedIdSet = new HashSet<>();
+        for (E entity : entityList) {
+            index.put(getId(entity), getFields(entity));
+            onPut(entity);
+            existedIdSet.add(getId(entity));
+        }
+        for (K id : changedIdList) {
+            if (!existedIdSet.contains(id)) {
+                index.remove(id);
+                onRemove(id);
+            }
+        }
+        // gmt_modified无法感知数据的删除，数量对不上时全量重建
+        if (countAll() != index.size()) {
+            rebuild();
+            return;
+        }
+        watermark = now;
+        lastRefreshTime = System.currentTimeMillis();
+    }
+
+    private void rebuild() {
+        Date now = new Date();
+        changedIdSet.clear();
+        List<E> entityList = listAll();
+        // 建好新索引后再替换，重建期间的查询仍使用旧索引
+        NGramIndex<K> newIndex = new NGramIndex<>();
+        for (E entity : entityList) {
+            newIndex.put(getId(entity), getFields(entity));
+            onPut(entity);
+        }
+        NGramIndex<K> oldIndex = index;
+        index = newIndex;
+        for (K id : oldIndex.keySet()) {
+            if (!newIndex.contains(id)) {
+                onRemove(id);
+            }
+        }
+        watermark = now;
+        isBuilt = true;
+        lastRebuildTime = lastRefreshTime = System.currentTimeMillis();
+    }
+}
@@ -10,7 +10,6 @@ import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import org.apache.shiro.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 import top.hcode.hoj.common.exception.StatusFailException;
 import top.hcode.hoj.common.exception.StatusSystemErrorException;
@@ -20,7 +19,6 @@ import top.hcode.hoj.manager.email.EmailManager;
 import top.hcode.hoj.pojo.dto.ChangeEmailDTO;
 import top.hcode.hoj.pojo.dto.ChangePasswordDTO;
 import top.hcode.hoj.pojo.dto.CheckUsernameOrEmailDTO;
-import top.hcode.hoj.pojo.entity.judge.Judge;
 import top.hcode.hoj.pojo.entity.problem.Problem;
 import top.hcode.hoj.pojo.entity.user.Role;
 import top.hcode.hoj.pojo.entity.user.Session;
@@ -28,6 +26,7 @@ import top.hcode.hoj.pojo.entity.user.UserAcproblem;
 import top.hcode.hoj.pojo.entity.user.UserInfo;
 import top.hcode.hoj.pojo.vo.*;
 import top.hcode.hoj.shiro.AccountProfile;
+import top.hcode.hoj.shiro.ShiroLocalCache;
 import top.hcode.hoj.utils.Constants;
 import top.hcode.hoj.utils.RedisUtils;
 import top.hcode.hoj.validator.CommonValidator;
@@ -71,6 +70,15 @@ public class AccountManager {
     @Autowired
     private EmailManager emailManager;
 
+    @Autowired
+    private UserSearchIndexManager userSearchIndexManager;
+
+    @Autowired
+    private ShiroLocalCache shiroLocalCache;
+
+    @Autowired
+    private UserSubmitHeatmapManager userSubmitHeatmapManager;
+
     /**
      * @MethodName checkUsernameOrEmail
      * @Params * @param null
@@ -203,25 +211,17 @@ public class AccountManager {
         }
         UserCalendarHeatmapVO userCalendarHeatmapVo = new UserCalendarHeatmapVO();
         userCalendarHeatmapVo.setEndDate(DateUtil.format(new Date(), "yyyy-MM-dd"));
-        List<Judge> lastYearUserJudgeList = userRecordEntityService.getLastYearUserJudgeList(uid, username);
-        if (CollectionUtils.isEmpty(lastYearUserJudgeList)) {
-            userCalendarHeatmapVo.setDataList(new ArrayList<>());
-            return userCalendarHeatmapVo;
-        }
-        HashMap<String, Integer> tmpRecordMap = new HashMap<>();
-        for (Judge judge : lastYearUserJudgeList) {
-            Date submitTime = judge.getSubmitTime();
-            String dateStr = DateUtil.format(submitTime, "yyyy-MM-dd");
-            tmpRecordMap.merge(dateStr, 1, Integer::sum);
-        }
-        List<HashMap<String, Object>> dataList = new ArrayList<>();
-        for (Map.Entry<String, Integer> record : tmpRecordMap.entrySet()) {
-            HashMap<String, Object> tmp = new HashMap<>(2);
-            tmp.put("date", record.getKey());
-            tmp.put("count", record.getValue());
-            dataList.add(tmp);
+        if (StringUtils.isEmpty(uid)) {
+            QueryWrapper<UserInfo> userInfoQueryWrapper = new QueryWrapper<>();
+            userInfoQueryWrapper.select("uuid").eq("username", username);
+            UserInfo userInfo = userInfoEntityService.getOne(userInfoQueryWrapper, false);
+            if (userInfo == null) {
+                userCalendarHeatmapVo.setDataList(new ArrayList<>());
+                return userCalendarHeatmapVo;
+            }
+            uid = userInfo.getUuid();
         }
-        userCalendarHeatmapVo.setDataList(dataList);
+        userCalendarHeatmapVo.setDataList(userSubmitHeatmapManager.getLastYearSubmitCount(uid));
         return userCalendarHeatmapVo;
     }
 
@@ -494,6 +494,8 @@ public class AccountManager {
         boolean isOk = userInfoEntityService.update(updateWrapper);
 
         if (isOk) {
+            userSearchIndexManager.markChanged(userRolesVo.getUid());
+            shiroLocalCache.invalidate(userRolesVo.getUid());
             UserRolesVO userRoles = userRoleEntityService.getUserRoles(userRolesVo.getUid(), null);
             // 更新session
             BeanUtil.copyProperties(userRoles, userRolesVo);
@@ -77,9 +77,15 @@ public class BeforeDispatchInitManager {
     @Resource
     private TrainingManager trainingManager;
 
+    @Resource
+    private TrainingRankManager trainingRankManager;
+
     @Autowired
     private GroupValidator groupValidator;
 
+    @Resource
+    private UserSubmitHeatmapManager userSubmitHeatmapManager;
+
     public void initCommonSubmission(String problemId, Long gid, Judge judge) throws StatusForbiddenException {
         AccountProfile userRolesVo = (AccountProfile) SecurityUtils.getSubject().getPrincipal();
 
@@ -114,6 +120,7 @@ public class BeforeDispatchInitManager {
 
         // 将新提交数据插入数据库
         judgeEntityService.save(judge);
+        userSubmitHeatmapManager.recordSubmission(judge.getUid(), judge.getSubmitTime());
 
         trainingManager.checkAndSyncTrainingRecord(problem.getId(), judge.getSubmitId(), judge.getUid());
     }
@@ -121,7 +128,7 @@ public class BeforeDispatchInitManager {
 
     @Transactional(rollbackFor = Exception.class)
     public void initContestSubmission(Long cid, String displayId, AccountProfile userRolesVo, Judge judge) throws StatusNotFoundException, StatusForbiddenException {
-        Contest contest = contestEntityService.getById(cid);
+        Contest contest = contestEntityService.getCachedContest(cid);
         if (contest == null) {
             throw new StatusNotFoundException("对不起，该比赛不存在！");
         }
@@ -233,6 +240,7 @@ public class BeforeDispatchInitManager {
 
         // 将新提交数据插入数据库
         judgeEntityService.save(judge);
+        userSubmitHeatmapManager.recordSubmission(judge.getUid(), judge.getSubmitTime());
 
         // 非私有训练不记录
         if (!training.getAuth().equals(Constants.Training.AUTH_PRIVATE.getValue())) {
@@ -246,6 +254,7 @@ public class BeforeDispatchInitManager {
                 .setSubmitId(judge.getSubmitId())
                 .setUid(userRolesVo.getUid());
         trainingRecordEntityService.save(trainingRecord);
+        trainingRankManager.markChanged(tid);
     }
 
 
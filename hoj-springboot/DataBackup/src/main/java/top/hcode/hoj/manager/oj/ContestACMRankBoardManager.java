@@ -0,0 +1,340 @@
+package top.hcode.hoj.manager.oj;
+
+import cn.hutool.core.date.DateUnit;
+import cn.hutool.core.date.DateUtil;
+import org.springframework.stereotype.Component;
+import top.hcode.hoj.pojo.entity.contest.Contest;
+import top.hcode.hoj.pojo.vo.ACMContestRankVO;
+import top.hcode.hoj.pojo.vo.ContestRecordVO;
+import top.hcode.hoj.utils.Constants;
+
+import java.util.*;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/17 20:10
+ * @Description: ACM比赛的增量排行榜
+ * 按格子重新计算AC时间、错误次数与封榜时段内的尝试次数，
+ * 并维护按(ac数降序, 总罚时升序)排列的有序索引，无需每次请求都全量查询与排序。
+ * 增量、视图与发布的公共逻辑见AbstractContestRankBoardManager。
+ */
+@Component
+public class ContestACMRankBoardManager extends AbstractContestRankBoardManager<ACMContestRankVO> {
+
+    private static final long PENALTY_SECONDS = 20 * 60;
+
+    @Override
+    protected Record toRecord(Board board, ContestRecordVO contestRecord, int userIndex) {
+        // 比赛开始前的提交记录与未评测完的记录不入排行榜
+        if (contestRecord.getStatus() == null
+                || contestRecord.getSubmitTime() == null
+                || contestRecord.getSubmitTime().getTime() < board.startTime) {
+            return null;
+        }
+        return new Record(contestRecord.getId(),
+                userIndex,
+                board.getProblemIndex(contestRecord.getDisplayId()),
+                contestRecord.getTime() == null ? 0 : contestRecord.getTime(),
+                contestRecord.getSubmitTime().getTime(),
+                contestRecord.getStatus());
+    }
+
+    @Override
+    protected View<?> createView(Board board, ViewType viewType) {
+        return new ACMView(board, viewType);
+    }
+
+    @Override
+    protected ACMContestRankVO copyRankVo(ACMContestRankVO rankVo) {
+        ACMContestRankVO copy = new ACMContestRankVO();
+        copy.setRealname(rankVo.getRealname())
+                .setAvatar(rankVo.getAvatar())
+                .setSchool(rankVo.getSchool())
+                .setGender(rankVo.getGender())
+                .setUid(rankVo.getUid())
+                .setUsername(rankVo.getUsername())
+                .setNickname(rankVo.getNickname())
+                .setAc(rankVo.getAc())
+                .setTotalTime(rankVo.getTotalTime())
+                .setTotal(rankVo.getTotal())
+                .setSubmissionInfo(rankVo.getSubmissionInfo());
+        return copy;
+    }
+
+    @Override
+    protected void copyRankAndAward(ACMContestRankVO source, ACMContestRankVO target) {
+        if (source == null) {
+            target.setRank(null)
+                    .setIsWinAward(null)
+                    .setAwardName(null)
+                    .setAwardBackground(null)
+                    .setAwardColor(null);
+        } else {
+            target.setRank(source.getRank())
+                    .setIsWinAward(source.getIsWinAward())
+                    .setAwardName(source.getAwardName())
+                    .setAwardBackground(source.getAwardBackground())
+                    .setAwardColor(source.getAwardColor());
+        }
+    }
+
+    @Override
+    protected boolean isSameRankAndAward(ACMContestRankVO a, ACMContestRankVO b) {
+        return Objects.equals(a.getRank(), b.getRank())
+                && Objects.equals(a.getIsWinAward(), b.getIsWinAward())
+                && Objects.equals(a.getAwardName(), b.getAwardName())
+                && Objects.equals(a.getAwardBackground(), b.getAwardBackground())
+                && Objects.equals(a.getAwardColor(), b.getAwardColor());
+    }
+
+    @Override
+    protected String getUid(ACMContestRankVO rankVo) {
+        return rankVo.getUid();
+    }
+
+    private static final Comparator<ACMViewUser> VIEW_USER_COMPARATOR = (a, b) -> {
+        if (a.ac != b.ac) {
+            return Integer.compare(b.ac, a.ac); // 先以总ac数降序
+        }
+        if (a.totalTime != b.totalTime) {
+            return Long.compare(a.totalTime, b.totalTime); // 再以总耗时升序
+        }
+        // 相同则按首次出现在榜单的先后
+        if (a.firstTime != b.firstTime) {
+            return Long.compare(a.firstTime, b.firstTime);
+        }
+        if (a.firstId != b.firstId) {
+            return Long.compare(a.firstId, b.firstId);
+        }
+        return a.row.uid.compareTo(b.row.uid);
+    };
+
+    /**
+     * 视图中的用户数据，按题目下标存储每个格子的计算结果
+     */
+    private static class ACMViewUser extends ViewUser<ACMContestRankVO> {
+
+        private int ac = 0;
+
+        private long totalTime = 0;
+
+        private int total = 0;
+
+        private long firstTime = Long.MAX_VALUE;
+
+        private long firstId = Long.MAX_VALUE;
+
+        private int[] cellTotal = new int[0];
+
+        private int[] errorNum = new int[0];
+
+        private int[] tryNum = new int[0];
+
+        // 未AC为-1
+        private long[] acTime = new long[0];
+
+        private boolean[] afterContest = new boolean[0];
+
+        private long[] cellFirstTime = new long[0];
+
+        private long[] cellFirstId = new long[0];
+
+        ACMViewUser(UserRow row) {
+            super(row);
+        }
+
+        void ensureCapacity(int problemCount) {
+            if (cellTotal.length >= problemCount) {
+                return;
+            }
+            int oldLength = cellTotal.length;
+            int length = Math.max(problemCount, oldLength * 2);
+            cellTotal = Arrays.copyOf(cellTotal, length);
+            errorNum = Arrays.copyOf(errorNum, length);
+            tryNum = Arrays.copyOf(tryNum, length);
+            acTime = Arrays.copyOf(acTime, length);
+            afterContest = Arrays.copyOf(afterContest, length);
+            cellFirstTime = Arrays.copyOf(cellFirstTime, length);
+            cellFirstId = Arrays.copyOf(cellFirstId, length);
+            Arrays.fill(acTime, oldLength, length, -1L);
+        }
+    }
+
+    private class ACMView extends View<ACMViewUser> {
+
+        private final long minSealRankTime;
+
+        private final long maxSealRankTime;
+
+        /**
+         * 每道题目各AC时间的人数，用于判断first AC
+         */
+        private final List<TreeMap<Long, Integer>> acTimeCountList = new ArrayList<>();
+
+        ACMView(Board board, ViewType type) {
+            super(board, type, VIEW_USER_COMPARATOR);
+            Contest contest = board.contest;
+            if (contest.getSealRankTime() != null) {
+                this.minSealRankTime = DateUtil.between(contest.getStartTime(), contest.getSealRankTime(), DateUnit.SECOND);
+            } else {
+                this.minSealRankTime = contest.getDuration();
+            }
+            this.maxSealRankTime = contest.getDuration();
+        }
+
+        @Override
+        protected ACMViewUser newViewUser(UserRow row) {
+            return new ACMViewUser(row);
+        }
+
+        @Override
+        protected void recomputeCell(int userIndex, int problemIndex, List<Record> recordList) {
+            ACMViewUser viewUser = getViewUser(userIndex);
+            viewUser.ensureCapacity(problemIndex + 1);
+
+            int total = 0;
+            int errorNum = 0;
+            int tryNum = 0;
+            long acTime = -1;
+            boolean afterContest = false;
+            long firstTime = Long.MAX_VALUE;
+            long firstId = Long.MAX_VALUE;
+            if (recordList != null) {
+                for (Record record : recordList) {
+                    boolean isAfterContestJudge = record.submitTime >= board.endTime;
+                    if (isAfterContestJudge && type != ViewType.AFTER) {
+                        // 不包含比赛结束后的提交 或者 处于封榜状态，则跳过比赛后的提交
+                        continue;
+                    }
+                    if (total == 0) {
+                        firstTime = record.time;
+                        firstId = record.id;
+                    }
+                    total++;
+                    // 如果是当前是开启封榜的时段和同时该提交是处于封榜时段 尝试次数+1
+                    if (type == ViewType.SEAL
+                            && record.time >= minSealRankTime && record.time < maxSealRankTime) {
+                        tryNum++;
+                        continue;
+                    }
+                    // 如果该题目已经AC过了，其它都不记录了
+                    if (acTime >= 0) {
+                        continue;
+                    }
+                    if (record.status == Constants.Contest.RECORD_AC.getCode()) {
+                        acTime = record.time;
+                        afterContest = isAfterContestJudge;
+                    } else if (record.status == Constants.Contest.RECORD_NOT_AC_PENALTY.getCode()) {
+                        errorNum++;
+                    }
+                }
+            }
+
+            int p = problemIndex;
+            if (viewUser.cellTotal[p] == total && viewUser.errorNum[p] == errorNum && viewUser.tryNum[p] == tryNum
+                    && viewUser.acTime[p] == acTime && viewUser.afterContest[p] == afterContest
+                    && viewUser.cellFirstTime[p] == firstTime && viewUser.cellFirstId[p] == firstId) {
+                return;
+            }
+
+            if (viewUser.total > 0) {
+                order.remove(viewUser);
+            }
+            if (viewUser.acTime[p] >= 0) {
+                viewUser.ac--;
+                viewUser.totalTime -= viewUser.errorNum[p] * PENALTY_SECONDS + viewUser.acTime[p];
+                changeAcTimeCount(p, viewUser.acTime[p], -1);
+            }
+            viewUser.total += total - viewUser.cellTotal[p];
+
+            viewUser.cellTotal[p] = total;
+            viewUser.errorNum[p] = errorNum;
+            viewUser.tryNum[p] = tryNum;
+            viewUser.acTime[p] = acTime;
+            viewUser.afterContest[p] = afterContest;
+            viewUser.cellFirstTime[p] = firstTime;
+            viewUser.cellFirstId[p] = firstId;
+
+            if (acTime >= 0) {
+                viewUser.ac++;
+                // 总耗时加上 该题目未AC前的错误次数*20*60+题目AC耗时
+                viewUser.totalTime += errorNum * PENALTY_SECONDS + acTime;
+                changeAcTimeCount(p, acTime, 1);
+            }
+
+            viewUser.firstTime = Long.MAX_VALUE;
+            viewUser.firstId = Long.MAX_VALUE;
+            for (int i = 0; i < viewUser.cellTotal.length; i++) {
+                if (viewUser.cellTotal[i] > 0 && (viewUser.cellFirstTime[i] < viewUser.firstTime
+                        || (viewUser.cellFirstTime[i] == viewUser.firstTime && viewUser.cellFirstId[i] < viewUser.firstId))) {
+                    viewUser.firstTime = viewUser.cellFirstTime[i];
+                    viewUser.firstId = viewUser.cellFirstId[i];
+                }
+            }
+
+            if (viewUser.total > 0) {
+                order.add(viewUser);
+            }
+            viewUser.markChanged();
+            version++;
+        }
+
+        private void changeAcTimeCount(int problemIndex, long acTime, int delta) {
+            while (acTimeCountList.size() <= problemIndex) {
+                acTimeCountList.add(new TreeMap<>());
+            }
+            TreeMap<Long, Integer> acTimeCount = acTimeCountList.get(problemIndex);
+            Long oldFirst = acTimeCount.isEmpty() ? null : acTimeCount.firstKey();
+            int count = acTimeCount.getOrDefault(acTime, 0) + delta;
+            if (count > 0) {
+                acTimeCount.put(acTime, count);
+            } else {
+                acTimeCount.remove(acTime);
+            }
+            Long newFirst = acTimeCount.isEmpty() ? null : acTimeCount.firstKey();
+            if (!Objects.equals(oldFirst, newFirst)) {
+                // first AC变化，该题所有AC用户的展示数据都需要更新
+                allChanged = true;
+            }
+        }
+
+        @Override
+        protected ACMContestRankVO buildRankVo(ACMViewUser viewUser) {
+            HashMap<String, HashMap<String, Object>> submissionInfo = new HashMap<>();
+            for (int p = 0; p < viewUser.cellTotal.length; p++) {
+                if (viewUser.cellTotal[p] == 0) {
+                    continue;
+                }
+                HashMap<String, Object> problemSubmissionInfo = new HashMap<>();
+                problemSubmissionInfo.put("errorNum", viewUser.errorNum[p]);
+                if (viewUser.tryNum[p] > 0) {
+                    problemSubmissionInfo.put("tryNum", viewUser.tryNum[p]);
+                }
+                if (viewUser.acTime[p] >= 0) {
+                    problemSubmissionInfo.put("isAC", true);
+                    // 相同提交时间也是first AC
+                    problemSubmissionInfo.put("isFirstAC", acTimeCountList.get(p).firstKey() == viewUser.acTime[p]);
+                    problemSubmissionInfo.put("ACTime", viewUser.acTime[p]);
+                    if (viewUser.afterContest[p]) {
+                        problemSubmissionInfo.put("isAfterContest", true);
+                    }
+                }
+                submissionInfo.put(board.displayIdList.get(p), problemSubmissionInfo);
+            }
+            UserRow row = viewUser.row;
+            ACMContestRankVO rankVo = new ACMContestRankVO();
+            rankVo.setRealname(row.realname)
+                    .setAvatar(row.avatar)
+                    .setSchool(row.school)
+                    .setGender(row.gender)
+                    .setUid(row.uid)
+                    .setUsername(row.username)
+                    .setNickname(row.nickname)
+                    .setAc(viewUser.ac)
+                    .setTotalTime(viewUser.totalTime)
+                    .setTotal(viewUser.total)
+                    .setSubmissionInfo(submissionInfo);
+            return rankVo;
+        }
+    }
+}
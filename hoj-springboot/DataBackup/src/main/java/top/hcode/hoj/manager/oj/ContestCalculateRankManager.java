@@ -45,6 +45,12 @@ public class ContestCalculateRankManager {
     @Autowired
     private GroupMemberEntityService groupMemberEntityService;
 
+    @Resource
+    private ContestACMRankBoardManager contestACMRankBoardManager;
+
+    @Resource
+    private ContestOIRankBoardManager contestOIRankBoardManager;
+
     public List<ACMContestRankVO> calcACMRank(boolean isOpenSealRank,
                                               boolean removeStar,
                                               Contest contest,
@@ -108,6 +114,42 @@ public class ContestCalculateRankManager {
                                               boolean useCache,
                                               Long cacheTime,
                                               boolean isContainsAfterContestJudge) {
+        if (CollectionUtils.isEmpty(externalCidList)) {
+            // 单场比赛的榜单由增量排行榜维护，每个版本只计算一次名次，无需再查询全部提交记录
+            AbstractContestRankBoardManager.RankSnapshot<ACMContestRankVO> rankSnapshot = contestACMRankBoardManager.getRankSnapshot(contest,
+                    isOpenSealRank,
+                    isContainsAfterContestJudge,
+                    removeStar,
+                    orderResultList -> setACMRankAndAward(orderResultList, contest, removeStar));
+            List<ACMContestRankVO> orderResultList = rankSnapshot.getRankList();
+            // 记录当前用户排名数据和关注列表的用户排名数据
+            List<ACMContestRankVO> topACMRankVoList = new ArrayList<>();
+            if (!StringUtils.isEmpty(currentUserId)) {
+                int index = rankSnapshot.indexOf(currentUserId);
+                if (index >= 0) {
+                    topACMRankVoList.add(orderResultList.get(index));
+                }
+            }
+            if (!CollectionUtils.isEmpty(concernedList)) {
+                // 移除关注列表与当前用户重复
+                concernedList.remove(currentUserId);
+                TreeSet<Integer> concernedIndexSet = new TreeSet<>();
+                for (String uid : concernedList) {
+                    int index = rankSnapshot.indexOf(uid);
+                    if (index >= 0) {
+                        concernedIndexSet.add(index);
+                    }
+                }
+                for (Integer index : concernedIndexSet) {
+                    topACMRankVoList.add(orderResultList.get(index));
+                }
+            }
+            if (topACMRankVoList.isEmpty()) {
+                return orderResultList;
+            }
+            return new TopRankList<>(topACMRankVoList, orderResultList);
+        }
+
         List<ACMContestRankVO> orderResultList;
         Long minSealRankTime = null;
         Long maxSealRankTime = null;
@@ -135,6 +177,46 @@ public class ContestCalculateRankManager {
             orderResultList = getACMOrderRank(contest, isOpenSealRank, minSealRankTime, maxSealRankTime, externalCidList, isContainsAfterContestJudge);
         }
 
+        orderResultList = setACMRankAndAward(orderResultList, contest, removeStar);
+
+        // 记录当前用户排名数据和关注列表的用户排名数据
+        List<ACMContestRankVO> topACMRankVoList = new ArrayList<>();
+        boolean needAddConcernedUser = false;
+        if (!CollectionUtils.isEmpty(concernedList)) {
+            needAddConcernedUser = true;
+            // 移除关注列表与当前用户重复
+            concernedList.remove(currentUserId);
+        }
+
+        for (ACMContestRankVO currentACMRankVo : orderResultList) {
+            // 默认将请求用户的排名置为最顶
+            if (!StringUtils.isEmpty(currentUserId) &&
+                    currentACMRankVo.getUid().equals(currentUserId)) {
+                topACMRankVoList.add(0, currentACMRankVo);
+            }
+
+            // 需要添加关注用户
+            if (needAddConcernedUser) {
+                if (concernedList.contains(currentACMRankVo.getUid())) {
+                    topACMRankVoList.add(currentACMRankVo);
+                }
+            }
+        }
+        topACMRankVoList.addAll(orderResultList);
+        return topACMRankVoList;
+    }
+
+    /**
+     * 对已排好序的ACM榜单设置名次与奖项
+     *
+     * @param orderResultList 按ac数降序、总罚时升序排好的榜单
+     * @param contest         比赛实体信息
+     * @param removeStar      是否需要移除打星队伍
+     * @return 设置好名次的榜单
+     */
+    private List<ACMContestRankVO> setACMRankAndAward(List<ACMContestRankVO> orderResultList,
+                                                      Contest contest,
+                                                      boolean removeStar) {
         // 需要打星的用户名列表
         HashMap<String, Boolean> starAccountMap = starAccountToMap(contest.getStarAccount());
 
@@ -156,14 +238,6 @@ public class ContestCalculateRankManager {
                 }
             }
         }
-        // 记录当前用户排名数据和关注列表的用户排名数据
-        List<ACMContestRankVO> topACMRankVoList = new ArrayList<>();
-        boolean needAddConcernedUser = false;
-        if (!CollectionUtils.isEmpty(concernedList)) {
-            needAddConcernedUser = true;
-            // 移除关注列表与当前用户重复
-            concernedList.remove(currentUserId);
-        }
 
         int rankNum = 1;
         int len = orderResultList.size();
@@ -215,21 +289,8 @@ public class ContestCalculateRankManager {
                 lastACMRankVo = currentACMRankVo;
                 rankNum++;
             }
-            // 默认将请求用户的排名置为最顶
-            if (!StringUtils.isEmpty(currentUserId) &&
-                    currentACMRankVo.getUid().equals(currentUserId)) {
-                topACMRankVoList.add(0, currentACMRankVo);
-            }
-
-            // 需要添加关注用户
-            if (needAddConcernedUser) {
-                if (concernedList.contains(currentACMRankVo.getUid())) {
-                    topACMRankVoList.add(currentACMRankVo);
-                }
-            }
         }
-        topACMRankVoList.addAll(orderResultList);
-        return topACMRankVoList;
+        return orderResultList;
     }
 
 
@@ -402,6 +463,42 @@ public class ContestCalculateRankManager {
                                             Long cacheTime,
                                             boolean isContainsAfterContestJudge) {
 
+        if (CollectionUtils.isEmpty(externalCidList)) {
+            // 单场比赛的榜单由增量排行榜维护，每个版本只计算一次名次，无需再查询全部提交记录
+            AbstractContestRankBoardManager.RankSnapshot<OIContestRankVO> rankSnapshot = contestOIRankBoardManager.getRankSnapshot(contest,
+                    isOpenSealRank,
+                    isContainsAfterContestJudge,
+                    removeStar,
+                    orderResultList -> setOIRankAndAward(orderResultList, contest, removeStar));
+            List<OIContestRankVO> orderResultList = rankSnapshot.getRankList();
+            // 记录当前用户排名数据和关注列表的用户排名数据
+            List<OIContestRankVO> topOIRankVoList = new ArrayList<>();
+            if (!StringUtils.isEmpty(currentUserId)) {
+                int index = rankSnapshot.indexOf(currentUserId);
+                if (index >= 0) {
+                    topOIRankVoList.add(orderResultList.get(index));
+                }
+            }
+            if (!CollectionUtils.isEmpty(concernedList)) {
+                // 移除关注列表与当前用户重复
+                concernedList.remove(currentUserId);
+                TreeSet<Integer> concernedIndexSet = new TreeSet<>();
+                for (String uid : concernedList) {
+                    int index = rankSnapshot.indexOf(uid);
+                    if (index >= 0) {
+                        concernedIndexSet.add(index);
+                    }
+                }
+                for (Integer index : concernedIndexSet) {
+                    topOIRankVoList.add(orderResultList.get(index));
+                }
+            }
+            if (topOIRankVoList.isEmpty()) {
+                return orderResultList;
+            }
+            return new TopRankList<>(topOIRankVoList, orderResultList);
+        }
+
         List<OIContestRankVO> orderResultList;
         if (useCache) {
             String key = null;
@@ -419,6 +516,46 @@ public class ContestCalculateRankManager {
             orderResultList = getOIOrderRank(contest, externalCidList, isOpenSealRank, isContainsAfterContestJudge);
         }
 
+        orderResultList = setOIRankAndAward(orderResultList, contest, removeStar);
+
+        // 记录当前用户排名数据和关注列表的用户排名数据
+        List<OIContestRankVO> topOIRankVoList = new ArrayList<>();
+        boolean needAddConcernedUser = false;
+        if (!CollectionUtils.isEmpty(concernedList)) {
+            needAddConcernedUser = true;
+            // 移除关注列表与当前用户重复
+            concernedList.remove(currentUserId);
+        }
+
+        for (OIContestRankVO currentOIRankVo : orderResultList) {
+            // 默认当前请求用户的排名显示在最顶行
+            if (!StringUtils.isEmpty(currentUserId) &&
+                    currentOIRankVo.getUid().equals(currentUserId)) {
+                topOIRankVoList.add(0, currentOIRankVo);
+            }
+
+            // 需要添加关注用户
+            if (needAddConcernedUser) {
+                if (concernedList.contains(currentOIRankVo.getUid())) {
+                    topOIRankVoList.add(currentOIRankVo);
+                }
+            }
+        }
+        topOIRankVoList.addAll(orderResultList);
+        return topOIRankVoList;
+    }
+
+    /**
+     * 对已排好序的OI榜单设置名次与奖项
+     *
+     * @param orderResultList 按总得分降序、总时耗升序排好的榜单
+     * @param contest         比赛实体信息
+     * @param removeStar      是否需要移除打星队伍
+     * @return 设置好名次的榜单
+     */
+    private List<OIContestRankVO> setOIRankAndAward(List<OIContestRankVO> orderResultList,
+                                                    Contest contest,
+                                                    boolean removeStar) {
         // 需要打星的用户名列表
         HashMap<String, Boolean> starAccountMap = starAccountToMap(contest.getStarAccount());
 
@@ -441,15 +578,6 @@ public class ContestCalculateRankManager {
             }
         }
 
-        // 记录当前用户排名数据和关注列表的用户排名数据
-        List<OIContestRankVO> topOIRankVoList = new ArrayList<>();
-        boolean needAddConcernedUser = false;
-        if (!CollectionUtils.isEmpty(concernedList)) {
-            needAddConcernedUser = true;
-            // 移除关注列表与当前用户重复
-            concernedList.remove(currentUserId);
-        }
-
         int rankNum = 1;
         OIContestRankVO lastOIRankVo = null;
         ContestAwardConfigVO configVo = null;
@@ -500,22 +628,8 @@ public class ContestCalculateRankManager {
                 lastOIRankVo = currentOIRankVo;
                 rankNum++;
             }
-
-            // 默认当前请求用户的排名显示在最顶行
-            if (!StringUtils.isEmpty(currentUserId) &&
-                    currentOIRankVo.getUid().equals(currentUserId)) {
-                topOIRankVoList.add(0, currentOIRankVo);
-            }
-
-            // 需要添加关注用户
-            if (needAddConcernedUser) {
-                if (concernedList.contains(currentOIRankVo.getUid())) {
-                    topOIRankVoList.add(currentOIRankVo);
-                }
-            }
         }
-        topOIRankVoList.addAll(orderResultList);
-        return topOIRankVoList;
+        return orderResultList;
     }
 
     private List<OIContestRankVO> getOIOrderRank(Contest contest,
@@ -710,4 +824,32 @@ public class ContestCalculateRankManager {
         }
         return queue;
     }
-}
\ No newline at end of file
+
+    /**
+     * 当前用户与关注用户置顶后的榜单视图，不复制原榜单，分页只需访问对应下标
+     */
+    private static class TopRankList<T> extends AbstractList<T> {
+
+        private final List<T> topList;
+
+        private final List<T> rankList;
+
+        TopRankList(List<T> topList, List<T> rankList) {
+            this.topList = topList;
+            this.rankList = rankList;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < topList.size()) {
+                return topList.get(index);
+            }
+            return rankList.get(index - topList.size());
+        }
+
+        @Override
+        public int size() {
+            return topList.size() + rankList.size();
+        }
+    }
+}
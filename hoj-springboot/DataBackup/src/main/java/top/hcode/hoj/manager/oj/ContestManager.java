@@ -3,6 +3,7 @@ package top.hcode.hoj.manager.oj;
 import cn.hutool.core.collection.CollectionUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.apache.shiro.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -103,6 +104,9 @@ public class ContestManager {
     @Autowired
     private GroupValidator groupValidator;
 
+    @Autowired
+    private UserSearchIndexManager userSearchIndexManager;
+
     public IPage<ContestVO> getContestList(Integer limit, Integer currentPage, Integer status, Integer type, String keyword) {
         // 页数，每页题数若为空，设置默认值
         if (currentPage == null || currentPage < 1) currentPage = 1;
@@ -221,7 +225,7 @@ public class ContestManager {
         AccountProfile userRolesVo = (AccountProfile) SecurityUtils.getSubject().getPrincipal();
 
         // 获取本场比赛的状态
-        Contest contest = contestEntityService.getById(cid);
+        Contest contest = contestEntityService.getCachedContest(cid);
 
         List<String> groupRootUidList = null;
         if (contest.getIsGroup() && contest.getGid() != null) {
@@ -291,7 +295,7 @@ public class ContestManager {
         AccountProfile userRolesVo = (AccountProfile) SecurityUtils.getSubject().getPrincipal();
 
         // 获取本场比赛的状态
-        Contest contest = contestEntityService.getById(cid);
+        Contest contest = contestEntityService.getCachedContest(cid);
 
         // 超级管理员或者该比赛的创建者，则为比赛管理者
         boolean isRoot = SecurityUtils.getSubject().hasRole("root");
@@ -362,7 +366,7 @@ public class ContestManager {
         AccountProfile userRolesVo = (AccountProfile) SecurityUtils.getSubject().getPrincipal();
 
         // 获取本场比赛的状态
-        Contest contest = contestEntityService.getById(cid);
+        Contest contest = contestEntityService.getCachedContest(cid);
 
         // 是否为超级管理员或者该比赛的创建者，则为比赛管理者
         boolean isRoot = SecurityUtils.getSubject().hasRole("root");
@@ -470,11 +474,12 @@ public class ContestManager {
                                                    Long searchCid,
                                                    boolean beforeContestSubmit,
                                                    boolean completeProblemID,
-                                                   boolean isContainsContestEndJudge) throws StatusFailException, StatusForbiddenException {
+                                                   boolean isContainsContestEndJudge,
+                                                   Long before) throws StatusFailException, StatusForbiddenException {
 
         AccountProfile userRolesVo = (AccountProfile) SecurityUtils.getSubject().getPrincipal();
         // 获取本场比赛的状态
-        Contest contest = contestEntityService.getById(searchCid);
+        Contest contest = contestEntityService.getCachedContest(searchCid);
 
         // 是否为超级管理员或者该比赛的创建者，则为比赛管理者
         boolean isRoot = SecurityUtils.getSubject().hasRole("root");
@@ -512,6 +517,14 @@ public class ContestManager {
                 sealRankTime = contest.getEndTime();
             }
         }
+        List<String> searchUidList = null;
+        if (!StringUtils.isEmpty(searchUsername)) {
+            searchUidList = userSearchIndexManager.searchUidByUsername(searchUsername);
+            if (searchUidList != null && searchUidList.isEmpty()) {
+                return new Page<>(currentPage, limit);
+            }
+        }
+
         // OI比赛封榜期间不更新，ACM比赛封榜期间可看到自己的提交，但是其它人的不可见
         IPage<JudgeVO> contestJudgeList = judgeEntityService.getContestJudgeList(limit,
                 currentPage,
@@ -519,15 +532,17 @@ public class ContestManager {
                 searchCid,
                 searchStatus,
                 searchUsername,
+                searchUidList,
                 uid,
                 beforeContestSubmit,
                 rule,
                 contest.getStartTime(),
                 sealRankTime,
                 userRolesVo.getUid(),
-                completeProblemID);
+                completeProblemID,
+                before);
 
-        if (contestJudgeList.getTotal() == 0) { // 未查询到一条数据
+        if (contestJudgeList.getRecords().isEmpty()) { // 未查询到一条数据
             return contestJudgeList;
         } else {
             // 比赛还是进行阶段，同时不是超级管理员与比赛管理员，需要将除自己之外的提交的时间、空间、长度隐藏
@@ -572,7 +587,7 @@ public class ContestManager {
         AccountProfile userRolesVo = (AccountProfile) SecurityUtils.getSubject().getPrincipal();
 
         // 获取本场比赛的状态
-        Contest contest = contestEntityService.getById(contestRankDto.getCid());
+        Contest contest = contestEntityService.getCachedContest(contestRankDto.getCid());
 
         // 超级管理员或者该比赛的创建者，则为比赛管理者
         boolean isRoot = SecurityUtils.getSubject().hasRole("root");
@@ -621,7 +636,7 @@ public class ContestManager {
 
         AccountProfile userRolesVo = (AccountProfile) SecurityUtils.getSubject().getPrincipal();
         // 获取本场比赛的状态
-        Contest contest = contestEntityService.getById(cid);
+        Contest contest = contestEntityService.getCachedContest(cid);
 
         // 超级管理员或者该比赛的创建者，则为比赛管理者
         boolean isRoot = SecurityUtils.getSubject().hasRole("root");
@@ -669,7 +684,7 @@ public class ContestManager {
         AccountProfile userRolesVo = (AccountProfile) SecurityUtils.getSubject().getPrincipal();
 
         // 获取本场比赛的状态
-        Contest contest = contestEntityService.getById(contestPrintDto.getCid());
+        Contest contest = contestEntityService.getCachedContest(contestPrintDto.getCid());
 
         // 超级管理员或者该比赛的创建者，则为比赛管理者
         boolean isRoot = SecurityUtils.getSubject().hasRole("root");
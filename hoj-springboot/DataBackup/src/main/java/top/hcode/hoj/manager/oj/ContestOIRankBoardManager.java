@@ -0,0 +1,327 @@
+package top.hcode.hoj.manager.oj;
+
+import cn.hutool.core.date.DateUnit;
+import cn.hutool.core.date.DateUtil;
+import org.springframework.stereotype.Component;
+import top.hcode.hoj.pojo.entity.contest.Contest;
+import top.hcode.hoj.pojo.vo.ContestRecordVO;
+import top.hcode.hoj.pojo.vo.OIContestRankVO;
+import top.hcode.hoj.utils.Constants;
+
+import java.util.*;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/17 21:30
+ * @Description: OI比赛的增量排行榜
+ * 每个格子保存该用户该题的全部有效提交，按比赛的计分规则(最近一次提交/最高得分)重新计算受影响的格子，
+ * 同时维护用户的总得分、总耗时，以及按(总得分降序, 总耗时升序)排列的有序索引，更新为O(log n)，取一页数据为O(页大小)。
+ * 增量、视图与发布的公共逻辑见AbstractContestRankBoardManager，重判等批量改动后调用invalidate即可全量重建。
+ */
+@Component
+public class ContestOIRankBoardManager extends AbstractContestRankBoardManager<OIContestRankVO> {
+
+    @Override
+    protected String getSignature(Contest contest) {
+        return super.getSignature(contest) + "|" + contest.getOiRankScoreType();
+    }
+
+    @Override
+    protected Record toRecord(Board board, ContestRecordVO contestRecord, int userIndex) {
+        // 比赛开始前的提交记录与未评测完的记录不入排行榜
+        if (contestRecord.getStatus() == null
+                || contestRecord.getTime() == null
+                || contestRecord.getTime() < 0
+                || contestRecord.getSubmitTime() == null
+                || contestRecord.getSubmitTime().getTime() < board.startTime) {
+            return null;
+        }
+        return new OIRecord(contestRecord.getId(),
+                userIndex,
+                board.getProblemIndex(contestRecord.getDisplayId()),
+                contestRecord.getTime(),
+                contestRecord.getSubmitTime().getTime(),
+                contestRecord.getStatus(),
+                contestRecord.getScore(),
+                contestRecord.getUseTime());
+    }
+
+    @Override
+    protected View<?> createView(Board board, ViewType viewType) {
+        return new OIView(board, viewType);
+    }
+
+    @Override
+    protected OIContestRankVO copyRankVo(OIContestRankVO rankVo) {
+        OIContestRankVO copy = new OIContestRankVO();
+        copy.setRealname(rankVo.getRealname())
+                .setUid(rankVo.getUid())
+                .setUsername(rankVo.getUsername())
+                .setSchool(rankVo.getSchool())
+                .setAvatar(rankVo.getAvatar())
+                .setGender(rankVo.getGender())
+                .setNickname(rankVo.getNickname())
+                .setTotalScore(rankVo.getTotalScore())
+                .setTotalTime(rankVo.getTotalTime())
+                .setSubmissionInfo(rankVo.getSubmissionInfo())
+                .setTimeInfo(rankVo.getTimeInfo());
+        return copy;
+    }
+
+    @Override
+    protected void copyRankAndAward(OIContestRankVO source, OIContestRankVO target) {
+        if (source == null) {
+            target.setRank(null)
+                    .setIsWinAward(null)
+                    .setAwardName(null)
+                    .setAwardBackground(null)
+                    .setAwardColor(null);
+        } else {
+            target.setRank(source.getRank())
+                    .setIsWinAward(source.getIsWinAward())
+                    .setAwardName(source.getAwardName())
+                    .setAwardBackground(source.getAwardBackground())
+                    .setAwardColor(source.getAwardColor());
+        }
+    }
+
+    @Override
+    protected boolean isSameRankAndAward(OIContestRankVO a, OIContestRankVO b) {
+        return Objects.equals(a.getRank(), b.getRank())
+                && Objects.equals(a.getIsWinAward(), b.getIsWinAward())
+                && Objects.equals(a.getAwardName(), b.getAwardName())
+                && Objects.equals(a.getAwardBackground(), b.getAwardBackground())
+                && Objects.equals(a.getAwardColor(), b.getAwardColor());
+    }
+
+    @Override
+    protected String getUid(OIContestRankVO rankVo) {
+        return rankVo.getUid();
+    }
+
+    private static class OIRecord extends Record {
+
+        private final Integer score;
+
+        private final Integer useTime;
+
+        OIRecord(long id, int userIndex, int problemIndex, long time, long submitTime, int status,
+                 Integer score, Integer useTime) {
+            super(id, userIndex, problemIndex, time, submitTime, status);
+            this.score = score;
+            this.useTime = useTime;
+        }
+
+        @Override
+        protected boolean isSame(Record other) {
+            return super.isSame(other)
+                    && Objects.equals(score, ((OIRecord) other).score)
+                    && Objects.equals(useTime, ((OIRecord) other).useTime);
+        }
+    }
+
+    private static final Comparator<OIViewUser> VIEW_USER_COMPARATOR = (a, b) -> {
+        if (a.totalScore != b.totalScore) {
+            return Integer.compare(b.totalScore, a.totalScore); // 先以总得分降序
+        }
+        if (a.totalTime != b.totalTime) {
+            return Integer.compare(a.totalTime, b.totalTime); // 再以总时耗升序
+        }
+        return a.row.uid.compareTo(b.row.uid);
+    };
+
+    /**
+     * 视图中的用户数据，按题目下标存储每道题的计分结果
+     */
+    private static class OIViewUser extends ViewUser<OIContestRankVO> {
+
+        private int totalScore = 0;
+
+        private int totalTime = 0;
+
+        private int cellCount = 0;
+
+        private int acCount = 0;
+
+        private boolean[] hasCell = new boolean[0];
+
+        // 为null表示该题得分为空
+        private Integer[] score = new Integer[0];
+
+        // 为null表示该题没有AC
+        private Integer[] useTime = new Integer[0];
+
+        OIViewUser(UserRow row) {
+            super(row);
+        }
+
+        void ensureCapacity(int problemCount) {
+            if (hasCell.length >= problemCount) {
+                return;
+            }
+            int length = Math.max(problemCount, hasCell.length * 2);
+            hasCell = Arrays.copyOf(hasCell, length);
+            score = Arrays.copyOf(score, length);
+            useTime = Arrays.copyOf(useTime, length);
+        }
+    }
+
+    private class OIView extends View<OIViewUser> {
+
+        private final long duration;
+
+        private final long sealTime;
+
+        private final boolean isHighestRankScore;
+
+        OIView(Board board, ViewType type) {
+            super(board, type, VIEW_USER_COMPARATOR);
+            Contest contest = board.contest;
+            this.duration = contest.getDuration();
+            if (contest.getSealRankTime() != null) {
+                long time = DateUtil.between(contest.getStartTime(), contest.getSealRankTime(), DateUnit.SECOND);
+                this.sealTime = time > 0 ? time - 1 : time;
+            } else {
+                this.sealTime = contest.getDuration();
+            }
+            this.isHighestRankScore = Constants.Contest.OI_RANK_HIGHEST_SCORE.getName().equals(contest.getOiRankScoreType());
+        }
+
+        @Override
+        protected OIViewUser newViewUser(UserRow row) {
+            return new OIViewUser(row);
+        }
+
+        private boolean isIncluded(Record record) {
+            boolean isAfterContestJudge = record.submitTime >= board.endTime;
+            switch (type) {
+                case SEAL:
+                    // 封榜，只统计封榜前的提交
+                    return !isAfterContestJudge && record.time <= sealTime;
+                case AFTER:
+                    return true;
+                default:
+                    return !isAfterContestJudge && record.time <= duration;
+            }
+        }
+
+        @Override
+        protected void recomputeCell(int userIndex, int problemIndex, List<Record> recordList) {
+            OIViewUser viewUser = getViewUser(userIndex);
+            viewUser.ensureCapacity(problemIndex + 1);
+
+            // 按计分规则选出计分的提交：最近一次提交，或得分最高的提交(可能有多个)
+            boolean hasCell = false;
+            Integer score = null;
+            Integer useTime = null;
+            OIRecord latest = null;
+            if (recordList != null) {
+                for (Record r : recordList) {
+                    OIRecord record = (OIRecord) r;
+                    if (!isIncluded(record)) {
+                        continue;
+                    }
+                    if (isHighestRankScore) {
+                        if (record.score == null) {
+                            continue;
+                        }
+                        if (!hasCell || record.score > score) {
+                            hasCell = true;
+                            score = record.score;
+                            useTime = null;
+                        }
+                        if (record.score.equals(score)) {
+                            useTime = minAcUseTime(useTime, record);
+                        }
+                    } else if (latest == null || record.time > latest.time
+                            || (record.time == latest.time && record.id > latest.id)) {
+                        latest = record;
+                    }
+                }
+            }
+            if (latest != null) {
+                hasCell = true;
+                score = latest.score;
+                useTime = minAcUseTime(null, latest);
+            }
+
+            int p = problemIndex;
+            if (viewUser.hasCell[p] == hasCell && Objects.equals(viewUser.score[p], score)
+                    && Objects.equals(viewUser.useTime[p], useTime)) {
+                return;
+            }
+
+            if (viewUser.cellCount > 0) {
+                order.remove(viewUser);
+            }
+            if (viewUser.hasCell[p]) {
+                viewUser.cellCount--;
+                viewUser.totalScore -= viewUser.score[p] == null ? 0 : viewUser.score[p];
+            }
+            if (viewUser.useTime[p] != null) {
+                viewUser.acCount--;
+                viewUser.totalTime -= viewUser.useTime[p];
+            }
+
+            viewUser.hasCell[p] = hasCell;
+            viewUser.score[p] = score;
+            viewUser.useTime[p] = useTime;
+
+            if (hasCell) {
+                viewUser.cellCount++;
+                viewUser.totalScore += score == null ? 0 : score;
+            }
+            if (useTime != null) {
+                viewUser.acCount++;
+                viewUser.totalTime += useTime;
+            }
+
+            if (viewUser.cellCount > 0) {
+                order.add(viewUser);
+            }
+            viewUser.markChanged();
+            version++;
+        }
+
+        /**
+         * 计分的提交中AC的取最少的时耗
+         */
+        private Integer minAcUseTime(Integer useTime, OIRecord record) {
+            if (record.status != Constants.Contest.RECORD_AC.getCode()) {
+                return useTime;
+            }
+            int time = record.useTime == null ? 0 : record.useTime;
+            return useTime == null || time < useTime ? time : useTime;
+        }
+
+        @Override
+        protected OIContestRankVO buildRankVo(OIViewUser viewUser) {
+            HashMap<String, Integer> submissionInfo = new HashMap<>();
+            HashMap<String, Integer> timeInfo = viewUser.acCount > 0 ? new HashMap<>() : null;
+            for (int p = 0; p < viewUser.hasCell.length; p++) {
+                if (!viewUser.hasCell[p]) {
+                    continue;
+                }
+                String displayId = board.displayIdList.get(p);
+                submissionInfo.put(displayId, viewUser.score[p]);
+                if (viewUser.useTime[p] != null) {
+                    timeInfo.put(displayId, viewUser.useTime[p]);
+                }
+            }
+            UserRow row = viewUser.row;
+            OIContestRankVO rankVo = new OIContestRankVO();
+            rankVo.setRealname(row.realname)
+                    .setUid(row.uid)
+                    .setUsername(row.username)
+                    .setSchool(row.school)
+                    .setAvatar(row.avatar)
+                    .setGender(row.gender)
+                    .setNickname(row.nickname)
+                    .setTotalScore(viewUser.totalScore)
+                    .setTotalTime(viewUser.totalTime)
+                    .setSubmissionInfo(submissionInfo)
+                    .setTimeInfo(timeInfo);
+            return rankVo;
+        }
+    }
+}
@@ -38,6 +38,7 @@ import top.hcode.hoj.validator.CommonValidator;
 import top.hcode.hoj.validator.GroupValidator;
 
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -81,6 +82,9 @@ public class DiscussionManager {
     @Autowired
     private CommonValidator commonValidator;
 
+    @Autowired
+    private DiscussionSearchIndexManager discussionSearchIndexManager;
+
     public IPage<Discussion> getDiscussionList(Integer limit,
                                                Integer currentPage,
                                                Integer categoryId,
@@ -101,10 +105,17 @@ public class DiscussionManager {
 
             final String key = keyword.trim();
 
-            discussionQueryWrapper.and(wrapper -> wrapper.like("title", key).or()
-                    .like("author", key).or()
-                    .like("id", key).or()
-                    .like("description", key));
+            Set<Integer> didSet = discussionSearchIndexManager.search(key);
+            if (didSet.isEmpty()) {
+                return iPage;
+            } else if (didSet.size() <= DiscussionSearchIndexManager.MAX_SEARCH_ID_NUM) {
+                discussionQueryWrapper.in("id", didSet);
+            } else {
+                discussionQueryWrapper.and(wrapper -> wrapper.like("title", key).or()
+                        .like("author", key).or()
+                        .like("id", key).or()
+                        .like("description", key));
+            }
         }
 
         boolean isAdmin = SecurityUtils.getSubject().hasRole("root")
@@ -260,6 +271,7 @@ public class DiscussionManager {
         if (!isOk) {
             throw new StatusFailException("发布失败，请重新尝试！");
         }
+        discussionSearchIndexManager.markChanged(discussion.getId());
     }
 
 
@@ -305,6 +317,7 @@ public class DiscussionManager {
         if (!isOk) {
             throw new StatusFailException("修改失败");
         }
+        discussionSearchIndexManager.markChanged(discussion.getId());
     }
 
     public void removeDiscussion(Integer did) throws StatusFailException, StatusForbiddenException, StatusNotFoundException {
@@ -341,6 +354,7 @@ public class DiscussionManager {
         if (!isOk) {
             throw new StatusFailException("删除失败，无权限或者该讨论不存在");
         }
+        discussionSearchIndexManager.markChanged(did);
 
     }
 
@@ -0,0 +1,65 @@
+package top.hcode.hoj.manager.oj;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+import top.hcode.hoj.dao.discussion.DiscussionEntityService;
+import top.hcode.hoj.pojo.entity.discussion.Discussion;
+
+import javax.annotation.Resource;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/18 16:10
+ * @Description: 讨论的标题、作者、id、描述的内存索引，供讨论列表的关键词搜索使用
+ */
+@Component
+public class DiscussionSearchIndexManager extends AbstractSearchIndexManager<Integer, Discussion> {
+
+    /**
+     * 匹配的讨论超过该数量则仍使用数据库的模糊查询，避免in的参数过多
+     */
+    public static final int MAX_SEARCH_ID_NUM = 1000;
+
+    @Resource
+    private DiscussionEntityService discussionEntityService;
+
+    @Override
+    protected List<Discussion> listAll() {
+        return discussionEntityService.list(getDiscussionQueryWrapper());
+    }
+
+    @Override
+    protected List<Discussion> listChanged(Date since, List<Integer> changedIdList) {
+        QueryWrapper<Discussion> discussionQueryWrapper = getDiscussionQueryWrapper();
+        discussionQueryWrapper.ge("gmt_modified", since);
+        if (!CollectionUtils.isEmpty(changedIdList)) {
+            discussionQueryWrapper.or().in("id", changedIdList);
+        }
+        return discussionEntityService.list(discussionQueryWrapper);
+    }
+
+    @Override
+    protected long countAll() {
+        return discussionEntityService.count();
+    }
+
+    @Override
+    protected Integer getId(Discussion discussion) {
+        return discussion.getId();
+    }
+
+    @Override
+    protected String[] getFields(Discussion discussion) {
+        return new String[]{discussion.getTitle(), discussion.getAuthor(),
+                String.valueOf(discussion.getId()), discussion.getDescription()};
+    }
+
+    private QueryWrapper<Discussion> getDiscussionQueryWrapper() {
+        QueryWrapper<Discussion> discussionQueryWrapper = new QueryWrapper<>();
+        discussionQueryWrapper.select("id", "title", "author", "description");
+        return discussionQueryWrapper;
+    }
+}
@@ -0,0 +1,527 @@
+package top.hcode.hoj.manager.oj;
+
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.util.IdUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+import top.hcode.hoj.dao.judge.JudgeEntityService;
+import top.hcode.hoj.dao.user.UserAcproblemEntityService;
+import top.hcode.hoj.dao.user.UserInfoEntityService;
+import top.hcode.hoj.dao.user.UserRecordEntityService;
+import top.hcode.hoj.pojo.entity.judge.Judge;
+import top.hcode.hoj.pojo.entity.user.UserAcproblem;
+import top.hcode.hoj.pojo.entity.user.UserInfo;
+import top.hcode.hoj.pojo.vo.ACMRankVO;
+import top.hcode.hoj.pojo.vo.OIRankVO;
+import top.hcode.hoj.utils.Constants;
+import top.hcode.hoj.utils.RedisUtils;
+
+import javax.annotation.Resource;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/17 22:40
+ * @Description: 全站ACM/OI排行榜
+ * 每个用户的AC题数、提交数、OI排行得分保存在redis的hash中，排行榜为redis的有序集合，
+ * 分页查询为O(log n + 页大小)，不再每次对judge、user_acproblem全表做关联子查询。
+ * 提交与本地评测结束时通过lua脚本增量更新计数：每个用户另有一个hash记录每道题是否AC、最高OI得分，
+ * 按max语义计算ac数、得分的变化量，不需要重新执行聚合查询。
+ * 重判、远程评测、封禁或修改用户等低频操作标记为待同步，定时任务只重新统计这些用户(走uid索引)，
+ * 仍有提交在评测中的用户会保留待同步标记，直到评测结束；每天凌晨全量重建一次进行校正。
+ * 排行榜中始终保留一个空字符串的哨兵成员，用于区分“尚未建立”与“没有用户”。
+ */
+@Component
+@Slf4j(topic = "hoj")
+public class GlobalRankManager {
+
+    /**
+     * ACM排行：先以ac数降序，再以提交数升序，分数为 ac * ACM_AC_WEIGHT - total
+     */
+    private static final double ACM_AC_WEIGHT = 1e9;
+
+    /**
+     * OI排行：先以得分降序，再以ac数降序，分数为 score * OI_SCORE_WEIGHT + ac
+     */
+    private static final double OI_SCORE_WEIGHT = 1e7;
+
+    private static final int SYNC_BATCH_SIZE = 500;
+
+    private static final String TMP_SUFFIX = "_tmp";
+
+    /**
+     * 排行榜的哨兵成员，分数最低，分页时不返回
+     */
+    private static final String SENTINEL_MEMBER = "";
+
+    private static final double SENTINEL_SCORE = -1e18;
+
+    /**
+     * 用户逐题数据hash中标记已初始化的字段
+     */
+    private static final String USER_PROBLEM_INIT_FIELD = "_";
+
+    /**
+     * 用户逐题数据的过期时间 7天，过期后下次评测会重新统计该用户
+     */
+    private static final long USER_PROBLEM_EXPIRE_SECONDS = 7 * 24 * 60 * 60;
+
+    private static final long APPLY_NOT_BUILT = 0;
+
+    private static final long APPLY_SUCCESS = 1;
+
+    /**
+     * 增量更新用户的计数与排行分数
+     * KEYS: ACM排行, OI排行, 计数hash, 用户逐题数据hash
+     * ARGV: uid, pid(-1表示只增加提交数), 是否AC, OI得分(-1表示没有得分), 提交数增量, ACM_AC_WEIGHT, OI_SCORE_WEIGHT, 逐题数据过期时间
+     * 返回 0 排行榜尚未建立，1 更新成功，2 用户的计数或逐题数据不存在，需要重新统计该用户
+     * 集合成员与hash的值使用jackson序列化，字符串带有双引号
+     */
+    private static final DefaultRedisScript<Long> APPLY_COUNTER_SCRIPT = new DefaultRedisScript<>(
+            "if not redis.call('zscore', KEYS[1], '\"\"') then return 0 end " +
+                    "local counter = redis.call('hget', KEYS[3], ARGV[1]) " +
+                    "if not counter or redis.call('exists', KEYS[4]) == 0 then return 2 end " +
+                    "local c = {} " +
+                    "for v in string.gmatch(counter, '%-?%d+') do c[#c + 1] = tonumber(v) end " +
+                    "local ac, total, score = c[1], c[2] + tonumber(ARGV[5]), c[3] " +
+                    "if ARGV[2] ~= '-1' then " +
+                    "  local oldAc, oldBest = 0, -1 " +
+                    "  local problem = redis.call('hget', KEYS[4], ARGV[2]) " +
+                    "  if problem then " +
+                    "    local p = {} " +
+                    "    for v in string.gmatch(problem, '%-?%d+') do p[#p + 1] = tonumber(v) end " +
+                    "    oldAc, oldBest = p[1], p[2] " +
+                    "  end " +
+                    "  local newAc = math.max(oldAc, tonumber(ARGV[3])) " +
+                    "  local newBest = math.max(oldBest, tonumber(ARGV[4])) " +
+                    "  ac = ac + newAc - oldAc " +
+                    "  score = score + math.max(newBest, 0) - math.max(oldBest, 0) " +
+                    "  redis.call('hset', KEYS[4], ARGV[2], '\"' .. newAc .. ',' .. newBest .. '\"') " +
+                    "end " +
+                    "redis.call('expire', KEYS[4], ARGV[8]) " +
+                    "redis.call('hset', KEYS[3], ARGV[1], '\"' .. ac .. ',' .. total .. ',' .. score .. '\"') " +
+                    "local member = '\"' .. ARGV[1] .. '\"' " +
+                    "redis.call('zadd', KEYS[1], ac * tonumber(ARGV[6]) - total, member) " +
+                    "redis.call('zadd', KEYS[2], score * tonumber(ARGV[7]) + ac, member) " +
+                    "return 1", Long.class);
+
+    /**
+     * 在评测中的提交超过该时长仍未结束的不再等待
+     */
+    @Value("${hoj.global-rank.judging-wait-minutes:30}")
+    private Integer judgingWaitMinutes;
+
+    @Resource
+    private UserRecordEntityService userRecordEntityService;
+
+    @Resource
+    private UserInfoEntityService userInfoEntityService;
+
+    @Resource
+    private JudgeEntityService judgeEntityService;
+
+    @Resource
+    private UserAcproblemEntityService userAcproblemEntityService;
+
+    @Resource
+    private RedisUtils redisUtils;
+
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 标记用户的排行数据需要重新统计
+     */
+    public void markUserChanged(String uid) {
+        if (uid != null) {
+            redisUtils.sSet(Constants.Account.GLOBAL_RANK_CHANGED_USER.getCode(), uid);
+        }
+    }
+
+    public void markUserChanged(Collection<String> uidList) {
+        if (!CollectionUtils.isEmpty(uidList)) {
+            redisUtils.sSet(Constants.Account.GLOBAL_RANK_CHANGED_USER.getCode(), uidList.toArray());
+        }
+    }
+
+    /**
+     * 用户提交了一道非比赛、非团队的题目，提交数加一
+     */
+    public void increaseTotal(String uid) {
+        applyCounter(uid, -1L, false, null, 1);
+    }
+
+    /**
+     * 本地评测结束，按评测结果增量更新该用户的ac数与得分
+     */
+    public void onJudgeFinished(Long submitId) {
+        try {
+            QueryWrapper<Judge> judgeQueryWrapper = new QueryWrapper<>();
+            judgeQueryWrapper.select("submit_id", "uid", "pid", "cid", "gid", "status", "oi_rank_score")
+                    .eq("submit_id", submitId);
+            Judge judge = judgeEntityService.getOne(judgeQueryWrapper, false);
+            if (judge == null || judge.getCid() == null || judge.getCid() != 0 || judge.getGid() != null) {
+                return;
+            }
+            if (isJudging(judge.getStatus())) {
+                // 评测失败重新入队等情况，等评测结束后再统计
+                markUserChanged(judge.getUid());
+                return;
+            }
+            boolean isAc = Objects.equals(judge.getStatus(), Constants.Judge.STATUS_ACCEPTED.getStatus());
+            applyCounter(judge.getUid(), judge.getPid(), isAc, judge.getOiRankScore(), 0);
+        } catch (Exception e) {
+            log.error("[Global Rank] Apply the judge result of submission [{}] error------------>", submitId, e);
+        }
+    }
+
+    /**
+     * 执行增量更新脚本，用户的计数不存在或执行出错时标记该用户重新统计
+     */
+    private void applyCounter(String uid, Long pid, boolean isAc, Integer oiRankScore, int totalDelta) {
+        if (uid == null) {
+            return;
+        }
+        try {
+            Long result = redisTemplate.execute(APPLY_COUNTER_SCRIPT, RedisSerializer.string(),
+                    (RedisSerializer<Long>) redisTemplate.getValueSerializer(),
+                    Arrays.asList(Constants.Account.GLOBAL_ACM_RANK.getCode(),
+                            Constants.Account.GLOBAL_OI_RANK.getCode(),
+                            Constants.Account.GLOBAL_RANK_COUNTER.getCode(),
+                            Constants.Account.GLOBAL_RANK_USER_PROBLEM.getCode() + uid),
+                    uid,
+                    String.valueOf(pid),
+                    isAc ? "1" : "0",
+                    String.valueOf(oiRankScore == null ? -1 : oiRankScore),
+                    String.valueOf(totalDelta),
+                    String.valueOf((long) ACM_AC_WEIGHT),
+                    String.valueOf((long) OI_SCORE_WEIGHT),
+                    String.valueOf(USER_PROBLEM_EXPIRE_SECONDS));
+            if (result != null && (result == APPLY_SUCCESS || result == APPLY_NOT_BUILT)) {
+                // 尚未建立时由全量重建统计
+                return;
+            }
+        } catch (Exception e) {
+            log.error("[Global Rank] Apply the counter of user [{}] error------------>", uid, e);
+        }
+        markUserChanged(uid);
+    }
+
+    private boolean isJudging(Integer status) {
+        return status == null
+                || Objects.equals(status, Constants.Judge.STATUS_PENDING.getStatus())
+                || Objects.equals(status, Constants.Judge.STATUS_COMPILING.getStatus())
+                || Objects.equals(status, Constants.Judge.STATUS_JUDGING.getStatus())
+                || Objects.equals(status, Constants.Judge.STATUS_SUBMITTING.getStatus());
+    }
+
+    /**
+     * @return 排行榜尚未建立时返回null，由调用方降级为数据库查询；redis出错时抛出异常
+     */
+    public IPage<ACMRankVO> getACMRankList(int limit, int currentPage) {
+        Page<ACMRankVO> page = new Page<>(currentPage, limit);
+        List<String> uidList = getRankPageUidList(Constants.Account.GLOBAL_ACM_RANK.getCode(), page);
+        if (uidList == null) {
+            return null;
+        }
+        Map<String, UserInfo> userInfoMap = getUserInfoMap(uidList);
+        List<int[]> counterList = getCounterList(uidList);
+        List<ACMRankVO> records = new ArrayList<>(uidList.size());
+        for (int i = 0; i < uidList.size(); i++) {
+            UserInfo userInfo = userInfoMap.get(uidList.get(i));
+            if (userInfo == null) {
+                continue;
+            }
+            int[] counter = counterList.get(i);
+            ACMRankVO acmRankVo = new ACMRankVO();
+            acmRankVo.setUid(userInfo.getUuid());
+            acmRankVo.setUsername(userInfo.getUsername());
+            acmRankVo.setNickname(userInfo.getNickname());
+            acmRankVo.setSignature(getSignature(userInfo.getSignature()));
+            acmRankVo.setAvatar(userInfo.getAvatar());
+            acmRankVo.setTitleName(userInfo.getTitleName());
+            acmRankVo.setTitleColor(userInfo.getTitleColor());
+            acmRankVo.setAc(counter[0]);
+            acmRankVo.setTotal(counter[1]);
+            records.add(acmRankVo);
+        }
+        page.setRecords(records);
+        return page;
+    }
+
+    /**
+     * @return 排行榜尚未建立时返回null，由调用方降级为数据库查询；redis出错时抛出异常
+     */
+    public IPage<OIRankVO> getOIRankList(int limit, int currentPage) {
+        Page<OIRankVO> page = new Page<>(currentPage, limit);
+        List<String> uidList = getRankPageUidList(Constants.Account.GLOBAL_OI_RANK.getCode(), page);
+        if (uidList == null) {
+            return null;
+        }
+        Map<String, UserInfo> userInfoMap = getUserInfoMap(uidList);
+        List<int[]> counterList = getCounterList(uidList);
+        List<OIRankVO> records = new ArrayList<>(uidList.size());
+        for (int i = 0; i < uidList.size(); i++) {
+            UserInfo userInfo = userInfoMap.get(uidList.get(i));
+            if (userInfo == null) {
+                continue;
+            }
+            int[] counter = counterList.get(i);
+            OIRankVO oiRankVo = new OIRankVO();
+            oiRankVo.setUid(userInfo.getUuid());
+            oiRankVo.setUsername(userInfo.getUsername());
+            oiRankVo.setNickname(userInfo.getNickname());
+            oiRankVo.setSignature(getSignature(userInfo.getSignature()));
+            oiRankVo.setAvatar(userInfo.getAvatar());
+            oiRankVo.setTitleName(userInfo.getTitleName());
+            oiRankVo.setTitleColor(userInfo.getTitleColor());
+            oiRankVo.setAc(counter[0]);
+            oiRankVo.setTotal(counter[1]);
+            oiRankVo.setScore(counter[2]);
+            records.add(oiRankVo);
+        }
+        page.setRecords(records);
+        return page;
+    }
+
+    /**
+     * 重新统计被标记的用户，多个实例同时只有一个在执行
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void syncChangedUser() {
+        try {
+            if (redisTemplate.opsForZSet().score(Constants.Account.GLOBAL_ACM_RANK.getCode(), SENTINEL_MEMBER) == null) {
+                // 尚未建立（首次启动或redis数据丢失），全量重建
+                rebuild();
+                return;
+            }
+        } catch (Exception e) {
+            log.error("[Global Rank] Check the global rank error------------>", e);
+            return;
+        }
+        String lockKey = Constants.Account.GLOBAL_RANK_SYNC_LOCK.getCode();
+        String requestId = IdUtil.fastSimpleUUID();
+        if (!redisUtils.getLock(lockKey, 60, requestId)) {
+            return;
+        }
+        try {
+            List<Object> changedList;
+            while (!(changedList = redisUtils.sPop(Constants.Account.GLOBAL_RANK_CHANGED_USER.getCode(), SYNC_BATCH_SIZE)).isEmpty()) {
+                List<String> uidList = changedList.stream().map(String::valueOf).collect(Collectors.toList());
+                Date startTime = new Date();
+                List<OIRankVO> counterList = userRecordEntityService.getUserRankCounterList(uidList);
+                writeUserProblem(counterList);
+                writeCounter(counterList,
+                        Constants.Account.GLOBAL_ACM_RANK.getCode(),
+                        Constants.Account.GLOBAL_OI_RANK.getCode(),
+                        Constants.Account.GLOBAL_RANK_COUNTER.getCode());
+
+                // 不在统计结果中的用户已被封禁或删除，从排行榜移除
+                Set<String> existUidSet = counterList.stream().map(OIRankVO::getUid).collect(Collectors.toSet());
+                Object[] removeUids = uidList.stream().filter(uid -> !existUidSet.contains(uid)).toArray();
+                if (removeUids.length > 0) {
+                    redisUtils.zRemove(Constants.Account.GLOBAL_ACM_RANK.getCode(), removeUids);
+                    redisUtils.zRemove(Constants.Account.GLOBAL_OI_RANK.getCode(), removeUids);
+                    redisUtils.hdel(Constants.Account.GLOBAL_RANK_COUNTER.getCode(), removeUids);
+                    redisUtils.del(Arrays.stream(removeUids)
+                            .map(uid -> Constants.Account.GLOBAL_RANK_USER_PROBLEM.getCode() + uid)
+                            .toArray(String[]::new));
+                }
+
+                // 仍有提交在评测中的用户评测结束后需要再次统计，
+                // 统计期间有提交被修改的用户，其增量更新可能被本次写入覆盖，也需要再次统计
+                Set<String> resyncUidSet = new HashSet<>(userRecordEntityService.getJudgingUidList(uidList,
+                        DateUtil.offsetMinute(startTime, -judgingWaitMinutes)));
+                resyncUidSet.addAll(userRecordEntityService.getModifiedUidList(uidList, startTime));
+                markUserChanged(resyncUidSet);
+                if (changedList.size() < SYNC_BATCH_SIZE) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("[Global Rank] Sync the changed user error------------>", e);
+        } finally {
+            redisUtils.releaseLock(lockKey, requestId);
+        }
+    }
+
+    /**
+     * 从数据库全量重建排行榜，先写入临时键再整体替换
+     */
+    public void rebuild() {
+        String lockKey = Constants.Account.GLOBAL_RANK_SYNC_LOCK.getCode();
+        String requestId = IdUtil.fastSimpleUUID();
+        if (!redisUtils.getLock(lockKey, 600, requestId)) {
+            return;
+        }
+        try {
+            String acmRankKey = Constants.Account.GLOBAL_ACM_RANK.getCode();
+            String oiRankKey = Constants.Account.GLOBAL_OI_RANK.getCode();
+            String counterKey = Constants.Account.GLOBAL_RANK_COUNTER.getCode();
+            redisUtils.del(acmRankKey + TMP_SUFFIX, oiRankKey + TMP_SUFFIX, counterKey + TMP_SUFFIX);
+
+            Date startTime = new Date();
+            List<OIRankVO> counterList = userRecordEntityService.getUserRankCounterList(null);
+            for (int i = 0; i < counterList.size(); i += SYNC_BATCH_SIZE) {
+                writeCounter(counterList.subList(i, Math.min(i + SYNC_BATCH_SIZE, counterList.size())),
+                        acmRankKey + TMP_SUFFIX,
+                        oiRankKey + TMP_SUFFIX,
+                        counterKey + TMP_SUFFIX);
+            }
+            // 写入哨兵，即使没有任何用户排行榜也视为已建立，避免定时任务反复重建
+            redisTemplate.opsForZSet().add(oiRankKey + TMP_SUFFIX, SENTINEL_MEMBER, SENTINEL_SCORE);
+            redisTemplate.opsForZSet().add(acmRankKey + TMP_SUFFIX, SENTINEL_MEMBER, SENTINEL_SCORE);
+            if (counterList.isEmpty()) {
+                redisUtils.del(counterKey);
+            } else {
+                redisTemplate.rename(counterKey + TMP_SUFFIX, counterKey);
+            }
+            redisTemplate.rename(oiRankKey + TMP_SUFFIX, oiRankKey);
+            redisTemplate.rename(acmRankKey + TMP_SUFFIX, acmRankKey);
+
+            // 重建期间增量更新的用户已被覆盖，重新统计
+            markUserChanged(userRecordEntityService.getModifiedUidList(null, startTime));
+            log.info("[Global Rank] Rebuild the global rank of {} users", counterList.size());
+        } catch (Exception e) {
+            log.error("[Global Rank] Rebuild the global rank error------------>", e);
+        } finally {
+            redisUtils.releaseLock(lockKey, requestId);
+        }
+    }
+
+    private void writeCounter(List<OIRankVO> counterList, String acmRankKey, String oiRankKey, String counterKey) {
+        if (CollectionUtils.isEmpty(counterList)) {
+            return;
+        }
+        Map<Object, Double> acmScoreMap = new HashMap<>(counterList.size() * 2);
+        Map<Object, Double> oiScoreMap = new HashMap<>(counterList.size() * 2);
+        Map<String, Object> counterMap = new HashMap<>(counterList.size() * 2);
+        for (OIRankVO counter : counterList) {
+            int ac = counter.getAc() == null ? 0 : counter.getAc();
+            int total = counter.getTotal() == null ? 0 : counter.getTotal();
+            int score = counter.getScore() == null ? 0 : counter.getScore();
+            acmScoreMap.put(counter.getUid(), ac * ACM_AC_WEIGHT - total);
+            oiScoreMap.put(counter.getUid(), score * OI_SCORE_WEIGHT + ac);
+            counterMap.put(counter.getUid(), ac + "," + total + "," + score);
+        }
+        redisUtils.hmset(counterKey, counterMap);
+        redisUtils.zAdd(oiRankKey, oiScoreMap);
+        redisUtils.zAdd(acmRankKey, acmScoreMap);
+    }
+
+    /**
+     * 重新写入用户的逐题数据：是否AC与最高OI得分，供增量更新时计算变化量
+     */
+    private void writeUserProblem(List<OIRankVO> counterList) {
+        if (CollectionUtils.isEmpty(counterList)) {
+            return;
+        }
+        List<String> uidList = counterList.stream().map(OIRankVO::getUid).collect(Collectors.toList());
+        Map<String, Map<Long, Integer>> bestScoreMap = new HashMap<>(uidList.size() * 2);
+        QueryWrapper<Judge> judgeQueryWrapper = new QueryWrapper<>();
+        judgeQueryWrapper.select("uid", "pid", "MAX(oi_rank_score) AS oi_rank_score")
+                .eq("cid", 0)
+                .isNull("gid")
+                .in("uid", uidList)
+                .groupBy("uid", "pid");
+        for (Judge judge : judgeEntityService.list(judgeQueryWrapper)) {
+            bestScoreMap.computeIfAbsent(judge.getUid(), k -> new HashMap<>())
+                    .put(judge.getPid(), judge.getOiRankScore());
+        }
+        Map<String, Set<Long>> acPidMap = new HashMap<>(uidList.size() * 2);
+        QueryWrapper<UserAcproblem> userAcproblemQueryWrapper = new QueryWrapper<>();
+        userAcproblemQueryWrapper.select("DISTINCT uid", "pid").in("uid", uidList);
+        for (UserAcproblem userAcproblem : userAcproblemEntityService.list(userAcproblemQueryWrapper)) {
+            acPidMap.computeIfAbsent(userAcproblem.getUid(), k -> new HashSet<>()).add(userAcproblem.getPid());
+        }
+
+        for (String uid : uidList) {
+            Map<Long, Integer> scoreMap = bestScoreMap.getOrDefault(uid, Collections.emptyMap());
+            Set<Long> acPidSet = acPidMap.getOrDefault(uid, Collections.emptySet());
+            Set<Long> pidSet = new HashSet<>(scoreMap.keySet());
+            pidSet.addAll(acPidSet);
+            Map<String, Object> problemMap = new HashMap<>(pidSet.size() * 2 + 2);
+            problemMap.put(USER_PROBLEM_INIT_FIELD, "1");
+            for (Long pid : pidSet) {
+                Integer score = scoreMap.get(pid);
+                problemMap.put(String.valueOf(pid), (acPidSet.contains(pid) ? 1 : 0) + "," + (score == null ? -1 : score));
+            }
+            String key = Constants.Account.GLOBAL_RANK_USER_PROBLEM.getCode() + uid;
+            redisUtils.del(key);
+            redisUtils.hmset(key, problemMap, USER_PROBLEM_EXPIRE_SECONDS);
+        }
+    }
+
+    private List<String> getRankPageUidList(String rankKey, Page<?> page) {
+        // 包含哨兵成员，为0说明尚未建立
+        Long size = redisTemplate.opsForZSet().zCard(rankKey);
+        if (size == null || size == 0) {
+            return null;
+        }
+        long total = size - 1;
+        page.setTotal(total);
+        long start = (page.getCurrent() - 1) * page.getSize();
+        if (start >= total) {
+            return Collections.emptyList();
+        }
+        Set<Object> members = redisTemplate.opsForZSet().reverseRange(rankKey, start,
+                Math.min(start + page.getSize(), total) - 1);
+        if (members == null) {
+            return Collections.emptyList();
+        }
+        return members.stream()
+                .map(String::valueOf)
+                .filter(uid -> !SENTINEL_MEMBER.equals(uid))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return 与uidList一一对应的[ac, total, score]
+     */
+    private List<int[]> getCounterList(List<String> uidList) {
+        List<Object> valueList = redisTemplate.opsForHash().multiGet(Constants.Account.GLOBAL_RANK_COUNTER.getCode(),
+                new ArrayList<>(uidList));
+        List<int[]> counterList = new ArrayList<>(uidList.size());
+        for (Object value : valueList) {
+            int[] counter = new int[3];
+            if (value != null) {
+                String[] parts = value.toString().split(",");
+                for (int i = 0; i < parts.length && i < counter.length; i++) {
+                    counter[i] = Integer.parseInt(parts[i]);
+                }
+            }
+            counterList.add(counter);
+        }
+        return counterList;
+    }
+
+    private Map<String, UserInfo> getUserInfoMap(List<String> uidList) {
+        if (uidList.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        QueryWrapper<UserInfo> userInfoQueryWrapper = new QueryWrapper<>();
+        userInfoQueryWrapper.select("uuid", "username", "nickname", "signature", "avatar", "title_name", "title_color")
+                .in("uuid", uidList)
+                .eq("status", 0);
+        return userInfoEntityService.list(userInfoQueryWrapper)
+                .stream()
+                .collect(Collectors.toMap(UserInfo::getUuid, userInfo -> userInfo, (a, b) -> a));
+    }
+
+    private String getSignature(String signature) {
+        if (signature == null || signature.length() <= 100) {
+            return signature;
+        }
+        return signature.substring(0, 100);
+    }
+}
@@ -5,6 +5,7 @@ import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.apache.shiro.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -15,6 +16,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 import top.hcode.hoj.annotation.HOJAccessEnum;
+import top.hcode.hoj.annotation.HOJRateLimitEnum;
 import top.hcode.hoj.common.exception.*;
 import top.hcode.hoj.config.NacosSwitchConfig;
 import top.hcode.hoj.config.SwitchConfig;
@@ -43,6 +45,7 @@ import top.hcode.hoj.validator.AccessValidator;
 import top.hcode.hoj.validator.ContestValidator;
 import top.hcode.hoj.validator.GroupValidator;
 import top.hcode.hoj.validator.JudgeValidator;
+import top.hcode.hoj.validator.RateLimitValidator;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.*;
@@ -85,6 +88,9 @@ public class JudgeManager {
     @Autowired
     private JudgeValidator judgeValidator;
 
+    @Autowired
+    private RateLimitValidator rateLimitValidator;
+
     @Autowired
     private ContestValidator contestValidator;
 
@@ -100,6 +106,12 @@ public class JudgeManager {
     @Autowired
     private NacosSwitchConfig nacosSwitchConfig;
 
+    @Autowired
+    private GlobalRankManager globalRankManager;
+
+    @Autowired
+    private UserSearchIndexManager userSearchIndexManager;
+
     /**
      * @MethodName submitProblemJudge
      * @Description 核心方法 判题通过openfeign调用判题系统服务
@@ -118,7 +130,8 @@ public class JudgeManager {
         SwitchConfig switchConfig = nacosSwitchConfig.getSwitchConfig();
         if (!isContestSubmission && switchConfig.getDefaultSubmitInterval() > 0) { // 非比赛提交有限制限制
             String lockKey = Constants.Account.SUBMIT_NON_CONTEST_LOCK.getCode() + userRolesVo.getUid();
-            if (!redisUtils.isWithinRateLimit(lockKey, switchConfig.getDefaultSubmitInterval())) {
+            if (!rateLimitValidator.tryAcquire(lockKey, HOJRateLimitEnum.TOKEN_BUCKET, 1,
+                    switchConfig.getDefaultSubmitInterval() * 1000L)) {
                 throw new StatusForbiddenException("对不起，您的提交频率过快，请稍后再尝试！");
             }
         }
@@ -149,6 +162,15 @@ public class JudgeManager {
 
         }
 
+        // 非比赛、非团队的提交计入全站排行榜，本地评测的结果在评测结束时增量更新，
+        // 远程评测异步返回结果，需要标记用户待同步
+        if (!isContestSubmission && judge.getGid() == null) {
+            globalRankManager.increaseTotal(judge.getUid());
+            if (judgeDto.getIsRemote()) {
+                globalRankManager.markUserChanged(judge.getUid());
+            }
+        }
+
         // 将提交加入任务队列
         if (judgeDto.getIsRemote()) { // 如果是远程oj判题
             remoteJudgeDispatcher.sendTask(judge.getSubmitId(),
@@ -174,7 +196,8 @@ public class JudgeManager {
         String lockKey = Constants.Account.TEST_JUDGE_LOCK.getCode() + userRolesVo.getUid();
         SwitchConfig switchConfig = nacosSwitchConfig.getSwitchConfig();
         if (switchConfig.getDefaultSubmitInterval() > 0) {
-            if (!redisUtils.isWithinRateLimit(lockKey, switchConfig.getDefaultSubmitInterval())) {
+            if (!rateLimitValidator.tryAcquire(lockKey, HOJRateLimitEnum.TOKEN_BUCKET, 1,
+                    switchConfig.getDefaultSubmitInterval() * 1000L)) {
                 throw new StatusForbiddenException("对不起，您使用在线调试过于频繁，请稍后再尝试！");
             }
         }
@@ -298,6 +321,10 @@ public class JudgeManager {
                 .setMemory(null);
         judgeEntityService.updateById(judge);
 
+        if (judge.getCid() == 0 && judge.getGid() == null) {
+            globalRankManager.markUserChanged(judge.getUid());
+        }
+
         // 将提交加入任务队列
         if (problem.getIsRemote()) { // 如果是远程oj判题
             remoteJudgeDispatcher.sendTask(judge.getSubmitId(),
@@ -473,7 +500,8 @@ public class JudgeManager {
                                        Integer searchStatus,
                                        String searchUsername,
                                        Boolean completeProblemID,
-                                       Long gid) throws StatusAccessDeniedException {
+                                       Long gid,
+                                       Long before) throws StatusAccessDeniedException {
         // 页数，每页题数若为空，设置默认值
         if (currentPage == null || currentPage < 1) currentPage = 1;
         if (limit == null || limit < 1) limit = 30;
@@ -492,8 +520,13 @@ public class JudgeManager {
         if (searchPid != null) {
             searchPid = searchPid.trim();
         }
+        List<String> searchUidList = null;
         if (searchUsername != null) {
             searchUsername = searchUsername.trim();
+            searchUidList = userSearchIndexManager.searchUidByUsername(searchUsername);
+            if (searchUidList != null && searchUidList.isEmpty()) {
+                return new Page<>(currentPage, limit);
+            }
         }
 
         return judgeEntityService.getCommonJudgeList(limit,
@@ -501,9 +534,11 @@ public class JudgeManager {
                 searchPid,
                 searchStatus,
                 searchUsername,
+                searchUidList,
                 uid,
                 completeProblemID,
-                gid);
+                gid,
+                before);
     }
 
 
@@ -554,7 +589,7 @@ public class JudgeManager {
         AccountProfile userRolesVo = (AccountProfile) SecurityUtils.getSubject().getPrincipal();
         boolean isRoot = SecurityUtils.getSubject().hasRole("root"); // 是否为超级管理员
 
-        Contest contest = contestEntityService.getById(submitIdListDto.getCid());
+        Contest contest = contestEntityService.getCachedContest(submitIdListDto.getCid());
 
         boolean isContestAdmin = isRoot
                 || userRolesVo.getUid().equals(contest.getUid())
@@ -0,0 +1,373 @@
+package top.hcode.hoj.manager.oj;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.shiro.SecurityUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.CollectionUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import top.hcode.hoj.common.exception.StatusFailException;
+import top.hcode.hoj.common.exception.StatusNotFoundException;
+import top.hcode.hoj.dao.contest.ContestEntityService;
+import top.hcode.hoj.dao.judge.JudgeEntityService;
+import top.hcode.hoj.pojo.entity.contest.Contest;
+import top.hcode.hoj.pojo.entity.judge.Judge;
+import top.hcode.hoj.shiro.AccountProfile;
+import top.hcode.hoj.utils.Constants;
+import top.hcode.hoj.utils.RedisUtils;
+import top.hcode.hoj.validator.ContestValidator;
+import top.hcode.hoj.validator.GroupValidator;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/17 23:30
+ * @Description: 提交评测状态的服务端推送(SSE)
+ * 客户端订阅自己关注的提交id，不再每2秒轮询一次check-submissions-status。
+ * 本地评测结束后由调度方通过redis频道广播提交id，各实例只为本机有订阅的提交查询一次数据库并推送；
+ * 编译中、评测中等中间状态以及远程评测的结果由定时任务按本机所有订阅的提交批量查询一次补推。
+ * 比赛提交的封榜、比赛管理员可见性在每个事件上只判断一次，不再随每次轮询重复查询比赛。
+ */
+@Component
+@Slf4j(topic = "hoj")
+public class JudgeStatusPushManager implements MessageListener {
+
+    private static final String JUDGE_STATUS_CHANNEL = "hoj_judge_status_channel";
+
+    private static final int MAX_SUBSCRIBE_SIZE = 100;
+
+    private static final int QUERY_BATCH_SIZE = 500;
+
+    private static final List<Integer> judgingStatus = Arrays.asList(
+            Constants.Judge.STATUS_PENDING.getStatus(),
+            Constants.Judge.STATUS_COMPILING.getStatus(),
+            Constants.Judge.STATUS_JUDGING.getStatus(),
+            Constants.Judge.STATUS_SUBMITTING.getStatus());
+
+    /**
+     * 与原先前端轮询的最长时间(2s * 300)保持一致
+     */
+    @Value("${hoj.judge-status-push.timeout-millis:600000}")
+    private Long subscribeTimeoutMillis;
+
+    @Resource
+    private JudgeEntityService judgeEntityService;
+
+    @Resource
+    private ContestEntityService contestEntityService;
+
+    @Resource
+    private ContestValidator contestValidator;
+
+    @Resource
+    private GroupValidator groupValidator;
+
+    @Resource
+    private RedisUtils redisUtils;
+
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /**
+     * 本机上 提交id -> 订阅者
+     */
+    private final ConcurrentHashMap<Long, Set<Subscriber>> subscriberMap = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(JUDGE_STATUS_CHANNEL));
+    }
+
+    /**
+     * 订阅提交列表的评测状态，cid不为空时为比赛提交，需要登录
+     */
+    public SseEmitter subscribe(List<Long> submitIds, Long cid) throws StatusFailException, StatusNotFoundException {
+        if (CollectionUtils.isEmpty(submitIds)) {
+            throw new StatusFailException("订阅的提交id列表不能为空");
+        }
+        if (submitIds.size() > MAX_SUBSCRIBE_SIZE) {
+            throw new StatusFailException("一次最多只能订阅" + MAX_SUBSCRIBE_SIZE + "个提交的评测状态");
+        }
+        Subscriber subscriber = new Subscriber(new SseEmitter(subscribeTimeoutMillis), new HashSet<>(submitIds));
+        if (cid != null) {
+            Contest contest = contestEntityService.getById(cid);
+            if (contest == null) {
+                throw new StatusNotFoundException("该比赛不存在！");
+            }
+            AccountProfile userRolesVo = (AccountProfile) SecurityUtils.getSubject().getPrincipal();
+            boolean isRoot = SecurityUtils.getSubject().hasRole("root");
+            subscriber.uid = userRolesVo.getUid();
+            subscriber.cid = cid;
+            subscriber.isContestAdmin = isRoot
+                    || userRolesVo.getUid().equals(contest.getUid())
+                    || (contest.getIsGroup() && groupValidator.isGroupRoot(userRolesVo.getUid(), contest.getGid()));
+        }
+
+        SseEmitter emitter = subscriber.emitter;
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+
+        for (Long submitId : subscriber.submitIds) {
+            subscriberMap.computeIfAbsent(submitId, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        }
+        // 先推送一次当前状态，避免订阅前已结束的提交收不到结果
+        push(subscriber.submitIds);
+        return emitter;
+    }
+
+    /**
+     * 提交的评测状态发生变化，通知所有实例推送给订阅者。
+     * 处于事务中时在事务提交后再通知，避免订阅方读到旧数据。
+     */
+    public void publish(Long submitId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    sendMessage(submitId);
+                }
+            });
+        } else {
+            sendMessage(submitId);
+        }
+    }
+
+    private void sendMessage(Long submitId) {
+        try {
+            redisUtils.sendMessage(JUDGE_STATUS_CHANNEL, submitId);
+        } catch (Exception e) {
+            // 推送失败时由定时补推兜底
+            log.error("[Judge Status Push] Publish the status of submission [{}] error------------>", submitId, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object submitId = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (submitId != null) {
+                push(Collections.singletonList(Long.valueOf(submitId.toString())));
+            }
+        } catch (Exception e) {
+            log.error("[Judge Status Push] Handle the message error------------>", e);
+        }
+    }
+
+    /**
+     * 本机所有订阅中的提交批量查询一次，推送中间状态以及远程评测等未经频道通知的结果
+     */
+    @Scheduled(fixedDelay = 2000)
+    public void pushSubscribedStatus() {
+        if (subscriberMap.isEmpty()) {
+            return;
+        }
+        try {
+            push(new ArrayList<>(subscriberMap.keySet()));
+        } catch (Exception e) {
+            log.error("[Judge Status Push] Push the subscribed status error------------>", e);
+        }
+    }
+
+    private void push(Collection<Long> submitIds) {
+        List<Long> subscribedIds = new ArrayList<>();
+        for (Long submitId : submitIds) {
+            if (subscriberMap.containsKey(submitId)) {
+                subscribedIds.add(submitId);
+            }
+        }
+        if (subscribedIds.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Contest> contestMap = new HashMap<>();
+        Map<Long, Boolean> sealRankMap = new HashMap<>();
+        Set<Subscriber> finishedSubscriberSet = new HashSet<>();
+        for (int i = 0; i < subscribedIds.size(); i += QUERY_BATCH_SIZE) {
+            List<Long> batchIds = subscribedIds.subList(i, Math.min(i + QUERY_BATCH_SIZE, subscribedIds.size()));
+            QueryWrapper<Judge> queryWrapper = new QueryWrapper<>();
+            // lambada表达式过滤掉code
+            queryWrapper.select(Judge.class, info -> !info.getColumn().equals("code")).in("submit_id", batchIds);
+            List<Judge> judgeList = judgeEntityService.list(queryWrapper);
+            for (Judge judge : judgeList) {
+                pushJudge(judge, contestMap, sealRankMap, finishedSubscriberSet);
+            }
+        }
+
+        for (Subscriber subscriber : finishedSubscriberSet) {
+            try {
+                subscriber.emitter.send(SseEmitter.event().name("complete").data(Collections.emptyMap()));
+                subscriber.emitter.complete();
+            } catch (Exception e) {
+                subscriber.emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private void pushJudge(Judge judge,
+                           Map<Long, Contest> contestMap,
+                           Map<Long, Boolean> sealRankMap,
+                           Set<Subscriber> finishedSubscriberSet) {
+        Set<Subscriber> subscriberSet = subscriberMap.get(judge.getSubmitId());
+        if (subscriberSet == null) {
+            return;
+        }
+        boolean isFinished = !judgingStatus.contains(judge.getStatus());
+        Judge commonView = null;
+        Judge contestView = null;
+        Judge contestLimitView = null;
+        for (Subscriber subscriber : subscriberSet) {
+            Judge view = null;
+            if (subscriber.cid == null) {
+                if (commonView == null) {
+                    commonView = getCommonView(judge);
+                }
+                view = commonView;
+            } else if (subscriber.cid.equals(judge.getCid())) {
+                boolean isVisible = subscriber.isContestAdmin
+                        || !isHiddenBySealRank(judge, contestMap, sealRankMap);
+                if (!isVisible) {
+                    // 封榜期间的提交结果不可见，不再推送
+                    isFinished = true;
+                } else if (subscriber.isContestAdmin || judge.getUid().equals(subscriber.uid)) {
+                    if (contestView == null) {
+                        contestView = getContestView(judge, false);
+                    }
+                    view = contestView;
+                } else {
+                    if (contestLimitView == null) {
+                        contestLimitView = getContestView(judge, true);
+                    }
+                    view = contestLimitView;
+                }
+            } else {
+                // 不属于该比赛的提交
+                isFinished = true;
+            }
+
+            if (view != null && !send(subscriber, view)) {
+                continue;
+            }
+            if (isFinished || view == null) {
+                subscriber.submitIds.remove(judge.getSubmitId());
+                if (subscriber.submitIds.isEmpty()) {
+                    finishedSubscriberSet.add(subscriber);
+                }
+            }
+        }
+    }
+
+    private boolean isHiddenBySealRank(Judge judge, Map<Long, Contest> contestMap, Map<Long, Boolean> sealRankMap) {
+        Contest contest = contestMap.computeIfAbsent(judge.getCid(), contestEntityService::getById);
+        if (contest == null) {
+            return true;
+        }
+        // 非管理员视角下的封榜状态，每个比赛每个事件只判断一次
+        boolean isSealRank = sealRankMap.computeIfAbsent(judge.getCid(),
+                cid -> contestValidator.isSealRank(null, contest, false, false));
+        if (!isSealRank) {
+            return false;
+        }
+        return judge.getSubmitTime().before(contest.getStartTime())
+                || judge.getSubmitTime().after(contest.getSealRankTime());
+    }
+
+    private boolean send(Subscriber subscriber, Judge view) {
+        try {
+            Map<Long, Judge> data = new HashMap<>(2);
+            data.put(view.getSubmitId(), view);
+            subscriber.emitter.send(SseEmitter.event().name("status").data(data));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开
+            unsubscribe(subscriber);
+            return false;
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        for (Long submitId : subscriber.allSubmitIds) {
+            subscriberMap.computeIfPresent(submitId, (k, subscriberSet) -> {
+                subscriberSet.remove(subscriber);
+                return subscriberSet.isEmpty() ? null : subscriberSet;
+            });
+        }
+    }
+
+    private Judge getCommonView(Judge judge) {
+        Judge view = new Judge();
+        view.setSubmitId(judge.getSubmitId())
+                .setUid(judge.getUid())
+                .setUsername(judge.getUsername())
+                .setPid(judge.getPid())
+                .setDisplayPid(judge.getDisplayPid())
+                .setStatus(judge.getStatus())
+                .setShare(judge.getShare())
+                .setTime(judge.getTime())
+                .setMemory(judge.getMemory())
+                .setScore(judge.getScore())
+                .setLength(judge.getLength())
+                .setLanguage(judge.getLanguage())
+                .setCid(judge.getCid())
+                .setCpid(judge.getCpid())
+                .setGid(judge.getGid())
+                .setJudger(judge.getJudger())
+                .setIsManual(judge.getIsManual())
+                .setSubmitTime(judge.getSubmitTime())
+                .setOiRankScore(judge.getOiRankScore());
+        return view;
+    }
+
+    private Judge getContestView(Judge judge, boolean isLimit) {
+        Judge view = getCommonView(judge);
+        view.setDisplayPid(null);
+        if (isLimit) {
+            view.setTime(null);
+            view.setMemory(null);
+            view.setLength(null);
+        }
+        return view;
+    }
+
+    private static class Subscriber {
+
+        private final SseEmitter emitter;
+
+        private final Set<Long> allSubmitIds;
+
+        /**
+         * 尚未评测结束的提交
+         */
+        private final Set<Long> submitIds;
+
+        private String uid;
+
+        private Long cid;
+
+        private boolean isContestAdmin;
+
+        Subscriber(SseEmitter emitter, Set<Long> submitIds) {
+            this.emitter = emitter;
+            this.allSubmitIds = submitIds;
+            this.submitIds = ConcurrentHashMap.newKeySet();
+            this.submitIds.addAll(submitIds);
+        }
+    }
+}
@@ -73,6 +73,12 @@ public class PassportManager {
     @Resource
     private UserRecordEntityService userRecordEntityService;
 
+    @Resource
+    private GlobalRankManager globalRankManager;
+
+    @Resource
+    private UserSearchIndexManager userSearchIndexManager;
+
     @Resource
     private SessionEntityService sessionEntityService;
 
@@ -251,6 +257,8 @@ public class PassportManager {
         if (addUser && addUserRole && addUserRecord) {
             redisUtils.del(registerDto.getEmail());
             noticeManager.syncNoticeToNewRegisterUser(uuid);
+            globalRankManager.markUserChanged(uuid);
+            userSearchIndexManager.markChanged(uuid);
         } else {
             throw new StatusFailException("注册失败，请稍后重新尝试！");
         }
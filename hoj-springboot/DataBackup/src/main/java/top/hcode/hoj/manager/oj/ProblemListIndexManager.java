@@ -0,0 +1,456 @@
+package top.hcode.hoj.manager.oj;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+import top.hcode.hoj.dao.judge.JudgeEntityService;
+import top.hcode.hoj.dao.problem.ProblemEntityService;
+import top.hcode.hoj.dao.problem.ProblemTagEntityService;
+import top.hcode.hoj.dao.problem.TagEntityService;
+import top.hcode.hoj.pojo.entity.problem.Problem;
+import top.hcode.hoj.pojo.entity.problem.ProblemTag;
+import top.hcode.hoj.pojo.entity.problem.Tag;
+import top.hcode.hoj.pojo.vo.ProblemCountVO;
+import top.hcode.hoj.pojo.vo.ProblemVO;
+import top.hcode.hoj.utils.NGramIndex;
+
+import javax.annotation.Resource;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/18 10:20
+ * @Description: 公开题目列表的内存索引
+ * 公开题目的基本信息与标签id按题目列表的展示顺序常驻内存，并为每个标签、难度、OJ维护位图，
+ * 多标签、难度、OJ的筛选只需位图求交，分页直接按位遍历，不再每次查询都关联problem_tag并逐行查询标签。
+ * 标题与题目展示id的关键词查询使用n-gram倒排索引，不再 like '%keyword%' 扫表。
+ * 按problem的gmt_modified增量拉取改动的题目，公开题目数量不一致时(题目被删除)全量重建，并定时全量重建校正。
+ * 关键词索引与位图一起放在只读快照中发布，重建与刷新都在新的索引上修改，查询不会看到修改到一半的索引。
+ * 题目的提交统计按页从judge表统计，短时间缓存在内存中。
+ */
+@Component
+@Slf4j(topic = "hoj")
+public class ProblemListIndexManager {
+
+    /**
+     * 增量查询时向前回溯的时间，避免事务提交延迟导致遗漏改动
+     */
+    private static final long DELTA_OVERLAP_MILLIS = 5000;
+
+    @Value("${hoj.problem-list-index.refresh-interval-millis:5000}")
+    private Long refreshIntervalMillis;
+
+    @Value("${hoj.problem-list-index.rebuild-interval-millis:600000}")
+    private Long rebuildIntervalMillis;
+
+    @Value("${hoj.problem-list-index.count-expire-millis:30000}")
+    private Long countExpireMillis;
+
+    @Resource
+    private ProblemEntityService problemEntityService;
+
+    @Resource
+    private ProblemTagEntityService problemTagEntityService;
+
+    @Resource
+    private TagEntityService tagEntityService;
+
+    @Resource
+    private JudgeEntityService judgeEntityService;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    /**
+     * 公开题目 pid -> 题目信息，仅在持有refreshLock时修改
+     */
+    private final Map<Long, Entry> entryMap = new HashMap<>();
+
+    private final ConcurrentHashMap<Long, CountCache> countCacheMap = new ConcurrentHashMap<>();
+
+    /**
+     * 后台增删改过、等待下次刷新时重新加载的题目id
+     */
+    private final Set<Long> changedPidSet = ConcurrentHashMap.newKeySet();
+
+    private volatile Snapshot snapshot;
+
+    private volatile long lastRefreshTime;
+
+    private long lastRebuildTime;
+
+    private Date watermark;
+
+    /**
+     * 启动时预先建立索引
+     */
+    public void init() {
+        getSnapshot();
+    }
+
+    /**
+     * 后台修改题目后调用，下一次查询时立即重新加载该题目，不必等待刷新间隔
+     */
+    public void markChanged(Long pid) {
+        if (pid != null) {
+            changedPidSet.add(pid);
+            lastRefreshTime = 0;
+        }
+    }
+
+    public Page<ProblemVO> getProblemList(int limit, int currentPage, String keyword, Integer difficulty,
+                                          List<Long> tidList, String oj) {
+        Snapshot snapshot = getSnapshot();
+        BitSet result = (BitSet) snapshot.all.clone();
+        if (!CollectionUtils.isEmpty(tidList)) {
+            for (Long tid : new HashSet<>(tidList)) {
+                result.and(snapshot.tagBitmap.getOrDefault(tid, new BitSet()));
+            }
+        }
+        if (difficulty != null) {
+            result.and(snapshot.difficultyBitmap.getOrDefault(difficulty, new BitSet()));
+        }
+        if (oj != null) {
+            if ("Mine".equals(oj)) {
+                result.and(snapshot.localBitmap);
+            } else {
+                // 与 problem_id like concat(oj,'%') 的语义一致
+                BitSet ojBitmap = new BitSet();
+                snapshot.remoteOjBitmap.forEach((name, bitmap) -> {
+                    if (name.startsWith(oj)) {
+                        ojBitmap.or(bitmap);
+                    }
+                });
+                result.and(ojBitmap);
+            }
+        }
+
+        if (!StringUtils.isEmpty(keyword)) {
+            BitSet keywordBitmap = new BitSet();
+            for (Long pid : snapshot.keywordIndex.search(keyword)) {
+                Integer position = snapshot.positionMap.get(pid);
+                if (position != null) {
+                    keywordBitmap.set(position);
+                }
+            }
+            result.and(keywordBitmap);
+        }
+
+        Page<ProblemVO> page = new Page<>(currentPage, limit);
+        long skip = (long) (currentPage - 1) * limit;
+        long index = 0;
+        List<Entry> pageEntryList = new ArrayList<>(limit);
+        for (int i = result.nextSetBit(0); i >= 0 && pageEntryList.size() < limit; i = result.nextSetBit(i + 1)) {
+            if (index++ >= skip) {
+                pageEntryList.add(snapshot.entryList.get(i));
+            }
+        }
+        page.setTotal(result.cardinality());
+        return page.setRecords(toProblemVOList(pageEntryList, snapshot.tagMap));
+    }
+
+    private List<ProblemVO> toProblemVOList(List<Entry> entryList, Map<Long, Tag> tagMap) {
+        if (entryList.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, ProblemCountVO> problemCountMap = getProblemCountMap(entryList.stream()
+                .map(entry -> entry.pid)
+                .collect(Collectors.toList()));
+        List<ProblemVO> problemList = new ArrayList<>(entryList.size());
+        for (Entry entry : entryList) {
+            ProblemVO problemVo = new ProblemVO();
+            problemVo.setPid(entry.pid);
+            problemVo.setProblemId(entry.problemId);
+            problemVo.setTitle(entry.title);
+            problemVo.setDifficulty(entry.difficulty);
+            problemVo.setType(entry.type);
+            List<Tag> tags = new ArrayList<>(entry.tagIds.length);
+            for (long tid : entry.tagIds) {
+                Tag tag = tagMap.get(tid);
+                if (tag != null) {
+                    tags.add(tag);
+                }
+            }
+            problemVo.setTags(tags);
+            ProblemCountVO problemCountVo = problemCountMap.get(entry.pid);
+            if (problemCountVo != null) {
+                problemVo.setProblemCountVo(problemCountVo);
+            }
+            problemList.add(problemVo);
+        }
+        return problemList;
+    }
+
+    /**
+     * 题目提交统计，过期的部分合并为一次查询
+     */
+    private Map<Long, ProblemCountVO> getProblemCountMap(List<Long> pidList) {
+        long now = System.currentTimeMillis();
+        Map<Long, ProblemCountVO> problemCountMap = new HashMap<>(pidList.size() * 2);
+        List<Long> expiredPidList = new ArrayList<>();
+        for (Long pid : pidList) {
+            CountCache countCache = countCacheMap.get(pid);
+            if (countCache == null || now - countCache.loadTime > countExpireMillis) {
+                expiredPidList.add(pid);
+            } else if (countCache.problemCountVo != null) {
+                problemCountMap.put(pid, countCache.problemCountVo);
+            }
+        }
+        if (!expiredPidList.isEmpty()) {
+            Map<Long, ProblemCountVO> loadedMap = judgeEntityService.getProblemListCount(expiredPidList)
+                    .stream()
+                    .collect(Collectors.toMap(ProblemCountVO::getPid, problemCountVo -> problemCountVo, (a, b) -> a));
+            for (Long pid : expiredPidList) {
+                ProblemCountVO problemCountVo = loadedMap.get(pid);
+                countCacheMap.put(pid, new CountCache(problemCountVo, now));
+                if (problemCountVo != null) {
+                    problemCountMap.put(pid, problemCountVo);
+                }
+            }
+        }
+        return problemCountMap;
+    }
+
+    private Snapshot getSnapshot() {
+        long now = System.currentTimeMillis();
+        if (snapshot == null) {
+            refreshLock.lock();
+            try {
+                if (snapshot == null) {
+                    rebuild();
+                }
+            } finally {
+                refreshLock.unlock();
+            }
+        } else if (now - lastRefreshTime > refreshIntervalMillis && refreshLock.tryLock()) {
+            // 其他请求正在刷新时直接使用当前版本
+            try {
+                if (now - lastRefreshTime > refreshIntervalMillis) {
+                    refresh();
+                }
+            } catch (Exception e) {
+                log.error("[Problem List Index] Refresh error------------>", e);
+            } finally {
+                refreshLock.unlock();
+            }
+        }
+        return snapshot;
+    }
+
+    private void refresh() {
+        if (System.currentTimeMillis() - lastRebuildTime > rebuildIntervalMillis) {
+            rebuild();
+            return;
+        }
+        Date now = new Date();
+        List<Long> changedPidList = new ArrayList<>(changedPidSet);
+        changedPidSet.removeAll(changedPidList);
+        QueryWrapper<Problem> problemQueryWrapper = getProblemQueryWrapper();
+        problemQueryWrapper.ge("gmt_modified", new Date(watermark.getTime() - DELTA_OVERLAP_MILLIS));
+        if (!changedPidList.isEmpty()) {
+            problemQueryWrapper.or().in("id", changedPidList);
+        }
+        List<Problem> problemList = problemEntityService.list(problemQueryWrapper);
+
+        // 在副本上修改关键词索引，发布新快照前查询仍使用旧索引
+        NGramIndex<Long> keywordIndex = changedPidList.isEmpty() && problemList.isEmpty()
+                ? snapshot.keywordIndex : snapshot.keywordIndex.copy();
+        boolean isChanged = false;
+        if (!changedPidList.isEmpty()) {
+            // 已被删除的题目不会出现在查询结果中
+            Set<Long> existedPidSet = problemList.stream().map(Problem::getId).collect(Collectors.toSet());
+            for (Long pid : changedPidList) {
+                if (!existedPidSet.contains(pid) && entryMap.remove(pid) != null) {
+                    keywordIndex.remove(pid);
+                    isChanged = true;
+                }
+            }
+        }
+        if (!problemList.isEmpty()) {
+            List<Long> publicPidList = new ArrayList<>();
+            for (Problem problem : problemList) {
+                if (isPublic(problem)) {
+                    publicPidList.add(problem.getId());
+                } else {
+                    entryMap.remove(problem.getId());
+                    keywordIndex.remove(problem.getId());
+                }
+            }
+            Map<Long, List<Long>> tagIdMap = getTagIdMap(publicPidList);
+            for (Problem problem : problemList) {
+                if (isPublic(problem)) {
+                    entryMap.put(problem.getId(), new Entry(problem, tagIdMap.get(problem.getId())));
+                    keywordIndex.put(problem.getId(), problem.getTitle(), problem.getProblemId());
+                }
+            }
+            isChanged = true;
+        }
+
+        // gmt_modified无法感知题目的删除，公开题目数量对不上时全量重建
+        QueryWrapper<Problem> countQueryWrapper = new QueryWrapper<>();
+        countQueryWrapper.eq("auth", 1).eq("is_group", false);
+        if (problemEntityService.count(countQueryWrapper) != entryMap.size()) {
+            rebuild();
+            return;
+        }
+
+        if (isChanged) {
+            snapshot = new Snapshot(entryMap.values(), getTagMap(), keywordIndex);
+        }
+        watermark = now;
+        lastRefreshTime = System.currentTimeMillis();
+    }
+
+    private void rebuild() {
+        Date now = new Date();
+        changedPidSet.clear();
+        List<Problem> problemList = problemEntityService.list(getProblemQueryWrapper());
+
+        QueryWrapper<ProblemTag> problemTagQueryWrapper = new QueryWrapper<>();
+        problemTagQueryWrapper.select("pid", "tid");
+        Map<Long, List<Long>> tagIdMap = problemTagEntityService.list(problemTagQueryWrapper)
+                .stream()
+                .collect(Collectors.groupingBy(ProblemTag::getPid,
+                        Collectors.mapping(ProblemTag::getTid, Collectors.toList())));
+
+        entryMap.clear();
+        NGramIndex<Long> keywordIndex = new NGramIndex<>();
+        for (Problem problem : problemList) {
+            if (isPublic(problem)) {
+                entryMap.put(problem.getId(), new Entry(problem, tagIdMap.get(problem.getId())));
+                keywordIndex.put(problem.getId(), problem.getTitle(), problem.getProblemId());
+            }
+        }
+        snapshot = new Snapshot(entryMap.values(), getTagMap(), keywordIndex);
+        watermark = now;
+        lastRebuildTime = lastRefreshTime = System.currentTimeMillis();
+    }
+
+    private QueryWrapper<Problem> getProblemQueryWrapper() {
+        QueryWrapper<Problem> problemQueryWrapper = new QueryWrapper<>();
+        problemQueryWrapper.select("id", "problem_id", "title", "difficulty", "type", "is_remote", "auth", "is_group");
+        return problemQueryWrapper;
+    }
+
+    private boolean isPublic(Problem problem) {
+        return Objects.equals(problem.getAuth(), 1) && !Boolean.TRUE.equals(problem.getIsGroup());
+    }
+
+    private Map<Long, List<Long>> getTagIdMap(List<Long> pidList) {
+        if (pidList.isEmpty()) {
+            return new HashMap<>();
+        }
+        QueryWrapper<ProblemTag> problemTagQueryWrapper = new QueryWrapper<>();
+        problemTagQueryWrapper.select("pid", "tid").in("pid", pidList);
+        return problemTagEntityService.list(problemTagQueryWrapper)
+                .stream()
+                .collect(Collectors.groupingBy(ProblemTag::getPid,
+                        Collectors.mapping(ProblemTag::getTid, Collectors.toList())));
+    }
+
+    private Map<Long, Tag> getTagMap() {
+        return tagEntityService.list()
+                .stream()
+                .collect(Collectors.toMap(Tag::getId, tag -> tag, (a, b) -> a));
+    }
+
+    private static class Entry {
+
+        private final Long pid;
+
+        private final String problemId;
+
+        private final String title;
+
+        private final Integer difficulty;
+
+        private final Integer type;
+
+        private final Boolean isRemote;
+
+        private final long[] tagIds;
+
+        Entry(Problem problem, List<Long> tagIdList) {
+            this.pid = problem.getId();
+            this.problemId = problem.getProblemId();
+            this.title = problem.getTitle();
+            this.difficulty = problem.getDifficulty();
+            this.type = problem.getType();
+            this.isRemote = problem.getIsRemote();
+            this.tagIds = tagIdList == null ? new long[0]
+                    : tagIdList.stream().distinct().mapToLong(Long::longValue).toArray();
+        }
+    }
+
+    /**
+     * 某一时刻的只读索引，位图下标为题目在entryList中的位置
+     */
+    private static class Snapshot {
+
+        private final List<Entry> entryList;
+
+        private final Map<Long, Tag> tagMap;
+
+        /**
+         * 标题与展示id的关键词索引，发布后不再修改
+         */
+        private final NGramIndex<Long> keywordIndex;
+
+        private final Map<Long, Integer> positionMap = new HashMap<>();
+
+        private final BitSet all = new BitSet();
+
+        private final BitSet localBitmap = new BitSet();
+
+        private final Map<Long, BitSet> tagBitmap = new HashMap<>();
+
+        private final Map<Integer, BitSet> difficultyBitmap = new HashMap<>();
+
+        private final Map<String, BitSet> remoteOjBitmap = new HashMap<>();
+
+        Snapshot(Collection<Entry> entries, Map<Long, Tag> tagMap, NGramIndex<Long> keywordIndex) {
+            this.tagMap = tagMap;
+            this.keywordIndex = keywordIndex;
+            // 与 order by length(p.problem_id) asc,p.problem_id asc 一致
+            this.entryList = entries.stream()
+                    .sorted(Comparator.comparingInt((Entry entry) -> entry.problemId.length())
+                            .thenComparing(entry -> entry.problemId))
+                    .collect(Collectors.toList());
+            for (int i = 0; i < entryList.size(); i++) {
+                Entry entry = entryList.get(i);
+                all.set(i);
+                positionMap.put(entry.pid, i);
+                for (long tid : entry.tagIds) {
+                    tagBitmap.computeIfAbsent(tid, k -> new BitSet()).set(i);
+                }
+                if (entry.difficulty != null) {
+                    difficultyBitmap.computeIfAbsent(entry.difficulty, k -> new BitSet()).set(i);
+                }
+                if (Boolean.TRUE.equals(entry.isRemote)) {
+                    String ojName = entry.problemId.split("-")[0];
+                    remoteOjBitmap.computeIfAbsent(ojName, k -> new BitSet()).set(i);
+                } else {
+                    localBitmap.set(i);
+                }
+            }
+        }
+    }
+
+    private static class CountCache {
+
+        private final ProblemCountVO problemCountVo;
+
+        private final long loadTime;
+
+        CountCache(ProblemCountVO problemCountVo, long loadTime) {
+            this.problemCountVo = problemCountVo;
+            this.loadTime = loadTime;
+        }
+    }
+}
@@ -42,6 +42,9 @@ public class ProblemManager {
     @Autowired
     private ProblemEntityService problemEntityService;
 
+    @Autowired
+    private ProblemListIndexManager problemListIndexManager;
+
     @Autowired
     private ProblemTagEntityService problemTagEntityService;
 
@@ -97,8 +100,7 @@ public class ProblemManager {
         if (oj != null && !Constants.RemoteOJ.isRemoteOJ(oj)) {
             oj = "Mine";
         }
-        return problemEntityService.getProblemList(limit, currentPage, null, keyword,
-                difficulty, tagId, oj);
+        return problemListIndexManager.getProblemList(limit, currentPage, keyword, difficulty, tagId, oj);
     }
 
     /**
@@ -1,22 +1,19 @@
 package top.hcode.hoj.manager.oj;
 
-import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import top.hcode.hoj.common.exception.StatusFailException;
-import top.hcode.hoj.pojo.entity.user.UserInfo;
 import top.hcode.hoj.pojo.vo.ACMRankVO;
 import top.hcode.hoj.pojo.vo.OIRankVO;
-import top.hcode.hoj.dao.user.UserInfoEntityService;
 import top.hcode.hoj.dao.user.UserRecordEntityService;
 import top.hcode.hoj.utils.Constants;
 import top.hcode.hoj.utils.RedisUtils;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * @Author: Himit_ZH
@@ -24,17 +21,21 @@ import java.util.stream.Collectors;
  * @Description:
  */
 @Component
+@Slf4j(topic = "hoj")
 public class RankManager {
 
     @Autowired
     private UserRecordEntityService userRecordEntityService;
 
     @Autowired
-    private UserInfoEntityService userInfoEntityService;
+    private UserSearchIndexManager userSearchIndexManager;
 
     @Autowired
     private RedisUtils redisUtils;
 
+    @Autowired
+    private GlobalRankManager globalRankManager;
+
     // 排行榜缓存时间 60s
     private static final long cacheRankSecond = 60;
 
@@ -53,23 +54,7 @@ public class RankManager {
 
         List<String> uidList = null;
         if (!StringUtils.isEmpty(searchUser)) {
-            QueryWrapper<UserInfo> userInfoQueryWrapper = new QueryWrapper<>();
-
-            userInfoQueryWrapper.select("uuid");
-
-            userInfoQueryWrapper.and(wrapper -> wrapper
-                    .like("username", searchUser)
-                    .or()
-                    .like("nickname", searchUser)
-                    .or()
-                    .like("realname", searchUser));
-
-            userInfoQueryWrapper.eq("status", 0);
-
-            uidList = userInfoEntityService.list(userInfoQueryWrapper)
-                    .stream()
-                    .map(UserInfo::getUuid)
-                    .collect(Collectors.toList());
+            uidList = userSearchIndexManager.searchNormalUid(searchUser);
         }
 
         IPage rankList = null;
@@ -96,6 +81,15 @@ public class RankManager {
                 data = page;
             }
         } else {
+            try {
+                data = globalRankManager.getACMRankList(limit, currentPage);
+                if (data != null) {
+                    return data;
+                }
+            } catch (Exception e) {
+                log.error("[Global Rank] Get the global ACM rank from redis error------------>", e);
+            }
+            // 全站排行榜尚未建立完成或redis出错，降级为数据库查询
             String key = Constants.Account.ACM_RANK_CACHE.getCode() + "_" + limit + "_" + currentPage;
             data = (IPage<ACMRankVO>) redisUtils.get(key);
             if (data == null) {
@@ -120,6 +114,15 @@ public class RankManager {
                 data = page;
             }
         } else {
+            try {
+                data = globalRankManager.getOIRankList(limit, currentPage);
+                if (data != null) {
+                    return data;
+                }
+            } catch (Exception e) {
+                log.error("[Global Rank] Get the global OI rank from redis error------------>", e);
+            }
+            // 全站排行榜尚未建立完成或redis出错，降级为数据库查询
             String key = Constants.Account.OI_RANK_CACHE.getCode() + "_" + limit + "_" + currentPage;
             data = (IPage<OIRankVO>) redisUtils.get(key);
             if (data == null) {
@@ -74,6 +74,9 @@ public class TrainingManager {
     @Resource
     private TrainingValidator trainingValidator;
 
+    @Resource
+    private TrainingRankManager trainingRankManager;
+
     /**
      * @param limit
      * @param currentPage
@@ -282,111 +285,22 @@ public class TrainingManager {
     private IPage<TrainingRankVO> getTrainingRank(Long tid, Long gid, String username, int currentPage, int limit, String keyword) {
 
         Map<Long, String> tpIdMapDisplayId = getTPIdMapDisplayId(tid);
-        List<TrainingRecordVO> trainingRecordVOList = trainingRecordEntityService.getTrainingRecord(tid);
 
+        // 超级管理员和训练创建者的提交不入排行榜
         List<String> superAdminUidList = userInfoEntityService.getSuperAdminUidList();
         if (gid != null) {
             List<String> groupRootUidList = groupMemberEntityService.getGroupRootUidList(gid);
             superAdminUidList.addAll(groupRootUidList);
         }
 
-        List<TrainingRankVO> result = new ArrayList<>();
-
-        HashMap<String, Integer> uidMapIndex = new HashMap<>();
-        int pos = 0;
-        for (TrainingRecordVO trainingRecordVo : trainingRecordVOList) {
-            // 超级管理员和训练创建者的提交不入排行榜
-            if (username.equals(trainingRecordVo.getUsername())
-                    || superAdminUidList.contains(trainingRecordVo.getUid())) {
-                continue;
-            }
-
-            // 如果有搜索关键词则 需要符合模糊匹配 用户名、真实姓名、学校的用户可进行榜单记录
-            if (StrUtil.isNotBlank(keyword)) {
-                boolean isMatchKeyword = matchKeywordIgnoreCase(keyword, trainingRecordVo.getUsername())
-                        || matchKeywordIgnoreCase(keyword, trainingRecordVo.getRealname())
-                        || matchKeywordIgnoreCase(keyword, trainingRecordVo.getSchool());
-                if (!isMatchKeyword) {
-                    continue;
-                }
-            }
-
-            TrainingRankVO trainingRankVo;
-            Integer index = uidMapIndex.get(trainingRecordVo.getUid());
-            if (index == null) {
-                trainingRankVo = new TrainingRankVO();
-                trainingRankVo.setRealname(trainingRecordVo.getRealname())
-                        .setAvatar(trainingRecordVo.getAvatar())
-                        .setSchool(trainingRecordVo.getSchool())
-                        .setGender(trainingRecordVo.getGender())
-                        .setUid(trainingRecordVo.getUid())
-                        .setUsername(trainingRecordVo.getUsername())
-                        .setNickname(trainingRecordVo.getNickname())
-                        .setAc(0)
-                        .setTotalRunTime(0);
-                HashMap<String, HashMap<String, Object>> submissionInfo = new HashMap<>();
-                trainingRankVo.setSubmissionInfo(submissionInfo);
-
-                result.add(trainingRankVo);
-                uidMapIndex.put(trainingRecordVo.getUid(), pos);
-                pos++;
-            } else {
-                trainingRankVo = result.get(index);
-            }
-            String displayId = tpIdMapDisplayId.get(trainingRecordVo.getTpid());
-            HashMap<String, Object> problemSubmissionInfo = trainingRankVo
-                    .getSubmissionInfo()
-                    .getOrDefault(displayId, new HashMap<>());
-
-            // 如果该题目已经AC过了，只比较运行时间取最小
-            if ((Boolean) problemSubmissionInfo.getOrDefault("isAC", false)) {
-                if (trainingRecordVo.getStatus().intValue() == Constants.Judge.STATUS_ACCEPTED.getStatus()) {
-                    int runTime = (int) problemSubmissionInfo.getOrDefault("runTime", 0);
-                    if (runTime > trainingRecordVo.getUseTime()) {
-                        trainingRankVo.setTotalRunTime(trainingRankVo.getTotalRunTime() - runTime + trainingRecordVo.getUseTime());
-                        problemSubmissionInfo.put("runTime", trainingRecordVo.getUseTime());
-                    }
-                }
-                continue;
-            }
-
-            problemSubmissionInfo.put("status", trainingRecordVo.getStatus());
-            problemSubmissionInfo.put("score", trainingRecordVo.getScore());
-
-            // 通过的话
-            if (trainingRecordVo.getStatus().intValue() == Constants.Judge.STATUS_ACCEPTED.getStatus()) {
-                // 总解决题目次数ac+1
-                trainingRankVo.setAc(trainingRankVo.getAc() + 1);
-                problemSubmissionInfo.put("isAC", true);
-                problemSubmissionInfo.put("runTime", trainingRecordVo.getUseTime());
-                trainingRankVo.setTotalRunTime(trainingRankVo.getTotalRunTime() + trainingRecordVo.getUseTime());
-            }
-
-            trainingRankVo.getSubmissionInfo().put(displayId, problemSubmissionInfo);
-        }
-
-        List<TrainingRankVO> orderResultList = result.stream().sorted(Comparator.comparing(TrainingRankVO::getAc, Comparator.reverseOrder()) // 先以总ac数降序
-                .thenComparing(TrainingRankVO::getTotalRunTime) //再以总耗时升序
-        ).collect(Collectors.toList());
-
-        // 计算好排行榜，然后进行分页
-        Page<TrainingRankVO> page = new Page<>(currentPage, limit);
-        int count = orderResultList.size();
-        List<TrainingRankVO> pageList = new ArrayList<>();
-        //计算当前页第一条数据的下标
-        int currId = currentPage > 1 ? (currentPage - 1) * limit : 0;
-        for (int i = 0; i < limit && i < count - currId; i++) {
-            pageList.add(orderResultList.get(currId + i));
-        }
-        page.setSize(limit);
-        page.setCurrent(currentPage);
-        page.setTotal(count);
-        page.setRecords(pageList);
-        return page;
-    }
-
-    private boolean matchKeywordIgnoreCase(String keyword, String content) {
-        return content != null && content.toLowerCase().contains(keyword);
+        // 如果有搜索关键词则 需要符合模糊匹配 用户名、真实姓名、学校的用户可进行榜单记录
+        return trainingRankManager.getTrainingRank(tid,
+                superAdminUidList,
+                username,
+                tpIdMapDisplayId,
+                StrUtil.isNotBlank(keyword) ? keyword : null,
+                currentPage,
+                limit);
     }
 
     private Map<Long, String> getTPIdMapDisplayId(Long tid) {
@@ -414,6 +328,7 @@ public class TrainingManager {
                 trainingRecordList.add(trainingRecord);
             }
             trainingRecordEntityService.saveBatch(trainingRecordList);
+            trainingProblemList.forEach(trainingProblem -> trainingRankManager.markChanged(trainingProblem.getTid()));
         }
     }
 
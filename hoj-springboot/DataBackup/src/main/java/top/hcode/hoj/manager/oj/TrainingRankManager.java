@@ -0,0 +1,408 @@
+package top.hcode.hoj.manager.oj;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import top.hcode.hoj.dao.judge.JudgeEntityService;
+import top.hcode.hoj.dao.training.TrainingRecordEntityService;
+import top.hcode.hoj.pojo.entity.judge.Judge;
+import top.hcode.hoj.pojo.vo.TrainingRankVO;
+import top.hcode.hoj.pojo.vo.TrainingRecordVO;
+import top.hcode.hoj.utils.Constants;
+import top.hcode.hoj.utils.NGramIndex;
+
+import javax.annotation.Resource;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/18 19:40
+ * @Description: 训练排行榜的增量维护
+ * 每个训练的榜单状态常驻内存，按training_record的自增id增量拉取新记录，
+ * 尚未评测完成的提交单独记录，之后只按submit_id批量查询其结果，不再每次请求都全量关联查询。
+ * 榜单排序结果在有变化时才重新计算，关键词(用户名、真实姓名、学校)通过n-gram索引过滤。
+ * 重判等导致的历史结果变化由定时全量重建校正。
+ */
+@Component
+@Slf4j(topic = "hoj")
+public class TrainingRankManager {
+
+    private static final long REFRESH_INTERVAL_MILLIS = 3000;
+
+    private static final long REBUILD_INTERVAL_MILLIS = 10 * 60 * 1000;
+
+    /**
+     * 超过该时间无人访问的训练榜单从内存中移除
+     */
+    private static final long EXPIRE_MILLIS = 30 * 60 * 1000;
+
+    /**
+     * 计入排行榜的评测结果，与原先查询的 j.status IN (-3,-2,-1,0,1,2,3,8) 一致
+     */
+    private static final Set<Integer> RANK_STATUS_SET = new HashSet<>(Arrays.asList(
+            Constants.Judge.STATUS_PRESENTATION_ERROR.getStatus(),
+            Constants.Judge.STATUS_COMPILE_ERROR.getStatus(),
+            Constants.Judge.STATUS_WRONG_ANSWER.getStatus(),
+            Constants.Judge.STATUS_ACCEPTED.getStatus(),
+            Constants.Judge.STATUS_TIME_LIMIT_EXCEEDED.getStatus(),
+            Constants.Judge.STATUS_MEMORY_LIMIT_EXCEEDED.getStatus(),
+            Constants.Judge.STATUS_RUNTIME_ERROR.getStatus(),
+            Constants.Judge.STATUS_PARTIAL_ACCEPTED.getStatus()));
+
+    private static final Set<Integer> PENDING_STATUS_SET = new HashSet<>(Arrays.asList(
+            Constants.Judge.STATUS_PENDING.getStatus(),
+            Constants.Judge.STATUS_COMPILING.getStatus(),
+            Constants.Judge.STATUS_JUDGING.getStatus(),
+            Constants.Judge.STATUS_SUBMITTING.getStatus()));
+
+    @Resource
+    private TrainingRecordEntityService trainingRecordEntityService;
+
+    @Resource
+    private JudgeEntityService judgeEntityService;
+
+    private final ConcurrentHashMap<Long, RankState> rankStateMap = new ConcurrentHashMap<>();
+
+    /**
+     * @param excludeUidList      不计入排行榜的用户(超级管理员、团队管理员)
+     * @param excludeUsername     不计入排行榜的用户名(训练创建者)
+     * @param tpIdMapDisplayId    训练题目id -> 展示id
+     * @param keyword             过滤用户名、真实姓名、学校的关键词
+     */
+    public IPage<TrainingRankVO> getTrainingRank(Long tid,
+                                                 Collection<String> excludeUidList,
+                                                 String excludeUsername,
+                                                 Map<Long, String> tpIdMapDisplayId,
+                                                 String keyword,
+                                                 int currentPage,
+                                                 int limit) {
+        RankState rankState = getRankState(tid);
+        Set<String> excludeUidSet = new HashSet<>(excludeUidList);
+        Set<String> matchUidSet = StringUtils.isEmpty(keyword) ? null : rankState.keywordIndex.search(keyword);
+
+        long skip = (long) (currentPage - 1) * limit;
+        long total = 0;
+        List<TrainingRankVO> pageList = new ArrayList<>();
+        for (RankRow rankRow : rankState.sortedRowList) {
+            if (Objects.equals(excludeUsername, rankRow.username)
+                    || excludeUidSet.contains(rankRow.uid)
+                    || (matchUidSet != null && !matchUidSet.contains(rankRow.uid))) {
+                continue;
+            }
+            if (total >= skip && pageList.size() < limit) {
+                pageList.add(rankRow.toTrainingRankVO(tpIdMapDisplayId));
+            }
+            total++;
+        }
+        Page<TrainingRankVO> page = new Page<>(currentPage, limit);
+        page.setTotal(total);
+        page.setRecords(pageList);
+        return page;
+    }
+
+    /**
+     * 训练有新的记录时调用，下一次查询榜单时立即增量刷新
+     */
+    public void markChanged(Long tid) {
+        RankState rankState = rankStateMap.get(tid);
+        if (rankState != null) {
+            rankState.lastRefreshTime = 0;
+        }
+    }
+
+    /**
+     * 训练的题目被移除等无法增量处理的改动，丢弃该训练的榜单状态
+     */
+    public void invalidate(Long tid) {
+        rankStateMap.remove(tid);
+    }
+
+    public void invalidateAll() {
+        rankStateMap.clear();
+    }
+
+    @Scheduled(fixedDelay = 10 * 60 * 1000)
+    public void removeExpiredRankState() {
+        long now = System.currentTimeMillis();
+        rankStateMap.entrySet().removeIf(entry -> now - entry.getValue().lastAccessTime > EXPIRE_MILLIS);
+    }
+
+    private RankState getRankState(Long tid) {
+        long now = System.currentTimeMillis();
+        RankState rankState = rankStateMap.computeIfAbsent(tid, k -> new RankState());
+        rankState.lastAccessTime = now;
+        if (!rankState.isLoaded) {
+            rankState.lock.lock();
+            try {
+                if (!rankState.isLoaded) {
+                    refresh(tid, rankState);
+                }
+            } finally {
+                rankState.lock.unlock();
+            }
+        } else if (now - rankState.createTime > REBUILD_INTERVAL_MILLIS && rankState.lock.tryLock()) {
+            // 重建期间其他请求继续使用旧的榜单
+            try {
+                RankState newRankState = new RankState();
+                newRankState.lastAccessTime = now;
+                refresh(tid, newRankState);
+                rankStateMap.replace(tid, rankState, newRankState);
+                return newRankState;
+            } catch (Exception e) {
+                log.error("[Training Rank] Rebuild tid:[{}] error------------>", tid, e);
+            } finally {
+                rankState.lock.unlock();
+            }
+        } else if (now - rankState.lastRefreshTime > REFRESH_INTERVAL_MILLIS && rankState.lock.tryLock()) {
+            try {
+                refresh(tid, rankState);
+            } catch (Exception e) {
+                log.error("[Training Rank] Refresh tid:[{}] error------------>", tid, e);
+            } finally {
+                rankState.lock.unlock();
+            }
+        }
+        return rankState;
+    }
+
+    /**
+     * 持有rankState.lock时调用
+     */
+    private void refresh(Long tid, RankState rankState) {
+        Set<String> changedUidSet = new HashSet<>();
+        List<TrainingRecordVO> trainingRecordList = trainingRecordEntityService.getTrainingRecord(tid, rankState.lastRecordId);
+        for (TrainingRecordVO trainingRecordVo : trainingRecordList) {
+            rankState.lastRecordId = Math.max(rankState.lastRecordId, trainingRecordVo.getId());
+            handleRecord(rankState, trainingRecordVo, changedUidSet);
+        }
+
+        if (!rankState.pendingRecordMap.isEmpty()) {
+            QueryWrapper<Judge> judgeQueryWrapper = new QueryWrapper<>();
+            judgeQueryWrapper.select("submit_id", "status", "score", "time")
+                    .in("submit_id", rankState.pendingRecordMap.keySet());
+            for (Judge judge : judgeEntityService.list(judgeQueryWrapper)) {
+                if (PENDING_STATUS_SET.contains(judge.getStatus())) {
+                    continue;
+                }
+                TrainingRecordVO trainingRecordVo = rankState.pendingRecordMap.remove(judge.getSubmitId());
+                trainingRecordVo.setStatus(judge.getStatus());
+                trainingRecordVo.setScore(judge.getScore());
+                trainingRecordVo.setUseTime(judge.getTime());
+                handleRecord(rankState, trainingRecordVo, changedUidSet);
+            }
+        }
+
+        if (!changedUidSet.isEmpty() || !rankState.isLoaded) {
+            for (String uid : changedUidSet) {
+                rankState.rowMap.put(uid, new RankRow(rankState.userRankMap.get(uid)));
+            }
+            List<RankRow> sortedRowList = new ArrayList<>(rankState.rowMap.values());
+            sortedRowList.sort(Comparator.comparing((RankRow rankRow) -> rankRow.ac, Comparator.reverseOrder()) // 先以总ac数降序
+                    .thenComparing(rankRow -> rankRow.totalRunTime) //再以总耗时升序
+                    .thenComparing(rankRow -> rankRow.firstRecordId));
+            rankState.sortedRowList = sortedRowList;
+        }
+        rankState.isLoaded = true;
+        rankState.lastRefreshTime = System.currentTimeMillis();
+    }
+
+    private void handleRecord(RankState rankState, TrainingRecordVO trainingRecordVo, Set<String> changedUidSet) {
+        Integer status = trainingRecordVo.getStatus();
+        if (PENDING_STATUS_SET.contains(status)) {
+            rankState.pendingRecordMap.put(trainingRecordVo.getSubmitId(), trainingRecordVo);
+            return;
+        }
+        if (!RANK_STATUS_SET.contains(status)) {
+            return;
+        }
+        UserRank userRank = rankState.userRankMap.get(trainingRecordVo.getUid());
+        if (userRank == null) {
+            userRank = new UserRank(trainingRecordVo);
+            rankState.userRankMap.put(userRank.uid, userRank);
+            rankState.keywordIndex.put(userRank.uid, userRank.username, userRank.realname, userRank.school);
+        }
+        userRank.apply(trainingRecordVo);
+        changedUidSet.add(userRank.uid);
+    }
+
+    private static class RankState {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final long createTime = System.currentTimeMillis();
+
+        /**
+         * 以下可变状态仅在持有lock时访问
+         */
+        private final Map<String, UserRank> userRankMap = new HashMap<>();
+
+        private final Map<String, RankRow> rowMap = new HashMap<>();
+
+        private final Map<Long, TrainingRecordVO> pendingRecordMap = new HashMap<>();
+
+        private long lastRecordId;
+
+        private final NGramIndex<String> keywordIndex = new NGramIndex<>();
+
+        private volatile List<RankRow> sortedRowList = new ArrayList<>();
+
+        private volatile boolean isLoaded;
+
+        private volatile long lastRefreshTime;
+
+        private volatile long lastAccessTime;
+    }
+
+    private static class ProblemCell {
+
+        private Integer status;
+
+        private Integer score;
+
+        private boolean isAC;
+
+        private int runTime;
+
+        private long submitId;
+    }
+
+    /**
+     * 用户在训练中的统计，只在持有RankState.lock时修改
+     */
+    private static class UserRank {
+
+        private final String uid;
+
+        private final String username;
+
+        private final String realname;
+
+        private final String nickname;
+
+        private final String school;
+
+        private final String gender;
+
+        private final String avatar;
+
+        private final long firstRecordId;
+
+        private int ac;
+
+        private int totalRunTime;
+
+        private final Map<Long, ProblemCell> problemCellMap = new HashMap<>();
+
+        UserRank(TrainingRecordVO trainingRecordVo) {
+            this.uid = trainingRecordVo.getUid();
+            this.username = trainingRecordVo.getUsername();
+            this.realname = trainingRecordVo.getRealname();
+            this.nickname = trainingRecordVo.getNickname();
+            this.school = trainingRecordVo.getSchool();
+            this.gender = trainingRecordVo.getGender();
+            this.avatar = trainingRecordVo.getAvatar();
+            this.firstRecordId = trainingRecordVo.getId();
+        }
+
+        /**
+         * 结果与提交顺序无关：AC后只取最小运行时间，未AC时展示提交id最大的结果
+         */
+        void apply(TrainingRecordVO trainingRecordVo) {
+            ProblemCell problemCell = problemCellMap.computeIfAbsent(trainingRecordVo.getTpid(), k -> new ProblemCell());
+            boolean isAC = trainingRecordVo.getStatus().intValue() == Constants.Judge.STATUS_ACCEPTED.getStatus();
+            int useTime = trainingRecordVo.getUseTime() == null ? 0 : trainingRecordVo.getUseTime();
+            if (problemCell.isAC) {
+                if (isAC && problemCell.runTime > useTime) {
+                    totalRunTime = totalRunTime - problemCell.runTime + useTime;
+                    problemCell.runTime = useTime;
+                }
+                return;
+            }
+            if (isAC) {
+                problemCell.isAC = true;
+                problemCell.runTime = useTime;
+                ac++;
+                totalRunTime += useTime;
+            } else if (trainingRecordVo.getSubmitId() < problemCell.submitId) {
+                return;
+            }
+            problemCell.status = trainingRecordVo.getStatus();
+            problemCell.score = trainingRecordVo.getScore();
+            problemCell.submitId = trainingRecordVo.getSubmitId();
+        }
+    }
+
+    /**
+     * UserRank某一时刻的只读副本，供查询时无锁读取
+     */
+    private static class RankRow {
+
+        private final String uid;
+
+        private final String username;
+
+        private final String realname;
+
+        private final String nickname;
+
+        private final String school;
+
+        private final String gender;
+
+        private final String avatar;
+
+        private final long firstRecordId;
+
+        private final int ac;
+
+        private final int totalRunTime;
+
+        private final Map<Long, HashMap<String, Object>> submissionInfoMap = new HashMap<>();
+
+        RankRow(UserRank userRank) {
+            this.uid = userRank.uid;
+            this.username = userRank.username;
+            this.realname = userRank.realname;
+            this.nickname = userRank.nickname;
+            this.school = userRank.school;
+            this.gender = userRank.gender;
+            this.avatar = userRank.avatar;
+            this.firstRecordId = userRank.firstRecordId;
+            this.ac = userRank.ac;
+            this.totalRunTime = userRank.totalRunTime;
+            userRank.problemCellMap.forEach((tpid, problemCell) -> {
+                HashMap<String, Object> problemSubmissionInfo = new HashMap<>();
+                problemSubmissionInfo.put("status", problemCell.status);
+                problemSubmissionInfo.put("score", problemCell.score);
+                if (problemCell.isAC) {
+                    problemSubmissionInfo.put("isAC", true);
+                    problemSubmissionInfo.put("runTime", problemCell.runTime);
+                }
+                submissionInfoMap.put(tpid, problemSubmissionInfo);
+            });
+        }
+
+        TrainingRankVO toTrainingRankVO(Map<Long, String> tpIdMapDisplayId) {
+            HashMap<String, HashMap<String, Object>> submissionInfo = new HashMap<>();
+            submissionInfoMap.forEach((tpid, problemSubmissionInfo) ->
+                    submissionInfo.put(tpIdMapDisplayId.get(tpid), new HashMap<>(problemSubmissionInfo)));
+            return new TrainingRankVO()
+                    .setUid(uid)
+                    .setUsername(username)
+                    .setRealname(realname)
+                    .setNickname(nickname)
+                    .setSchool(school)
+                    .setGender(gender)
+                    .setAvatar(avatar)
+                    .setAc(ac)
+                    .setTotalRunTime(totalRunTime)
+                    .setSubmissionInfo(submissionInfo);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package top.hcode.hoj.manager.oj;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+import top.hcode.hoj.dao.user.UserInfoEntityService;
+import top.hcode.hoj.pojo.entity.user.UserInfo;
+
+import javax.annotation.Resource;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/18 15:50
+ * @Description: 用户名、昵称、真实姓名的内存索引，供排行榜搜索用户与提交列表按用户名搜索使用
+ */
+@Component
+public class UserSearchIndexManager extends AbstractSearchIndexManager<String, UserInfo> {
+
+    /**
+     * 提交列表按用户名搜索时，匹配的用户超过该数量则仍使用数据库的模糊查询
+     */
+    public static final int MAX_SEARCH_UID_NUM = 500;
+
+    @Resource
+    private UserInfoEntityService userInfoEntityService;
+
+    /**
+     * uid -> 小写的用户名
+     */
+    private final Map<String, String> usernameMap = new ConcurrentHashMap<>();
+
+    /**
+     * uid -> 账号状态
+     */
+    private final Map<String, Integer> statusMap = new ConcurrentHashMap<>();
+
+    /**
+     * 用户名、昵称或真实姓名包含关键词的正常状态用户
+     */
+    public List<String> searchNormalUid(String keyword) {
+        List<String> uidList = new ArrayList<>();
+        for (String uid : search(keyword)) {
+            if (Objects.equals(statusMap.get(uid), 0)) {
+                uidList.add(uid);
+            }
+        }
+        return uidList;
+    }
+
+    /**
+     * 用户名包含关键词的用户
+     *
+     * @return 匹配的用户过多时返回null，由调用方使用数据库的模糊查询
+     */
+    public List<String> searchUidByUsername(String keyword) {
+        if (StringUtils.isEmpty(keyword)) {
+            return null;
+        }
+        String lowerKeyword = keyword.toLowerCase();
+        List<String> uidList = new ArrayList<>();
+        for (String uid : search(keyword)) {
+            String username = usernameMap.get(uid);
+            if (username != null && username.contains(lowerKeyword)) {
+                uidList.add(uid);
+                if (uidList.size() > MAX_SEARCH_UID_NUM) {
+                    return null;
+                }
+            }
+        }
+        return uidList;
+    }
+
+    @Override
+    protected List<UserInfo> listAll() {
+        return userInfoEntityService.list(getUserInfoQueryWrapper());
+    }
+
+    @Override
+    protected List<UserInfo> listChanged(Date since, List<String> changedIdList) {
+        QueryWrapper<UserInfo> userInfoQueryWrapper = getUserInfoQueryWrapper();
+        userInfoQueryWrapper.ge("gmt_modified", since);
+        if (!CollectionUtils.isEmpty(changedIdList)) {
+            userInfoQueryWrapper.or().in("uuid", changedIdList);
+        }
+        return userInfoEntityService.list(userInfoQueryWrapper);
+    }
+
+    @Override
+    protected long countAll() {
+        return userInfoEntityService.count();
+    }
+
+    @Override
+    protected String getId(UserInfo userInfo) {
+        return userInfo.getUuid();
+    }
+
+    @Override
+    protected String[] getFields(UserInfo userInfo) {
+        return new String[]{userInfo.getUsername(), userInfo.getNickname(), userInfo.getRealname()};
+    }
+
+    @Override
+    protected void onPut(UserInfo userInfo) {
+        usernameMap.put(userInfo.getUuid(), userInfo.getUsername() == null ? "" : userInfo.getUsername().toLowerCase());
+        statusMap.put(userInfo.getUuid(), userInfo.getStatus());
+    }
+
+    @Override
+    protected void onRemove(String uid) {
+        usernameMap.remove(uid);
+        statusMap.remove(uid);
+    }
+
+    private QueryWrapper<UserInfo> getUserInfoQueryWrapper() {
+        QueryWrapper<UserInfo> userInfoQueryWrapper = new QueryWrapper<>();
+        userInfoQueryWrapper.select("uuid", "username", "nickname", "realname", "status");
+        return userInfoQueryWrapper;
+    }
+}
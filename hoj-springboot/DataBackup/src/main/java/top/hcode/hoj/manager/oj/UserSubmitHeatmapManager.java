@@ -0,0 +1,113 @@
+package top.hcode.hoj.manager.oj;
+
+import cn.hutool.core.date.DateField;
+import cn.hutool.core.date.DateUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.CollectionUtils;
+import top.hcode.hoj.dao.user.UserRecordEntityService;
+import top.hcode.hoj.utils.Constants;
+import top.hcode.hoj.utils.RedisUtils;
+
+import javax.annotation.Resource;
+import java.util.*;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/21 10:20
+ * @Description: 用户最近一年每日提交数的缓存，用于个人主页的提交热力图
+ * 每个用户一个hash，项为日期(yyyy-MM-dd)，值为当日非比赛提交数，最多366项。
+ * 首次查看时从数据库按天聚合构建，之后每次提交只递增当天的计数，查看时不再与提交总数相关。
+ */
+@Component
+@Slf4j(topic = "hoj")
+public class UserSubmitHeatmapManager {
+
+    /**
+     * 构建标记，保证没有提交的用户也有缓存
+     */
+    private static final String BUILT_ITEM = "built";
+
+    /**
+     * 缓存过期后重新从数据库构建，修正删除提交等未同步的计数
+     */
+    private static final long CACHE_SECONDS = 3 * 24 * 60 * 60;
+
+    @Resource
+    private UserRecordEntityService userRecordEntityService;
+
+    @Resource
+    private RedisUtils redisUtils;
+
+    /**
+     * 记录一次非比赛提交，缓存未构建时不做处理。
+     * 处于事务中时在事务提交后再记录，避免回滚的提交被计入
+     */
+    public void recordSubmission(String uid, Date submitTime) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    increase(uid, submitTime);
+                }
+            });
+        } else {
+            increase(uid, submitTime);
+        }
+    }
+
+    private void increase(String uid, Date submitTime) {
+        try {
+            String date = DateUtil.format(submitTime != null ? submitTime : new Date(), "yyyy-MM-dd");
+            redisUtils.hincrIfExists(getKey(uid), date, 1);
+        } catch (Exception e) {
+            // 计数失败不影响提交，删除缓存等待下次查看时重新构建
+            log.error("[Submit Heatmap] Record the submission of user [{}] error------------>", uid, e);
+            redisUtils.del(getKey(uid));
+        }
+    }
+
+    /**
+     * 获取用户最近一年每日的提交数
+     *
+     * @return 由date与count组成的列表
+     */
+    public List<HashMap<String, Object>> getLastYearSubmitCount(String uid) {
+        Map<Object, Object> countMap = redisUtils.hmget(getKey(uid));
+        if (CollectionUtils.isEmpty(countMap)) {
+            countMap = build(uid);
+        }
+        String startDate = DateUtil.format(DateUtil.offset(new Date(), DateField.YEAR, -1), "yyyy-MM-dd");
+        List<HashMap<String, Object>> dataList = new ArrayList<>(countMap.size());
+        for (Map.Entry<Object, Object> entry : countMap.entrySet()) {
+            String date = String.valueOf(entry.getKey());
+            // 缓存存活期间跨过的日期已不在最近一年内
+            if (BUILT_ITEM.equals(date) || date.compareTo(startDate) < 0) {
+                continue;
+            }
+            HashMap<String, Object> tmp = new HashMap<>(2);
+            tmp.put("date", date);
+            tmp.put("count", ((Number) entry.getValue()).intValue());
+            dataList.add(tmp);
+        }
+        return dataList;
+    }
+
+    private Map<Object, Object> build(String uid) {
+        List<HashMap<String, Object>> submitCountList = userRecordEntityService.getLastYearUserSubmitCount(uid);
+        Map<String, Object> countMap = new HashMap<>(submitCountList.size() + 1);
+        countMap.put(BUILT_ITEM, 1);
+        for (HashMap<String, Object> submitCount : submitCountList) {
+            countMap.put(String.valueOf(submitCount.get("date")), submitCount.get("count"));
+        }
+        // 并发构建时只保留先写入的一份，之后的提交会在其上递增
+        redisUtils.hmsetIfAbsent(getKey(uid), countMap, CACHE_SECONDS);
+        return new HashMap<>(countMap);
+    }
+
+    private String getKey(String uid) {
+        return Constants.Account.USER_SUBMIT_HEATMAP.getCode() + uid;
+    }
+}
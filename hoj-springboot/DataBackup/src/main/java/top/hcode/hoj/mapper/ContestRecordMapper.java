@@ -7,6 +7,7 @@ import org.springframework.stereotype.Repository;
 import top.hcode.hoj.pojo.entity.contest.ContestRecord;
 import top.hcode.hoj.pojo.vo.ContestRecordVO;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -42,4 +43,8 @@ public interface ContestRecordMapper extends BaseMapper<ContestRecord> {
                                               @Param("cid") Long cid,
                                               @Param("externalCidList") List<Integer> externalCidList,
                                               @Param("time") Long time);
+
+    List<ContestRecordVO> getContestRecordDelta(@Param("contestCreatorUid") String contestCreatorUid,
+                                                @Param("cid") Long cid,
+                                                @Param("since") Date since);
 }
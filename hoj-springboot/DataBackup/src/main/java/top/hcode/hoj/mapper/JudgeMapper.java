@@ -1,9 +1,14 @@
 package top.hcode.hoj.mapper;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 import org.springframework.stereotype.Repository;
 import top.hcode.hoj.pojo.entity.judge.Judge;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
@@ -12,6 +17,7 @@ import top.hcode.hoj.pojo.vo.JudgeVO;
 import top.hcode.hoj.pojo.vo.ProblemCountVO;
 
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 
 
@@ -30,22 +36,28 @@ public interface JudgeMapper extends BaseMapper<Judge> {
                                       @Param("searchPid") String searchPid,
                                       @Param("status") Integer status,
                                       @Param("username") String username,
+                                      @Param("searchUidList") List<String> searchUidList,
                                       @Param("uid") String uid,
                                       @Param("completeProblemID") Boolean completeProblemID,
-                                      @Param("gid") Long gid);
+                                      @Param("gid") Long gid,
+                                      @Param("beforeSubmitId") Long beforeSubmitId,
+                                      @Param("beforeSubmitTime") Date beforeSubmitTime);
 
     IPage<JudgeVO> getContestJudgeList(Page<JudgeVO> page,
                                        @Param("displayId") String displayId,
                                        @Param("cid") Long cid,
                                        @Param("status") Integer status,
                                        @Param("username") String username,
+                                       @Param("searchUidList") List<String> searchUidList,
                                        @Param("uid") String uid,
                                        @Param("beforeContestSubmit") Boolean beforeContestSubmit,
                                        @Param("rule") String rule,
                                        @Param("startTime") Date startTime,
                                        @Param("sealRankTime") Date sealRankTime,
                                        @Param("sealTimeUid") String sealTimeUid,
-                                       @Param("completeProblemID") Boolean completeProblemID);
+                                       @Param("completeProblemID") Boolean completeProblemID,
+                                       @Param("beforeSubmitId") Long beforeSubmitId,
+                                       @Param("beforeSubmitTime") Date beforeSubmitTime);
 
     int getTodayJudgeNum();
 
@@ -60,8 +72,15 @@ public interface JudgeMapper extends BaseMapper<Judge> {
 
     List<ProblemCountVO> getProblemListCount(@Param("pidList") List<Long> pidList);
 
-    List<Judge> getLastYearUserJudgeList(@Param("uid") String uid, @Param("username") String username);
+    List<HashMap<String, Object>> getLastYearUserSubmitCount(@Param("uid") String uid);
 
     List<ContestScrollBoardSubmissionVO> getContestScrollBoardSubmission(@Param("cid") Long cid,
                                                                          @Param("uidList") List<String> uidList);
+
+    /**
+     * 流式读取提交记录，需在事务中遍历，遍历期间同一连接不能执行其它查询
+     */
+    @Select("SELECT ${ew.sqlSelect} FROM judge ${ew.customSqlSegment}")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<Judge> selectCursor(@Param("ew") Wrapper<Judge> wrapper);
 }
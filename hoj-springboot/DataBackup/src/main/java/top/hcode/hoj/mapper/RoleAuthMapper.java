@@ -7,6 +7,8 @@ import top.hcode.hoj.pojo.entity.user.RoleAuth;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import top.hcode.hoj.pojo.vo.RoleAuthsVO;
 
+import java.util.List;
+
 
 /**
  * <p>
@@ -20,4 +22,6 @@ import top.hcode.hoj.pojo.vo.RoleAuthsVO;
 @Repository
 public interface RoleAuthMapper extends BaseMapper<RoleAuth> {
     RoleAuthsVO getRoleAuths(@Param("rid") long rid);
+
+    List<RoleAuthsVO> getAllRoleAuths();
 }
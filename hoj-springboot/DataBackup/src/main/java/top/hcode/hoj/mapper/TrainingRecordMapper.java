@@ -19,5 +19,5 @@ import java.util.List;
 @Repository
 public interface TrainingRecordMapper extends BaseMapper<TrainingRecord> {
 
-    public List<TrainingRecordVO> getTrainingRecord(@Param("tid") Long tid);
+    public List<TrainingRecordVO> getTrainingRecord(@Param("tid") Long tid, @Param("afterId") Long afterId);
 }
\ No newline at end of file
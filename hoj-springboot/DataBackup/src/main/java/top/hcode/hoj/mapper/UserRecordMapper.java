@@ -11,6 +11,7 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import top.hcode.hoj.pojo.vo.OIRankVO;
 import top.hcode.hoj.pojo.vo.UserHomeVO;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -30,6 +31,14 @@ public interface UserRecordMapper extends BaseMapper<UserRecord> {
 
     IPage<OIRankVO> getOIRankList(Page<OIRankVO> page, @Param("uidList") List<String> uidList);
 
+    List<OIRankVO> getUserRankCounterList(@Param("uidList") List<String> uidList);
+
+    List<String> getJudgingUidList(@Param("uidList") List<String> uidList,
+                                   @Param("sinceTime") Date sinceTime,
+                                   @Param("statusList") List<Integer> statusList);
+
+    List<String> getModifiedUidList(@Param("uidList") List<String> uidList, @Param("sinceTime") Date sinceTime);
+
     UserHomeVO getUserHomeInfo(@Param("uid") String uid, @Param("username") String username);
 
     IPage<OIRankVO> getGroupRankList(Page<OIRankVO> page,
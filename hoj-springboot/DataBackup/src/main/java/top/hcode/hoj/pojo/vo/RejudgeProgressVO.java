@@ -0,0 +1,55 @@
+package top.hcode.hoj.pojo.vo;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/20 21:10
+ * @Description: 批量重判任务的进度
+ */
+@ApiModel(value = "批量重判任务的进度", description = "")
+@Data
+public class RejudgeProgressVO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @ApiModelProperty(value = "重判任务id")
+    private String jobId;
+
+    @ApiModelProperty(value = "比赛id")
+    private Long cid;
+
+    @ApiModelProperty(value = "题目id，为空代表重判整场比赛")
+    private Long pid;
+
+    @ApiModelProperty(value = "任务状态：Running、Cancelled、Finished")
+    private String status;
+
+    @ApiModelProperty(value = "需要重判的提交数")
+    private Long total;
+
+    @ApiModelProperty(value = "已完成重判的提交数")
+    private Long done;
+
+    @ApiModelProperty(value = "等待超时而不再跟踪的提交数，已计入done")
+    private Long timeout;
+
+    @ApiModelProperty(value = "正在评测中的提交数")
+    private Long running;
+
+    @ApiModelProperty(value = "尚未进入评测队列的提交数")
+    private Long pending;
+
+    @ApiModelProperty(value = "开始时间戳(毫秒)")
+    private Long startTime;
+
+    @ApiModelProperty(value = "结束时间戳(毫秒)")
+    private Long endTime;
+
+    @ApiModelProperty(value = "预计剩余时间(秒)，尚无完成的提交时为空")
+    private Long etaSeconds;
+}
@@ -18,4 +18,8 @@ public interface ScheduleService {
     void check20MPendingSubmission();
 
     void checkUnHandleGroupProblemApplyProgress();
+
+    void syncGlobalRank();
+
+    void prefetchContestTestCase();
 }
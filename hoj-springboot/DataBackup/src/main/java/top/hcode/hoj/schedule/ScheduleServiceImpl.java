@@ -25,7 +25,9 @@ import top.hcode.hoj.dao.problem.ProblemEntityService;
 import top.hcode.hoj.dao.user.SessionEntityService;
 import top.hcode.hoj.dao.user.UserInfoEntityService;
 import top.hcode.hoj.dao.user.UserRecordEntityService;
+import top.hcode.hoj.manager.file.TestCaseDistributeManager;
 import top.hcode.hoj.manager.msg.AdminNoticeManager;
+import top.hcode.hoj.manager.oj.GlobalRankManager;
 import top.hcode.hoj.pojo.entity.common.File;
 import top.hcode.hoj.pojo.entity.judge.Judge;
 import top.hcode.hoj.pojo.entity.msg.AdminSysNotice;
@@ -38,6 +40,7 @@ import top.hcode.hoj.service.admin.rejudge.RejudgeService;
 import top.hcode.hoj.utils.Constants;
 import top.hcode.hoj.utils.JsoupUtils;
 import top.hcode.hoj.utils.RedisUtils;
+import top.hcode.hoj.utils.TestCaseBlobUtils;
 
 import javax.annotation.Resource;
 import java.util.*;
@@ -108,6 +111,15 @@ public class ScheduleServiceImpl implements ScheduleService {
     @Resource
     private ApplicationContext applicationContext;
 
+    @Resource
+    private GlobalRankManager globalRankManager;
+
+    @Resource
+    private TestCaseDistributeManager testCaseDistributeManager;
+
+    @Resource
+    private TestCaseBlobUtils testCaseBlobUtils;
+
     /**
      * @MethodName deleteAvatar
      * @Params * @param null
@@ -155,6 +167,11 @@ public class ScheduleServiceImpl implements ScheduleService {
         if (!result) {
             log.error("每日定时任务异常------------------------>{}", "清除本地的题目测试数据失败!");
         }
+        // 清理内容仓库中已不被任何题目或上传文件夹引用的测试数据文件
+        int count = testCaseBlobUtils.cleanUnreferenced(TimeUnit.DAYS.toMillis(1));
+        if (count > 0) {
+            log.info("每日定时任务------------------------>清除未引用的测试数据文件{}个", count);
+        }
     }
 
     /**
@@ -435,6 +452,24 @@ public class ScheduleServiceImpl implements ScheduleService {
         }
     }
 
+    /**
+     * 每天4点半全量重建一次全站排行榜，校正增量同步可能产生的偏差
+     */
+    @Override
+    @Scheduled(cron = "0 30 4 * * *")
+    public void syncGlobalRank() {
+        globalRankManager.rebuild();
+    }
+
+    /**
+     * 每分钟检查一次即将开始的比赛，通知判题机预先拉取比赛题目的测试数据
+     */
+    @Override
+    @Scheduled(cron = "0 * * * * *")
+    public void prefetchContestTestCase() {
+        testCaseDistributeManager.prefetchUpcomingContestTestCase();
+    }
+
     private String getDissolutionGroupContent(int count) {
         return "您好，尊敬的管理员，目前有**" + count +
                 "**条团队题目正在申请公开的单子，请您尽快前往后台 [团队题目审批](/admin/group-problem/apply) 进行审批！"
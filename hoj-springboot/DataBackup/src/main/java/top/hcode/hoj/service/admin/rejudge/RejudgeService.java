@@ -2,12 +2,19 @@ package top.hcode.hoj.service.admin.rejudge;
 
 import top.hcode.hoj.common.result.CommonResult;
 import top.hcode.hoj.pojo.entity.judge.Judge;
+import top.hcode.hoj.pojo.vo.RejudgeProgressVO;
 
 public interface RejudgeService {
 
     CommonResult<Judge> rejudge(Long submitId);
 
-    CommonResult<Void> rejudgeContestProblem(Long cid, Long pid);
+    CommonResult<RejudgeProgressVO> rejudgeContestProblem(Long cid, Long pid);
+
+    CommonResult<RejudgeProgressVO> rejudgeContest(Long cid);
+
+    CommonResult<RejudgeProgressVO> getRejudgeProgress(String jobId);
+
+    CommonResult<RejudgeProgressVO> cancelRejudge(String jobId);
 
     CommonResult<Judge> manualJudge(Long submitId, Integer status, Integer score);
 
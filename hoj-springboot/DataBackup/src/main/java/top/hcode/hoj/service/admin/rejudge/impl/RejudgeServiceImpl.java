@@ -6,6 +6,7 @@ import top.hcode.hoj.common.exception.StatusFailException;
 import top.hcode.hoj.common.result.CommonResult;
 import top.hcode.hoj.manager.admin.rejudge.RejudgeManager;
 import top.hcode.hoj.pojo.entity.judge.Judge;
+import top.hcode.hoj.pojo.vo.RejudgeProgressVO;
 
 import top.hcode.hoj.service.admin.rejudge.RejudgeService;
 
@@ -32,10 +33,38 @@ public class RejudgeServiceImpl implements RejudgeService {
     }
 
     @Override
-    public CommonResult<Void> rejudgeContestProblem(Long cid, Long pid) {
+    public CommonResult<RejudgeProgressVO> rejudgeContestProblem(Long cid, Long pid) {
         try {
-            rejudgeManager.rejudgeContestProblem(cid, pid);
-            return CommonResult.successResponse("重判成功！该题目对应的全部提交已进入判题队列！");
+            return CommonResult.successResponse(rejudgeManager.rejudgeContestProblem(cid, pid),
+                    "重判成功！该题目对应的全部提交将分批进入判题队列！");
+        } catch (StatusFailException e) {
+            return CommonResult.errorResponse(e.getMessage());
+        }
+    }
+
+    @Override
+    public CommonResult<RejudgeProgressVO> rejudgeContest(Long cid) {
+        try {
+            return CommonResult.successResponse(rejudgeManager.rejudgeContest(cid),
+                    "重判成功！该比赛的全部提交将分批进入判题队列！");
+        } catch (StatusFailException e) {
+            return CommonResult.errorResponse(e.getMessage());
+        }
+    }
+
+    @Override
+    public CommonResult<RejudgeProgressVO> getRejudgeProgress(String jobId) {
+        try {
+            return CommonResult.successResponse(rejudgeManager.getRejudgeProgress(jobId));
+        } catch (StatusFailException e) {
+            return CommonResult.errorResponse(e.getMessage());
+        }
+    }
+
+    @Override
+    public CommonResult<RejudgeProgressVO> cancelRejudge(String jobId) {
+        try {
+            return CommonResult.successResponse(rejudgeManager.cancelRejudge(jobId), "已取消该批量重判！");
         } catch (StatusFailException e) {
             return CommonResult.errorResponse(e.getMessage());
         }
@@ -3,9 +3,12 @@ package top.hcode.hoj.service.file;
 import top.hcode.hoj.common.exception.StatusForbiddenException;
 import org.springframework.web.multipart.MultipartFile;
 import top.hcode.hoj.common.exception.StatusFailException;
+import top.hcode.hoj.common.exception.StatusNotFoundException;
 import top.hcode.hoj.common.result.CommonResult;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -18,4 +21,10 @@ public interface TestCaseService {
     public CommonResult<Map<Object, Object>> uploadTestcaseZip(MultipartFile file, Long gid, String mode);
 
     public void downloadTestcase(Long pid, HttpServletResponse response) throws StatusFailException, StatusForbiddenException;
+
+    public CommonResult<Map<String, Object>> getTestcaseManifest(Long pid, String token);
+
+    public void downloadTestcaseBlob(Long pid, String name, String sha256, String token,
+                                     HttpServletRequest request, HttpServletResponse response)
+            throws StatusFailException, StatusForbiddenException, StatusNotFoundException, IOException;
 }
\ No newline at end of file
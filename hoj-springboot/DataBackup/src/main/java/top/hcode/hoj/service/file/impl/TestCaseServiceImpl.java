@@ -4,14 +4,18 @@ import top.hcode.hoj.common.exception.StatusForbiddenException;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import top.hcode.hoj.common.exception.StatusFailException;
+import top.hcode.hoj.common.exception.StatusNotFoundException;
 import top.hcode.hoj.common.exception.StatusSystemErrorException;
 import top.hcode.hoj.common.result.CommonResult;
 import top.hcode.hoj.common.result.ResultStatus;
+import top.hcode.hoj.manager.file.TestCaseDistributeManager;
 import top.hcode.hoj.manager.file.TestCaseManager;
 import top.hcode.hoj.service.file.TestCaseService;
 
 import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -25,6 +29,9 @@ public class TestCaseServiceImpl implements TestCaseService {
     @Resource
     private TestCaseManager testCaseManager;
 
+    @Resource
+    private TestCaseDistributeManager testCaseDistributeManager;
+
     @Override
     public CommonResult<Map<Object, Object>> uploadTestcaseZip(MultipartFile file, Long gid, String mode) {
         try {
@@ -42,4 +49,24 @@ public class TestCaseServiceImpl implements TestCaseService {
     public void downloadTestcase(Long pid, HttpServletResponse response) throws StatusFailException, StatusForbiddenException {
         testCaseManager.downloadTestcase(pid, response);
     }
-}
\ No newline at end of file
+
+    @Override
+    public CommonResult<Map<String, Object>> getTestcaseManifest(Long pid, String token) {
+        try {
+            return CommonResult.successResponse(testCaseDistributeManager.getManifest(pid, token));
+        } catch (StatusFailException e) {
+            return CommonResult.errorResponse(e.getMessage());
+        } catch (StatusForbiddenException e) {
+            return CommonResult.errorResponse(e.getMessage(), ResultStatus.FORBIDDEN);
+        } catch (StatusNotFoundException e) {
+            return CommonResult.errorResponse(e.getMessage(), ResultStatus.NOT_FOUND);
+        }
+    }
+
+    @Override
+    public void downloadTestcaseBlob(Long pid, String name, String sha256, String token,
+                                     HttpServletRequest request, HttpServletResponse response)
+            throws StatusFailException, StatusForbiddenException, StatusNotFoundException, IOException {
+        testCaseDistributeManager.downloadBlob(pid, name, sha256, token, request, response);
+    }
+}
@@ -34,7 +34,8 @@ public interface ContestService {
                                                                  Long searchCid,
                                                                  Boolean beforeContestSubmit,
                                                                  Boolean completeProblemID,
-                                                                 Boolean isContainsContestEndJudge);
+                                                                 Boolean isContainsContestEndJudge,
+                                                                 Long before);
 
     public CommonResult<IPage> getContestRank(ContestRankDTO contestRankDto);
 
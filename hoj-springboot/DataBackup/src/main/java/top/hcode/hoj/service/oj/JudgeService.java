@@ -1,6 +1,7 @@
 package top.hcode.hoj.service.oj;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import top.hcode.hoj.common.result.CommonResult;
 import top.hcode.hoj.pojo.dto.SubmitIdListDTO;
 import top.hcode.hoj.pojo.dto.SubmitJudgeDTO;
@@ -12,6 +13,7 @@ import top.hcode.hoj.pojo.vo.SubmissionInfoVO;
 import top.hcode.hoj.pojo.vo.TestJudgeVO;
 
 import java.util.HashMap;
+import java.util.List;
 
 public interface JudgeService {
 
@@ -32,7 +34,8 @@ public interface JudgeService {
                                                      Integer searchStatus,
                                                      String searchUsername,
                                                      Boolean completeProblemID,
-                                                     Long gid);
+                                                     Long gid,
+                                                     Long before);
 
     public CommonResult<Void> updateSubmission(Judge judge);
 
@@ -40,5 +43,7 @@ public interface JudgeService {
 
     public CommonResult<HashMap<Long, Object>> checkContestJudgeResult(SubmitIdListDTO submitIdListDto);
 
+    public SseEmitter subscribeJudgeStatus(List<Long> submitIds, Long cid);
+
     public CommonResult<JudgeCaseVO> getALLCaseResult(Long submitId);
 }
@@ -101,7 +101,8 @@ public class ContestServiceImpl implements ContestService {
                                                                  Long searchCid,
                                                                  Boolean beforeContestSubmit,
                                                                  Boolean completeProblemID,
-                                                                 Boolean isContainsContestEndJudge) {
+                                                                 Boolean isContainsContestEndJudge,
+                                                                 Long before) {
         try {
             return CommonResult.successResponse(contestManager.getContestSubmissionList(limit,
                     currentPage,
@@ -112,7 +113,8 @@ public class ContestServiceImpl implements ContestService {
                     searchCid,
                     beforeContestSubmit,
                     completeProblemID,
-                    isContainsContestEndJudge));
+                    isContainsContestEndJudge,
+                    before));
         } catch (StatusFailException e) {
             return CommonResult.errorResponse(e.getMessage());
         } catch (StatusForbiddenException e) {
@@ -2,11 +2,13 @@ package top.hcode.hoj.service.oj.impl;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import top.hcode.hoj.common.exception.*;
 import top.hcode.hoj.common.result.CommonResult;
 import top.hcode.hoj.common.result.ResultStatus;
 import top.hcode.hoj.exception.AccessException;
 import top.hcode.hoj.manager.oj.JudgeManager;
+import top.hcode.hoj.manager.oj.JudgeStatusPushManager;
 import top.hcode.hoj.pojo.dto.SubmitIdListDTO;
 import top.hcode.hoj.pojo.dto.SubmitJudgeDTO;
 import top.hcode.hoj.pojo.dto.TestJudgeDTO;
@@ -18,7 +20,9 @@ import top.hcode.hoj.pojo.vo.TestJudgeVO;
 import top.hcode.hoj.service.oj.JudgeService;
 
 import javax.annotation.Resource;
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * @Author: Himit_ZH
@@ -31,6 +35,9 @@ public class JudgeServiceImpl implements JudgeService {
     @Resource
     private JudgeManager judgeManager;
 
+    @Resource
+    private JudgeStatusPushManager judgeStatusPushManager;
+
     @Override
     public CommonResult<Judge> submitProblemJudge(SubmitJudgeDTO judgeDto) {
         try {
@@ -98,7 +105,8 @@ public class JudgeServiceImpl implements JudgeService {
                                                      Integer searchStatus,
                                                      String searchUsername,
                                                      Boolean completeProblemID,
-                                                     Long gid) {
+                                                     Long gid,
+                                                     Long before) {
         try {
             return CommonResult.successResponse(judgeManager.getJudgeList(limit,
                     currentPage,
@@ -107,7 +115,8 @@ public class JudgeServiceImpl implements JudgeService {
                     searchStatus,
                     searchUsername,
                     completeProblemID,
-                    gid));
+                    gid,
+                    before));
         } catch (StatusAccessDeniedException e) {
             return CommonResult.errorResponse(e.getMessage(), ResultStatus.ACCESS_DENIED);
         }
@@ -139,6 +148,28 @@ public class JudgeServiceImpl implements JudgeService {
         }
     }
 
+    @Override
+    public SseEmitter subscribeJudgeStatus(List<Long> submitIds, Long cid) {
+        try {
+            return judgeStatusPushManager.subscribe(submitIds, cid);
+        } catch (StatusNotFoundException e) {
+            return getErrorEmitter(CommonResult.errorResponse(e.getMessage(), ResultStatus.NOT_FOUND));
+        } catch (StatusFailException e) {
+            return getErrorEmitter(CommonResult.errorResponse(e.getMessage()));
+        }
+    }
+
+    private SseEmitter getErrorEmitter(CommonResult<Void> result) {
+        SseEmitter emitter = new SseEmitter();
+        try {
+            emitter.send(SseEmitter.event().name("error").data(result));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
     @Override
     public CommonResult<JudgeCaseVO> getALLCaseResult(Long submitId) {
         try {
@@ -16,10 +16,11 @@ import top.hcode.hoj.mapper.RoleAuthMapper;
 import top.hcode.hoj.pojo.entity.user.Auth;
 import top.hcode.hoj.pojo.entity.user.Role;
 import top.hcode.hoj.pojo.entity.user.UserInfo;
+import top.hcode.hoj.pojo.vo.RoleAuthsVO;
 import top.hcode.hoj.utils.JwtUtils;
 
-import java.util.LinkedList;
-import java.util.List;
+import javax.annotation.PostConstruct;
+import java.util.*;
 
 /**
  * @Author: Himit_ZH
@@ -42,6 +43,53 @@ public class AccountRealm extends AuthorizingRealm {
     @Autowired
     private RoleAuthMapper roleAuthMapper;
 
+    @Autowired
+    private ShiroLocalCache shiroLocalCache;
+
+    /**
+     * 角色id -> 权限列表，角色权限几乎不会变动，启动时加载一次
+     */
+    private volatile Map<Long, List<String>> rolePermissionMap;
+
+    @PostConstruct
+    public void initLocalCache() {
+        // 收到失效全部缓存的通知时重新加载角色权限
+        shiroLocalCache.setInvalidateAllListener(() -> rolePermissionMap = null);
+    }
+
+    public void loadRolePermission() {
+        Map<Long, List<String>> permissionMap = new HashMap<>();
+        for (RoleAuthsVO roleAuthsVo : roleAuthMapper.getAllRoleAuths()) {
+            List<String> permissionList = new ArrayList<>();
+            if (roleAuthsVo.getAuths() != null) {
+                for (Auth auth : roleAuthsVo.getAuths()) {
+                    if (auth.getPermission() != null) {
+                        permissionList.add(auth.getPermission());
+                    }
+                }
+            }
+            permissionMap.put(roleAuthsVo.getId(), permissionList);
+        }
+        rolePermissionMap = permissionMap;
+    }
+
+    private List<String> getRolePermissionList(Role role) {
+        Map<Long, List<String>> permissionMap = rolePermissionMap;
+        if (permissionMap == null) {
+            loadRolePermission();
+            permissionMap = rolePermissionMap;
+        }
+        List<String> permissionList = permissionMap.get(role.getId());
+        if (permissionList == null) {
+            // 新增的角色，单独查询一次
+            permissionList = new ArrayList<>();
+            for (Auth auth : roleAuthMapper.getRoleAuths(role.getId()).getAuths()) {
+                permissionList.add(auth.getPermission());
+            }
+        }
+        return permissionList;
+    }
+
     @Override
     public boolean supports(AuthenticationToken token) {
         return token instanceof JwtToken;
@@ -58,9 +106,7 @@ public class AccountRealm extends AuthorizingRealm {
         List<Role> roles = userRoleEntityService.getRolesByUid(user.getUid());
         for (Role role : roles) {
             roleNameList.add(role.getRole());
-            for (Auth auth : roleAuthMapper.getRoleAuths(role.getId()).getAuths()) {
-                permissionsNameList.add(auth.getPermission());
-            }
+            permissionsNameList.addAll(getRolePermissionList(role));
         }
         SimpleAuthorizationInfo authorizationInfo = new SimpleAuthorizationInfo();
 
@@ -77,6 +123,14 @@ public class AccountRealm extends AuthorizingRealm {
 
         String userId = jwtUtils.getClaimByToken((String) jwt.getPrincipal()).getSubject();
 
+        // 本地缓存的用户信息在封禁、修改信息时会被通知失效
+        AccountProfile cacheProfile = shiroLocalCache.getProfile(userId);
+        if (cacheProfile != null) {
+            AccountProfile profile = new AccountProfile();
+            BeanUtil.copyProperties(cacheProfile, profile);
+            return new SimpleAuthenticationInfo(profile, jwt.getCredentials(), getName());
+        }
+
         QueryWrapper<UserInfo> queryWrapper = new QueryWrapper<>();
         queryWrapper.eq("uuid", userId)
                 .select("uuid", "username", "nickname", "realname", "title_name", "title_color", "avatar", "status");
@@ -91,6 +145,9 @@ public class AccountRealm extends AuthorizingRealm {
         AccountProfile profile = new AccountProfile();
         BeanUtil.copyProperties(userInfo, profile);
         profile.setUid(userInfo.getUuid());
+        AccountProfile localProfile = new AccountProfile();
+        BeanUtil.copyProperties(profile, localProfile);
+        shiroLocalCache.putProfile(userId, localProfile);
         return new SimpleAuthenticationInfo(profile, jwt.getCredentials(), getName());
     }
 }
\ No newline at end of file
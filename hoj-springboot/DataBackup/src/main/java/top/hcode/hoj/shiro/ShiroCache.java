@@ -12,6 +12,7 @@ import java.util.*;
 /**
  * @Author Himit_ZH
  * @Date 2022/10/27
+ * @Description 一级为本地缓存(ShiroLocalCache)，二级为redis
  */
 public class ShiroCache<K, V> implements Cache<K, V> {
 
@@ -21,40 +22,43 @@ public class ShiroCache<K, V> implements Cache<K, V> {
 
     private RedisUtils redisUtils;
 
-    public ShiroCache(long cacheLiveTime, String cacheKeyPrefix, RedisUtils redisUtils) {
+    private ShiroLocalCache shiroLocalCache;
+
+    public ShiroCache(long cacheLiveTime, String cacheKeyPrefix, RedisUtils redisUtils, ShiroLocalCache shiroLocalCache) {
         this.cacheLiveTime = cacheLiveTime;
         this.cacheKeyPrefix = cacheKeyPrefix;
         this.redisUtils = redisUtils;
+        this.shiroLocalCache = shiroLocalCache;
     }
 
     /**
-     * 缓存的key名称获取为shiro:cache:account
+     * 缓存的key名称为 前缀 + uid
      *
      * @param key
      */
-    private String getKey(K key) {
-        String userId;
+    private String getUserId(K key) {
         if (key instanceof PrincipalCollection) {
             AccountProfile accountProfile = (AccountProfile) ((PrincipalCollection) key).getPrimaryPrincipal();
-            userId = accountProfile.getUid();
+            return accountProfile.getUid();
         } else {
-            userId = key.toString();
+            return key.toString();
         }
-
-        return this.cacheKeyPrefix + userId;
     }
 
     /**
-     * 获取缓存
+     * 获取缓存，先查本地缓存，未命中再查redis(一次get，不再先hasKey)
      */
     @Override
     public V get(K key) throws CacheException {
-        if (!this.redisUtils.hasKey(this.getKey(key))) {
-            return null;
+        String userId = getUserId(key);
+        Object o = this.shiroLocalCache.getAuthorization(userId);
+        if (o != null) {
+            return (V) o;
+        }
+        o = this.redisUtils.get(this.cacheKeyPrefix + userId);
+        if (o != null) {
+            this.shiroLocalCache.putAuthorization(userId, o);
         }
-        Object o = this.redisUtils.get(this.getKey(key));
-        V v = (V) o;
-
         return (V) o;
     }
 
@@ -63,19 +67,20 @@ public class ShiroCache<K, V> implements Cache<K, V> {
      */
     @Override
     public V put(K key, V value) throws CacheException {
-        this.redisUtils.set(this.getKey(key), value, this.cacheLiveTime);
+        String userId = getUserId(key);
+        this.redisUtils.set(this.cacheKeyPrefix + userId, value, this.cacheLiveTime);
+        this.shiroLocalCache.putAuthorization(userId, value);
         return value;
     }
 
     /**
-     * 移除缓存
+     * 移除缓存，同时通知所有实例失效本地缓存
      */
     @Override
     public V remove(K key) throws CacheException {
-        if (!this.redisUtils.hasKey(this.getKey(key))) {
-            return null;
-        }
-        this.redisUtils.del(this.getKey(key));
+        String userId = getUserId(key);
+        this.redisUtils.del(this.cacheKeyPrefix + userId);
+        this.shiroLocalCache.invalidate(userId);
         return null;
     }
 
@@ -89,6 +94,7 @@ public class ShiroCache<K, V> implements Cache<K, V> {
         if (null != keys && keys.size() > 0) {
             redisUtils.del(keys);
         }
+        this.shiroLocalCache.invalidateAll();
     }
 
     /**
@@ -19,8 +19,10 @@ public class ShiroCacheManager implements CacheManager {
 
     private RedisUtils redisUtils; // redis工具类
 
+    private ShiroLocalCache shiroLocalCache; // 本地一级缓存
+
     @Override
     public <K, V> Cache<K, V> getCache(String s) throws CacheException {
-        return new ShiroCache<K, V>(cacheLive, cacheKeyPrefix, redisUtils);
+        return new ShiroCache<K, V>(cacheLive, cacheKeyPrefix, redisUtils, shiroLocalCache);
     }
 }
@@ -0,0 +1,156 @@
+package top.hcode.hoj.shiro;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import top.hcode.hoj.utils.RedisUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/18 21:10
+ * @Description: shiro的本地一级缓存
+ * 按uid在本机缓存授权信息与登录用户信息，容量有限且短时间过期，二级缓存仍为redis。
+ * 角色变更、封禁、修改用户信息时通过redis频道通知所有实例同时失效。
+ */
+@Component
+@Slf4j(topic = "hoj")
+public class ShiroLocalCache implements MessageListener {
+
+    private static final String SHIRO_CACHE_INVALIDATE_CHANNEL = "hoj_shiro_cache_invalidate_channel";
+
+    /**
+     * 失效全部缓存的消息
+     */
+    private static final String INVALIDATE_ALL = "*";
+
+    @Value("${hoj.shiro.local-cache.capacity:10000}")
+    private Integer capacity;
+
+    @Value("${hoj.shiro.local-cache.expire-millis:60000}")
+    private Long expireMillis;
+
+    @Resource
+    private RedisUtils redisUtils;
+
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private LRUCache<String, Object> authorizationCache;
+
+    private LRUCache<String, AccountProfile> profileCache;
+
+    private volatile Runnable invalidateAllListener;
+
+    @PostConstruct
+    public void init() {
+        authorizationCache = CacheUtil.newLRUCache(capacity, expireMillis);
+        profileCache = CacheUtil.newLRUCache(capacity, expireMillis);
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(SHIRO_CACHE_INVALIDATE_CHANNEL));
+    }
+
+    public Object getAuthorization(String uid) {
+        return authorizationCache.get(uid, false);
+    }
+
+    public void putAuthorization(String uid, Object authorizationInfo) {
+        authorizationCache.put(uid, authorizationInfo);
+    }
+
+    public AccountProfile getProfile(String uid) {
+        return profileCache.get(uid, false);
+    }
+
+    public void putProfile(String uid, AccountProfile accountProfile) {
+        profileCache.put(uid, accountProfile);
+    }
+
+    /**
+     * 收到失效全部缓存的通知时的额外处理(重新加载角色权限)
+     */
+    public void setInvalidateAllListener(Runnable invalidateAllListener) {
+        this.invalidateAllListener = invalidateAllListener;
+    }
+
+    /**
+     * 失效所有实例中该用户的本地缓存
+     */
+    public void invalidate(String uid) {
+        afterCommit(() -> {
+            evict(uid);
+            publish(uid);
+        });
+    }
+
+    public void invalidateAll() {
+        afterCommit(() -> {
+            evict(INVALIDATE_ALL);
+            publish(INVALIDATE_ALL);
+        });
+    }
+
+    /**
+     * 处于事务中时在事务提交后再失效，避免提交前有实例重新加载到旧数据并一直缓存到过期
+     */
+    private void afterCommit(Runnable runnable) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    runnable.run();
+                }
+            });
+        } else {
+            runnable.run();
+        }
+    }
+
+    private void publish(String message) {
+        try {
+            redisUtils.sendMessage(SHIRO_CACHE_INVALIDATE_CHANNEL, message);
+        } catch (Exception e) {
+            // 通知失败时其他实例的本地缓存最多在过期时间后失效
+            log.error("[Shiro Local Cache] Publish invalidation [{}] error------------>", message, e);
+        }
+    }
+
+    private void evict(String message) {
+        if (INVALIDATE_ALL.equals(message)) {
+            authorizationCache.clear();
+            profileCache.clear();
+            Runnable listener = invalidateAllListener;
+            if (listener != null) {
+                listener.run();
+            }
+        } else {
+            authorizationCache.remove(message);
+            profileCache.remove(message);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object uid = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (uid != null) {
+                evict(uid.toString());
+            }
+        } catch (Exception e) {
+            log.error("[Shiro Local Cache] Handle the message error------------>", e);
+        }
+    }
+}
@@ -65,8 +65,13 @@ public class Constants {
         CONTEST_JUDGE_WAITING("Contest_Waiting_Handle_Queue"),
         GENERAL_JUDGE_WAITING("General_Waiting_Handle_Queue"),
         TEST_JUDGE_WAITING("Test_Judge_Waiting_Handle_Queue"),
+        REJUDGE_WAITING("Rejudge_Waiting_Handle_Queue"),
         CONTEST_REMOTE_JUDGE_WAITING_HANDLE("Contest_Remote_Waiting_Handle_Queue"),
-        GENERAL_REMOTE_JUDGE_WAITING_HANDLE("General_Remote_Waiting_Handle_Queue");
+        GENERAL_REMOTE_JUDGE_WAITING_HANDLE("General_Remote_Waiting_Handle_Queue"),
+        REMOTE_REJUDGE_WAITING_HANDLE("Remote_Rejudge_Waiting_Handle_Queue"),
+        // 任务入队时的通知信号，只用于唤醒阻塞等待的消费者，不存放任务数据
+        JUDGE_WAITING_SIGNAL("Judge_Waiting_Signal"),
+        REMOTE_JUDGE_WAITING_SIGNAL("Remote_Judge_Waiting_Signal");
 
         private Queue(String name) {
             this.name = name;
@@ -180,16 +185,38 @@ public class Constants {
         ACM_RANK_CACHE("acm_rank_cache"),
         OI_RANK_CACHE("oi_rank_cache"),
 
+        GLOBAL_ACM_RANK("global_acm_rank"),
+        GLOBAL_OI_RANK("global_oi_rank"),
+        GLOBAL_RANK_COUNTER("global_rank_counter"),
+        GLOBAL_RANK_USER_PROBLEM("global_rank_user_problem:"),
+        GLOBAL_RANK_CHANGED_USER("global_rank_changed_user"),
+        GLOBAL_RANK_SYNC_LOCK("global_rank_sync_lock"),
+
         GROUP_RANK_CACHE("group_rank_cache"),
 
+        JUDGE_LIST_COUNT_CACHE("judge_list_count_cache:"),
+
         SUPER_ADMIN_UID_LIST_CACHE("super_admin_uid_list_case"),
 
         SUBMIT_NON_CONTEST_LOCK("submit_non_contest_lock:"),
         TEST_JUDGE_LOCK("test_judge_lock:"),
         SUBMIT_CONTEST_LOCK("submit_contest_lock:"),
+        API_RATE_LIMIT("api_rate_limit:"),
         DISCUSSION_ADD_NUM_LOCK("discussion_add_num_lock:"),
         GROUP_ADD_NUM_LOCK("group_add_num_lock"),
         CONTEST_ADD_PRINT_LOCK("contest_add_print_lock:"),
+        TESTCASE_PREFETCH_LOCK("testcase_prefetch_lock:"),
+
+        JUDGE_SERVER_SLOT("judge_server_slot:"),
+        JUDGE_SERVER_SYNC_LOCK("judge_server_sync_lock"),
+        JUDGE_SCHEDULER_BACKLOG("judge_scheduler_backlog"),
+
+        REJUDGE_JOB("rejudge_job:"),
+        REJUDGE_JOB_LIST("rejudge_job_list"),
+        REJUDGE_CONTEST_LOCK("rejudge_contest_lock:"),
+        REJUDGE_FEED_LOCK("rejudge_feed_lock"),
+
+        USER_SUBMIT_HEATMAP("user_submit_heatmap:"),
 
         REMOTE_JUDGE_CF_ACCOUNT_NUM("remote_judge_cf_account:");
 
@@ -0,0 +1,196 @@
+package top.hcode.hoj.utils;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/18 14:05
+ * @Description: 进程内的n-gram倒排索引，用于替代 like '%keyword%' 的模糊查询
+ * 每个字段按字符切分为单字与相邻双字(中日韩文字同样按字切分，无需分词)，
+ * 查询时对关键词的所有双字(单字关键词则为单字)的倒排表求交，再校验候选项确实包含该关键词，
+ * 结果与 like '%keyword%' (大小写不敏感)一致。
+ */
+public class NGramIndex<K> {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 文档id -> 小写后的各字段
+     */
+    private final Map<K, String[]> documentMap = new HashMap<>();
+
+    /**
+     * 单字或双字 -> 文档id
+     */
+    private final Map<String, Set<K>> postingMap = new HashMap<>();
+
+    public void put(K id, String... fields) {
+        String[] lowerFields = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            lowerFields[i] = fields[i] == null ? "" : fields[i].toLowerCase();
+        }
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            documentMap.put(id, lowerFields);
+            for (String gram : getGrams(lowerFields)) {
+                postingMap.computeIfAbsent(gram, k -> new HashSet<>()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(K id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            documentMap.clear();
+            postingMap.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return 内容相同的独立副本，修改副本不影响正在被查询的原索引
+     */
+    public NGramIndex<K> copy() {
+        NGramIndex<K> copy = new NGramIndex<>();
+        lock.readLock().lock();
+        try {
+            copy.documentMap.putAll(documentMap);
+            for (Map.Entry<String, Set<K>> entry : postingMap.entrySet()) {
+                copy.postingMap.put(entry.getKey(), new HashSet<>(entry.getValue()));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return copy;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentMap.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<K> keySet() {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(documentMap.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(K id) {
+        lock.readLock().lock();
+        try {
+            return documentMap.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return 任一字段包含该关键词的文档id
+     */
+    public Set<K> search(String keyword) {
+        if (keyword == null || keyword.isEmpty()) {
+            return new HashSet<>();
+        }
+        String lowerKeyword = keyword.toLowerCase();
+        List<String> grams = getQueryGrams(lowerKeyword);
+        lock.readLock().lock();
+        try {
+            List<Set<K>> postingList = new ArrayList<>(grams.size());
+            for (String gram : grams) {
+                Set<K> posting = postingMap.get(gram);
+                if (posting == null) {
+                    return new HashSet<>();
+                }
+                postingList.add(posting);
+            }
+            // 从最短的倒排表开始求交
+            postingList.sort(Comparator.comparingInt(Set::size));
+            Set<K> result = new HashSet<>();
+            for (K id : postingList.get(0)) {
+                boolean isCandidate = true;
+                for (int i = 1; i < postingList.size() && isCandidate; i++) {
+                    isCandidate = postingList.get(i).contains(id);
+                }
+                if (isCandidate && isMatch(documentMap.get(id), lowerKeyword)) {
+                    result.add(id);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeInternal(K id) {
+        String[] oldFields = documentMap.remove(id);
+        if (oldFields == null) {
+            return;
+        }
+        for (String gram : getGrams(oldFields)) {
+            Set<K> posting = postingMap.get(gram);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postingMap.remove(gram);
+                }
+            }
+        }
+    }
+
+    private boolean isMatch(String[] fields, String lowerKeyword) {
+        for (String field : fields) {
+            if (field.contains(lowerKeyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Set<String> getGrams(String[] fields) {
+        Set<String> grams = new HashSet<>();
+        for (String field : fields) {
+            int[] codePoints = field.codePoints().toArray();
+            for (int i = 0; i < codePoints.length; i++) {
+                grams.add(new String(codePoints, i, 1));
+                if (i + 1 < codePoints.length) {
+                    grams.add(new String(codePoints, i, 2));
+                }
+            }
+        }
+        return grams;
+    }
+
+    private List<String> getQueryGrams(String lowerKeyword) {
+        int[] codePoints = lowerKeyword.codePoints().toArray();
+        List<String> grams = new ArrayList<>();
+        if (codePoints.length == 1) {
+            grams.add(new String(codePoints, 0, 1));
+        } else {
+            for (int i = 0; i + 1 < codePoints.length; i++) {
+                grams.add(new String(codePoints, i, 2));
+            }
+        }
+        return grams;
+    }
+}
@@ -2,9 +2,12 @@ package top.hcode.hoj.utils;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 
@@ -23,6 +26,106 @@ public final class RedisUtils {
 
     private static RedisTemplate<String, Object> redisTemplate;
 
+    private static final DefaultRedisScript<List> BATCH_POP_TO_PROCESSING_SCRIPT = new DefaultRedisScript<>(
+            "local count = tonumber(ARGV[1]) " +
+                    "local size = #KEYS / 2 " +
+                    "for i = 1, size do " +
+                    "  local items = {tostring(i)} " +
+                    "  for j = 1, count do " +
+                    "    local item = redis.call('rpoplpush', KEYS[i], KEYS[size + i]) " +
+                    "    if not item then break end " +
+                    "    items[#items + 1] = item " +
+                    "  end " +
+                    "  if #items > 1 then return items end " +
+                    "end " +
+                    "return {}", List.class);
+
+    private static final DefaultRedisScript<Long> PUSH_AND_SIGNAL_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('lpush', KEYS[1], ARGV[1]) " +
+                    "redis.call('lpush', KEYS[2], ARGV[2]) " +
+                    "redis.call('ltrim', KEYS[2], 0, tonumber(ARGV[3]) - 1) " +
+                    "return 1", Long.class);
+
+    private static final DefaultRedisScript<Long> RESTORE_PROCESSING_SCRIPT = new DefaultRedisScript<>(
+            "local count = 0 " +
+                    "while true do " +
+                    "  local item = redis.call('lpop', KEYS[2]) " +
+                    "  if not item then break end " +
+                    "  redis.call('rpush', KEYS[1], item) " +
+                    "  count = count + 1 " +
+                    "end " +
+                    "return count", Long.class);
+
+    private static final DefaultRedisScript<Long> TOKEN_BUCKET_SCRIPT = new DefaultRedisScript<>(
+            "local capacity = tonumber(ARGV[1]) " +
+                    "local period = tonumber(ARGV[2]) " +
+                    "local now = tonumber(ARGV[3]) " +
+                    "local bucket = redis.call('hmget', KEYS[1], 'tokens', 'ts') " +
+                    "local tokens = tonumber(bucket[1]) " +
+                    "local ts = tonumber(bucket[2]) " +
+                    "if tokens == nil or ts == nil then tokens = capacity ts = now end " +
+                    "if now > ts then " +
+                    "  tokens = math.min(capacity, tokens + (now - ts) * capacity / period) " +
+                    "  ts = now " +
+                    "end " +
+                    "local wait = 0 " +
+                    "if tokens >= 1 then tokens = tokens - 1 " +
+                    "else wait = math.ceil((1 - tokens) * period / capacity) end " +
+                    "redis.call('hmset', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(ts)) " +
+                    "redis.call('pexpire', KEYS[1], period) " +
+                    "return wait", Long.class);
+
+    private static final DefaultRedisScript<Long> SLIDING_WINDOW_SCRIPT = new DefaultRedisScript<>(
+            "local limit = tonumber(ARGV[1]) " +
+                    "local window = tonumber(ARGV[2]) " +
+                    "local now = tonumber(ARGV[3]) " +
+                    "redis.call('zremrangebyscore', KEYS[1], '-inf', now - window) " +
+                    "if redis.call('zcard', KEYS[1]) < limit then " +
+                    "  redis.call('zadd', KEYS[1], now, ARGV[4]) " +
+                    "  redis.call('pexpire', KEYS[1], window) " +
+                    "  return 0 " +
+                    "end " +
+                    "local oldest = redis.call('zrange', KEYS[1], 0, 0, 'withscores') " +
+                    "return math.max(1, tonumber(oldest[2]) + window - now)", Long.class);
+
+    private static final DefaultRedisScript<Long> SLOT_RESERVE_SCRIPT = new DefaultRedisScript<>(
+            "local now = tonumber(ARGV[1]) " +
+                    "local best = 0 " +
+                    "local bestCount = 0 " +
+                    "for i = 1, #KEYS do " +
+                    "  redis.call('zremrangebyscore', KEYS[i], '-inf', now) " +
+                    "  local count = redis.call('zcard', KEYS[i]) " +
+                    "  if count < tonumber(ARGV[3 + i]) and (best == 0 or count < bestCount) then " +
+                    "    best = i bestCount = count " +
+                    "  end " +
+                    "end " +
+                    "if best > 0 then redis.call('zadd', KEYS[best], now + tonumber(ARGV[2]), ARGV[3]) end " +
+                    "return best", Long.class);
+
+    private static final DefaultRedisScript<Long> SLOT_RENEW_SCRIPT = new DefaultRedisScript<>(
+            "local count = 0 " +
+                    "for i = 2, #ARGV do count = count + redis.call('zadd', KEYS[1], 'XX', 'CH', ARGV[1], ARGV[i]) end " +
+                    "return count", Long.class);
+
+    private static final DefaultRedisScript<List> SLOT_COUNT_SCRIPT = new DefaultRedisScript<>(
+            "local counts = {} " +
+                    "for i = 1, #KEYS do " +
+                    "  redis.call('zremrangebyscore', KEYS[i], '-inf', ARGV[1]) " +
+                    "  counts[i] = redis.call('zcard', KEYS[i]) " +
+                    "end " +
+                    "return counts", List.class);
+
+    private static final DefaultRedisScript<Long> HASH_INCR_IF_EXISTS_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 0 then return 0 end " +
+                    "redis.call('hincrby', KEYS[1], ARGV[1], ARGV[2]) " +
+                    "return 1", Long.class);
+
+    private static final DefaultRedisScript<Long> HASH_SET_IF_ABSENT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 1 then return 0 end " +
+                    "for i = 2, #ARGV, 2 do redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+                    "if tonumber(ARGV[1]) > 0 then redis.call('expire', KEYS[1], ARGV[1]) end " +
+                    "return 1", Long.class);
+
     @Autowired
     public void setRedisTemplate(RedisTemplate redisTemplate) {
         RedisUtils.redisTemplate = redisTemplate;
@@ -64,6 +167,25 @@ public final class RedisUtils {
         }
     }
 
+    // 续期锁，只有仍持有锁时才会延长有效时间
+    public boolean renewLock(String lockName, int expireTime, String requestId) {
+        try {
+            String script = "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('expire', KEYS[1], ARGV[2]) else return 0 end";
+
+            Long result = redisTemplate.execute(
+                    new DefaultRedisScript<>(script, Long.class),
+                    Collections.singletonList(lockName),
+                    requestId,
+                    expireTime
+            );
+
+            return result != null && result > 0;
+        } catch (Exception e) {
+            log.error("续期锁过程出错-->", e);
+            return false;
+        }
+    }
+
     /**
      * 指定缓存失效时间
      *
@@ -368,6 +490,42 @@ public final class RedisUtils {
         return redisTemplate.opsForHash().increment(key, item, -by);
     }
 
+    /**
+     * hash表存在时才递增，不存在时不创建，用于只维护已构建的缓存
+     *
+     * @param key  键
+     * @param item 项
+     * @param by   要增加几
+     * @return true 已递增 false hash表不存在
+     */
+    public boolean hincrIfExists(String key, String item, long by) {
+        Long result = redisTemplate.execute(HASH_INCR_IF_EXISTS_SCRIPT, RedisSerializer.string(),
+                (RedisSerializer<Long>) redisTemplate.getValueSerializer(), Collections.singletonList(key),
+                item, String.valueOf(by));
+        return result != null && result == 1;
+    }
+
+    /**
+     * hash表不存在时才一次性写入全部的项并设置时间，项与值均按字符串写入
+     *
+     * @param key  键
+     * @param map  对应多个键值
+     * @param time 时间(秒)，小于等于0为不过期
+     * @return true 已写入 false hash表已存在
+     */
+    public boolean hmsetIfAbsent(String key, Map<String, Object> map, long time) {
+        Object[] args = new Object[map.size() * 2 + 1];
+        args[0] = String.valueOf(time);
+        int i = 1;
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            args[i++] = entry.getKey();
+            args[i++] = String.valueOf(entry.getValue());
+        }
+        Long result = redisTemplate.execute(HASH_SET_IF_ABSENT_SCRIPT, RedisSerializer.string(),
+                (RedisSerializer<Long>) redisTemplate.getValueSerializer(), Collections.singletonList(key), args);
+        return result != null && result == 1;
+    }
+
 
     // ============================set=============================
 
@@ -617,6 +775,22 @@ public final class RedisUtils {
         }
     }
 
+    /**
+     * 只保留list指定区间内的元素
+     *
+     * @param start 开始
+     * @param end   结束(包含) -1代表最后一个元素
+     */
+    public boolean lTrim(String key, long start, long end) {
+        try {
+            redisTemplate.opsForList().trim(key, start, end);
+            return true;
+        } catch (Exception e) {
+            log.error("裁剪list出错-->", e);
+            return false;
+        }
+    }
+
     /**
      * 将list放入缓存
      *
@@ -637,6 +811,87 @@ public final class RedisUtils {
         }
     }
 
+    /**
+     * 按优先级从多个list的右边批量取出元素，并原子地转移到对应的处理中list，
+     * 元素处理完毕后需调用lRemove从处理中list移除，保证每个元素至少被消费一次
+     *
+     * @param keys           按优先级排列的list
+     * @param processingKeys 与keys一一对应的处理中list
+     * @param count          最多取出的元素个数
+     * @return 首个元素为被取出的list在keys中的下标(从1开始)，其余为取出的元素，全部为空时返回空列表
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object> lrBatchPopToProcessing(List<String> keys, List<String> processingKeys, int count) {
+        List<String> scriptKeys = new ArrayList<>(keys);
+        scriptKeys.addAll(processingKeys);
+        try {
+            List<Object> result = redisTemplate.execute(BATCH_POP_TO_PROCESSING_SCRIPT, scriptKeys, count);
+            return result == null ? Collections.emptyList() : result;
+        } catch (Exception e) {
+            log.error("批量取出list元素出错-->", e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 将元素放入list左边，同时向信号list放入一个通知元素，信号list最多保留maxSignals个元素
+     *
+     * @param key        任务list
+     * @param value      值
+     * @param signalKey  信号list，消费者阻塞等待该list，不存放任务数据
+     * @param maxSignals 信号list保留的最大长度
+     * @return
+     */
+    public boolean llPushAndSignal(String key, Object value, String signalKey, int maxSignals) {
+        try {
+            redisTemplate.execute(PUSH_AND_SIGNAL_SCRIPT, Arrays.asList(key, signalKey), value, 1, maxSignals);
+            return true;
+        } catch (Exception e) {
+            log.error("放入list并发送信号出错-->", e);
+            return false;
+        }
+    }
+
+    /**
+     * 阻塞地按优先级从多个list的右边取出一个元素
+     *
+     * @param timeout 阻塞时间(秒)
+     * @param keys    按优先级排列的list
+     * @return [键, 值]，超时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object> brPop(int timeout, String... keys) {
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        byte[][] rawKeys = new byte[keys.length][];
+        for (int i = 0; i < keys.length; i++) {
+            rawKeys[i] = keySerializer.serialize(keys[i]);
+        }
+        List<byte[]> result = redisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+                connection.bRPop(timeout, rawKeys));
+        if (CollectionUtils.isEmpty(result)) {
+            return null;
+        }
+        return Arrays.asList(keySerializer.deserialize(result.get(0)), valueSerializer.deserialize(result.get(1)));
+    }
+
+    /**
+     * 将处理中list的元素全部放回原list的右边，使其优先被重新消费
+     *
+     * @param key           原list
+     * @param processingKey 处理中list
+     * @return 放回的元素个数
+     */
+    public long lRestoreProcessing(String key, String processingKey) {
+        try {
+            Long count = redisTemplate.execute(RESTORE_PROCESSING_SCRIPT, Arrays.asList(key, processingKey));
+            return count == null ? 0 : count;
+        } catch (Exception e) {
+            log.error("恢复处理中list元素出错-->", e);
+            return 0;
+        }
+    }
+
     /**
      * 根据索引修改list中的某条数据
      *
@@ -677,6 +932,99 @@ public final class RedisUtils {
     }
 
 
+    // ============================zset=============================
+
+    /**
+     * 批量添加有序集合的成员，已存在则更新分数
+     *
+     * @param key         键
+     * @param memberScore 成员->分数
+     */
+    public boolean zAdd(String key, Map<Object, Double> memberScore) {
+        if (memberScore.isEmpty()) {
+            return true;
+        }
+        try {
+            Set<ZSetOperations.TypedTuple<Object>> tuples = new HashSet<>(memberScore.size() * 2);
+            for (Map.Entry<Object, Double> entry : memberScore.entrySet()) {
+                tuples.add(new DefaultTypedTuple<>(entry.getKey(), entry.getValue()));
+            }
+            redisTemplate.opsForZSet().add(key, tuples);
+            return true;
+        } catch (Exception e) {
+            log.error("批量添加有序集合成员出错-->", e);
+            return false;
+        }
+    }
+
+    /**
+     * 移除有序集合的成员
+     */
+    public long zRemove(String key, Object... members) {
+        try {
+            Long count = redisTemplate.opsForZSet().remove(key, members);
+            return count == null ? 0 : count;
+        } catch (Exception e) {
+            log.error("移除有序集合成员出错-->", e);
+            return 0;
+        }
+    }
+
+    /**
+     * 按分数从高到低获取有序集合指定排名区间的成员
+     *
+     * @param start 开始排名，从0开始
+     * @param end   结束排名(包含)
+     */
+    public Set<Object> zRevRange(String key, long start, long end) {
+        try {
+            Set<Object> members = redisTemplate.opsForZSet().reverseRange(key, start, end);
+            return members == null ? Collections.emptySet() : members;
+        } catch (Exception e) {
+            log.error("获取有序集合成员出错-->", e);
+            return Collections.emptySet();
+        }
+    }
+
+    /**
+     * 获取有序集合的成员数
+     */
+    public long zCard(String key) {
+        try {
+            Long size = redisTemplate.opsForZSet().zCard(key);
+            return size == null ? 0 : size;
+        } catch (Exception e) {
+            log.error("获取有序集合成员数出错-->", e);
+            return 0;
+        }
+    }
+
+    /**
+     * 随机弹出集合中最多count个元素
+     */
+    public List<Object> sPop(String key, long count) {
+        try {
+            List<Object> values = redisTemplate.opsForSet().pop(key, count);
+            return values == null ? Collections.emptyList() : values;
+        } catch (Exception e) {
+            log.error("弹出集合元素出错-->", e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 重命名键，目标键已存在则覆盖
+     */
+    public boolean rename(String oldKey, String newKey) {
+        try {
+            redisTemplate.rename(oldKey, newKey);
+            return true;
+        } catch (Exception e) {
+            log.error("重命名键出错-->", e);
+            return false;
+        }
+    }
+
     /**
      * 给特定频道发布消息
      *
@@ -699,28 +1047,96 @@ public final class RedisUtils {
     }
 
 
-    public boolean isWithinRateLimit(String key, long limitPeriod) {
-        ValueOperations<String, Object> ops = redisTemplate.opsForValue();
-        long currentTimeMillis = System.currentTimeMillis();
+    /**
+     * 在多个容量有限的资源中原子地占用一个当前占用数最少且未满的资源。
+     * 每个资源是一个zset，成员为占用凭证，分值为凭证的过期时间，持有者需定时续期，
+     * 持有者异常退出时凭证到期后自动释放
+     *
+     * @param keys        各资源的键
+     * @param capacities  各资源的容量，与keys一一对应
+     * @param token       占用凭证
+     * @param leaseMillis 凭证的有效时长(毫秒)
+     * @return 占用成功的资源在keys中的下标，全部已满时返回-1
+     */
+    public int reserveSlot(List<String> keys, List<Integer> capacities, String token, long leaseMillis) {
+        Object[] args = new Object[keys.size() + 3];
+        args[0] = String.valueOf(System.currentTimeMillis());
+        args[1] = String.valueOf(leaseMillis);
+        args[2] = token;
+        for (int i = 0; i < capacities.size(); i++) {
+            args[i + 3] = String.valueOf(capacities.get(i));
+        }
+        Long index = redisTemplate.execute(SLOT_RESERVE_SCRIPT, RedisSerializer.string(),
+                (RedisSerializer<Long>) redisTemplate.getValueSerializer(), keys, args);
+        return index == null ? -1 : index.intValue() - 1;
+    }
 
-        // Try to set a new value if the key does not exist
-        Boolean isSet = ops.setIfAbsent(key, String.valueOf(currentTimeMillis + limitPeriod * 1000), limitPeriod, TimeUnit.SECONDS);
+    /**
+     * 释放占用的资源
+     */
+    public boolean releaseSlot(String key, String token) {
+        Long count = redisTemplate.execute((RedisCallback<Long>) connection ->
+                connection.zRem(RedisSerializer.string().serialize(key), RedisSerializer.string().serialize(token)));
+        return count != null && count > 0;
+    }
 
-        if (Boolean.TRUE.equals(isSet)) {
-            // Lock acquired, it means that previous request was out of the limit period.
-            return true;
-        } else {
-            // If the key exists, check the stored time.
-            long expiresAt = Long.parseLong((String) ops.get(key));
-            if (currentTimeMillis < expiresAt) {
-                // current time is less than stored time, limit period has not been reached.
-                return false;
-            } else {
-                // limit period has passed, update the time to current time plus limit period.
-                ops.set(key, String.valueOf(currentTimeMillis + limitPeriod * 1000));
-                return true;
-            }
+    /**
+     * 为仍在使用的凭证续期，已过期被清除的凭证不会被重新加入
+     *
+     * @return 续期成功的凭证数
+     */
+    public long renewSlot(String key, List<String> tokens, long leaseMillis) {
+        Object[] args = new Object[tokens.size() + 1];
+        args[0] = String.valueOf(System.currentTimeMillis() + leaseMillis);
+        for (int i = 0; i < tokens.size(); i++) {
+            args[i + 1] = tokens.get(i);
+        }
+        Long count = redisTemplate.execute(SLOT_RENEW_SCRIPT, RedisSerializer.string(),
+                (RedisSerializer<Long>) redisTemplate.getValueSerializer(), Collections.singletonList(key), args);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 清除过期凭证后统计各资源当前的占用数
+     */
+    public List<Long> countSlot(List<String> keys) {
+        List<Object> counts = redisTemplate.execute(SLOT_COUNT_SCRIPT, RedisSerializer.string(),
+                (RedisSerializer<List>) redisTemplate.getValueSerializer(), keys,
+                String.valueOf(System.currentTimeMillis()));
+        List<Long> result = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            result.add(counts != null && i < counts.size() ? ((Number) counts.get(i)).longValue() : 0L);
         }
+        return result;
+    }
+
+    /**
+     * 令牌桶限流，一次往返原子完成
+     *
+     * @param key          键
+     * @param capacity     桶的容量
+     * @param periodMillis 桶从空到满所需的时间(毫秒)
+     * @return 0表示获取成功，否则为需要等待的毫秒数
+     */
+    public long tryAcquireToken(String key, int capacity, long periodMillis) {
+        Long waitMillis = redisTemplate.execute(TOKEN_BUCKET_SCRIPT, Collections.singletonList(key),
+                capacity, periodMillis, System.currentTimeMillis());
+        return waitMillis == null ? 0 : waitMillis;
+    }
+
+    /**
+     * 滑动窗口限流，一次往返原子完成
+     *
+     * @param key          键
+     * @param limit        窗口内允许的次数
+     * @param windowMillis 窗口长度(毫秒)
+     * @return 0表示获取成功，否则为需要等待的毫秒数
+     */
+    public long tryAcquireSlidingWindow(String key, int limit, long windowMillis) {
+        long now = System.currentTimeMillis();
+        Long waitMillis = redisTemplate.execute(SLIDING_WINDOW_SCRIPT, Collections.singletonList(key),
+                limit, windowMillis, now, now + ":" + UUID.randomUUID());
+        return waitMillis == null ? 0 : waitMillis;
     }
 
 }
\ No newline at end of file
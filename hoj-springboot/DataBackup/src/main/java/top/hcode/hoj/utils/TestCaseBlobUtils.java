@@ -0,0 +1,424 @@
+package top.hcode.hoj.utils;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.file.FileReader;
+import cn.hutool.core.io.file.FileWriter;
+import cn.hutool.core.util.CharUtil;
+import cn.hutool.core.util.CharsetUtil;
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import lombok.Data;
+import lombok.experimental.Accessors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/20 10:30
+ * @Description: 测试数据文件的内容寻址仓库
+ * 文件以统一换行符后的SHA-256为名保存在测试数据根目录的.cas文件夹中，写入时一次遍历同时计算评测所需的各个摘要；
+ * 上传的临时文件夹与题目测试数据文件夹通过硬链接引用仓库中的文件，不再被引用的文件由定时任务清理。
+ */
+@Component
+@Slf4j(topic = "hoj")
+public class TestCaseBlobUtils {
+
+    /**
+     * 流式上传的临时文件夹中记录各个文件摘要的文件
+     */
+    public static final String DIGESTS_FILE_NAME = ".digests";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 读取输入流，统一换行符后写入仓库，输入流不会被关闭
+     *
+     * @param inputStream 文件内容
+     * @return 统一换行符后的文件摘要
+     */
+    public TestCaseBlob ingest(InputStream inputStream) throws IOException {
+        File tmpFile = new File(getBlobDir() + File.separator + "tmp" + File.separator + IdUtil.fastSimpleUUID());
+        FileUtil.touch(tmpFile);
+        NormalizeDigestOutputStream normalizeOutputStream;
+        try (OutputStream fileOutputStream = new FileOutputStream(tmpFile)) {
+            normalizeOutputStream = new NormalizeDigestOutputStream(fileOutputStream);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int len;
+            while ((len = inputStream.read(buffer)) != -1) {
+                normalizeOutputStream.write(buffer, 0, len);
+            }
+            normalizeOutputStream.flush();
+        } catch (IOException e) {
+            FileUtil.del(tmpFile);
+            throw e;
+        }
+        TestCaseBlob testCaseBlob = normalizeOutputStream.toTestCaseBlob();
+        File blobFile = getBlobFile(testCaseBlob.getSha256());
+        if (blobFile.isFile()) {
+            // 相同内容的文件已存在
+            FileUtil.del(tmpFile);
+        } else {
+            FileUtil.mkParentDirs(blobFile);
+            try {
+                Files.move(tmpFile.toPath(), blobFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                FileUtil.del(tmpFile);
+            }
+        }
+        return testCaseBlob;
+    }
+
+    /**
+     * 将仓库中的文件硬链接到指定位置，不支持硬链接时复制
+     */
+    public void link(String sha256, File target) throws IOException {
+        File blobFile = getBlobFile(sha256);
+        FileUtil.mkParentDirs(target);
+        Files.deleteIfExists(target.toPath());
+        try {
+            Files.createLink(target.toPath(), blobFile.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(blobFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public void writeDigests(String dir, Map<String, TestCaseBlob> testCaseBlobMap) {
+        FileWriter fileWriter = new FileWriter(dir + File.separator + DIGESTS_FILE_NAME, CharsetUtil.UTF_8);
+        fileWriter.write(JSONUtil.toJsonStr(testCaseBlobMap));
+    }
+
+    /**
+     * 读取流式上传时记录的文件摘要，非流式上传的文件夹返回null
+     */
+    public Map<String, TestCaseBlob> readDigests(String dir) {
+        File digestsFile = new File(dir + File.separator + DIGESTS_FILE_NAME);
+        if (!digestsFile.isFile()) {
+            return null;
+        }
+        JSONObject digests = JSONUtil.parseObj(new FileReader(digestsFile, CharsetUtil.UTF_8).readString());
+        Map<String, TestCaseBlob> testCaseBlobMap = new HashMap<>(digests.size());
+        for (String name : digests.keySet()) {
+            testCaseBlobMap.put(name, digests.getJSONObject(name).toBean(TestCaseBlob.class));
+        }
+        return testCaseBlobMap;
+    }
+
+    /**
+     * 删除已不被任何文件夹引用(硬链接数为1)且超过指定时间未修改的文件
+     *
+     * @return 删除的文件数
+     */
+    public int cleanUnreferenced(long minAgeMillis) {
+        File[] subDirs = new File(getBlobDir()).listFiles(File::isDirectory);
+        if (subDirs == null) {
+            return 0;
+        }
+        long deadline = System.currentTimeMillis() - minAgeMillis;
+        int count = 0;
+        for (File subDir : subDirs) {
+            File[] files = subDir.listFiles(File::isFile);
+            if (files == null) {
+                continue;
+            }
+            boolean isTmpDir = "tmp".equals(subDir.getName());
+            for (File file : files) {
+                if (file.lastModified() > deadline) {
+                    continue;
+                }
+                try {
+                    if (isTmpDir || ((Number) Files.getAttribute(file.toPath(), "unix:nlink")).intValue() <= 1) {
+                        count += Files.deleteIfExists(file.toPath()) ? 1 : 0;
+                    }
+                } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+                    // 不支持查询硬链接数的文件系统不做清理
+                    log.warn("[Test Case Blob] Check the link count of [{}] failed: {}", file, e.getMessage());
+                    return count;
+                }
+            }
+        }
+        return count;
+    }
+
+    private File getBlobFile(String sha256) {
+        return new File(getBlobDir() + File.separator + sha256.substring(0, 2) + File.separator + sha256);
+    }
+
+    private String getBlobDir() {
+        return TestCaseDirUtils.ensureBaseDir() + File.separator + ".cas";
+    }
+
+    /**
+     * 统一换行符后的文件摘要，与题目info中的字段对应
+     */
+    @Data
+    @Accessors(chain = true)
+    public static class TestCaseBlob {
+
+        private String sha256;
+
+        /**
+         * 统一换行符后的文件大小
+         */
+        private Long size;
+
+        private String md5;
+
+        /**
+         * 去掉全部空白符的MD5，用来判断pe
+         */
+        private String allStrippedMd5;
+
+        /**
+         * 去掉文末空白以及每行末尾空白的MD5
+         */
+        private String eofStrippedMd5;
+    }
+
+    /**
+     * 按字节统一换行符(\r\n与\r均转为\n)并写入，同时计算各个摘要，与ProblemEntityServiceImpl中的生成规则一致：
+     * allStrippedMd5去掉正则中\s的空白([ \t\n\x0B\f\r])，UTF-8的多字节字符不会包含这些字节，可以按字节处理；
+     * eofStrippedMd5等价于rtrim，即先按CharUtil.isBlankChar去掉文末的空白(包括全角空格、不换行空格、BOM、NUL、0x1C-0x1F等)，
+     * 再去掉每行行末的[ \t\x0B\f\r]，因此按UTF-8解码后逐个字符判断。
+     */
+    static class NormalizeDigestOutputStream extends OutputStream {
+
+        private final OutputStream out;
+
+        private final MessageDigest sha256Digest;
+
+        private final MessageDigest md5Digest;
+
+        private final MessageDigest allStrippedMd5Digest;
+
+        private final MessageDigest eofStrippedMd5Digest;
+
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+
+        private int count;
+
+        private long size;
+
+        private boolean lastIsCarriageReturn;
+
+        /**
+         * 最后一个非空白字符之后尚未确定是否保留的空白字符，连续相同的字符压缩为一段
+         */
+        private final List<BlankRun> pendingBlankList = new ArrayList<>();
+
+        // utf-8解码状态
+        private final byte[] codePointBytes = new byte[4];
+
+        private int codePointLen;
+
+        private int codePointExpectLen;
+
+        private int codePoint;
+
+        NormalizeDigestOutputStream(OutputStream out) {
+            this.out = out;
+            try {
+                sha256Digest = MessageDigest.getInstance("SHA-256");
+                md5Digest = MessageDigest.getInstance("MD5");
+                allStrippedMd5Digest = MessageDigest.getInstance("MD5");
+                eofStrippedMd5Digest = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            b &= 0xff;
+            if (b == '\r') {
+                lastIsCarriageReturn = true;
+                accept('\n');
+                return;
+            }
+            if (b == '\n' && lastIsCarriageReturn) {
+                lastIsCarriageReturn = false;
+                return;
+            }
+            lastIsCarriageReturn = false;
+            accept(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                write(b[i]);
+            }
+        }
+
+        private void accept(int b) throws IOException {
+            buffer[count++] = (byte) b;
+            if (count == buffer.length) {
+                flushBuffer();
+            }
+            if (!isRegexSpace(b)) {
+                allStrippedMd5Digest.update((byte) b);
+            }
+            acceptByte((byte) b);
+        }
+
+        private void acceptByte(byte b) {
+            int value = b & 0xFF;
+            if (codePointExpectLen > 0) {
+                if ((value & 0xC0) == 0x80) {
+                    codePointBytes[codePointLen++] = b;
+                    codePoint = (codePoint << 6) | (value & 0x3F);
+                    if (codePointLen == codePointExpectLen) {
+                        codePointExpectLen = 0;
+                        acceptCodePoint(codePoint, codePointBytes, codePointLen);
+                        codePointLen = 0;
+                    }
+                    return;
+                }
+                // 非法的utf-8序列，原样作为非空白内容处理
+                flushIncompleteCodePoint();
+            }
+            if (value < 0x80) {
+                codePointBytes[0] = b;
+                acceptCodePoint(value, codePointBytes, 1);
+            } else if ((value & 0xE0) == 0xC0) {
+                startCodePoint(b, value & 0x1F, 2);
+            } else if ((value & 0xF0) == 0xE0) {
+                startCodePoint(b, value & 0x0F, 3);
+            } else if ((value & 0xF8) == 0xF0) {
+                startCodePoint(b, value & 0x07, 4);
+            } else {
+                codePointBytes[0] = b;
+                acceptCodePoint(-1, codePointBytes, 1);
+            }
+        }
+
+        private void startCodePoint(byte b, int bits, int expectLen) {
+            codePointBytes[0] = b;
+            codePointLen = 1;
+            codePointExpectLen = expectLen;
+            codePoint = bits;
+        }
+
+        private void flushIncompleteCodePoint() {
+            if (codePointLen > 0) {
+                acceptCodePoint(-1, codePointBytes, codePointLen);
+                codePointLen = 0;
+                codePointExpectLen = 0;
+            }
+        }
+
+        private void acceptCodePoint(int cp, byte[] bytes, int len) {
+            if (cp >= 0 && cp <= Character.MAX_VALUE && CharUtil.isBlankChar((char) cp)) {
+                if (cp == '\n') {
+                    // 换行前紧邻的[ \t\x0B\f\r]不计入
+                    while (!pendingBlankList.isEmpty()
+                            && pendingBlankList.get(pendingBlankList.size() - 1).isLineBlank()) {
+                        pendingBlankList.remove(pendingBlankList.size() - 1);
+                    }
+                }
+                appendPendingBlank(bytes, len);
+            } else {
+                for (BlankRun blankRun : pendingBlankList) {
+                    for (long i = 0; i < blankRun.count; i++) {
+                        eofStrippedMd5Digest.update(blankRun.bytes);
+                    }
+                }
+                pendingBlankList.clear();
+                eofStrippedMd5Digest.update(bytes, 0, len);
+            }
+        }
+
+        private void appendPendingBlank(byte[] bytes, int len) {
+            if (!pendingBlankList.isEmpty()) {
+                BlankRun last = pendingBlankList.get(pendingBlankList.size() - 1);
+                if (last.isSame(bytes, len)) {
+                    last.count++;
+                    return;
+                }
+            }
+            pendingBlankList.add(new BlankRun(Arrays.copyOf(bytes, len)));
+        }
+
+        private void flushBuffer() throws IOException {
+            if (count > 0) {
+                out.write(buffer, 0, count);
+                sha256Digest.update(buffer, 0, count);
+                md5Digest.update(buffer, 0, count);
+                size += count;
+                count = 0;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushBuffer();
+            out.flush();
+        }
+
+        TestCaseBlob toTestCaseBlob() {
+            // 文末不完整的utf-8序列作为非空白内容，其后的空白全部去掉
+            flushIncompleteCodePoint();
+            pendingBlankList.clear();
+            return new TestCaseBlob()
+                    .setSha256(HexUtil.encodeHexStr(sha256Digest.digest()))
+                    .setSize(size)
+                    .setMd5(HexUtil.encodeHexStr(md5Digest.digest()))
+                    .setAllStrippedMd5(HexUtil.encodeHexStr(allStrippedMd5Digest.digest()))
+                    .setEofStrippedMd5(HexUtil.encodeHexStr(eofStrippedMd5Digest.digest()));
+        }
+
+        /**
+         * 正则中的\s，即[ \t\n\x0B\f\r]
+         */
+        private static boolean isRegexSpace(int b) {
+            return b == '\n' || isLineBlank(b);
+        }
+
+        /**
+         * 正则中的[^\S\n]，即[ \t\x0B\f\r]
+         */
+        private static boolean isLineBlank(int b) {
+            return b == ' ' || b == '\t' || b == 0x0B || b == '\f' || b == '\r';
+        }
+    }
+
+    private static class BlankRun {
+
+        private final byte[] bytes;
+
+        private long count = 1;
+
+        private BlankRun(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private boolean isSame(byte[] other, int len) {
+            if (bytes.length != len) {
+                return false;
+            }
+            for (int i = 0; i < len; i++) {
+                if (bytes[i] != other[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isLineBlank() {
+            return bytes.length == 1 && NormalizeDigestOutputStream.isLineBlank(bytes[0]);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package top.hcode.hoj.utils;
+
+import cn.hutool.core.io.FileUtil;
+
+import java.io.File;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/21 16:40
+ * @Description: 解析正式测试数据的根目录
+ * 优先使用 Constants 配置的目录，不可用时回退到用户目录 ~/hoj/file/testcase。
+ * 读写测试数据、内容寻址仓库(.cas)都通过这里解析，保证它们落在同一个目录下（硬链接要求同一文件系统）。
+ */
+public class TestCaseDirUtils {
+
+    private static final String FALLBACK_BASE_DIR = System.getProperty("user.home") + File.separator + "hoj"
+            + File.separator + "file" + File.separator + "testcase";
+
+    /**
+     * 读取场景使用：只判断目录是否存在且可写，不创建目录；都不可用时返回优先路径
+     */
+    public static String getBaseDir() {
+        String preferred = Constants.File.TESTCASE_BASE_FOLDER.getPath();
+        if (isUsable(preferred)) return preferred;
+        if (isUsable(FALLBACK_BASE_DIR)) return FALLBACK_BASE_DIR;
+        return preferred;
+    }
+
+    /**
+     * 写入场景使用：目录都不存在时按优先顺序尝试创建；都不可写时仍返回优先路径，后续操作抛错便于暴露问题
+     */
+    public static String ensureBaseDir() {
+        String baseDir = getBaseDir();
+        if (isUsable(baseDir)) {
+            return baseDir;
+        }
+        String preferred = Constants.File.TESTCASE_BASE_FOLDER.getPath();
+        for (String path : new String[]{preferred, FALLBACK_BASE_DIR}) {
+            try {
+                FileUtil.mkdir(path);
+                if (isUsable(path)) {
+                    return path;
+                }
+            } catch (Exception ignored) {
+                // 无权限创建，尝试下一个目录
+            }
+        }
+        return preferred;
+    }
+
+    private static boolean isUsable(String path) {
+        File dir = new File(path);
+        return dir.isDirectory() && dir.canWrite();
+    }
+}
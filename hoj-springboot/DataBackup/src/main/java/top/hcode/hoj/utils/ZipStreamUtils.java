@@ -0,0 +1,215 @@
+package top.hcode.hoj.utils;
+
+import cn.hutool.json.JSONUtil;
+import lombok.extern.slf4j.Slf4j;
+import top.hcode.hoj.common.result.ResultStatus;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.*;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/20 16:00
+ * @Description: 边生成边下载的zip压缩包
+ * 压缩包直接写入响应流，不再先在临时文件夹中生成文件与zip，导出的大小不影响磁盘与内存的占用。
+ * 写入完成后需调用complete()，否则关闭时视为导出失败：不写入中央目录，下载得到的是无法解压的文件，
+ * 而不是被截断却仍能正常解压的压缩包。
+ */
+@Slf4j(topic = "hoj")
+public class ZipStreamUtils {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 设置下载的响应头并打开写入响应流的zip输出流，关闭时同时关闭响应流
+     */
+    public static ZipResponseOutputStream openZipResponse(HttpServletResponse response, String fileName) throws IOException {
+        response.setContentType("application/x-download");
+        response.setHeader("Content-disposition", "attachment;filename=" + URLEncoder.encode(fileName, "UTF-8"));
+        return new ZipResponseOutputStream(response, new AbortableOutputStream(response.getOutputStream()));
+    }
+
+    /**
+     * 写入文件夹条目，用于保留没有文件的文件夹
+     */
+    public static void putDirectory(ZipOutputStream zipOutputStream, String entryName) throws IOException {
+        zipOutputStream.putNextEntry(new ZipEntry(entryName.endsWith("/") ? entryName : entryName + "/"));
+        zipOutputStream.closeEntry();
+    }
+
+    /**
+     * 写入文件，文件内容通过FileChannel.transferTo直接写入压缩流
+     */
+    public static void putFile(ZipOutputStream zipOutputStream, String entryName, File file) throws IOException {
+        ZipEntry zipEntry = new ZipEntry(entryName);
+        zipEntry.setTime(file.lastModified());
+        zipOutputStream.putNextEntry(zipEntry);
+        try (FileChannel fileChannel = new FileInputStream(file).getChannel()) {
+            WritableByteChannel outChannel = Channels.newChannel(zipOutputStream);
+            long size = fileChannel.size();
+            long position = 0;
+            while (position < size) {
+                long transferred = fileChannel.transferTo(position, size - position, outChannel);
+                if (transferred <= 0) {
+                    throw new IOException("Failed to transfer the file " + file.getName()
+                            + " at position " + position + ", file size: " + fileChannel.size());
+                }
+                position += transferred;
+            }
+        }
+        zipOutputStream.closeEntry();
+    }
+
+    /**
+     * 递归写入文件夹中的所有文件，条目名称为prefix加上相对路径
+     */
+    public static void putDirectoryFiles(ZipOutputStream zipOutputStream, String prefix, File dir) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        for (File file : files) {
+            if (file.isDirectory()) {
+                putDirectoryFiles(zipOutputStream, prefix + file.getName() + "/", file);
+            } else {
+                putFile(zipOutputStream, prefix + file.getName(), file);
+            }
+        }
+    }
+
+    public static void putString(ZipOutputStream zipOutputStream, String entryName, String content) throws IOException {
+        zipOutputStream.putNextEntry(new ZipEntry(entryName));
+        if (content != null) {
+            zipOutputStream.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        zipOutputStream.closeEntry();
+    }
+
+    /**
+     * 下载失败时返回错误信息，响应已经开始发送时只能中断下载
+     */
+    public static void writeErrorResponse(HttpServletResponse response, String msg) {
+        if (response.isCommitted()) {
+            return;
+        }
+        response.reset();
+        response.setContentType("application/json");
+        response.setCharacterEncoding("utf-8");
+        Map<String, Object> map = new HashMap<>();
+        map.put("status", ResultStatus.SYSTEM_ERROR);
+        map.put("msg", msg);
+        map.put("data", null);
+        try {
+            response.getWriter().println(JSONUtil.toJsonStr(map));
+        } catch (IOException e) {
+            log.error("返回下载失败的错误信息异常------------>{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 写入响应流的zip输出流，未调用complete()就关闭时放弃导出
+     */
+    public static class ZipResponseOutputStream extends ZipOutputStream {
+
+        private final HttpServletResponse response;
+
+        private final AbortableOutputStream out;
+
+        private boolean completed;
+
+        private ZipResponseOutputStream(HttpServletResponse response, AbortableOutputStream out) {
+            // Deflater每次只输出少量字节，加一层缓冲减少写入响应流的次数
+            super(new BufferedOutputStream(out, BUFFER_SIZE), StandardCharsets.UTF_8);
+            this.response = response;
+            this.out = out;
+        }
+
+        /**
+         * 所有条目已写入，关闭时写入中央目录
+         */
+        public void complete() {
+            completed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (completed) {
+                super.close();
+                return;
+            }
+            // 丢弃缓冲区与中央目录，只释放Deflater
+            out.abort();
+            try {
+                super.close();
+            } finally {
+                if (response.isCommitted()) {
+                    // 已开始发送，直接结束响应，客户端得到的是缺少中央目录、无法解压的文件
+                    out.closeTarget();
+                } else {
+                    // 尚未发送，清除下载的响应头与已缓冲的内容，由调用方返回错误信息
+                    response.reset();
+                }
+            }
+        }
+    }
+
+    /**
+     * 放弃后丢弃所有写入，且关闭时不关闭响应流
+     */
+    private static class AbortableOutputStream extends FilterOutputStream {
+
+        private boolean aborted;
+
+        private AbortableOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        private void abort() {
+            aborted = true;
+        }
+
+        private void closeTarget() throws IOException {
+            out.close();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!aborted) {
+                out.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (!aborted) {
+                out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (!aborted) {
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!aborted) {
+                super.close();
+            }
+        }
+    }
+}
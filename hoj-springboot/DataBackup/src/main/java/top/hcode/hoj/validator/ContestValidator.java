@@ -1,12 +1,22 @@
 package top.hcode.hoj.validator;
 
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
 import cn.hutool.core.util.ReUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import top.hcode.hoj.common.exception.StatusFailException;
 import top.hcode.hoj.common.exception.StatusForbiddenException;
+import top.hcode.hoj.dao.contest.ContestEntityService;
 import top.hcode.hoj.dao.contest.ContestRegisterEntityService;
 import top.hcode.hoj.pojo.entity.contest.Contest;
 import top.hcode.hoj.pojo.entity.contest.ContestRegister;
@@ -14,17 +24,21 @@ import top.hcode.hoj.pojo.vo.AdminContestVO;
 import top.hcode.hoj.shiro.AccountProfile;
 import top.hcode.hoj.utils.Constants;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
-import java.util.Date;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @Author: Himit_ZH
  * @Date: 2022/3/11 20:06
  * @Description:
+ * 已注册私有赛或保护赛的用户按比赛缓存在本地(只缓存已注册，未注册的每次都查库)，
+ * 比赛修改或删除时通过ContestEntityService的频道通知失效；账号规则按规则内容缓存解析结果。
  */
 @Component
-public class ContestValidator {
+@Slf4j(topic = "hoj")
+public class ContestValidator implements MessageListener {
 
     @Resource
     private ContestRegisterEntityService contestRegisterEntityService;
@@ -35,6 +49,36 @@ public class ContestValidator {
     @Resource
     private CommonValidator commonValidator;
 
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Value("${hoj.contest.cache.capacity:500}")
+    private Integer capacity;
+
+    @Value("${hoj.contest.cache.expire-millis:300000}")
+    private Long expireMillis;
+
+    /**
+     * cid -> 已注册该比赛的uid
+     */
+    private LRUCache<Long, Set<String>> registerUidCache;
+
+    /**
+     * 账号规则 -> 解析后的规则
+     */
+    private LRUCache<String, AccountRule> accountRuleCache;
+
+    @PostConstruct
+    public void init() {
+        registerUidCache = CacheUtil.newLRUCache(capacity, expireMillis);
+        accountRuleCache = CacheUtil.newLRUCache(capacity);
+        redisMessageListenerContainer.addMessageListener(this,
+                new ChannelTopic(ContestEntityService.CONTEST_CACHE_INVALIDATE_CHANNEL));
+    }
+
     public void validateContest(AdminContestVO adminContestVO) throws StatusFailException {
         commonValidator.validateContent(adminContestVO.getTitle(), "比赛标题", 500);
         commonValidator.validateContentLength(adminContestVO.getDescription(), "比赛描述", 65535);
@@ -113,10 +157,7 @@ public class ContestValidator {
 
             // 如果是处于比赛正在进行阶段，需要判断该场比赛是否为私有赛，私有赛需要判断该用户是否已注册
             if (contest.getAuth().intValue() == Constants.Contest.AUTH_PRIVATE.getCode()) {
-                QueryWrapper<ContestRegister> registerQueryWrapper = new QueryWrapper<>();
-                registerQueryWrapper.eq("cid", contest.getId()).eq("uid", userRolesVo.getUid());
-                ContestRegister register = contestRegisterEntityService.getOne(registerQueryWrapper);
-                if (register == null) { // 如果数据为空，表示未注册私有赛，不可访问
+                if (!isRegistered(contest.getId(), userRolesVo.getUid())) { // 未注册私有赛，不可访问
                     throw new StatusForbiddenException("对不起，请先到比赛首页输入比赛密码进行注册！");
                 }
 
@@ -134,11 +175,8 @@ public class ContestValidator {
 
         if (contest.getAuth().intValue() == Constants.Contest.AUTH_PRIVATE.getCode() ||
                 contest.getAuth().intValue() == Constants.Contest.AUTH_PROTECT.getCode()) {
-            QueryWrapper<ContestRegister> queryWrapper = new QueryWrapper<>();
-            queryWrapper.eq("cid", contest.getId()).eq("uid", uid);
-            ContestRegister register = contestRegisterEntityService.getOne(queryWrapper, false);
             // 如果还没注册
-            if (register == null) {
+            if (!isRegistered(contest.getId(), uid)) {
                 throw new StatusForbiddenException("对不起，请你先注册该比赛，提交代码失败！");
             }
         }
@@ -146,36 +184,91 @@ public class ContestValidator {
 
 
     public boolean validateAccountRule(String accountRule, String username) {
+        AccountRule rule = accountRuleCache.get(accountRule, false);
+        if (rule == null) {
+            rule = new AccountRule(accountRule);
+            accountRuleCache.put(accountRule, rule);
+        }
+        return rule.match(username);
+    }
 
-        String prefix = ReUtil.get("<prefix>([\\s\\S]*?)</prefix>",
-                accountRule, 1);
-        String suffix = ReUtil.get("<suffix>([\\s\\S]*?)</suffix>",
-                accountRule, 1);
-        String start = ReUtil.get("<start>([\\s\\S]*?)</start>",
-                accountRule, 1);
-        String end = ReUtil.get("<end>([\\s\\S]*?)</end>",
-                accountRule, 1);
-        String extra = ReUtil.get("<extra>([\\s\\S]*?)</extra>",
-                accountRule, 1);
-
-        int startNum = Integer.parseInt(start);
-        int endNum = Integer.parseInt(end);
-
-        for (int i = startNum; i <= endNum; i++) {
-            if (username.equals(prefix + i + suffix)) {
-                return true;
+    private boolean isRegistered(Long cid, String uid) {
+        Set<String> registerUidSet = registerUidCache.get(cid, false);
+        if (registerUidSet != null && registerUidSet.contains(uid)) {
+            return true;
+        }
+        QueryWrapper<ContestRegister> queryWrapper = new QueryWrapper<>();
+        queryWrapper.eq("cid", cid).eq("uid", uid);
+        ContestRegister register = contestRegisterEntityService.getOne(queryWrapper, false);
+        if (register == null) {
+            return false;
+        }
+        if (registerUidSet == null) {
+            registerUidSet = ConcurrentHashMap.newKeySet();
+            registerUidCache.put(cid, registerUidSet);
+        }
+        registerUidSet.add(uid);
+        return true;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object cid = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (cid != null) {
+                registerUidCache.remove(Long.valueOf(cid.toString()));
             }
+        } catch (Exception e) {
+            log.error("[Contest Register Cache] Handle the message error------------>", e);
         }
-        // 额外账号列表
-        if (!StringUtils.isEmpty(extra)) {
-            String[] accountList = extra.trim().split(" ");
-            for (String account : accountList) {
-                if (username.equals(account)) {
-                    return true;
-                }
+    }
+
+    /**
+     * 解析后的账号规则：前缀+[start,end]内的数字+后缀，或者在额外账号列表中
+     */
+    private static class AccountRule {
+
+        private final String prefix;
+
+        private final String suffix;
+
+        private final int startNum;
+
+        private final int endNum;
+
+        private final Set<String> extraAccountSet = new HashSet<>();
+
+        private AccountRule(String accountRule) {
+            prefix = String.valueOf(ReUtil.get("<prefix>([\\s\\S]*?)</prefix>", accountRule, 1));
+            suffix = String.valueOf(ReUtil.get("<suffix>([\\s\\S]*?)</suffix>", accountRule, 1));
+            startNum = Integer.parseInt(ReUtil.get("<start>([\\s\\S]*?)</start>", accountRule, 1));
+            endNum = Integer.parseInt(ReUtil.get("<end>([\\s\\S]*?)</end>", accountRule, 1));
+            String extra = ReUtil.get("<extra>([\\s\\S]*?)</extra>", accountRule, 1);
+            // 额外账号列表
+            if (!StringUtils.isEmpty(extra)) {
+                extraAccountSet.addAll(Arrays.asList(extra.trim().split(" ")));
             }
         }
 
-        return false;
+        private boolean match(String username) {
+            if (username == null) {
+                return false;
+            }
+            if (extraAccountSet.contains(username)) {
+                return true;
+            }
+            if (username.length() <= prefix.length() + suffix.length()
+                    || !username.startsWith(prefix) || !username.endsWith(suffix)) {
+                return false;
+            }
+            String num = username.substring(prefix.length(), username.length() - suffix.length());
+            try {
+                int i = Integer.parseInt(num);
+                // 数字部分必须与直接拼接的形式一致(不含前导零等)
+                return i >= startNum && i <= endNum && num.equals(String.valueOf(i));
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
     }
 }
\ No newline at end of file
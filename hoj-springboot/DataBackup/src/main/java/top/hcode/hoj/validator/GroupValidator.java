@@ -1,5 +1,16 @@
 package top.hcode.hoj.validator;
 
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 import top.hcode.hoj.dao.group.GroupEntityService;
 import top.hcode.hoj.dao.group.GroupMemberEntityService;
 import top.hcode.hoj.pojo.entity.group.Group;
@@ -8,14 +19,34 @@ import top.hcode.hoj.pojo.entity.group.GroupMember;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import top.hcode.hoj.utils.RedisUtils;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @Author: LengYun
  * @Date: 2022/3/11 13:36
- * @Description:
+ * @Description: 团队成员权限校验
+ * 每个团队的成员权限(uid->auth)与Owner缓存在本地，成员或团队变更时通过redis频道通知所有实例失效；
+ * 同一请求内解析过的团队权限会保存在请求属性中复用。
  */
 @Component
-public class GroupValidator {
+@Slf4j(topic = "hoj")
+public class GroupValidator implements MessageListener {
+
+    private static final String GROUP_AUTH_INVALIDATE_CHANNEL = "hoj_group_auth_invalidate_channel";
+
+    private static final String GROUP_AUTH_REQUEST_ATTRIBUTE = "hoj_group_auth_";
+
+    @Value("${hoj.group.auth-cache.capacity:2000}")
+    private Integer capacity;
+
+    @Value("${hoj.group.auth-cache.expire-millis:300000}")
+    private Long expireMillis;
 
     @Autowired
     private GroupMemberEntityService groupMemberEntityService;
@@ -23,38 +54,135 @@ public class GroupValidator {
     @Autowired
     private GroupEntityService groupEntityService;
 
-    public boolean isGroupMember(String uid, Long gid) {
-        QueryWrapper<GroupMember> groupMemberQueryWrapper = new QueryWrapper<>();
-        groupMemberQueryWrapper.eq("gid", gid).eq("uid", uid).in("auth", 3, 4, 5);
+    @Autowired
+    private RedisUtils redisUtils;
 
-        GroupMember groupMember = groupMemberEntityService.getOne(groupMemberQueryWrapper,false);
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
 
-        return groupMember != null || isGroupOwner(uid, gid);
-    }
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
 
-    public boolean isGroupAdmin(String uid, Long gid) {
-        QueryWrapper<GroupMember> groupMemberQueryWrapper = new QueryWrapper<>();
-        groupMemberQueryWrapper.eq("gid", gid).eq("uid", uid).in("auth", 4, 5);
+    private LRUCache<Long, GroupAuth> groupAuthCache;
 
-        GroupMember groupMember = groupMemberEntityService.getOne(groupMemberQueryWrapper,false);
+    @PostConstruct
+    public void init() {
+        groupAuthCache = CacheUtil.newLRUCache(capacity, expireMillis);
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(GROUP_AUTH_INVALIDATE_CHANNEL));
+    }
+
+    public boolean isGroupMember(String uid, Long gid) {
+        GroupAuth groupAuth = getGroupAuth(gid);
+        return groupAuth.getMemberAuth(uid) >= 3 || groupAuth.isOwner(uid);
+    }
 
-        return groupMember != null || isGroupOwner(uid, gid);
+    public boolean isGroupAdmin(String uid, Long gid) {
+        GroupAuth groupAuth = getGroupAuth(gid);
+        return groupAuth.getMemberAuth(uid) >= 4 || groupAuth.isOwner(uid);
     }
 
     public boolean isGroupRoot(String uid, Long gid) {
+        return getGroupAuth(gid).getMemberAuth(uid) == 5;
+    }
 
-        QueryWrapper<GroupMember> groupMemberQueryWrapper = new QueryWrapper<>();
-        groupMemberQueryWrapper.eq("gid", gid).eq("uid", uid).eq("auth", 5);
+    public boolean isGroupOwner(String uid, Long gid) {
+        return getGroupAuth(gid).isOwner(uid);
+    }
 
-        GroupMember groupMember = groupMemberEntityService.getOne(groupMemberQueryWrapper,false);
+    /**
+     * 团队成员或Owner变更后调用，失效所有实例中该团队的权限缓存
+     */
+    public void invalidate(Long gid) {
+        if (gid == null) {
+            return;
+        }
+        evict(gid);
+        try {
+            redisUtils.sendMessage(GROUP_AUTH_INVALIDATE_CHANNEL, gid);
+        } catch (Exception e) {
+            // 通知失败时其他实例的缓存最多在过期时间后失效
+            log.error("[Group Auth Cache] Publish invalidation gid:[{}] error------------>", gid, e);
+        }
+    }
 
-        return groupMember != null;
+    private void evict(Long gid) {
+        groupAuthCache.remove(gid);
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes != null) {
+            requestAttributes.removeAttribute(GROUP_AUTH_REQUEST_ATTRIBUTE + gid, RequestAttributes.SCOPE_REQUEST);
+        }
     }
 
-    public boolean isGroupOwner(String uid, Long gid) {
+    private GroupAuth getGroupAuth(Long gid) {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        String attributeName = GROUP_AUTH_REQUEST_ATTRIBUTE + gid;
+        if (requestAttributes != null) {
+            GroupAuth groupAuth = (GroupAuth) requestAttributes.getAttribute(attributeName, RequestAttributes.SCOPE_REQUEST);
+            if (groupAuth != null) {
+                return groupAuth;
+            }
+        }
+        GroupAuth groupAuth = groupAuthCache.get(gid, false);
+        if (groupAuth == null) {
+            groupAuth = loadGroupAuth(gid);
+            groupAuthCache.put(gid, groupAuth);
+        }
+        if (requestAttributes != null) {
+            requestAttributes.setAttribute(attributeName, groupAuth, RequestAttributes.SCOPE_REQUEST);
+        }
+        return groupAuth;
+    }
 
+    private GroupAuth loadGroupAuth(Long gid) {
+        if (gid == null) {
+            return new GroupAuth(null, Collections.emptyMap());
+        }
         Group group = groupEntityService.getById(gid);
+        QueryWrapper<GroupMember> groupMemberQueryWrapper = new QueryWrapper<>();
+        groupMemberQueryWrapper.select("uid", "auth")
+                .eq("gid", gid)
+                .in("auth", 3, 4, 5);
+        List<GroupMember> groupMemberList = groupMemberEntityService.list(groupMemberQueryWrapper);
+        Map<String, Integer> memberAuthMap = new HashMap<>(groupMemberList.size());
+        for (GroupMember groupMember : groupMemberList) {
+            memberAuthMap.put(groupMember.getUid(), groupMember.getAuth());
+        }
+        return new GroupAuth(group == null ? null : group.getUid(), memberAuthMap);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object gid = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (gid != null) {
+                groupAuthCache.remove(Long.valueOf(gid.toString()));
+            }
+        } catch (Exception e) {
+            log.error("[Group Auth Cache] Handle the message error------------>", e);
+        }
+    }
+
+    /**
+     * 某个团队的正式成员权限(3,4,5)与Owner
+     */
+    private static class GroupAuth {
+
+        private final String ownerUid;
+
+        private final Map<String, Integer> memberAuthMap;
+
+        private GroupAuth(String ownerUid, Map<String, Integer> memberAuthMap) {
+            this.ownerUid = ownerUid;
+            this.memberAuthMap = memberAuthMap;
+        }
+
+        private int getMemberAuth(String uid) {
+            Integer auth = memberAuthMap.get(uid);
+            return auth == null ? 0 : auth;
+        }
 
-        return group != null && uid.equals(group.getUid());
+        private boolean isOwner(String uid) {
+            return ownerUid != null && ownerUid.equals(uid);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,74 @@
+package top.hcode.hoj.validator;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import top.hcode.hoj.annotation.HOJRateLimitEnum;
+import top.hcode.hoj.common.exception.StatusForbiddenException;
+import top.hcode.hoj.utils.Constants;
+import top.hcode.hoj.utils.RedisUtils;
+
+/**
+ * @Author Himit_ZH
+ * @Date 2026/10/19
+ * @Description 基于redis lua脚本的限流(令牌桶或滑动窗口)
+ * 被redis拒绝后，本地会记住该key需要等待到的时间，在此之前的请求直接在本地拒绝，不再访问redis。
+ * 由于令牌的恢复与窗口的滑出只与时间有关，本地提前拒绝不会误拒本该放行的请求。
+ */
+@Component
+@Slf4j(topic = "hoj")
+public class RateLimitValidator {
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    /**
+     * 限流key -> 在此时间之前都会被拒绝
+     */
+    private final LRUCache<String, Long> rejectUntilCache = CacheUtil.newLRUCache(50000);
+
+    public void validateRateLimit(String key, HOJRateLimitEnum type, int limit, long periodMillis,
+                                  String message) throws StatusForbiddenException {
+        if (!tryAcquire(key, type, limit, periodMillis)) {
+            throw new StatusForbiddenException(message);
+        }
+    }
+
+    /**
+     * @param key          限流的key(不需要带前缀)
+     * @param type         限流算法
+     * @param limit        令牌桶的容量或滑动窗口内允许的次数
+     * @param periodMillis 令牌桶从空到满的时间或滑动窗口的长度
+     * @return 是否放行
+     */
+    public boolean tryAcquire(String key, HOJRateLimitEnum type, int limit, long periodMillis) {
+        if (limit <= 0 || periodMillis <= 0) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        Long rejectUntil = rejectUntilCache.get(key, false);
+        if (rejectUntil != null && now < rejectUntil) {
+            return false;
+        }
+        String redisKey = Constants.Account.API_RATE_LIMIT.getCode() + key;
+        long waitMillis;
+        try {
+            if (type == HOJRateLimitEnum.SLIDING_WINDOW) {
+                waitMillis = redisUtils.tryAcquireSlidingWindow(redisKey, limit, periodMillis);
+            } else {
+                waitMillis = redisUtils.tryAcquireToken(redisKey, limit, periodMillis);
+            }
+        } catch (Exception e) {
+            // redis不可用时放行，避免限流本身导致服务不可用
+            log.error("[Rate Limit] key:[{}] error------------>", redisKey, e);
+            return true;
+        }
+        if (waitMillis > 0) {
+            rejectUntilCache.put(key, now + waitMillis, waitMillis);
+            return false;
+        }
+        return true;
+    }
+}
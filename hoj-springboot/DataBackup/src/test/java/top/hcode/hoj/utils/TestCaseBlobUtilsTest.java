@@ -0,0 +1,96 @@
+package top.hcode.hoj.utils;
+
+import cn.hutool.crypto.SecureUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.DigestUtils;
+import top.hcode.hoj.dao.problem.impl.ProblemEntityServiceImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/21 17:20
+ * @Description: 对比内容仓库写入时的流式摘要与原先统一换行符后rtrim + md5DigestAsHex的结果
+ */
+class TestCaseBlobUtilsTest {
+
+    private static final String[] OUTPUTS = {
+            "",
+            "1 2 3",
+            "1 2 3\n",
+            "1 2 3\r\n4 5 6\r\n",
+            "1 2 3 \r\n4 5 6\t\r\n\r\n",
+            "1\r2\r\r",
+            "\n\n\n",
+            "  \n\t\n \r\n",
+            "a\n   \n\t \nb\n \n",
+            // 文末的全角空格、不换行空格、BOM、NUL及0x1C-0x1F
+            "答案\u3000\u3000",
+            "answer\u00A0\n\u00A0",
+            "answer\n\uFEFF",
+            "answer\u0000\u0000",
+            "answer\u001C\u001D\u001E\u001F\n",
+            "answer\u2003\u202F\u205F \n",
+            // 行中的Unicode空白不属于正则中的\s，不会在行末被去掉
+            "a\u3000\nb\u00A0 \nc",
+            "a \u00A0 \nb",
+            "\u3000",
+            "\uD835\uDD38\uD835\uDD39 \n\uD83D\uDE00\u3000\n",
+    };
+
+    @Test
+    void testDigestsMatchBaseline() throws IOException {
+        for (String output : OUTPUTS) {
+            assertDigests(output, ingest(output.getBytes(StandardCharsets.UTF_8), false));
+        }
+    }
+
+    @Test
+    void testSplitWrite() throws IOException {
+        // 逐字节写入，\r\n与多字节字符被拆分到不同的write中
+        for (String output : OUTPUTS) {
+            assertDigests(output, ingest(output.getBytes(StandardCharsets.UTF_8), true));
+        }
+    }
+
+    private static TestCaseBlobUtils.TestCaseBlob ingest(byte[] bytes, boolean isWriteByByte) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TestCaseBlobUtils.NormalizeDigestOutputStream normalizeOutputStream =
+                new TestCaseBlobUtils.NormalizeDigestOutputStream(out);
+        if (isWriteByByte) {
+            for (byte b : bytes) {
+                normalizeOutputStream.write(b);
+            }
+        } else {
+            normalizeOutputStream.write(bytes, 0, bytes.length);
+        }
+        normalizeOutputStream.flush();
+        TestCaseBlobUtils.TestCaseBlob testCaseBlob = normalizeOutputStream.toTestCaseBlob();
+        assertArrayEquals(normalize(new String(bytes, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8),
+                out.toByteArray());
+        return testCaseBlob;
+    }
+
+    private static void assertDigests(String output, TestCaseBlobUtils.TestCaseBlob testCaseBlob) {
+        String normalized = normalize(output);
+        byte[] bytes = normalized.getBytes(StandardCharsets.UTF_8);
+        assertEquals(SecureUtil.sha256().digestHex(bytes), testCaseBlob.getSha256(), output);
+        assertEquals(bytes.length, testCaseBlob.getSize().longValue(), output);
+        assertEquals(md5(normalized), testCaseBlob.getMd5(), output);
+        assertEquals(md5(normalized.replaceAll("\\s+", "")), testCaseBlob.getAllStrippedMd5(), output);
+        assertEquals(md5(ProblemEntityServiceImpl.rtrim(normalized)), testCaseBlob.getEofStrippedMd5(), output);
+    }
+
+    private static String normalize(String output) {
+        return output.replaceAll("\r\n", "\n").replaceAll("\r", "\n");
+    }
+
+    private static String md5(String value) {
+        return DigestUtils.md5DigestAsHex(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
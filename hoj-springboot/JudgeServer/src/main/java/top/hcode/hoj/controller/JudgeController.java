@@ -4,6 +4,7 @@ package top.hcode.hoj.controller;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import top.hcode.hoj.common.CommonResult;
@@ -11,6 +12,7 @@ import top.hcode.hoj.common.ResultStatus;
 import top.hcode.hoj.common.exception.SystemError;
 import top.hcode.hoj.dao.JudgeServerEntityService;
 import top.hcode.hoj.pojo.dto.CompileDTO;
+import top.hcode.hoj.pojo.dto.TestCasePrefetchDTO;
 import top.hcode.hoj.pojo.dto.TestJudgeReq;
 import top.hcode.hoj.pojo.dto.TestJudgeRes;
 import top.hcode.hoj.pojo.entity.judge.Judge;
@@ -116,6 +118,22 @@ public class JudgeController {
         }
     }
 
+    @PostMapping(value = "/prefetch-testcase")
+    public CommonResult<Void> prefetchTestCase(@RequestBody TestCasePrefetchDTO testCasePrefetchDTO) {
+
+        if (!Objects.equals(testCasePrefetchDTO.getToken(), judgeToken)) {
+            return CommonResult.errorResponse("对不起！您使用的判题服务调用凭证不正确！访问受限！", ResultStatus.ACCESS_DENIED);
+        }
+
+        if (CollectionUtils.isEmpty(testCasePrefetchDTO.getPidList())) {
+            return CommonResult.errorResponse("调用参数错误！请检查您的调用参数！");
+        }
+
+        judgeService.prefetchTestCase(testCasePrefetchDTO.getPidList());
+
+        return CommonResult.successResponse("已开始预取测试数据");
+    }
+
     @PostMapping(value = "/remote-judge")
     public CommonResult<Void> remoteJudge(@RequestBody ToJudgeDTO toJudgeDTO) {
 
@@ -13,6 +13,4 @@ import top.hcode.hoj.pojo.entity.problem.ProblemCount;
  */
 public interface ProblemCountEntityService extends IService<ProblemCount> {
 
-    void updateCount(int status, Long pid);
-
 }
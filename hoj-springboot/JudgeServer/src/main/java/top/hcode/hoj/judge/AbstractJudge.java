@@ -14,6 +14,7 @@ import top.hcode.hoj.util.Constants;
 import top.hcode.hoj.util.JudgeUtils;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -44,7 +45,7 @@ public abstract class AbstractJudge {
             case SPJ:
             case TEST:
             case DEFAULT:
-                return process(judgeDTO, judgeGlobalDTO, judgeResultList);
+                return process(judgeDTO, judgeGlobalDTO, (JSONObject) judgeResultList.get(0));
             case INTERACTIVE:
                 return processMultiple(judgeDTO, judgeGlobalDTO, judgeResultList);
             default:
@@ -53,12 +54,30 @@ public abstract class AbstractJudge {
 
     }
 
+    /**
+     * 评测多个测试点，返回结果与judgeDTOList顺序一致。
+     * 默认逐个测试点评测，支持合并评测的方式可重写为一次沙箱调用
+     */
+    public List<JSONObject> judgeBatch(List<JudgeDTO> judgeDTOList, JudgeGlobalDTO judgeGlobalDTO) throws SystemError {
+        List<JSONObject> resultList = new ArrayList<>(judgeDTOList.size());
+        for (JudgeDTO judgeDTO : judgeDTOList) {
+            resultList.add(judge(judgeDTO, judgeGlobalDTO));
+        }
+        return resultList;
+    }
+
     public abstract JSONArray judgeCase(JudgeDTO judgeDTO, JudgeGlobalDTO judgeGlobalDTO) throws SystemError;
 
-    private JSONObject process(JudgeDTO judgeDTO, JudgeGlobalDTO judgeGlobalDTO, JSONArray judgeResultList) throws SystemError {
+    /**
+     * 是否支持多个测试点合并为一次沙箱调用评测，只有单次评测仅调用一次沙箱的评测方式才支持
+     */
+    public boolean isSupportBatch() {
+        return false;
+    }
+
+    protected JSONObject process(JudgeDTO judgeDTO, JudgeGlobalDTO judgeGlobalDTO, JSONObject judgeResult) throws SystemError {
 
         String stdoutName = BooleanUtils.isTrue(judgeGlobalDTO.getIsFileIO()) ? judgeGlobalDTO.getIoWriteFileName() : "stdout";
-        JSONObject judgeResult = (JSONObject) judgeResultList.get(0);
         SandBoxRes sandBoxRes = SandBoxRes.builder()
                 .stdout(((JSONObject) judgeResult.get("files")).getStr(stdoutName, ""))
                 .stderr(((JSONObject) judgeResult.get("files")).getStr("stderr"))
@@ -6,15 +6,19 @@ import top.hcode.hoj.common.exception.SystemError;
 import top.hcode.hoj.dao.ContestRecordEntityService;
 import top.hcode.hoj.dao.UserAcproblemEntityService;
 import top.hcode.hoj.judge.entity.LanguageConfig;
+import top.hcode.hoj.judge.entity.Pair_;
 import top.hcode.hoj.pojo.dto.TestJudgeReq;
 import top.hcode.hoj.pojo.dto.TestJudgeRes;
 import top.hcode.hoj.pojo.entity.judge.Judge;
+import top.hcode.hoj.pojo.entity.judge.JudgeCase;
 import top.hcode.hoj.pojo.entity.problem.Problem;
 import top.hcode.hoj.pojo.entity.user.UserAcproblem;
 import top.hcode.hoj.util.Constants;
 
 import javax.annotation.Resource;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * @Author: Himit_ZH
@@ -36,7 +40,11 @@ public class JudgeContext {
     @Resource
     private LanguageConfigLoader languageConfigLoader;
 
-    public Judge Judge(Problem problem, Judge judge) {
+    /**
+     * @return 最终的提交结果与各个测试点的结果(编译失败等情况下测试点结果为空)
+     */
+    @SuppressWarnings("unchecked")
+    public Pair_<Judge, List<JudgeCase>> Judge(Problem problem, Judge judge) {
 
         // c和c++为一倍时间和空间，其它语言为2倍时间和空间
         LanguageConfig languageConfig = languageConfigLoader.getLanguageConfigByName(judge.getLanguage());
@@ -72,7 +80,8 @@ public class JudgeContext {
         // oi_rank_score
         finalJudgeRes.setOiRankScore((Integer) judgeResult.getOrDefault("oiRankScore", null));
 
-        return finalJudgeRes;
+        List<JudgeCase> judgeCaseList = (List<JudgeCase>) judgeResult.getOrDefault("judgeCaseList", Collections.emptyList());
+        return new Pair_<>(finalJudgeRes, judgeCaseList);
     }
 
     public TestJudgeRes testJudge(TestJudgeReq testJudgeReq) {
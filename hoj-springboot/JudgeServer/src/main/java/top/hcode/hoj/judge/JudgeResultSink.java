@@ -0,0 +1,270 @@
+package top.hcode.hoj.judge;
+
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.CollectionUtils;
+import top.hcode.hoj.dao.JudgeEntityService;
+import top.hcode.hoj.mapper.JudgeCaseMapper;
+import top.hcode.hoj.pojo.entity.judge.Judge;
+import top.hcode.hoj.pojo.entity.judge.JudgeCase;
+import top.hcode.hoj.util.Constants;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/19 14:20
+ * @Description: 评测结果的批量回写
+ * 各个评测线程把结果交给后台线程，后台线程把同一时间段内的多次评测结果合并到一个事务中写入：
+ * 测试点结果使用多行insert，提交记录的更新紧随其后，评测线程等待所在批次提交后再返回，
+ * 保证评测接口返回时结果已经落库。其它表(比赛记录带有重试等待)在批次提交后由评测线程自行更新，
+ * 不占用后台线程与批次事务。进入评测数据阶段的状态更新也由后台线程合并成一条update。
+ * 测试点结果写入失败时只单独写入提交记录，不让测试点的异常回滚最终的评测结果。
+ */
+@Slf4j(topic = "hoj")
+@Component
+public class JudgeResultSink {
+
+    /**
+     * 后台线程没有新结果时的等待时间，同时也是评测中状态的最大回写延迟
+     */
+    private static final long FLUSH_INTERVAL_MILLIS = 50;
+
+    /**
+     * 每条多行insert包含的测试点数量上限，避免单条语句过大
+     */
+    private static final int CASE_INSERT_CHUNK_SIZE = 200;
+
+    @Value("${hoj-judge-server.result-sink.linger-millis:10}")
+    private Long lingerMillis;
+
+    @Value("${hoj-judge-server.result-sink.max-batch-size:64}")
+    private Integer maxBatchSize;
+
+    @Value("${hoj-judge-server.result-sink.await-seconds:60}")
+    private Integer awaitSeconds;
+
+    @Resource
+    private JudgeEntityService judgeEntityService;
+
+    @Resource
+    private JudgeCaseMapper judgeCaseMapper;
+
+    @Resource
+    private PlatformTransactionManager transactionManager;
+
+    private final LinkedBlockingQueue<ResultTask> resultQueue = new LinkedBlockingQueue<>();
+
+    private final ConcurrentLinkedQueue<Long> judgingSubmitIdQueue = new ConcurrentLinkedQueue<>();
+
+    private TransactionTemplate transactionTemplate;
+
+    private Thread flushThread;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+        flushThread = new Thread(this::flushLoop, "judge-result-sink");
+        flushThread.setDaemon(true);
+        flushThread.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        try {
+            flushThread.join(FLUSH_INTERVAL_MILLIS * 20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 标记提交进入评测数据阶段，由后台线程异步更新
+     */
+    public void markJudging(Long submitId) {
+        judgingSubmitIdQueue.offer(submitId);
+    }
+
+    /**
+     * 写入评测结果，等待所在批次的事务提交后返回
+     *
+     * @param finalJudgeRes 最终的提交结果
+     * @param judgeCaseList 各个测试点的结果
+     * @param afterSaved    提交记录写入后需要更新的其它表，在当前线程执行，可为null
+     */
+    public void saveResult(Judge finalJudgeRes, List<JudgeCase> judgeCaseList, Runnable afterSaved) {
+        ResultTask task = new ResultTask(finalJudgeRes, judgeCaseList);
+        if (running) {
+            awaitWritten(task);
+        } else {
+            // 停机过程中直接写入
+            write(task);
+        }
+        if (afterSaved != null) {
+            afterSaved.run();
+        }
+    }
+
+    private void awaitWritten(ResultTask task) {
+        Judge finalJudgeRes = task.finalJudgeRes;
+        resultQueue.offer(task);
+        try {
+            try {
+                task.future.get(awaitSeconds, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                if (resultQueue.remove(task)) {
+                    // 还未被后台线程取出，撤回后不会再写入，避免之后覆盖调用方写入的其它结果
+                    throw new RuntimeException("Timeout to save the judge result of submit id: "
+                            + finalJudgeRes.getSubmitId(), e);
+                }
+                // 已经在写入中，以实际的写入结果为准
+                log.warn("[Judge Result Sink] Wait for the judge result of submit id:{} over {}s, it is being written",
+                        finalJudgeRes.getSubmitId(), awaitSeconds);
+                task.future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to save the judge result of submit id: "
+                    + finalJudgeRes.getSubmitId(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            resultQueue.remove(task);
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void flushLoop() {
+        while (running || !resultQueue.isEmpty() || !judgingSubmitIdQueue.isEmpty()) {
+            try {
+                ResultTask first = resultQueue.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                // 先回写评测中状态，避免覆盖同一批次中的最终结果
+                flushJudging();
+                if (first == null) {
+                    continue;
+                }
+                List<ResultTask> batch = new ArrayList<>();
+                batch.add(first);
+                if (lingerMillis > 0 && resultQueue.size() < maxBatchSize - 1) {
+                    // 稍等片刻，合并其它评测线程的结果
+                    Thread.sleep(lingerMillis);
+                }
+                resultQueue.drainTo(batch, maxBatchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                log.warn("[Judge Result Sink] The flush thread is interrupted");
+            } catch (Throwable e) {
+                log.error("[Judge Result Sink] Flush error------------>", e);
+            }
+        }
+    }
+
+    private void flushJudging() {
+        List<Long> submitIdList = new ArrayList<>();
+        Long submitId;
+        while ((submitId = judgingSubmitIdQueue.poll()) != null) {
+            submitIdList.add(submitId);
+        }
+        if (submitIdList.isEmpty()) {
+            return;
+        }
+        try {
+            UpdateWrapper<Judge> judgeUpdateWrapper = new UpdateWrapper<>();
+            judgeUpdateWrapper.set("status", Constants.Judge.STATUS_JUDGING.getStatus())
+                    .in("submit_id", submitIdList)
+                    .eq("status", Constants.Judge.STATUS_COMPILING.getStatus());
+            judgeEntityService.update(judgeUpdateWrapper);
+        } catch (Exception e) {
+            log.error("[Judge Result Sink] Update the judging status of submit ids:{} error------------>", submitIdList, e);
+        }
+    }
+
+    private void flush(List<ResultTask> batch) {
+        try {
+            writeInTransaction(batch, true);
+            for (ResultTask task : batch) {
+                task.future.complete(null);
+            }
+        } catch (Exception e) {
+            log.error("[Judge Result Sink] Flush a batch of {} results error, retry one by one------------>", batch.size(), e);
+            // 整批失败时逐个重写，避免某一条异常数据影响同一批次的其它提交
+            for (ResultTask task : batch) {
+                try {
+                    if (batch.size() == 1) {
+                        writeWithoutCase(task, e);
+                    } else {
+                        write(task);
+                    }
+                    task.future.complete(null);
+                } catch (Exception ex) {
+                    task.future.completeExceptionally(ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * 写入单个提交的结果，测试点写入失败时退化为只写入提交记录
+     */
+    private void write(ResultTask task) {
+        try {
+            writeInTransaction(Collections.singletonList(task), true);
+        } catch (Exception e) {
+            writeWithoutCase(task, e);
+        }
+    }
+
+    private void writeWithoutCase(ResultTask task, Exception cause) {
+        if (CollectionUtils.isEmpty(task.judgeCaseList)) {
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+        }
+        writeInTransaction(Collections.singletonList(task), false);
+        log.error("[Judge Result Sink] Save the judge cases of submit id:{} error, only the judge result is saved------------>",
+                task.finalJudgeRes.getSubmitId(), cause);
+    }
+
+    private void writeInTransaction(List<ResultTask> batch, boolean isWriteCase) {
+        transactionTemplate.execute(status -> {
+            List<JudgeCase> judgeCaseList = new ArrayList<>();
+            for (ResultTask task : batch) {
+                if (isWriteCase && !CollectionUtils.isEmpty(task.judgeCaseList)) {
+                    judgeCaseList.addAll(task.judgeCaseList);
+                }
+            }
+            for (int i = 0; i < judgeCaseList.size(); i += CASE_INSERT_CHUNK_SIZE) {
+                judgeCaseMapper.insertBatch(judgeCaseList.subList(i,
+                        Math.min(i + CASE_INSERT_CHUNK_SIZE, judgeCaseList.size())));
+            }
+            for (ResultTask task : batch) {
+                judgeEntityService.updateById(task.finalJudgeRes);
+            }
+            return null;
+        });
+    }
+
+    private static class ResultTask {
+
+        private final Judge finalJudgeRes;
+
+        private final List<JudgeCase> judgeCaseList;
+
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private ResultTask(Judge finalJudgeRes, List<JudgeCase> judgeCaseList) {
+            this.finalJudgeRes = finalJudgeRes;
+            this.judgeCaseList = judgeCaseList;
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package top.hcode.hoj.judge;
 
+import cn.hutool.core.collection.ListUtil;
 import cn.hutool.json.JSONArray;
 import cn.hutool.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import top.hcode.hoj.common.exception.SystemError;
 import top.hcode.hoj.judge.entity.JudgeDTO;
@@ -29,6 +31,20 @@ import java.util.concurrent.FutureTask;
 @Component
 public class JudgeRun {
 
+    private static final int cpuNum = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 合并评测时单次沙箱调用的测试点数，-1表示cpu核心数，1表示不合并
+     */
+    @Value("${hoj-judge-server.batch-judge.chunk-size:-1}")
+    private Integer batchChunkSize;
+
+    /**
+     * 合并评测时同一提交同时进行的沙箱调用数
+     */
+    @Value("${hoj-judge-server.batch-judge.parallelism:1}")
+    private Integer batchParallelism;
+
     @Resource
     private DefaultJudge defaultJudge;
 
@@ -44,6 +60,9 @@ public class JudgeRun {
     @Resource
     private LanguageConfigLoader languageConfigLoader;
 
+    @Resource
+    private TestCaseCache testCaseCache;
+
     public List<JSONObject> judgeAllCase(Long submitId,
                                          Problem problem,
                                          String judgeLanguage,
@@ -102,15 +121,26 @@ public class JudgeRun {
                 .build();
 
 
-        // OI题的subtask最低分模式，则每个subtask组只要有一个case非AC 或者 percentage为 0.0则该组剩余评测点跳过，不再评测
-        if (Constants.Contest.TYPE_OI.getCode().equals(problem.getType())
-                && Constants.JudgeCaseMode.SUBTASK_LOWEST.getMode().equals(judgeCaseMode)) {
-            return subtaskJudgeAllCase(testcaseList, testCasesDir, judgeGlobalDTO, abstractJudge);
-        } else if (Constants.JudgeCaseMode.ERGODIC_WITHOUT_ERROR.getMode().equals(judgeCaseMode)){
-            // 顺序评测测试点，遇到非AC就停止！
-            return ergodicJudgeAllCase(testcaseList, testCasesDir, judgeGlobalDTO, abstractJudge);
-        } else {
-            return defaultJudgeAllCase(testcaseList, testCasesDir, judgeGlobalDTO, abstractJudge);
+        // 热点题目的输入文件已预先上传到沙箱，普通评测直接引用fileId
+        TestCaseCache.Lease lease = null;
+        if (judgeMode == Constants.JudgeMode.DEFAULT) {
+            lease = testCaseCache.acquire(problem.getId(), problem.getCaseVersion(), testCasesDir);
+            judgeGlobalDTO.setTestCaseInputFileIdMap(lease.getInputFileIdMap());
+        }
+
+        try {
+            // OI题的subtask最低分模式，则每个subtask组只要有一个case非AC 或者 percentage为 0.0则该组剩余评测点跳过，不再评测
+            if (Constants.Contest.TYPE_OI.getCode().equals(problem.getType())
+                    && Constants.JudgeCaseMode.SUBTASK_LOWEST.getMode().equals(judgeCaseMode)) {
+                return subtaskJudgeAllCase(testcaseList, testCasesDir, judgeGlobalDTO, abstractJudge);
+            } else if (Constants.JudgeCaseMode.ERGODIC_WITHOUT_ERROR.getMode().equals(judgeCaseMode)){
+                // 顺序评测测试点，遇到非AC就停止！
+                return ergodicJudgeAllCase(testcaseList, testCasesDir, judgeGlobalDTO, abstractJudge);
+            } else {
+                return defaultJudgeAllCase(testcaseList, testCasesDir, judgeGlobalDTO, abstractJudge);
+            }
+        } finally {
+            testCaseCache.release(lease);
         }
     }
 
@@ -128,49 +158,37 @@ public class JudgeRun {
                                                  String testCasesDir,
                                                  JudgeGlobalDTO judgeGlobalDTO,
                                                  AbstractJudge abstractJudge) throws ExecutionException, InterruptedException {
+        List<JudgeDTO> judgeDTOList = getJudgeDTOList(testcaseList, testCasesDir);
+        int chunkSize = getBatchChunkSize(abstractJudge);
+        if (chunkSize > 1) {
+            // 测试点按块合并评测，同一提交最多同时有batchParallelism个沙箱调用
+            List<List<JudgeDTO>> chunkList = ListUtil.split(judgeDTOList, chunkSize);
+            int parallelism = Math.max(1, Math.min(batchParallelism, chunkList.size()));
+            List<FutureTask<List<JSONObject>>> futureTasks = new ArrayList<>();
+            for (int i = 0; i < parallelism; i++) {
+                final int start = i;
+                futureTasks.add(new FutureTask<>(() -> {
+                    List<JSONObject> resultList = new ArrayList<>();
+                    for (int j = start; j < chunkList.size(); j += parallelism) {
+                        resultList.addAll(judgeChunk(chunkList.get(j), judgeGlobalDTO, abstractJudge));
+                    }
+                    return resultList;
+                }));
+            }
+            List<JSONObject> result = new LinkedList<>();
+            for (List<JSONObject> resultList : SubmitBatchTask2ThreadPool(futureTasks)) {
+                result.addAll(resultList);
+            }
+            return result;
+        }
+
         List<FutureTask<JSONObject>> futureTasks = new ArrayList<>();
-        for (int index = 0; index < testcaseList.size(); index++) {
-            JSONObject testcase = (JSONObject) testcaseList.get(index);
+        for (JudgeDTO judgeDTO : judgeDTOList) {
             // 将每个需要测试的线程任务加入任务列表中
-            final int testCaseId = index + 1;
-            // 输入文件名
-            final String inputFileName = testcase.getStr("inputName");
-            // 输出文件名
-            final String outputFileName = testcase.getStr("outputName");
-            // 题目数据的输入文件的路径
-            final String testCaseInputPath = testCasesDir + File.separator + inputFileName;
-            // 题目数据的输出文件的路径
-            final String testCaseOutputPath = testCasesDir + File.separator + outputFileName;
-            // 数据库表的测试样例id
-            final Long caseId = testcase.getLong("caseId", null);
-            // 该测试点的满分
-            final Integer score = testcase.getInt("score", 0);
-            // 该测试点的分组（用于subtask）
-            final Integer groupNum = testcase.getInt("groupNum", 1);
-
-            final Long maxOutputSize = Math.max(testcase.getLong("outputSize", 0L) * 2, 32 * 1024 * 1024L);
-
-            JudgeDTO judgeDTO = JudgeDTO.builder()
-                    .testCaseNum(testCaseId)
-                    .testCaseInputFileName(inputFileName)
-                    .testCaseInputPath(testCaseInputPath)
-                    .testCaseOutputFileName(outputFileName)
-                    .testCaseOutputPath(testCaseOutputPath)
-                    .maxOutputSize(maxOutputSize)
-                    .score(score)
-                    .build();
-
             futureTasks.add(new FutureTask<>(() -> {
                 JSONObject result = abstractJudge.judge(judgeDTO, judgeGlobalDTO);
-                result.set("caseId", caseId);
-                result.set("score", judgeDTO.getScore());
-                result.set("inputFileName", judgeDTO.getTestCaseInputFileName());
-                result.set("outputFileName", judgeDTO.getTestCaseOutputFileName());
-                result.set("groupNum", groupNum);
-                result.set("seq", testCaseId);
-                return result;
+                return fillCaseInfo(result, judgeDTO);
             }));
-
         }
         return SubmitBatchTask2ThreadPool(futureTasks);
     }
@@ -189,52 +207,19 @@ public class JudgeRun {
                                                  String testCasesDir,
                                                  JudgeGlobalDTO judgeGlobalDTO,
                                                  AbstractJudge abstractJudge) throws ExecutionException, InterruptedException {
+        List<JudgeDTO> judgeDTOList = getJudgeDTOList(testcaseList, testCasesDir);
+        // 不支持合并评测时每块只有一个测试点
+        int chunkSize = Math.max(getBatchChunkSize(abstractJudge), 1);
         List<JSONObject> judgeResList = new ArrayList<>();
-        for (int index = 0; index < testcaseList.size(); index++) {
-            JSONObject testcase = (JSONObject) testcaseList.get(index);
-            // 将每个需要测试的线程任务加入任务列表中
-            final int testCaseId = index + 1;
-            // 输入文件名
-            final String inputFileName = testcase.getStr("inputName");
-            // 输出文件名
-            final String outputFileName = testcase.getStr("outputName");
-            // 题目数据的输入文件的路径
-            final String testCaseInputPath = testCasesDir + File.separator + inputFileName;
-            // 题目数据的输出文件的路径
-            final String testCaseOutputPath = testCasesDir + File.separator + outputFileName;
-            // 数据库表的测试样例id
-            final Long caseId = testcase.getLong("caseId", null);
-            // 该测试点的满分
-            final Integer score = testcase.getInt("score", 0);
-            // 该测试点的分组（用于subtask）
-            final Integer groupNum = testcase.getInt("groupNum", 1);
-
-            final Long maxOutputSize = Math.max(testcase.getLong("outputSize", 0L) * 2, 32 * 1024 * 1024L);
-
-            JudgeDTO judgeDTO = JudgeDTO.builder()
-                    .testCaseNum(testCaseId)
-                    .testCaseInputFileName(inputFileName)
-                    .testCaseInputPath(testCaseInputPath)
-                    .testCaseOutputFileName(outputFileName)
-                    .testCaseOutputPath(testCaseOutputPath)
-                    .maxOutputSize(maxOutputSize)
-                    .score(score)
-                    .build();
-
-            JSONObject judgeRes = SubmitTask2ThreadPool(new FutureTask<>(() -> {
-                JSONObject result = abstractJudge.judge(judgeDTO, judgeGlobalDTO);
-                result.set("caseId", caseId);
-                result.set("score", judgeDTO.getScore());
-                result.set("inputFileName", judgeDTO.getTestCaseInputFileName());
-                result.set("outputFileName", judgeDTO.getTestCaseOutputFileName());
-                result.set("groupNum", groupNum);
-                result.set("seq", judgeDTO.getTestCaseNum());
-                return result;
-            }));
-            judgeResList.add(judgeRes);
-            Integer status = judgeRes.getInt("status");
-            if (!Constants.Judge.STATUS_ACCEPTED.getStatus().equals(status)){
-                break;
+        for (List<JudgeDTO> chunk : ListUtil.split(judgeDTOList, chunkSize)) {
+            List<JSONObject> chunkResList = SubmitTask2ThreadPool(new FutureTask<>(() -> judgeChunk(chunk, judgeGlobalDTO, abstractJudge)));
+            for (JSONObject judgeRes : chunkResList) {
+                judgeResList.add(judgeRes);
+                Integer status = judgeRes.getInt("status");
+                if (!Constants.Judge.STATUS_ACCEPTED.getStatus().equals(status)) {
+                    // 同一块中该测试点之后的结果丢弃
+                    return judgeResList;
+                }
             }
         }
         return judgeResList;
@@ -255,10 +240,102 @@ public class JudgeRun {
                                                  JudgeGlobalDTO judgeGlobalDTO,
                                                  AbstractJudge abstractJudge) throws ExecutionException, InterruptedException {
         Map<Integer, List<JudgeDTO>> judgeDTOMap = new LinkedHashMap<>();
+        for (JudgeDTO judgeDTO : getJudgeDTOList(testcaseList, testCasesDir)) {
+            List<JudgeDTO> judgeDTOList = judgeDTOMap.get(judgeDTO.getGroupNum());
+            if (judgeDTOList == null) {
+                judgeDTOList = new ArrayList<>();
+                judgeDTOList.add(judgeDTO);
+                judgeDTOMap.put(judgeDTO.getGroupNum(), judgeDTOList);
+            } else {
+                judgeDTOList.add(judgeDTO);
+            }
+        }
+
+        // 不支持合并评测时每块只有一个测试点，支持时每块最多为整个subtask组
+        int chunkSize = Math.max(getBatchChunkSize(abstractJudge), 1);
+        List<JSONObject> judgeResList = new ArrayList<>();
+        for (Map.Entry<Integer, List<JudgeDTO>> entry : judgeDTOMap.entrySet()) {
+            Integer groupNum = entry.getKey();
+            List<JudgeDTO> groupJudgeDTOList = entry.getValue();
+            int judgedCount = 0;
+            JudgeDTO failedJudgeDTO = null;
+            for (List<JudgeDTO> chunk : ListUtil.split(groupJudgeDTOList, chunkSize)) {
+                List<JSONObject> chunkResList = SubmitTask2ThreadPool(new FutureTask<>(() -> judgeChunk(chunk, judgeGlobalDTO, abstractJudge)));
+                for (int i = 0; i < chunkResList.size(); i++) {
+                    JSONObject judgeRes = chunkResList.get(i);
+                    judgeResList.add(judgeRes);
+                    judgedCount++;
+                    Integer status = judgeRes.getInt("status");
+                    Double percentage = judgeRes.getDouble("percentage");
+                    if (!Constants.Judge.STATUS_ACCEPTED.getStatus().equals(status)
+                            && !(Constants.Judge.STATUS_PARTIAL_ACCEPTED.getStatus().equals(status)
+                            && percentage != null && percentage > 0.0)) {
+                        failedJudgeDTO = chunk.get(i);
+                        break;
+                    }
+                }
+                if (failedJudgeDTO != null) {
+                    break;
+                }
+            }
+            if (failedJudgeDTO != null) {
+                // 有评测点得分为0分，不再评测该组其他测试点
+                for (JudgeDTO elseJudgeDTO : groupJudgeDTOList.subList(judgedCount, groupJudgeDTOList.size())) {
+                    JSONObject elseJudgeRes = new JSONObject();
+                    elseJudgeRes.set("status", Constants.Judge.STATUS_CANCELLED.getStatus());
+                    elseJudgeRes.set("memory", 0);
+                    elseJudgeRes.set("time", 0);
+                    elseJudgeRes.set("errMsg", "Cancelled: Skipped Judging");
+                    elseJudgeRes.set("caseId", elseJudgeDTO.getProblemCaseId());
+                    elseJudgeRes.set("score", elseJudgeDTO.getScore());
+                    elseJudgeRes.set("inputFileName", elseJudgeDTO.getTestCaseInputFileName());
+                    elseJudgeRes.set("outputFileName", elseJudgeDTO.getTestCaseOutputFileName());
+                    elseJudgeRes.set("groupNum", groupNum);
+                    elseJudgeRes.set("seq", failedJudgeDTO.getTestCaseNum());
+                    judgeResList.add(elseJudgeRes);
+                }
+            }
+        }
+        return judgeResList;
+    }
+
+    /**
+     * 评测一块测试点，支持合并评测时只调用一次沙箱，否则逐个评测
+     */
+    private List<JSONObject> judgeChunk(List<JudgeDTO> chunk,
+                                        JudgeGlobalDTO judgeGlobalDTO,
+                                        AbstractJudge abstractJudge) throws SystemError {
+        List<JSONObject> resultList = abstractJudge.judgeBatch(chunk, judgeGlobalDTO);
+        for (int i = 0; i < chunk.size(); i++) {
+            fillCaseInfo(resultList.get(i), chunk.get(i));
+        }
+        return resultList;
+    }
+
+    private JSONObject fillCaseInfo(JSONObject result, JudgeDTO judgeDTO) {
+        result.set("caseId", judgeDTO.getProblemCaseId());
+        result.set("score", judgeDTO.getScore());
+        result.set("inputFileName", judgeDTO.getTestCaseInputFileName());
+        result.set("outputFileName", judgeDTO.getTestCaseOutputFileName());
+        result.set("groupNum", judgeDTO.getGroupNum());
+        result.set("seq", judgeDTO.getTestCaseNum());
+        return result;
+    }
+
+    /**
+     * 合并评测时每次沙箱调用的测试点数，不支持合并评测时返回0
+     */
+    private int getBatchChunkSize(AbstractJudge abstractJudge) {
+        if (!abstractJudge.isSupportBatch()) {
+            return 0;
+        }
+        return batchChunkSize == -1 ? cpuNum : batchChunkSize;
+    }
+
+    private List<JudgeDTO> getJudgeDTOList(JSONArray testcaseList, String testCasesDir) {
+        List<JudgeDTO> judgeDTOList = new ArrayList<>(testcaseList.size());
         for (int index = 0; index < testcaseList.size(); index++) {
             JSONObject testcase = (JSONObject) testcaseList.get(index);
-            // 将每个需要测试的线程任务加入任务列表中
-            final int testCaseId = index + 1;
             // 输入文件名
             final String inputFileName = testcase.getStr("inputName");
             // 输出文件名
@@ -267,78 +344,25 @@ public class JudgeRun {
             final String testCaseInputPath = testCasesDir + File.separator + inputFileName;
             // 题目数据的输出文件的路径
             final String testCaseOutputPath = testCasesDir + File.separator + outputFileName;
-            // 数据库表的测试样例id
-            final Long caseId = testcase.getLong("caseId", null);
-            // 该测试点的满分
-            final Integer score = testcase.getInt("score", 0);
-            // 该测试点的分组（用于subtask）
-            final Integer groupNum = testcase.getInt("groupNum", 1);
 
             final Long maxOutputSize = Math.max(testcase.getLong("outputSize", 0L) * 2, 32 * 1024 * 1024L);
 
-            JudgeDTO judgeDTO = JudgeDTO.builder()
-                    .testCaseNum(testCaseId)
+            judgeDTOList.add(JudgeDTO.builder()
+                    .testCaseNum(index + 1)
                     .testCaseInputFileName(inputFileName)
                     .testCaseInputPath(testCaseInputPath)
                     .testCaseOutputFileName(outputFileName)
                     .testCaseOutputPath(testCaseOutputPath)
                     .maxOutputSize(maxOutputSize)
-                    .score(score)
-                    .problemCaseId(caseId)
-                    .build();
-            List<JudgeDTO> judgeDTOList = judgeDTOMap.get(groupNum);
-            if (judgeDTOList == null) {
-                judgeDTOList = new ArrayList<>();
-                judgeDTOList.add(judgeDTO);
-                judgeDTOMap.put(groupNum, judgeDTOList);
-            } else {
-                judgeDTOList.add(judgeDTO);
-            }
-        }
-
-        List<JSONObject> judgeResList = new ArrayList<>();
-        for (Map.Entry<Integer, List<JudgeDTO>> entry : judgeDTOMap.entrySet()) {
-            Integer groupNum = entry.getKey();
-            Iterator<JudgeDTO> iterator = entry.getValue().iterator();
-            while (iterator.hasNext()) {
-                JudgeDTO judgeDTO = iterator.next();
-                JSONObject judgeRes = SubmitTask2ThreadPool(new FutureTask<>(() -> {
-                    JSONObject result = abstractJudge.judge(judgeDTO, judgeGlobalDTO);
-                    result.set("caseId", judgeDTO.getProblemCaseId());
-                    result.set("score", judgeDTO.getScore());
-                    result.set("inputFileName", judgeDTO.getTestCaseInputFileName());
-                    result.set("outputFileName", judgeDTO.getTestCaseOutputFileName());
-                    result.set("groupNum", groupNum);
-                    result.set("seq", judgeDTO.getTestCaseNum());
-                    return result;
-                }));
-                judgeResList.add(judgeRes);
-                Integer status = judgeRes.getInt("status");
-                Double percentage = judgeRes.getDouble("percentage");
-                if (!Constants.Judge.STATUS_ACCEPTED.getStatus().equals(status)
-                        && !(Constants.Judge.STATUS_PARTIAL_ACCEPTED.getStatus().equals(status)
-                        && percentage != null && percentage > 0.0)) {
-                    // 有评测点得分为0分，不再评测该组其他测试点
-                    while (iterator.hasNext()) {
-                        JudgeDTO elseJudgeDTO = iterator.next();
-                        JSONObject elseJudgeRes = new JSONObject();
-                        elseJudgeRes.set("status", Constants.Judge.STATUS_CANCELLED.getStatus());
-                        elseJudgeRes.set("memory", 0);
-                        elseJudgeRes.set("time", 0);
-                        elseJudgeRes.set("errMsg", "Cancelled: Skipped Judging");
-                        elseJudgeRes.set("caseId", elseJudgeDTO.getProblemCaseId());
-                        elseJudgeRes.set("score", elseJudgeDTO.getScore());
-                        elseJudgeRes.set("inputFileName", elseJudgeDTO.getTestCaseInputFileName());
-                        elseJudgeRes.set("outputFileName", elseJudgeDTO.getTestCaseOutputFileName());
-                        elseJudgeRes.set("groupNum", groupNum);
-                        elseJudgeRes.set("seq", judgeDTO.getTestCaseNum());
-                        judgeResList.add(elseJudgeRes);
-                    }
-                    break;
-                }
-            }
+                    // 该测试点的满分
+                    .score(testcase.getInt("score", 0))
+                    // 该测试点的分组（用于subtask）
+                    .groupNum(testcase.getInt("groupNum", 1))
+                    // 数据库表的测试样例id
+                    .problemCaseId(testcase.getLong("caseId", null))
+                    .build());
         }
-        return judgeResList;
+        return judgeDTOList;
     }
 
     /**
@@ -404,7 +428,7 @@ public class JudgeRun {
         }
     }
 
-    private JSONObject SubmitTask2ThreadPool(FutureTask<JSONObject> futureTask)
+    private <T> T SubmitTask2ThreadPool(FutureTask<T> futureTask)
             throws InterruptedException, ExecutionException {
         // 提交到线程池进行执行
         ThreadPoolUtils.getInstance().getThreadPool().submit(futureTask);
@@ -418,21 +442,21 @@ public class JudgeRun {
         }
     }
 
-    private List<JSONObject> SubmitBatchTask2ThreadPool(List<FutureTask<JSONObject>> futureTasks)
+    private <T> List<T> SubmitBatchTask2ThreadPool(List<FutureTask<T>> futureTasks)
             throws InterruptedException, ExecutionException {
         // 提交到线程池进行执行
-        for (FutureTask<JSONObject> futureTask : futureTasks) {
+        for (FutureTask<T> futureTask : futureTasks) {
             ThreadPoolUtils.getInstance().getThreadPool().submit(futureTask);
         }
-        List<JSONObject> result = new LinkedList<>();
+        List<T> result = new LinkedList<>();
         while (futureTasks.size() > 0) {
-            Iterator<FutureTask<JSONObject>> iterable = futureTasks.iterator();
+            Iterator<FutureTask<T>> iterable = futureTasks.iterator();
             //遍历一遍
             while (iterable.hasNext()) {
-                FutureTask<JSONObject> future = iterable.next();
+                FutureTask<T> future = iterable.next();
                 if (future.isDone() && !future.isCancelled()) {
                     // 获取线程返回结果
-                    JSONObject tmp = future.get();
+                    T tmp = future.get();
                     result.add(tmp);
                     // 任务完成移除任务
                     iterable.remove();
@@ -4,15 +4,12 @@ import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.io.file.FileReader;
 import cn.hutool.core.io.file.FileWriter;
 import cn.hutool.json.JSONObject;
-import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import top.hcode.hoj.common.exception.CompileError;
 import top.hcode.hoj.common.exception.SubmitError;
 import top.hcode.hoj.common.exception.SystemError;
-import top.hcode.hoj.dao.JudgeCaseEntityService;
-import top.hcode.hoj.dao.JudgeEntityService;
 import top.hcode.hoj.judge.entity.LanguageConfig;
 import top.hcode.hoj.judge.entity.Pair_;
 import top.hcode.hoj.pojo.dto.TestJudgeReq;
@@ -32,14 +29,11 @@ import java.util.*;
 public class JudgeStrategy {
 
     @Resource
-    private JudgeEntityService judgeEntityService;
+    private JudgeResultSink judgeResultSink;
 
     @Resource
     private ProblemTestCaseUtils problemTestCaseUtils;
 
-    @Resource
-    private JudgeCaseEntityService JudgeCaseEntityService;
-
     @Resource
     private LanguageConfigLoader languageConfigLoader;
 
@@ -79,11 +73,8 @@ public class JudgeStrategy {
                 result.put("memory", 0);
                 return result;
             }
-            // 更新状态为评测数据中
-            UpdateWrapper<Judge> judgeUpdateWrapper = new UpdateWrapper<>();
-            judgeUpdateWrapper.set("status", Constants.Judge.STATUS_JUDGING.getStatus())
-                    .eq("submit_id", judge.getSubmitId());
-            judgeEntityService.update(judgeUpdateWrapper);
+            // 更新状态为评测数据中(由后台线程合并回写)
+            judgeResultSink.markJudging(judge.getSubmitId());
 
             // 获取题目数据的评测模式
             String infoJudgeCaseMode = testCasesInfo.getStr("judgeCaseMode", Constants.JudgeCaseMode.DEFAULT.getMode());
@@ -416,12 +407,6 @@ public class JudgeStrategy {
             allCaseResList.add(judgeCase);
         });
 
-        // 更新到数据库
-        boolean addCaseRes = JudgeCaseEntityService.saveBatch(allCaseResList);
-        if (!addCaseRes) {
-            log.error("题号为：" + problem.getId() + "，提交id为：" + judge.getSubmitId() + "的各个测试数据点的结果更新到数据库操作失败");
-        }
-
         // 获取判题的运行时间，运行空间，OI得分
         HashMap<String, Object> result = computeResultInfo(allCaseResList,
                 isACM,
@@ -430,6 +415,9 @@ public class JudgeStrategy {
                 problem.getDifficulty(),
                 judgeCaseMode);
 
+        // 测试点结果与提交结果在同一事务中写入数据库
+        result.put("judgeCaseList", allCaseResList);
+
         // 如果该题为ACM类型的题目，多个测试点全部正确则AC，否则取第一个错误的测试点的状态
         // 如果该题为OI类型的题目, 若多个测试点全部正确则AC，若全部错误则取第一个错误测试点状态，否则为部分正确
         if (errorTestCaseList.size() == 0) { // 全部测试点正确，则为AC
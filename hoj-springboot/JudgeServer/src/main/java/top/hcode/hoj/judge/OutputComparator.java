@@ -0,0 +1,362 @@
+package top.hcode.hoj.judge;
+
+import cn.hutool.core.util.CharUtil;
+import cn.hutool.core.util.HexUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/17 16:05
+ * @Description: 单次遍历用户输出，增量计算原输出、去除行末空白(rtrim)、去除全部空白三种MD5，
+ * 不再为每种MD5复制整份输出。若提供了标准输出的输入流，会同时逐字节对比两者去除全部空白后的内容，
+ * 一旦不一致即可提前确定为WA，无需读完整份输出。
+ * 摘要结果与ProblemTestCaseUtils中outputMd5、EOFStrippedOutputMd5、allStrippedOutputMd5的生成规则保持一致。
+ */
+public class OutputComparator {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final DigestBuffer exactDigest = new DigestBuffer();
+
+    private final DigestBuffer eolStrippedDigest = new DigestBuffer();
+
+    private final DigestBuffer allStrippedDigest = new DigestBuffer();
+
+    /**
+     * 尚未确定是否为文末空白的空白字符，连续相同的字符压缩为一段
+     */
+    private final List<BlankRun> pendingBlankList = new ArrayList<>();
+
+    private final InputStream expectedOutput;
+
+    private final byte[] expectedBuffer;
+
+    private int expectedPos = 0;
+
+    private int expectedLimit = 0;
+
+    private boolean mismatched = false;
+
+    private boolean finished = false;
+
+    // utf-8解码状态，仅用于字节流输入
+    private final byte[] codePointBytes = new byte[4];
+
+    private int codePointLen = 0;
+
+    private int codePointExpectLen = 0;
+
+    private int codePoint = 0;
+
+    /**
+     * @param expectedOutput 标准输出的输入流，为null时只计算摘要，由调用方负责关闭
+     */
+    public OutputComparator(InputStream expectedOutput) {
+        this.expectedOutput = expectedOutput;
+        this.expectedBuffer = expectedOutput == null ? null : new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * 输入一段用户输出，按utf-8编码处理
+     *
+     * @return 去除全部空白后的内容是否仍与标准输出一致
+     */
+    public boolean update(String output) throws IOException {
+        byte[] bytes = codePointBytes;
+        int length = output.length();
+        for (int i = 0; i < length && !mismatched; i++) {
+            char c = output.charAt(i);
+            int cp = c;
+            int len;
+            if (c < 0x80) {
+                bytes[0] = (byte) c;
+                len = 1;
+            } else if (c < 0x800) {
+                bytes[0] = (byte) (0xC0 | (c >> 6));
+                bytes[1] = (byte) (0x80 | (c & 0x3F));
+                len = 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(output.charAt(i + 1))) {
+                cp = Character.toCodePoint(c, output.charAt(++i));
+                bytes[0] = (byte) (0xF0 | (cp >> 18));
+                bytes[1] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                bytes[2] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                bytes[3] = (byte) (0x80 | (cp & 0x3F));
+                len = 4;
+            } else if (Character.isSurrogate(c)) {
+                // 与String.getBytes(UTF_8)一致，孤立的代理字符编码为'?'
+                cp = '?';
+                bytes[0] = '?';
+                len = 1;
+            } else {
+                bytes[0] = (byte) (0xE0 | (c >> 12));
+                bytes[1] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[2] = (byte) (0x80 | (c & 0x3F));
+                len = 3;
+            }
+            acceptCodePoint(cp, bytes, len);
+        }
+        return !mismatched;
+    }
+
+    /**
+     * 输入用户输出的字节流，按utf-8解码处理，不关闭该流
+     *
+     * @return 去除全部空白后的内容是否仍与标准输出一致
+     */
+    public boolean update(InputStream output) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while (!mismatched && (read = output.read(buffer)) != -1) {
+            for (int i = 0; i < read && !mismatched; i++) {
+                acceptByte(buffer[i]);
+            }
+        }
+        return !mismatched;
+    }
+
+    /**
+     * 结束输入，确认标准输出已无剩余的非空白内容
+     *
+     * @return 去除全部空白后的内容是否与标准输出完全一致
+     */
+    public boolean finish() throws IOException {
+        if (!finished) {
+            finished = true;
+            flushIncompleteCodePoint();
+            // 文末的空白字符全部去掉
+            pendingBlankList.clear();
+            if (expectedOutput != null && !mismatched && nextExpectedByte() != -1) {
+                mismatched = true;
+            }
+        }
+        return !mismatched;
+    }
+
+    public boolean isMismatched() {
+        return mismatched;
+    }
+
+    public String getOutputMd5() throws IOException {
+        finish();
+        return exactDigest.hex();
+    }
+
+    public String getEOLStrippedOutputMd5() throws IOException {
+        finish();
+        return eolStrippedDigest.hex();
+    }
+
+    public String getAllStrippedOutputMd5() throws IOException {
+        finish();
+        return allStrippedDigest.hex();
+    }
+
+    private void acceptByte(byte b) throws IOException {
+        int value = b & 0xFF;
+        if (codePointExpectLen > 0) {
+            if ((value & 0xC0) == 0x80) {
+                codePointBytes[codePointLen++] = b;
+                codePoint = (codePoint << 6) | (value & 0x3F);
+                if (codePointLen == codePointExpectLen) {
+                    codePointExpectLen = 0;
+                    acceptCodePoint(codePoint, codePointBytes, codePointLen);
+                    codePointLen = 0;
+                }
+                return;
+            }
+            // 非法的utf-8序列，原样作为非空白内容处理
+            flushIncompleteCodePoint();
+        }
+        if (value < 0x80) {
+            codePointBytes[0] = b;
+            acceptCodePoint(value, codePointBytes, 1);
+        } else if ((value & 0xE0) == 0xC0) {
+            startCodePoint(b, value & 0x1F, 2);
+        } else if ((value & 0xF0) == 0xE0) {
+            startCodePoint(b, value & 0x0F, 3);
+        } else if ((value & 0xF8) == 0xF0) {
+            startCodePoint(b, value & 0x07, 4);
+        } else {
+            codePointBytes[0] = b;
+            acceptCodePoint(-1, codePointBytes, 1);
+        }
+    }
+
+    private void startCodePoint(byte b, int bits, int expectLen) {
+        codePointBytes[0] = b;
+        codePointLen = 1;
+        codePointExpectLen = expectLen;
+        codePoint = bits;
+    }
+
+    private void flushIncompleteCodePoint() throws IOException {
+        if (codePointLen > 0) {
+            acceptCodePoint(-1, codePointBytes, codePointLen);
+            codePointLen = 0;
+            codePointExpectLen = 0;
+        }
+    }
+
+    private void acceptCodePoint(int cp, byte[] bytes, int len) throws IOException {
+        exactDigest.update(bytes, len);
+
+        for (int i = 0; i < len; i++) {
+            byte b = bytes[i];
+            if (!isRegexSpace(b)) {
+                allStrippedDigest.update(b);
+                if (expectedOutput != null && !mismatched && nextExpectedByte() != (b & 0xFF)) {
+                    mismatched = true;
+                }
+            }
+        }
+
+        // 等价于 EOL_PATTERN.matcher(StrUtil.trimEnd(value)).replaceAll("")
+        if (cp >= 0 && cp <= Character.MAX_VALUE && CharUtil.isBlankChar((char) cp)) {
+            if (cp == '\n') {
+                // 换行前紧邻的[ \t\x0B\f\r]需要去掉
+                while (!pendingBlankList.isEmpty()
+                        && pendingBlankList.get(pendingBlankList.size() - 1).isLineBlank()) {
+                    pendingBlankList.remove(pendingBlankList.size() - 1);
+                }
+            }
+            appendPendingBlank(bytes, len);
+        } else {
+            for (BlankRun blankRun : pendingBlankList) {
+                for (long i = 0; i < blankRun.count; i++) {
+                    eolStrippedDigest.update(blankRun.bytes, blankRun.bytes.length);
+                }
+            }
+            pendingBlankList.clear();
+            eolStrippedDigest.update(bytes, len);
+        }
+    }
+
+    private void appendPendingBlank(byte[] bytes, int len) {
+        if (!pendingBlankList.isEmpty()) {
+            BlankRun last = pendingBlankList.get(pendingBlankList.size() - 1);
+            if (last.isSame(bytes, len)) {
+                last.count++;
+                return;
+            }
+        }
+        byte[] copy = new byte[len];
+        System.arraycopy(bytes, 0, copy, 0, len);
+        pendingBlankList.add(new BlankRun(copy));
+    }
+
+    /**
+     * 读取标准输出中下一个非空白字节，读完返回-1
+     */
+    private int nextExpectedByte() throws IOException {
+        while (true) {
+            if (expectedPos >= expectedLimit) {
+                expectedLimit = expectedOutput.read(expectedBuffer);
+                expectedPos = 0;
+                if (expectedLimit <= 0) {
+                    expectedLimit = 0;
+                    return -1;
+                }
+            }
+            byte b = expectedBuffer[expectedPos++];
+            if (!isRegexSpace(b)) {
+                return b & 0xFF;
+            }
+        }
+    }
+
+    /**
+     * 正则中的\s，即[ \t\n\x0B\f\r]
+     */
+    private static boolean isRegexSpace(byte b) {
+        return b == ' ' || b == '\n' || isLineBlank(b);
+    }
+
+    /**
+     * 正则中的[^\S\n]，即[ \t\x0B\f\r]
+     */
+    private static boolean isLineBlank(byte b) {
+        return b == ' ' || b == '\t' || b == 0x0B || b == '\f' || b == '\r';
+    }
+
+    private static class BlankRun {
+
+        private final byte[] bytes;
+
+        private long count = 1;
+
+        BlankRun(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        boolean isSame(byte[] other, int len) {
+            if (bytes.length != len) {
+                return false;
+            }
+            for (int i = 0; i < len; i++) {
+                if (bytes[i] != other[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isLineBlank() {
+            return bytes.length == 1 && OutputComparator.isLineBlank(bytes[0]);
+        }
+    }
+
+    private static class DigestBuffer {
+
+        private final MessageDigest messageDigest;
+
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+
+        private int size = 0;
+
+        private String hex;
+
+        DigestBuffer() {
+            try {
+                messageDigest = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void update(byte b) {
+            if (size == BUFFER_SIZE) {
+                flush();
+            }
+            buffer[size++] = b;
+        }
+
+        void update(byte[] bytes, int len) {
+            if (size + len > BUFFER_SIZE) {
+                flush();
+            }
+            System.arraycopy(bytes, 0, buffer, size, len);
+            size += len;
+        }
+
+        String hex() {
+            if (hex == null) {
+                flush();
+                hex = HexUtil.encodeHexStr(messageDigest.digest());
+            }
+            return hex;
+        }
+
+        private void flush() {
+            if (size > 0) {
+                messageDigest.update(buffer, 0, size);
+                size = 0;
+            }
+        }
+    }
+}
@@ -36,6 +36,12 @@ public class ProblemTestCaseUtils {
     @Autowired
     private ProblemCaseEntityService problemCaseEntityService;
 
+    @Autowired
+    private TestCaseCache testCaseCache;
+
+    @Autowired
+    private TestCaseBlobStore testCaseBlobStore;
+
     private final static Pattern EOL_PATTERN = Pattern.compile("[^\\S\\n]+(?=\\n)");
 
     // 本地无文件初始化测试数据，写成json文件
@@ -145,11 +151,16 @@ public class ProblemTestCaseUtils {
             String outputFilePath = testCasesDir + File.separator + problemCase.getOutput();
             if (FileUtil.exist(outputFilePath)) {
                 FileReader outputFile = new FileReader(outputFilePath, CharsetUtil.UTF_8);
-                output = outputFile.readString()
-                        .replaceAll("\r\n", "\n") // 避免window系统的换行问题
-                        .replaceAll("\r", "\n"); // 避免mac系统的换行问题
-                FileWriter outFileWriter = new FileWriter(testCasesDir + File.separator + problemCase.getOutput(), CharsetUtil.UTF_8);
-                outFileWriter.write(output);
+                output = outputFile.readString();
+                // 只在需要统一换行符时重写，同步来的文件是内容仓库的硬链接，不能原地改写
+                if (output.indexOf('\r') >= 0) {
+                    output = output.replaceAll("\r\n", "\n") // 避免window系统的换行问题
+                            .replaceAll("\r", "\n"); // 避免mac系统的换行问题
+                    File normalizedFile = new File(outputFilePath + ".tmp");
+                    FileWriter outFileWriter = new FileWriter(normalizedFile, CharsetUtil.UTF_8);
+                    outFileWriter.write(output);
+                    FileUtil.rename(normalizedFile, problemCase.getOutput(), true);
+                }
             } else {
                 FileWriter fileWriter = new FileWriter(outputFilePath);
                 fileWriter.write("");
@@ -178,29 +189,44 @@ public class ProblemTestCaseUtils {
     }
 
 
-    // 获取指定题目的info数据
+    // 获取指定题目的info数据，优先使用缓存
     public JSONObject loadTestCaseInfo(Long problemId, String testCasesDir, String version, String judgeMode, String judgeCaseMode) throws SystemError {
+        JSONObject testcaseInfo = testCaseCache.getInfo(problemId, version);
+        if (testcaseInfo != null) {
+            return testcaseInfo;
+        }
         if (FileUtil.exist(testCasesDir + File.separator + "info")) {
             FileReader fileReader = new FileReader(testCasesDir + File.separator + "info", CharsetUtil.UTF_8);
             String infoStr = fileReader.readString();
-            JSONObject testcaseInfo = JSONUtil.parseObj(infoStr);
+            testcaseInfo = JSONUtil.parseObj(infoStr);
             // 测试样例被改动需要重新生成
             if (!testcaseInfo.getStr("version", null).equals(version)) {
-                return tryInitTestCaseInfo(testCasesDir, problemId, version, judgeMode, judgeCaseMode);
+                testcaseInfo = tryInitTestCaseInfo(testCasesDir, problemId, version, judgeMode, judgeCaseMode);
+                infoStr = JSONUtil.toJsonStr(testcaseInfo);
             }
+            testCaseCache.putInfo(problemId, version, testcaseInfo, infoStr.getBytes(StandardCharsets.UTF_8).length);
             return testcaseInfo;
         } else {
-            return tryInitTestCaseInfo(testCasesDir, problemId, version, judgeMode, judgeCaseMode);
+            testcaseInfo = tryInitTestCaseInfo(testCasesDir, problemId, version, judgeMode, judgeCaseMode);
+            testCaseCache.putInfo(problemId, version, testcaseInfo,
+                    JSONUtil.toJsonStr(testcaseInfo).getBytes(StandardCharsets.UTF_8).length);
+            return testcaseInfo;
         }
     }
 
-    // 若没有测试数据，则尝试从数据库获取并且初始化到本地，如果数据库中该题目测试数据为空，rsync同步也出了问题，则直接判系统错误
+    // 若没有测试数据，则先尝试从后端拉取，再尝试从数据库获取并且初始化到本地，如果数据库中该题目测试数据为空，rsync同步也出了问题，则直接判系统错误
     public JSONObject tryInitTestCaseInfo(String testCasesDir,
                                           Long problemId,
                                           String version,
                                           String judgeMode,
                                           String judgeCaseMode) throws SystemError {
 
+        // 优先按清单从后端拉取测试数据文件，同步成功时后端生成的info即为当前版本
+        if (testCaseBlobStore.sync(problemId, version, testCasesDir)) {
+            FileReader fileReader = new FileReader(testCasesDir + File.separator + "info", CharsetUtil.UTF_8);
+            return JSONUtil.parseObj(fileReader.readString());
+        }
+
         QueryWrapper<ProblemCase> queryWrapper = new QueryWrapper<>();
         queryWrapper.eq("pid", problemId);
         List<ProblemCase> problemCases = problemCaseEntityService.list(queryWrapper);
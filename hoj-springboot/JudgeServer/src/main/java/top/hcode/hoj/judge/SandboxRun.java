@@ -1,16 +1,20 @@
 package top.hcode.hoj.judge;
 
+import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONArray;
 import cn.hutool.json.JSONObject;
 
 import cn.hutool.json.JSONUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.BooleanUtils;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
 import org.springframework.util.StringUtils;
 import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.client.RestTemplate;
@@ -21,6 +25,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
 
 /**
  * @Author: Himit_ZH
@@ -80,6 +85,14 @@ public class SandboxRun {
 
     private static final int STDIO_SIZE_MB = 32;
 
+    private static final int cpuNum = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 本判题机同时在沙箱中运行的进程数上限，所有提交共享。
+     * 每次沙箱调用按其中的命令数获取许可，避免多个提交的合并评测同时占用远超cpu核心数的进程
+     */
+    private static final Semaphore processPermits = new Semaphore(cpuNum, true);
+
     private SandboxRun() {
 
     }
@@ -149,6 +162,15 @@ public class SandboxRun {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         HttpEntity<String> request = new HttpEntity<>(JSONUtil.toJsonStr(param), headers);
+        JSONArray cmdArray = param.getJSONArray("cmd");
+        // 单次调用的命令数超过上限时只占满全部许可，不会永久等待
+        int permits = Math.min(cmdArray == null ? 1 : Math.max(cmdArray.size(), 1), cpuNum);
+        try {
+            processPermits.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SystemError("Call SandBox Error.", null, "Interrupted while waiting for the sandbox process permits");
+        }
         ResponseEntity<String> postForEntity;
         try {
             postForEntity = restTemplate.postForEntity(SANDBOX_BASE_URL + uri, request, String.class);
@@ -159,10 +181,35 @@ public class SandboxRun {
             }
         } catch (Exception e) {
             throw new SystemError("Call SandBox Error.", null, e.getMessage());
+        } finally {
+            processPermits.release(permits);
         }
         return null;
     }
 
+    /**
+     * 将本地文件上传到沙箱的文件缓存中
+     *
+     * @param filePath 本地文件路径
+     * @return 沙箱中的文件id
+     */
+    public static String uploadFile(String filePath) throws SystemError {
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("file", new FileSystemResource(filePath));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        try {
+            String fileId = restTemplate.postForObject(SANDBOX_BASE_URL + "/file", new HttpEntity<>(body, headers), String.class);
+            if (StringUtils.isEmpty(fileId)) {
+                throw new SystemError("Upload File To SandBox Error.", null, filePath);
+            }
+            // 沙箱返回的是json字符串
+            return StrUtil.strip(fileId.trim(), "\"");
+        } catch (RestClientResponseException ex) {
+            throw new SystemError("Cannot connect to sandbox service.", null, ex.getResponseBodyAsString());
+        }
+    }
+
     public static void delFile(String fileId) {
 
         try {
@@ -320,6 +367,88 @@ public class SandboxRun {
                                      String ioReadFileName,
                                      String ioWriteFileName) throws SystemError {
 
+        JSONObject cmd = testCaseCmd(args, envs, testCasePath, testCaseContent, null, maxTime, maxMemory, maxOutputSize,
+                maxStack, exeName, fileId, fileContent, isFileIO, ioReadFileName, ioWriteFileName);
+
+        JSONObject param = new JSONObject();
+        param.set("cmd", new JSONArray().put(cmd));
+
+        // 调用判题安全沙箱
+        JSONArray result = instance.run("/run", param);
+
+        JSONObject testcaseRes = (JSONObject) result.get(0);
+        testcaseRes.set("originalStatus", testcaseRes.getStr("status"));
+        testcaseRes.set("status", RESULT_MAP_STATUS.get(testcaseRes.getStr("status")));
+        return result;
+    }
+
+    /**
+     * @param cmdList 由testCaseCmd生成的多个测试点的评测命令
+     * @MethodName testCaseBatch
+     * @Description 普通评测，多个测试点合并为一次沙箱调用，各命令之间互不关联，由沙箱并行执行
+     * @Return JSONArray 与cmdList顺序一致的评测结果
+     * @Since 2026/10/17
+     */
+    public static JSONArray testCaseBatch(List<JSONObject> cmdList) throws SystemError {
+
+        JSONArray cmdArray = new JSONArray();
+        for (JSONObject cmd : cmdList) {
+            cmdArray.put(cmd);
+        }
+        JSONObject param = new JSONObject();
+        param.set("cmd", cmdArray);
+
+        // 调用判题安全沙箱
+        JSONArray result = instance.run("/run", param);
+        if (result == null || result.size() != cmdList.size()) {
+            throw new SystemError("The number of sandbox results does not match the test cases.", null,
+                    "expect " + cmdList.size() + " results, actual " + (result == null ? 0 : result.size()));
+        }
+
+        for (int i = 0; i < result.size(); i++) {
+            JSONObject testcaseRes = (JSONObject) result.get(i);
+            testcaseRes.set("originalStatus", testcaseRes.getStr("status"));
+            testcaseRes.set("status", RESULT_MAP_STATUS.get(testcaseRes.getStr("status")));
+        }
+        return result;
+    }
+
+    /**
+     * @param args            普通评测运行cmd的命令参数
+     * @param envs            普通评测运行的环境变量
+     * @param testCasePath    题目数据的输入文件路径
+     * @param testCaseContent 题目数据的输入数据（与testCasePath二者选一）
+     * @param testCaseFileId  题目数据的输入文件预先上传到沙箱后的文件id，存在时优先使用
+     * @param maxTime         评测的最大限制时间 ms
+     * @param maxOutputSize   评测的最大输出大小 kb
+     * @param maxStack        评测的最大限制栈空间 mb
+     * @param exeName         评测的用户程序名称
+     * @param fileId          评测的用户程序文件id
+     * @param fileContent     评测的用户程序文件内容，如果userFileId存在则为null
+     * @param isFileIO        是否为文件IO
+     * @param ioReadFileName  题目指定的io输入文件的名称
+     * @param ioWriteFileName 题目指定的io输出文件的名称
+     * @MethodName testCaseCmd
+     * @Description 生成普通评测单个测试点的沙箱运行命令
+     * @Return JSONObject
+     * @Since 2026/10/17
+     */
+    public static JSONObject testCaseCmd(List<String> args,
+                                         List<String> envs,
+                                         String testCasePath,
+                                         String testCaseContent,
+                                         String testCaseFileId,
+                                         Long maxTime,
+                                         Long maxMemory,
+                                         Long maxOutputSize,
+                                         Integer maxStack,
+                                         String exeName,
+                                         String fileId,
+                                         String fileContent,
+                                         Boolean isFileIO,
+                                         String ioReadFileName,
+                                         String ioWriteFileName) {
+
         JSONObject cmd = new JSONObject();
         cmd.set("args", args);
         cmd.set("env", envs);
@@ -327,7 +456,9 @@ public class SandboxRun {
         JSONArray files = new JSONArray();
 
         JSONObject testCaseInput = new JSONObject();
-        if (StringUtils.isEmpty(testCasePath)) {
+        if (!StringUtils.isEmpty(testCaseFileId)) {
+            testCaseInput.set("fileId", testCaseFileId);
+        } else if (StringUtils.isEmpty(testCasePath)) {
             testCaseInput.set("content", testCaseContent);
         } else {
             testCaseInput.set("src", testCasePath);
@@ -378,16 +509,7 @@ public class SandboxRun {
         cmd.set("copyIn", copyIn);
         cmd.set("copyOut", copyOut);
 
-        JSONObject param = new JSONObject();
-        param.set("cmd", new JSONArray().put(cmd));
-
-        // 调用判题安全沙箱
-        JSONArray result = instance.run("/run", param);
-
-        JSONObject testcaseRes = (JSONObject) result.get(0);
-        testcaseRes.set("originalStatus", testcaseRes.getStr("status"));
-        testcaseRes.set("status", RESULT_MAP_STATUS.get(testcaseRes.getStr("status")));
-        return result;
+        return cmd;
     }
 
 
@@ -0,0 +1,351 @@
+package top.hcode.hoj.judge;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.file.FileReader;
+import cn.hutool.core.util.CharsetUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.*;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestTemplate;
+import top.hcode.hoj.util.Constants;
+
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/19 21:30
+ * @Description: 本地测试数据的内容寻址仓库
+ * 按后端提供的清单(文件名、大小、SHA-256)拉取测试数据，文件以摘要为名保存在仓库中，
+ * 不同题目或不同版本中内容相同的文件只下载、保存一份；下载按区间分段进行，中断后从已下载的位置续传。
+ * 题目文件夹中的测试数据通过硬链接指向仓库中的文件，同步成功后定期清理已不被任何题目文件夹引用(硬链接数为1)的文件。
+ */
+@Slf4j(topic = "hoj")
+@Component
+public class TestCaseBlobStore {
+
+    private static final String BLOB_DIR = Constants.JudgeDir.TEST_CASE_DIR.getContent() + File.separator + ".cas";
+
+    private static final String MANIFEST_API = "/api/file/testcase-manifest?pid={pid}";
+
+    private static final String BLOB_API = "/api/file/testcase-blob?pid={pid}&name={name}&sha256={sha256}";
+
+    private static final String INFO_FILE_NAME = "info";
+
+    private static final int LOCK_STRIPES = 64;
+
+    /**
+     * 不再被引用的文件至少保留的时间，未下载完的文件也在超过该时间后才清理
+     */
+    private static final long CLEAN_MIN_AGE_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    @Value("${hoj-judge-server.test-case-sync.open:true}")
+    private Boolean open;
+
+    @Value("${hoj-judge-server.test-case-sync.backend-url:}")
+    private String backendUrl;
+
+    @Value("${hoj-judge-server.test-case-sync.backend-service-name:hoj-data-backup}")
+    private String backendServiceName;
+
+    @Value("${hoj-judge-server.test-case-sync.chunk-bytes:8388608}")
+    private Long chunkBytes;
+
+    @Value("${hoj-judge-server.test-case-sync.max-retry:3}")
+    private Integer maxRetry;
+
+    @Value("${hoj-judge-server.test-case-sync.clean-interval-millis:3600000}")
+    private Long cleanIntervalMillis;
+
+    @Value("${hoj.judge.token:no_judge_token}")
+    private String judgeToken;
+
+    @Resource
+    private RestTemplate restTemplate;
+
+    @Autowired(required = false)
+    private DiscoveryClient discoveryClient;
+
+    /**
+     * 题目同步锁与文件下载锁分开，加锁顺序固定为先题目后文件
+     */
+    private final Object[] problemLocks = newLocks();
+
+    private final Object[] blobLocks = newLocks();
+
+    /**
+     * 同步时持有读锁，清理时持有写锁，避免刚确认存在的文件在建立硬链接前被清理
+     */
+    private final ReentrantReadWriteLock cleanLock = new ReentrantReadWriteLock();
+
+    private volatile long lastCleanTime = System.currentTimeMillis();
+
+    /**
+     * 按后端清单将题目的测试数据同步到本地文件夹
+     *
+     * @param pid          题目id
+     * @param version      期望的测试数据版本
+     * @param testCasesDir 题目测试数据所在文件夹
+     * @return 本地测试数据已是期望版本时返回true，后端不可用或版本不一致时返回false
+     */
+    public boolean sync(Long pid, String version, String testCasesDir) {
+        if (!open || StringUtils.isEmpty(version)) {
+            return false;
+        }
+        boolean isOk;
+        cleanLock.readLock().lock();
+        try {
+            isOk = syncProblem(pid, version, testCasesDir);
+        } finally {
+            cleanLock.readLock().unlock();
+        }
+        if (isOk && System.currentTimeMillis() - lastCleanTime > cleanIntervalMillis) {
+            cleanUnreferenced();
+        }
+        return isOk;
+    }
+
+    private boolean syncProblem(Long pid, String version, String testCasesDir) {
+        synchronized (problemLocks[Math.floorMod(pid.hashCode(), LOCK_STRIPES)]) {
+            // 可能已被其它评测线程同步完成
+            if (version.equals(readLocalVersion(testCasesDir))) {
+                return true;
+            }
+            String baseUrl = resolveBackendUrl();
+            if (baseUrl == null) {
+                return false;
+            }
+            try {
+                JSONObject manifest = fetchManifest(baseUrl, pid);
+                // 后端的测试数据还在生成中或已再次更新
+                if (manifest == null || !version.equals(manifest.getStr("version"))) {
+                    return false;
+                }
+                JSONArray files = manifest.getJSONArray("files");
+                File tmpDir = new File(testCasesDir + ".sync");
+                FileUtil.del(tmpDir);
+                FileUtil.mkdir(tmpDir);
+                for (int i = 0; i < files.size(); i++) {
+                    JSONObject item = files.getJSONObject(i);
+                    String name = item.getStr("name");
+                    File blob = ensureBlob(baseUrl, pid, name, item.getLong("size"), item.getStr("sha256"));
+                    materialize(blob, new File(tmpDir, name));
+                }
+                FileUtil.del(testCasesDir);
+                Files.move(tmpDir.toPath(), new File(testCasesDir).toPath(), StandardCopyOption.ATOMIC_MOVE);
+                log.info("[Test Case Sync] Sync {} files of problem [{}] version [{}] from [{}]",
+                        files.size(), pid, version, baseUrl);
+                return true;
+            } catch (Exception e) {
+                log.error("[Test Case Sync] Sync the test cases of problem [{}] from [{}] error------------>", pid, baseUrl, e);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 删除已不被任何题目文件夹引用(硬链接数为1)且超过保留时间未修改的文件，有其它线程在同步时本次跳过
+     */
+    private void cleanUnreferenced() {
+        if (!cleanLock.writeLock().tryLock()) {
+            return;
+        }
+        int count = 0;
+        try {
+            lastCleanTime = System.currentTimeMillis();
+            File[] subDirs = new File(BLOB_DIR).listFiles(File::isDirectory);
+            if (subDirs == null) {
+                return;
+            }
+            long deadline = System.currentTimeMillis() - CLEAN_MIN_AGE_MILLIS;
+            for (File subDir : subDirs) {
+                File[] files = subDir.listFiles(File::isFile);
+                if (files == null) {
+                    continue;
+                }
+                for (File file : files) {
+                    if (file.lastModified() > deadline) {
+                        continue;
+                    }
+                    try {
+                        if (((Number) Files.getAttribute(file.toPath(), "unix:nlink")).intValue() <= 1) {
+                            count += Files.deleteIfExists(file.toPath()) ? 1 : 0;
+                        }
+                    } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+                        // 不支持查询硬链接数的文件系统不做清理
+                        log.warn("[Test Case Sync] Check the link count of [{}] failed: {}", file, e.getMessage());
+                        return;
+                    }
+                }
+            }
+        } finally {
+            cleanLock.writeLock().unlock();
+            if (count > 0) {
+                log.info("[Test Case Sync] Clean {} unreferenced test case files", count);
+            }
+        }
+    }
+
+    private JSONObject fetchManifest(String baseUrl, Long pid) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Judge-Token", judgeToken);
+        ResponseEntity<String> responseEntity = restTemplate.exchange(baseUrl + MANIFEST_API,
+                HttpMethod.GET, new HttpEntity<>(headers), String.class, pid);
+        JSONObject result = JSONUtil.parseObj(responseEntity.getBody());
+        if (!Objects.equals(result.getInt("status"), HttpStatus.OK.value())) {
+            log.warn("[Test Case Sync] Get the manifest of problem [{}] failed: {}", pid, result.getStr("msg"));
+            return null;
+        }
+        return result.getJSONObject("data");
+    }
+
+    /**
+     * 获取仓库中的文件，不存在时分段下载并校验摘要
+     */
+    private File ensureBlob(String baseUrl, Long pid, String name, long size, String sha256) throws IOException {
+        sha256 = sha256.toLowerCase();
+        File blob = new File(BLOB_DIR + File.separator + sha256.substring(0, 2) + File.separator + sha256);
+        if (blob.isFile() && blob.length() == size) {
+            return blob;
+        }
+        synchronized (blobLocks[Math.floorMod(sha256.hashCode(), LOCK_STRIPES)]) {
+            if (blob.isFile() && blob.length() == size) {
+                return blob;
+            }
+            File part = new File(blob.getPath() + ".part");
+            FileUtil.touch(part);
+            if (part.length() > size) {
+                FileUtil.del(part);
+                FileUtil.touch(part);
+            }
+            int failures = 0;
+            while (part.length() < size) {
+                long offset = part.length();
+                long end = Math.min(offset + chunkBytes, size) - 1;
+                try {
+                    downloadRange(baseUrl, pid, name, sha256, offset, end, part);
+                } catch (Exception e) {
+                    log.warn("[Test Case Sync] Download [{}] of problem [{}] at offset {} failed: {}",
+                            name, pid, offset, e.getMessage());
+                }
+                // 本轮没有任何进展计为一次失败，已下载的部分保留用于续传
+                if (part.length() <= offset && ++failures > maxRetry) {
+                    throw new IOException("Failed to download the test case file [" + name + "] of problem [" + pid + "]");
+                }
+            }
+            String actualSha256;
+            try (InputStream inputStream = FileUtil.getInputStream(part)) {
+                actualSha256 = DigestUtil.sha256Hex(inputStream);
+            }
+            if (part.length() != size || !sha256.equals(actualSha256)) {
+                FileUtil.del(part);
+                throw new IOException("The checksum of the test case file [" + name + "] of problem [" + pid + "] is mismatched");
+            }
+            Files.move(part.toPath(), blob.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return blob;
+        }
+    }
+
+    private void downloadRange(String baseUrl, Long pid, String name, String sha256,
+                               long offset, long end, File part) {
+        restTemplate.execute(baseUrl + BLOB_API, HttpMethod.GET, request -> {
+            request.getHeaders().set("Judge-Token", judgeToken);
+            request.getHeaders().set(HttpHeaders.RANGE, "bytes=" + offset + "-" + end);
+        }, response -> {
+            long position;
+            if (response.getStatusCode() == HttpStatus.PARTIAL_CONTENT) {
+                position = offset;
+            } else if (MediaType.APPLICATION_OCTET_STREAM.includes(response.getHeaders().getContentType())) {
+                // 不支持Range时返回完整文件，从头写入
+                position = 0;
+            } else {
+                // 后端返回的是错误信息，例如测试数据已变更
+                throw new IOException("Unexpected response: " + response.getStatusCode()
+                        + " " + response.getHeaders().getContentType());
+            }
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(part, "rw");
+                 InputStream inputStream = response.getBody()) {
+                randomAccessFile.setLength(position);
+                randomAccessFile.seek(position);
+                byte[] buffer = new byte[64 * 1024];
+                int len;
+                while ((len = inputStream.read(buffer)) != -1) {
+                    randomAccessFile.write(buffer, 0, len);
+                }
+            }
+            return null;
+        }, pid, name, sha256);
+    }
+
+    /**
+     * 题目文件夹中的测试数据硬链接到仓库中的文件，不支持时复制。
+     * info会在本地被重写，所以总是复制
+     */
+    private void materialize(File blob, File target) throws IOException {
+        if (!INFO_FILE_NAME.equals(target.getName())) {
+            try {
+                Files.createLink(target.toPath(), blob.toPath());
+                return;
+            } catch (IOException | UnsupportedOperationException e) {
+                log.debug("[Test Case Sync] Create link for [{}] failed, copy instead: {}", target, e.getMessage());
+            }
+        }
+        Files.copy(blob.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private String readLocalVersion(String testCasesDir) {
+        File infoFile = new File(testCasesDir, INFO_FILE_NAME);
+        if (!infoFile.isFile()) {
+            return null;
+        }
+        try {
+            return JSONUtil.parseObj(new FileReader(infoFile, CharsetUtil.UTF_8).readString()).getStr("version");
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private String resolveBackendUrl() {
+        if (!StringUtils.isEmpty(backendUrl)) {
+            return StrUtil.removeSuffix(backendUrl, "/");
+        }
+        if (discoveryClient == null) {
+            return null;
+        }
+        List<ServiceInstance> instances = discoveryClient.getInstances(backendServiceName);
+        if (CollectionUtils.isEmpty(instances)) {
+            return null;
+        }
+        ServiceInstance instance = instances.get(ThreadLocalRandom.current().nextInt(instances.size()));
+        return StrUtil.removeSuffix(instance.getUri().toString(), "/");
+    }
+
+    private static Object[] newLocks() {
+        Object[] locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+}
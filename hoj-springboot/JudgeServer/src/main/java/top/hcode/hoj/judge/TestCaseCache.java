@@ -0,0 +1,284 @@
+package top.hcode.hoj.judge;
+
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/17 18:20
+ * @Description: 题目测试数据缓存，以题目id+测试数据版本为键
+ * 1. 缓存解析后的info数据，避免每次评测都从磁盘读取并解析info文件
+ * 2. 评测次数达到阈值的热点题目，将其全部输入文件预先上传到安全沙箱的文件缓存中，评测时直接引用fileId，
+ * 避免沙箱对每个测试点重复拷贝输入文件
+ * 按占用字节数进行LRU淘汰，测试数据版本变化时旧缓存立即失效，仍在评测中的沙箱文件待评测结束后再删除。
+ * 沙箱重启导致fileId失效时，由评测方调用invalidateInputFiles丢弃，之后的评测重新上传。
+ * 缓存中的info为多个评测共享，只读不可修改。
+ */
+@Component
+@Slf4j(topic = "hoj")
+public class TestCaseCache {
+
+    /**
+     * 缓存占用的最大字节数，包括info数据与上传到沙箱的输入文件
+     */
+    @Value("${hoj-judge-server.test-case-cache.max-bytes:134217728}")
+    private Long maxBytes;
+
+    /**
+     * 题目评测多少次后将输入文件预先上传到沙箱，小于等于0表示不上传
+     */
+    @Value("${hoj-judge-server.test-case-cache.hot-threshold:3}")
+    private Integer hotThreshold;
+
+    /**
+     * 单个输入文件超过该字节数时，该题目不预先上传
+     */
+    @Value("${hoj-judge-server.test-case-cache.max-file-bytes:16777216}")
+    private Long maxFileBytes;
+
+    private final LinkedHashMap<Long, Entry> entryMap = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalBytes = 0;
+
+    /**
+     * 获取缓存的info数据，版本不一致时返回null
+     */
+    public synchronized JSONObject getInfo(Long problemId, String version) {
+        Entry entry = entryMap.get(problemId);
+        if (entry == null || !entry.version.equals(version)) {
+            return null;
+        }
+        return entry.info;
+    }
+
+    /**
+     * 缓存info数据，同一题目旧版本的缓存会被淘汰
+     *
+     * @param infoBytes info数据的大小
+     */
+    public void putInfo(Long problemId, String version, JSONObject info, long infoBytes) {
+        if (version == null || info == null) {
+            return;
+        }
+        List<String> deleteFileIdList = new ArrayList<>();
+        synchronized (this) {
+            Entry oldEntry = entryMap.get(problemId);
+            if (oldEntry != null && oldEntry.version.equals(version)) {
+                return;
+            }
+            if (oldEntry != null) {
+                removeEntry(problemId, oldEntry, deleteFileIdList);
+            }
+            entryMap.put(problemId, new Entry(version, info, infoBytes));
+            totalBytes += infoBytes;
+            evict(deleteFileIdList);
+        }
+        deleteFiles(deleteFileIdList);
+    }
+
+    /**
+     * 开始一次评测，获取该题目输入文件在沙箱中的fileId，评测结束后必须调用release
+     *
+     * @param testCasesDir 测试数据所在文件夹
+     * @return 输入文件名->fileId，未上传时为空
+     */
+    public Lease acquire(Long problemId, String version, String testCasesDir) {
+        Entry entry;
+        synchronized (this) {
+            entry = entryMap.get(problemId);
+            if (entry == null || !entry.version.equals(version)) {
+                return new Lease(null, Collections.emptyMap());
+            }
+            entry.refCount++;
+            entry.hits++;
+            if (entry.inputFileIdMap != null) {
+                return new Lease(entry, entry.inputFileIdMap);
+            }
+            if (hotThreshold <= 0 || entry.hits < hotThreshold || entry.uploading || entry.uploadSkipped) {
+                return new Lease(entry, Collections.emptyMap());
+            }
+            entry.uploading = true;
+        }
+
+        // 上传过程不持有锁，同一题目同时只有一个评测在上传，其它评测照常使用本地文件
+        Map<String, String> fileIdMap = new HashMap<>();
+        long inputBytes = uploadInputFiles(entry.info, testCasesDir, fileIdMap);
+
+        List<String> deleteFileIdList = new ArrayList<>();
+        Map<String, String> result;
+        synchronized (this) {
+            entry.uploading = false;
+            if (inputBytes < 0) {
+                entry.uploadSkipped = true;
+                deleteFileIdList.addAll(fileIdMap.values());
+                result = Collections.emptyMap();
+            } else if (entry.evicted) {
+                deleteFileIdList.addAll(fileIdMap.values());
+                result = Collections.emptyMap();
+            } else {
+                entry.inputFileIdMap = Collections.unmodifiableMap(fileIdMap);
+                entry.inputBytes = inputBytes;
+                totalBytes += inputBytes;
+                result = entry.inputFileIdMap;
+                evict(deleteFileIdList);
+            }
+        }
+        deleteFiles(deleteFileIdList);
+        return new Lease(entry, result);
+    }
+
+    /**
+     * 结束一次评测，已被淘汰的缓存在最后一个评测结束后删除沙箱中的文件
+     */
+    public void release(Lease lease) {
+        if (lease == null || lease.entry == null) {
+            return;
+        }
+        List<String> deleteFileIdList = new ArrayList<>();
+        synchronized (this) {
+            Entry entry = lease.entry;
+            entry.refCount--;
+            if (entry.evicted && entry.refCount <= 0 && entry.inputFileIdMap != null) {
+                deleteFileIdList.addAll(entry.inputFileIdMap.values());
+                entry.inputFileIdMap = null;
+            }
+        }
+        deleteFiles(deleteFileIdList);
+    }
+
+    /**
+     * 沙箱中缓存的输入文件已失效（如沙箱重启后文件缓存丢失），丢弃这批fileId，之后的评测会重新上传
+     *
+     * @param inputFileIdMap 评测时使用的fileId，与当前缓存的不是同一批时说明已重新上传过，直接忽略
+     */
+    public void invalidateInputFiles(Long problemId, Map<String, String> inputFileIdMap) {
+        List<String> deleteFileIdList = new ArrayList<>();
+        synchronized (this) {
+            Entry entry = entryMap.get(problemId);
+            if (entry == null || entry.inputFileIdMap == null || entry.inputFileIdMap != inputFileIdMap) {
+                return;
+            }
+            totalBytes -= entry.inputBytes;
+            entry.inputBytes = 0;
+            // 沙箱中可能仍残留部分文件，一并删除
+            deleteFileIdList.addAll(entry.inputFileIdMap.values());
+            entry.inputFileIdMap = null;
+        }
+        deleteFiles(deleteFileIdList);
+    }
+
+    /**
+     * 上传该题目的全部输入文件，文件过大或总量超过缓存上限时放弃上传并返回-1
+     */
+    private long uploadInputFiles(JSONObject info, String testCasesDir, Map<String, String> fileIdMap) {
+        JSONArray testCaseList = (JSONArray) info.get("testCases");
+        long inputBytes = 0;
+        Set<String> inputNameSet = new LinkedHashSet<>();
+        for (int i = 0; i < testCaseList.size(); i++) {
+            String inputName = ((JSONObject) testCaseList.get(i)).getStr("inputName");
+            if (inputName == null || !inputNameSet.add(inputName)) {
+                continue;
+            }
+            File inputFile = new File(testCasesDir + File.separator + inputName);
+            if (!inputFile.isFile() || inputFile.length() > maxFileBytes) {
+                return -1;
+            }
+            inputBytes += inputFile.length();
+            if (inputBytes > maxBytes / 2) {
+                return -1;
+            }
+        }
+        try {
+            for (String inputName : inputNameSet) {
+                fileIdMap.put(inputName, SandboxRun.uploadFile(testCasesDir + File.separator + inputName));
+            }
+        } catch (Exception e) {
+            log.error("[Test Case Cache] Upload the input files of [{}] to sandbox error------------>", testCasesDir, e);
+            return -1;
+        }
+        return inputBytes;
+    }
+
+    /**
+     * 按最近最少使用淘汰，直到占用字节数不超过上限
+     */
+    private void evict(List<String> deleteFileIdList) {
+        Iterator<Map.Entry<Long, Entry>> iterator = entryMap.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<Long, Entry> eldest = iterator.next();
+            iterator.remove();
+            detach(eldest.getValue(), deleteFileIdList);
+        }
+    }
+
+    private void removeEntry(Long problemId, Entry entry, List<String> deleteFileIdList) {
+        entryMap.remove(problemId);
+        detach(entry, deleteFileIdList);
+    }
+
+    private void detach(Entry entry, List<String> deleteFileIdList) {
+        entry.evicted = true;
+        totalBytes -= entry.infoBytes + entry.inputBytes;
+        if (entry.refCount <= 0 && entry.inputFileIdMap != null) {
+            deleteFileIdList.addAll(entry.inputFileIdMap.values());
+            entry.inputFileIdMap = null;
+        }
+    }
+
+    private void deleteFiles(List<String> fileIdList) {
+        for (String fileId : fileIdList) {
+            SandboxRun.delFile(fileId);
+        }
+    }
+
+    public static class Lease {
+
+        private final Entry entry;
+
+        private final Map<String, String> inputFileIdMap;
+
+        private Lease(Entry entry, Map<String, String> inputFileIdMap) {
+            this.entry = entry;
+            this.inputFileIdMap = inputFileIdMap;
+        }
+
+        public Map<String, String> getInputFileIdMap() {
+            return inputFileIdMap;
+        }
+    }
+
+    private static class Entry {
+
+        private final String version;
+
+        private final JSONObject info;
+
+        private final long infoBytes;
+
+        private long inputBytes = 0;
+
+        private Map<String, String> inputFileIdMap;
+
+        private int hits = 0;
+
+        private int refCount = 0;
+
+        private boolean uploading = false;
+
+        private boolean uploadSkipped = false;
+
+        private boolean evicted = false;
+
+        Entry(String version, JSONObject info, long infoBytes) {
+            this.version = version;
+            this.info = info;
+            this.infoBytes = infoBytes;
+        }
+    }
+}
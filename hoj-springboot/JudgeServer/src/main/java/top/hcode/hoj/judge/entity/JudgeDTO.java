@@ -65,6 +65,11 @@ public class JudgeDTO implements Serializable {
      */
     private Integer score;
 
+    /**
+     * 当前题目评测点的分组（用于subtask）
+     */
+    private Integer groupNum;
+
     /**
      * problem_case_id
      */
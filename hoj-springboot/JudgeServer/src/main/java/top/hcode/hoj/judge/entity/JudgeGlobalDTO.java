@@ -9,6 +9,7 @@ import top.hcode.hoj.util.Constants;
 
 import java.io.Serializable;
 import java.util.HashMap;
+import java.util.Map;
 
 /**
  * @Author: Himit_ZH
@@ -34,6 +35,11 @@ public class JudgeGlobalDTO implements Serializable {
      */
     private Constants.JudgeMode judgeMode;
 
+    /**
+     * 题目数据的输入文件预先上传到沙盒后的文件id，key为输入文件名
+     */
+    private Map<String, String> testCaseInputFileIdMap;
+
     /**
      * 用户程序在沙盒编译后对应内存文件的id，运行时需要传入
      */
@@ -2,19 +2,30 @@ package top.hcode.hoj.judge.task;
 
 import cn.hutool.json.JSONArray;
 import cn.hutool.json.JSONObject;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import org.springframework.util.DigestUtils;
+import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 import top.hcode.hoj.common.exception.SystemError;
 import top.hcode.hoj.judge.AbstractJudge;
+import top.hcode.hoj.judge.OutputComparator;
 import top.hcode.hoj.judge.SandboxRun;
+import top.hcode.hoj.judge.TestCaseCache;
 import top.hcode.hoj.judge.entity.JudgeDTO;
 import top.hcode.hoj.judge.entity.JudgeGlobalDTO;
 import top.hcode.hoj.judge.entity.LanguageConfig;
 import top.hcode.hoj.judge.entity.SandBoxRes;
 import top.hcode.hoj.util.Constants;
 
-import java.nio.charset.StandardCharsets;
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @Author: Himit_ZH
@@ -22,16 +33,83 @@ import java.nio.charset.StandardCharsets;
  * @Description: 普通评测
  */
 @Component
+@Slf4j(topic = "hoj")
 public class DefaultJudge extends AbstractJudge {
+
+    @Resource
+    private TestCaseCache testCaseCache;
+
     @Override
     public JSONArray judgeCase(JudgeDTO judgeDTO, JudgeGlobalDTO judgeGlobalDTO) throws SystemError {
-        LanguageConfig runConfig = judgeGlobalDTO.getRunConfig();
         // 调用安全沙箱使用测试点对程序进行测试
-        return SandboxRun.testCase(
+        return runTestCases(Collections.singletonList(judgeDTO), judgeGlobalDTO);
+    }
+
+    @Override
+    public boolean isSupportBatch() {
+        return true;
+    }
+
+    /**
+     * 将多个测试点合并为一次沙箱调用进行评测，返回结果与judgeDTOList顺序一致
+     */
+    @Override
+    public List<JSONObject> judgeBatch(List<JudgeDTO> judgeDTOList, JudgeGlobalDTO judgeGlobalDTO) throws SystemError {
+        // 多个测试点合并为一次安全沙箱调用
+        JSONArray judgeResultList = runTestCases(judgeDTOList, judgeGlobalDTO);
+
+        List<JSONObject> resultList = new ArrayList<>(judgeDTOList.size());
+        for (int i = 0; i < judgeDTOList.size(); i++) {
+            resultList.add(process(judgeDTOList.get(i), judgeGlobalDTO, (JSONObject) judgeResultList.get(i)));
+        }
+        return resultList;
+    }
+
+    /**
+     * 调用安全沙箱运行测试点。引用了预先上传的输入文件时，若沙箱返回文件错误（如沙箱重启后文件缓存丢失），
+     * 则使该题目缓存的fileId失效，改为按路径拷贝输入文件重新运行
+     */
+    private JSONArray runTestCases(List<JudgeDTO> judgeDTOList, JudgeGlobalDTO judgeGlobalDTO) throws SystemError {
+        Map<String, String> inputFileIdMap = judgeGlobalDTO.getTestCaseInputFileIdMap();
+        JSONArray judgeResultList = SandboxRun.testCaseBatch(getTestCaseCmdList(judgeDTOList, judgeGlobalDTO, inputFileIdMap));
+        if (CollectionUtils.isEmpty(inputFileIdMap) || !hasFileError(judgeResultList)) {
+            return judgeResultList;
+        }
+        log.warn("[Default Judge] The cached input files of problem [{}] are unavailable in sandbox, fall back to the local files",
+                judgeGlobalDTO.getProblemId());
+        testCaseCache.invalidateInputFiles(judgeGlobalDTO.getProblemId(), inputFileIdMap);
+        // 本次评测剩余的测试点也不再引用失效的fileId
+        judgeGlobalDTO.setTestCaseInputFileIdMap(null);
+        return SandboxRun.testCaseBatch(getTestCaseCmdList(judgeDTOList, judgeGlobalDTO, null));
+    }
+
+    private boolean hasFileError(JSONArray judgeResultList) {
+        for (int i = 0; i < judgeResultList.size(); i++) {
+            if ("File Error".equals(((JSONObject) judgeResultList.get(i)).getStr("originalStatus"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<JSONObject> getTestCaseCmdList(List<JudgeDTO> judgeDTOList,
+                                                JudgeGlobalDTO judgeGlobalDTO,
+                                                Map<String, String> inputFileIdMap) {
+        List<JSONObject> cmdList = new ArrayList<>(judgeDTOList.size());
+        for (JudgeDTO judgeDTO : judgeDTOList) {
+            cmdList.add(getTestCaseCmd(judgeDTO, judgeGlobalDTO, inputFileIdMap));
+        }
+        return cmdList;
+    }
+
+    private JSONObject getTestCaseCmd(JudgeDTO judgeDTO, JudgeGlobalDTO judgeGlobalDTO, Map<String, String> inputFileIdMap) {
+        LanguageConfig runConfig = judgeGlobalDTO.getRunConfig();
+        return SandboxRun.testCaseCmd(
                 parseRunCommand(runConfig.getRunCommand(),  null, null, null),
                 runConfig.getRunEnvs(),
                 judgeDTO.getTestCaseInputPath(),
                 judgeDTO.getTestCaseInputContent(),
+                inputFileIdMap == null ? null : inputFileIdMap.get(judgeDTO.getTestCaseInputFileName()),
                 judgeGlobalDTO.getTestTime(),
                 judgeGlobalDTO.getMaxMemory(),
                 judgeDTO.getMaxOutputSize(),
@@ -61,7 +139,7 @@ public class DefaultJudge extends AbstractJudge {
             } else {
                 // 与原测试数据输出的md5进行对比 AC或者是WA
                 JSONObject testcaseInfo = (JSONObject) ((JSONArray) judgeGlobalDTO.getTestCaseInfo().get("testCases")).get(judgeDTO.getTestCaseNum() - 1);
-                result.set("status", compareOutput(sandBoxRes.getStdout(), judgeGlobalDTO.getRemoveEOLBlank(), testcaseInfo));
+                result.set("status", compareOutput(sandBoxRes.getStdout(), judgeGlobalDTO.getRemoveEOLBlank(), testcaseInfo, judgeDTO.getTestCaseOutputPath()));
             }
         } else if (sandBoxRes.getStatus().equals(Constants.Judge.STATUS_TIME_LIMIT_EXCEEDED.getStatus())) {
             result.set("status", Constants.Judge.STATUS_TIME_LIMIT_EXCEEDED.getStatus());
@@ -110,30 +188,62 @@ public class DefaultJudge extends AbstractJudge {
     }
 
     // 根据评测结果与用户程序输出的字符串MD5进行对比
-    private Integer compareOutput(String userOutput, Boolean isRemoveEOLBlank, JSONObject testcaseInfo) {
-
-        // 如果当前题目选择默认去掉字符串末位空格
-        if (isRemoveEOLBlank) {
-            String userOutputMd5 = DigestUtils.md5DigestAsHex(rtrim(userOutput).getBytes(StandardCharsets.UTF_8));
-            if (userOutputMd5.equals(testcaseInfo.getStr("EOFStrippedOutputMd5"))) {
-                return Constants.Judge.STATUS_ACCEPTED.getStatus();
-            }else{
-                return Constants.Judge.STATUS_WRONG_ANSWER.getStatus();
-            }
-        } else { // 不选择默认去掉文末空格 与原数据进行对比
-            String userOutputMd5 = DigestUtils.md5DigestAsHex(userOutput.getBytes(StandardCharsets.UTF_8));
-            if (userOutputMd5.equals(testcaseInfo.getStr("outputMd5"))) {
-                return Constants.Judge.STATUS_ACCEPTED.getStatus();
+    // 单次遍历用户输出同时得到三种MD5，标准输出文件存在时边遍历边对比去除空白后的内容，不一致则提前判为WA
+    // 去除文末空白时会去掉全角空格等Unicode空白，而逐字节对比只忽略[ \t\n\x0B\f\r]，此时不能提前判WA，只对比MD5
+    private Integer compareOutput(String userOutput, Boolean isRemoveEOLBlank, JSONObject testcaseInfo, String testCaseOutputPath) {
+
+        OutputComparator comparator;
+        try (InputStream expectedOutput = isRemoveEOLBlank ? null : openExpectedOutput(testCaseOutputPath)) {
+            comparator = new OutputComparator(expectedOutput);
+            comparator.update(userOutput);
+            comparator.finish();
+        } catch (IOException e) {
+            // 标准输出文件读取失败时退回到仅对比MD5
+            comparator = new OutputComparator(null);
+            try {
+                comparator.update(userOutput);
+            } catch (IOException ignored) {
             }
         }
-        // 如果不AC,进行PE判断，否则为WA
-        String userOutputMd5 = DigestUtils.md5DigestAsHex(userOutput.replaceAll("\\s+", "").getBytes(StandardCharsets.UTF_8));
-        if (userOutputMd5.equals(testcaseInfo.getStr("allStrippedOutputMd5"))) {
-            return Constants.Judge.STATUS_PRESENTATION_ERROR.getStatus();
-        } else {
+
+        // 不去除文末空白时，去除全部空白后都不一致，不可能是AC或PE
+        if (comparator.isMismatched()) {
+            return Constants.Judge.STATUS_WRONG_ANSWER.getStatus();
+        }
+
+        try {
+            // 如果当前题目选择默认去掉字符串末位空格
+            if (isRemoveEOLBlank) {
+                if (comparator.getEOLStrippedOutputMd5().equals(testcaseInfo.getStr("EOFStrippedOutputMd5"))) {
+                    return Constants.Judge.STATUS_ACCEPTED.getStatus();
+                } else {
+                    return Constants.Judge.STATUS_WRONG_ANSWER.getStatus();
+                }
+            } else { // 不选择默认去掉文末空格 与原数据进行对比
+                if (comparator.getOutputMd5().equals(testcaseInfo.getStr("outputMd5"))) {
+                    return Constants.Judge.STATUS_ACCEPTED.getStatus();
+                }
+            }
+            // 如果不AC,进行PE判断，否则为WA
+            if (comparator.getAllStrippedOutputMd5().equals(testcaseInfo.getStr("allStrippedOutputMd5"))) {
+                return Constants.Judge.STATUS_PRESENTATION_ERROR.getStatus();
+            } else {
+                return Constants.Judge.STATUS_WRONG_ANSWER.getStatus();
+            }
+        } catch (IOException e) {
             return Constants.Judge.STATUS_WRONG_ANSWER.getStatus();
         }
     }
 
+    private InputStream openExpectedOutput(String testCaseOutputPath) throws IOException {
+        if (StringUtils.isEmpty(testCaseOutputPath)) {
+            return null;
+        }
+        File file = new File(testCaseOutputPath);
+        if (!file.isFile()) {
+            return null;
+        }
+        return new FileInputStream(file);
+    }
 
 }
\ No newline at end of file
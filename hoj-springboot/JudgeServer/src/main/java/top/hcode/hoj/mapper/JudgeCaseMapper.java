@@ -2,9 +2,12 @@ package top.hcode.hoj.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.springframework.stereotype.Repository;
 import top.hcode.hoj.pojo.entity.judge.JudgeCase;
 
+import java.util.List;
+
 /**
  * <p>
  *  Mapper 接口
@@ -17,4 +20,9 @@ import top.hcode.hoj.pojo.entity.judge.JudgeCase;
 @Repository
 public interface JudgeCaseMapper extends BaseMapper<JudgeCase> {
 
+    /**
+     * 多行insert，一条语句写入多个测试点结果
+     */
+    int insertBatch(@Param("judgeCaseList") List<JudgeCase> judgeCaseList);
+
 }
@@ -7,6 +7,7 @@ import top.hcode.hoj.pojo.entity.judge.Judge;
 import top.hcode.hoj.pojo.dto.ToJudgeDTO;
 
 import java.util.HashMap;
+import java.util.List;
 
 public interface JudgeService {
 
@@ -20,4 +21,6 @@ public interface JudgeService {
 
     public Boolean compileInteractive(String code, Long pid, String interactiveLanguage, HashMap<String, String> extraFiles) throws SystemError;
 
+    public void prefetchTestCase(List<Long> pidList);
+
 }
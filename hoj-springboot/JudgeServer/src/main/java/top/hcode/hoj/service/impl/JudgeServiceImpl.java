@@ -2,25 +2,33 @@ package top.hcode.hoj.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import top.hcode.hoj.common.exception.SystemError;
 import top.hcode.hoj.dao.JudgeEntityService;
 import top.hcode.hoj.dao.ProblemEntityService;
 import top.hcode.hoj.judge.JudgeContext;
+import top.hcode.hoj.judge.JudgeResultSink;
+import top.hcode.hoj.judge.ProblemTestCaseUtils;
+import top.hcode.hoj.judge.entity.Pair_;
 import top.hcode.hoj.pojo.dto.TestJudgeReq;
 import top.hcode.hoj.pojo.dto.TestJudgeRes;
 import top.hcode.hoj.pojo.dto.ToJudgeDTO;
 import top.hcode.hoj.pojo.entity.judge.Judge;
+import top.hcode.hoj.pojo.entity.judge.JudgeCase;
 import top.hcode.hoj.pojo.entity.problem.Problem;
 import top.hcode.hoj.remoteJudge.RemoteJudgeContext;
 import top.hcode.hoj.service.JudgeService;
 import top.hcode.hoj.util.Constants;
 
 import javax.annotation.Resource;
+import java.io.File;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -30,6 +38,7 @@ import java.util.Objects;
  */
 @Service
 @RefreshScope
+@Slf4j(topic = "hoj")
 public class JudgeServiceImpl implements JudgeService {
 
     @Value("${hoj-judge-server.name}")
@@ -44,6 +53,12 @@ public class JudgeServiceImpl implements JudgeService {
     @Resource
     private JudgeContext judgeContext;
 
+    @Resource
+    private JudgeResultSink judgeResultSink;
+
+    @Resource
+    private ProblemTestCaseUtils problemTestCaseUtils;
+
     @Autowired
     private RemoteJudgeContext remoteJudgeContext;
 
@@ -94,14 +109,13 @@ public class JudgeServiceImpl implements JudgeService {
                         "io_write_file_name")
                 .eq("id", judge.getPid());
         Problem problem = problemEntityService.getOne(problemQueryWrapper);
-        Judge finalJudgeRes = judgeContext.Judge(problem, judge);
-
-        // 更新该次提交
-        judgeEntityService.updateById(finalJudgeRes);
+        Pair_<Judge, List<JudgeCase>> judgeRes = judgeContext.Judge(problem, judge);
+        Judge finalJudgeRes = judgeRes.getKey();
 
+        Runnable updateOtherTable = null;
         if (!Objects.equals(finalJudgeRes.getStatus(), Constants.Judge.STATUS_SUBMITTED_FAILED.getStatus())) {
             // 更新其它表
-            judgeContext.updateOtherTable(finalJudgeRes.getSubmitId(),
+            updateOtherTable = () -> judgeContext.updateOtherTable(finalJudgeRes.getSubmitId(),
                     finalJudgeRes.getStatus(),
                     judge.getCid(),
                     judge.getUid(),
@@ -110,6 +124,8 @@ public class JudgeServiceImpl implements JudgeService {
                     finalJudgeRes.getScore(),
                     finalJudgeRes.getTime());
         }
+        // 测试点结果与该次提交在同一批次事务中写入，提交后再在当前线程更新其它表
+        judgeResultSink.saveResult(finalJudgeRes, judgeRes.getValue(), updateOtherTable);
     }
 
     @Override
@@ -151,4 +167,30 @@ public class JudgeServiceImpl implements JudgeService {
     public Boolean compileInteractive(String code, Long pid, String interactiveLanguage, HashMap<String, String> extraFiles) throws SystemError {
         return judgeContext.compileInteractive(code, pid, interactiveLanguage, extraFiles);
     }
-}
\ No newline at end of file
+
+    /**
+     * 预先拉取题目测试数据并加载info缓存，用于比赛开始前的预热
+     */
+    @Override
+    @Async
+    public void prefetchTestCase(List<Long> pidList) {
+        QueryWrapper<Problem> problemQueryWrapper = new QueryWrapper<>();
+        problemQueryWrapper.select("id", "case_version", "judge_mode", "judge_case_mode", "is_remote")
+                .in("id", pidList);
+        for (Problem problem : problemEntityService.list(problemQueryWrapper)) {
+            if (Boolean.TRUE.equals(problem.getIsRemote())) {
+                continue;
+            }
+            String testCasesDir = Constants.JudgeDir.TEST_CASE_DIR.getContent() + File.separator + "problem_" + problem.getId();
+            try {
+                problemTestCaseUtils.loadTestCaseInfo(problem.getId(),
+                        testCasesDir,
+                        problem.getCaseVersion(),
+                        problem.getJudgeMode(),
+                        problem.getJudgeCaseMode());
+            } catch (Exception e) {
+                log.error("[Test Case Prefetch] Prefetch the test cases of problem [{}] error------------>", problem.getId(), e);
+            }
+        }
+    }
+}
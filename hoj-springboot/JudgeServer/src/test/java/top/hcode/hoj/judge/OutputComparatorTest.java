@@ -0,0 +1,120 @@
+package top.hcode.hoj.judge;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/17 20:10
+ * @Description: 对比OutputComparator的流式摘要与原先rtrim + md5DigestAsHex的结果
+ */
+class OutputComparatorTest {
+
+    private static final String[] OUTPUTS = {
+            "",
+            "1 2 3",
+            "1 2 3\n",
+            "1 2 3\r\n4 5 6\r\n",
+            "1 2 3 \r\n4 5 6\t\r\n\r\n",
+            "\n\n\n",
+            "  \n\t\n \r\n",
+            "a\n   \n\t \nb\n \n",
+            // 文末的全角空格、不换行空格、BOM、NUL及0x1C-0x1F
+            "答案\u3000\u3000",
+            "answer\u00A0\n\u00A0",
+            "answer\n\uFEFF",
+            "answer\u0000\u0000",
+            "answer\u001C\u001D\u001E\u001F\n",
+            "answer\u2003\u202F\u205F \n",
+            // 行中的Unicode空白不属于正则中的\s，不会在行末被去掉
+            "a\u3000\nb\u00A0 \nc",
+            "a \u00A0 \nb",
+            "\u3000",
+            "\uD835\uDD38\uD835\uDD39 \n\uD83D\uDE00\u3000\n",
+    };
+
+    @Test
+    void testDigestsMatchBaseline() throws IOException {
+        for (String output : OUTPUTS) {
+            OutputComparator comparator = new OutputComparator(null);
+            comparator.update(output);
+            assertDigests(output, comparator);
+        }
+    }
+
+    @Test
+    void testStreamDigestsMatchBaseline() throws IOException {
+        for (String output : OUTPUTS) {
+            OutputComparator comparator = new OutputComparator(null);
+            comparator.update(new ByteArrayInputStream(output.getBytes(StandardCharsets.UTF_8)));
+            assertDigests(output, comparator);
+        }
+    }
+
+    @Test
+    void testSplitUpdate() throws IOException {
+        String output = "1 2 \r\n3\u3000\n\u00A0 \n";
+        OutputComparator comparator = new OutputComparator(null);
+        for (int i = 0; i < output.length(); i++) {
+            comparator.update(output.substring(i, i + 1));
+        }
+        assertDigests(output, comparator);
+    }
+
+    @Test
+    void testCompareWithExpectedOutput() throws IOException {
+        assertTrue(compare("1 2 3\r\n4 5 6\r\n", "1 2 3\n4 5 6"));
+        assertTrue(compare("", "\n \n"));
+        assertTrue(compare("  \n\t\n", ""));
+        assertFalse(compare("1 2 3\n", "1 2 4\n"));
+        assertFalse(compare("1 2 3\n", "1 2 3 4\n"));
+        assertFalse(compare("1 2 3 4\n", "1 2 3\n"));
+        assertFalse(compare("", "0"));
+    }
+
+    @Test
+    void testTrailingUnicodeBlanksWithRemoveEOLBlank() throws IOException {
+        // 与标准输出只差文末的Unicode空白，去除文末空白后应为AC，但逐字节对比去除空白后的内容并不一致
+        String[][] cases = {
+                {"answer\u3000", "answer"},
+                {"answer\u00A0\n", "answer\n"},
+                {"answer\u0000\u0000", "answer"},
+                {"answer\n\uFEFF", "answer"},
+                {"answer\u001C\u001D\u001E\u001F\n", "answer"},
+                {"answer", "answer\u3000\u00A0"},
+        };
+        for (String[] c : cases) {
+            String output = c[0];
+            String expectedOutput = c[1];
+            OutputComparator comparator = new OutputComparator(null);
+            comparator.update(output);
+            assertEquals(md5(ProblemTestCaseUtils.rtrim(expectedOutput)), comparator.getEOLStrippedOutputMd5(), output);
+            assertFalse(compare(output, expectedOutput), output);
+        }
+    }
+
+    private static boolean compare(String output, String expectedOutput) throws IOException {
+        OutputComparator comparator = new OutputComparator(
+                new ByteArrayInputStream(expectedOutput.getBytes(StandardCharsets.UTF_8)));
+        comparator.update(output);
+        return comparator.finish();
+    }
+
+    private static void assertDigests(String output, OutputComparator comparator) throws IOException {
+        assertEquals(md5(output), comparator.getOutputMd5(), output);
+        assertEquals(md5(ProblemTestCaseUtils.rtrim(output)), comparator.getEOLStrippedOutputMd5(), output);
+        assertEquals(md5(output.replaceAll("\\s+", "")), comparator.getAllStrippedOutputMd5(), output);
+    }
+
+    private static String md5(String value) {
+        return DigestUtils.md5DigestAsHex(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
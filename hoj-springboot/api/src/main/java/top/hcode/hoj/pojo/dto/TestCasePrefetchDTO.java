@@ -0,0 +1,30 @@
+package top.hcode.hoj.pojo.dto;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.util.List;
+
+
+/**
+ * @Author: Himit_ZH
+ * @Date: 2026/10/19 20:10
+ * @Description: 通知判题机预先拉取测试数据
+ */
+@Data
+@Accessors(chain = true)
+public class TestCasePrefetchDTO implements Serializable {
+
+    private static final long serialVersionUID = 666L;
+
+    /**
+     * 需要预先拉取测试数据的题目id
+     */
+    private List<Long> pidList;
+
+    /**
+     * 调用判题机的凭证
+     */
+    private String token;
+}
@@ -415,6 +415,61 @@ const ojApi = {
       data: { submitIds, cid }
     })
   },
+  // 以SSE订阅提交的评测状态，浏览器不支持流式读取时返回null，由调用方退回轮询
+  subscribeSubmissionsStatus(submitIds, cid, onStatus, onClose) {
+    if (!window.fetch || !window.ReadableStream || !window.AbortController || !window.TextDecoder) {
+      return null
+    }
+    let url = cid
+      ? '/api/contest-submissions-status-stream?cid=' + cid + '&'
+      : '/api/submissions-status-stream?'
+    url += 'submitIds=' + submitIds.join(',')
+    let headers = { 'Url-Type': 'general', Accept: 'text/event-stream' }
+    const token = localStorage.getItem('token')
+    token && (headers.Authorization = token)
+    const controller = new AbortController()
+    fetch(url, { headers, signal: controller.signal }).then((res) => {
+      if (!res.ok || !res.body) {
+        throw new Error('subscribe failed')
+      }
+      const reader = res.body.getReader()
+      const decoder = new TextDecoder('utf-8')
+      let buffer = ''
+      let completed = false
+      const read = () => reader.read().then(({ done, value }) => {
+        if (done) {
+          onClose(completed)
+          return
+        }
+        buffer += decoder.decode(value, { stream: true })
+        let index
+        while ((index = buffer.indexOf('\n\n')) >= 0) {
+          let event = 'message'
+          let data = ''
+          for (let line of buffer.substring(0, index).split('\n')) {
+            if (line.startsWith('event:')) {
+              event = line.substring(6).trim()
+            } else if (line.startsWith('data:')) {
+              data += line.substring(5)
+            }
+          }
+          buffer = buffer.substring(index + 2)
+          if (event === 'status') {
+            onStatus(JSON.parse(data))
+          } else if (event === 'complete') {
+            completed = true
+          }
+        }
+        return read()
+      })
+      return read()
+    }).catch(() => {
+      if (!controller.signal.aborted) {
+        onClose(false)
+      }
+    })
+    return controller
+  },
 
   submissionRejudge(submitId) {
     return ajax('/api/admin/judge/rejudge', 'get', {
@@ -651,6 +706,27 @@ const ojApi = {
     })
   },
 
+  // 比赛的全部提交重判
+  ContestRejudge(cid) {
+    return ajax('/api/admin/judge/rejudge-contest', 'get', {
+      params: { cid }
+    })
+  },
+
+  // 批量重判的进度
+  getRejudgeProgress(jobId) {
+    return ajax('/api/admin/judge/rejudge-progress', 'get', {
+      params: { jobId }
+    })
+  },
+
+  // 取消批量重判
+  cancelRejudge(jobId) {
+    return ajax('/api/admin/judge/cancel-rejudge', 'get', {
+      params: { jobId }
+    })
+  },
+
   // ACM赛制或OI赛制的排行榜
   getUserRank(currentPage, limit, type, searchUser) {
     return ajax('/api/get-rank-list', 'get', {
@@ -476,6 +476,11 @@ export const m = {
   Contest_Rejudge_Tips: 'Are you sure you want to rejudge all submissions of the questions?',
   Rejudge_All: 'Rejudge All',
   Rejudge_successfully: 'Rejudge successfully',
+  Rejudge_Whole_Contest: 'Rejudge the Whole Contest',
+  Rejudge_Progress: 'Rejudge Progress',
+  Rejudge_ETA: 'ETA',
+  Cancel_Rejudge: 'Cancel Rejudge',
+  Rejudge_Seconds: 'Seconds',
 
   // /views/oj/contest/children/ScrollBoard.vue
   ScrollBoard_Parameter_Config: 'Scroll Board Config',
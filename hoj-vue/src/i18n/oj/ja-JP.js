@@ -479,6 +479,11 @@ export const m = {
   Rejudge_All: 'すべて再ジャッジ',
   Contest_Rejudge_Tips: 'すべての提出記録を再ジャッジしますか？',
   Rejudge_successfully: '再ジャッジ成功',
+  Rejudge_Whole_Contest: 'コンテスト全体を再ジャッジ',
+  Rejudge_Progress: '再ジャッジの進捗',
+  Rejudge_ETA: '残り時間',
+  Cancel_Rejudge: '再ジャッジを取消',
+  Rejudge_Seconds: '秒',
 
   // /views/oj/contest/children/ScrollBoard.vue
   ScrollBoard_Parameter_Config: 'スコアボードパラメータ設定',
@@ -479,6 +479,11 @@ export const m = {
   Rejudge_All: '모두 재채점',
   Contest_Rejudge_Tips: '모든 제출 기록을 재채점하시겠습니까?',
   Rejudge_successfully: '재채점 성공',
+  Rejudge_Whole_Contest: '대회 전체 재채점',
+  Rejudge_Progress: '재채점 진행률',
+  Rejudge_ETA: '남은 시간',
+  Cancel_Rejudge: '재채점 취소',
+  Rejudge_Seconds: '초',
 
   // /views/oj/contest/children/ScrollBoard.vue
   ScrollBoard_Parameter_Config: '스코어보드 매개변수 설정',
@@ -479,6 +479,11 @@ export const m = {
   Rejudge_All: '重测',
   Contest_Rejudge_Tips: '您确定重测所有提交记录?',
   Rejudge_successfully: '重测成功',
+  Rejudge_Whole_Contest: '重测整场比赛',
+  Rejudge_Progress: '重测进度',
+  Rejudge_ETA: '预计剩余',
+  Cancel_Rejudge: '取消重测',
+  Rejudge_Seconds: '秒',
 
   // /views/oj/contest/children/ScrollBoard.vue
   ScrollBoard_Parameter_Config: '滚榜参数配置',
@@ -479,6 +479,11 @@ export const m = {
   Rejudge_All: '重測',
   Contest_Rejudge_Tips: '您確定重測所有提交記錄?',
   Rejudge_successfully: '重測成功',
+  Rejudge_Whole_Contest: '重測整場比賽',
+  Rejudge_Progress: '重測進度',
+  Rejudge_ETA: '預計剩餘',
+  Cancel_Rejudge: '取消重測',
+  Rejudge_Seconds: '秒',
 
   // /views/oj/contest/children/ScrollBoard.vue
   ScrollBoard_Parameter_Config: '滾榜引數配置',